@@ -0,0 +1,60 @@
+package library.controller;
+
+import library.exceptions.ServiceException;
+import library.utils.Captcha;
+import library.utils.CaptchaPool;
+import library.utils.constants.Pages;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+
+import static library.utils.constants.ServletAttributes.CAPTCHA;
+
+/**
+ * Serves image of captcha saved to current session. Image must not be cached by browser or proxies.
+ * If image is not kept in {@link CaptchaPool} anymore (evicted or issued on other node), it's rendered again.
+ */
+@WebServlet(Pages.CAPTCHA)
+public class CaptchaServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(CaptchaServlet.class);
+    private static final String CONTENT_TYPE = "image/jpeg";
+
+    @Override
+    public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        logger.debug("start");
+        resp.setHeader("Cache-Control", "no-store, no-cache, must-revalidate");
+        resp.setHeader("Pragma", "no-cache");
+        resp.setDateHeader("Expires", 0);
+
+        HttpSession session = req.getSession(false);
+        Captcha captcha = session == null ? null : (Captcha) session.getAttribute(CAPTCHA);
+        if (captcha == null || !captcha.getId().equals(req.getParameter("id"))) {
+            logger.debug("no such captcha in session");
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        CaptchaPool pool = CaptchaPool.getInstance();
+        byte[] image = pool.getImage(captcha.getId());
+        if (image == null) {
+            try {
+                image = pool.render(captcha);
+            } catch (ServiceException e) {
+                resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return;
+            }
+        }
+
+        resp.setContentType(CONTENT_TYPE);
+        resp.setContentLength(image.length);
+        resp.getOutputStream().write(image);
+        logger.debug("end");
+    }
+}
@@ -2,12 +2,23 @@ package library.controller;
 
 import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
+import library.model.connection.ConnectionPool;
+import library.model.connection.SchemaMigrations;
+import library.model.connection.SqlStats;
 import library.model.dao.LangDao;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.entities.Lang;
 import library.model.entities.User;
 import library.model.tasks.AbstractPeriodicTask;
+import library.model.tasks.BasketStore;
+import library.model.tasks.BookingDeadlines;
+import library.model.tasks.CatalogRefresh;
+import library.model.tasks.LeaderElectedTask;
+import library.model.tasks.LeaderElection;
 import library.model.tasks.TaskScheduler;
+import library.utils.CaptchaPool;
+import library.utils.metrics.LatencyMetrics;
+import library.utils.password.PasswordHashing;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -16,6 +27,8 @@ import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,10 +37,16 @@ import static library.utils.constants.ServletAttributes.*;
 /**
  * Used for initialize crucial components for application:
  * <ul>
+ *     <li> apply migrations of DB schema, which aren't applied yet, application isn't started if it's failed
  *     <li> put all supported user roles to application context
  *     <li> get supported languages from DB and put them to app context
  *     <li> get default language from web.xml and put it to app context
  *     <li> get periodic tasks from web.xml, schedule it, and destroy them in case of shut down
+ *     <li> if lease is configured in web.xml, run each periodic task on one elected node of the cluster only
+ *     <li> load deadlines of bookings and check them every tick specified in web.xml, under lease in cluster
+ *     <li> write baskets of users to DB in background and flush them on shut down
+ *     <li> start filling of captcha pool
+ *     <li> configure password hashing from web.xml and stop its executor on shut down
  * </ul>
  */
 public class ContextListener implements ServletContextListener {
@@ -35,6 +54,7 @@ public class ContextListener implements ServletContextListener {
     private static final String INIT_PARAMETER_TASK = "TASK";
     private static final String INIT_PARAMETER_DEFAULT_LANG = "DEFAULT_LANG";
     private static final String DELIM = " ";
+    private LeaderElection election;
 
     /**
      * This should stop all scheduled task to shut down gracefully
@@ -44,6 +64,14 @@ public class ContextListener implements ServletContextListener {
         logger.debug("Servlet context destruction init...");
         TaskScheduler scheduler = TaskScheduler.getInstance();
         scheduler.cancelAll();
+        // last changes of baskets are written at once
+        BasketStore.getInstance().run();
+        if (election != null) {
+            election.releaseAll();
+        }
+        PasswordHashing.getInstance().shutdown();
+        LatencyMetrics.getCommands().unregister();
+        LatencyMetrics.getRequests().unregister();
         logger.debug("Servlet context destruction finished");
     }
 
@@ -52,13 +80,33 @@ public class ContextListener implements ServletContextListener {
         logger.debug("Servlet context initialization init...");
 
         ServletContext servletContext = event.getServletContext();
+        initSchema();
         initUserRoles(servletContext);
         initSupportedLanguages(servletContext);
         initScheduledTasks(servletContext);
+        initBookingDeadlines(servletContext);
+        initBasketStore(servletContext);
+        initCatalogRefresh(servletContext);
+        CaptchaPool.getInstance().refill();
+        initPasswordHashing(servletContext);
+        initSqlStats(servletContext);
 
         logger.debug("Servlet context initialization finished");
     }
 
+    private void initSchema() {
+        logger.debug("start");
+
+        try (Connection conn = ConnectionPool.getInstance().getConnection()) {
+            new SchemaMigrations(conn).migrate();
+        } catch (SQLException e) {
+            logger.fatal("Unable to migrate DB schema: {}", e.getMessage());
+            // application isn't started on half-migrated schema
+            throw new IllegalStateException("DB schema is not migrated: " + e.getMessage(), e);
+        }
+        logger.debug("end");
+    }
+
     private void initUserRoles(ServletContext servletContext) {
         logger.debug("start");
 
@@ -111,6 +159,16 @@ public class ContextListener implements ServletContextListener {
             return;
         }
 
+        try {
+            election = LeaderElection.fromContext(servletContext,
+                    DaoFactoryCreator.getDefaultFactory().newInstance().getTaskLeaseDao());
+        } catch (ServiceException e) {
+            logger.fatal(e.getMessage());
+        }
+        if (election != null) {
+            scheduler.proceed(election.heartbeat(), election.getHeartbeatPeriod());
+        }
+
         for (String task: taskInit.split(DELIM)) {
             scheduleTask(servletContext, scheduler, task);
         }
@@ -118,6 +176,72 @@ public class ContextListener implements ServletContextListener {
         logger.debug("end");
     }
 
+    private void initPasswordHashing(ServletContext servletContext) {
+        try {
+            PasswordHashing.init(servletContext);
+        } catch (ServiceException e) {
+            logger.fatal("Unable to initialize password hashing, defaults are used: {}", e.getMessage());
+        }
+    }
+
+    private void initSqlStats(ServletContext servletContext) {
+        try {
+            SqlStats.getInstance().init(servletContext);
+        } catch (ServiceException e) {
+            logger.fatal("Unable to initialize SQL statistics, defaults are used: {}", e.getMessage());
+        }
+    }
+
+    private void initBasketStore(ServletContext servletContext) {
+        logger.debug("start");
+
+        BasketStore store = BasketStore.getInstance();
+        try {
+            store.init(servletContext);
+            TaskScheduler.getInstance().proceed(store, store.getFlushPeriod());
+        } catch (ServiceException e) {
+            logger.fatal("Unable to initialize basket store: {}", e.getMessage());
+        }
+        logger.debug("end");
+    }
+
+    private void initCatalogRefresh(ServletContext servletContext) {
+        logger.debug("start");
+
+        CatalogRefresh refresh = CatalogRefresh.getInstance();
+        try {
+            refresh.init(servletContext);
+            if (refresh.isEnabled()) {
+                TaskScheduler.getInstance().proceed(refresh, refresh.getPeriod());
+            }
+        } catch (ServiceException e) {
+            logger.fatal("Unable to initialize catalog snapshot, books are searched in DB: {}", e.getMessage());
+        }
+        logger.debug("end");
+    }
+
+    private void initBookingDeadlines(ServletContext servletContext) {
+        logger.debug("start");
+
+        BookingDeadlines deadlines = BookingDeadlines.getInstance();
+        try {
+            deadlines.init(servletContext);
+            // tick runs on every node, but deadlines are loaded and fired by the node, which holds the lease.
+            // Lease is checked by heartbeat period, not every tick
+            deadlines.setElection(election);
+            if (election != null) {
+                TaskScheduler.getInstance().proceed(election.campaign(BookingDeadlines.TASK_NAME),
+                        election.getHeartbeatPeriod());
+            }
+            long tick = deadlines.getTick();
+            TaskScheduler.getInstance().proceed(deadlines, tick);
+            logger.info("Booking deadlines will be checked every {} milliseconds", tick);
+        } catch (ServiceException e) {
+            logger.fatal("Unable to initialize booking deadlines: {}", e.getMessage());
+        }
+        logger.debug("end");
+    }
+
     @SuppressWarnings("unchecked")
     private void scheduleTask(ServletContext servletContext, TaskScheduler scheduler, String task) {
         logger.trace("proceed task={}", task);
@@ -135,7 +259,11 @@ public class ContextListener implements ServletContextListener {
             AbstractPeriodicTask taskInstance = taskClassConstructor.newInstance();
             taskInstance.init(servletContext);
 
-            scheduler.proceed(taskInstance, period);
+            if (election == null) {
+                scheduler.proceed(taskInstance, period);
+            } else {
+                scheduler.proceed(new LeaderElectedTask(task, taskInstance, period, election), period);
+            }
             logger.info("{} will be executed every {} milliseconds", task, period);
         } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
                  IllegalAccessException | InvocationTargetException e) {
@@ -6,6 +6,7 @@ import library.utils.constants.Pages;
 import library.exceptions.AjaxException;
 import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
+import library.utils.metrics.LatencyMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -23,7 +24,7 @@ import static library.utils.constants.ServletAttributes.SERVICE_ERROR;
  * gets next page from it, redirect/forward request to that page for command result to be shown to user
  * Post requests automatically supports RPG (except AJAX reading requests)
  */
-@WebServlet("/controller")
+@WebServlet(Pages.CONTROLLER)
 public class FrontController extends HttpServlet {
     private static final long serialVersionUID = 1L;
     private static final Logger logger = LogManager.getLogger(FrontController.class);
@@ -71,7 +72,8 @@ public class FrontController extends HttpServlet {
     }
 
     /**
-     * Gets command and executes it
+     * Gets command and executes it. Latency of command is recorded to {@link LatencyMetrics#getCommands()},
+     * command is failed if error page or AJAX error is returned.
      *
      * @param req user request
      * @return page to be shown to user
@@ -81,15 +83,24 @@ public class FrontController extends HttpServlet {
         String commandStr = req.getParameter("command");
         logger.trace("commandStr={}, encoding={}", commandStr, req.getCharacterEncoding());
 
+        long start = System.nanoTime();
+        boolean error = true;
         try {
             Command command = CommandContext.getCommand(commandStr);
             String page = command.execute(req);
             if (page == null) {
                 throw new ServiceException("error.no.page.was.returned");
             }
+            error = false;
             return page;
+        } catch (AjaxException e) {
+            error = e.getNextPage() == null;
+            throw e;
         } catch (DaoException | ServiceException e) {
             return redirectToError(e.getMessage(), req);
+        } finally {
+            String name = CommandContext.contains(commandStr) ? commandStr : LatencyMetrics.OTHER;
+            LatencyMetrics.getCommands().record(name, System.nanoTime() - start, error);
         }
     }
 
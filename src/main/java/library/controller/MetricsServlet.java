@@ -0,0 +1,73 @@
+package library.controller;
+
+import library.model.dao.coalescing.SingleFlight;
+import library.model.entities.User;
+import library.utils.constants.Pages;
+import library.utils.constants.ServletAttributes;
+import library.utils.metrics.LatencyMetrics;
+import library.utils.metrics.PrometheusFormat;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exports latency and errors of commands and requests and counters of coalesced DAO calls in Prometheus text format.
+ * Available for admin only, it's checked here and not by {@link library.controller.filters.AuthFilter} alone,
+ * the same values are available through JMX.
+ */
+@WebServlet(Pages.METRICS)
+public class MetricsServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(MetricsServlet.class);
+
+    @Override
+    public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        logger.debug("start");
+        if (!isAdmin(req)) {
+            logger.warn("metrics are requested by non admin user");
+            resp.sendError(HttpServletResponse.SC_FORBIDDEN);
+            logger.debug("end");
+            return;
+        }
+        resp.setHeader("Cache-Control", "no-store");
+        resp.setContentType(PrometheusFormat.CONTENT_TYPE);
+
+        PrintWriter out = resp.getWriter();
+        PrometheusFormat.write(out, LatencyMetrics.getCommands());
+        PrometheusFormat.write(out, LatencyMetrics.getRequests());
+        writeSingleFlights(out);
+        out.flush();
+        logger.debug("end");
+    }
+
+    private static boolean isAdmin(HttpServletRequest req) {
+        HttpSession session = req.getSession(false);
+        User user = session == null ? null : (User) session.getAttribute(ServletAttributes.USER);
+        return user != null && user.getRole() == User.Role.ADMIN;
+    }
+
+    private static void writeSingleFlights(PrintWriter out) {
+        Map<String, Long> executed = new LinkedHashMap<>();
+        Map<String, Long> coalesced = new LinkedHashMap<>();
+        Map<String, Long> timeouts = new LinkedHashMap<>();
+        for (SingleFlight<?, ?> flight : SingleFlight.registered()) {
+            executed.put(flight.getName(), flight.getExecuted());
+            coalesced.put(flight.getName(), flight.getCoalesced());
+            timeouts.put(flight.getName(), flight.getTimeouts());
+        }
+        PrometheusFormat.writeCounter(out, "library_dao_executed_total", "DAO calls executed", executed);
+        PrometheusFormat.writeCounter(out, "library_dao_coalesced_total", "DAO calls served by call in flight",
+                coalesced);
+        PrometheusFormat.writeCounter(out, "library_dao_coalescing_timeouts_total",
+                "Coalesced DAO calls executed again after timeout", timeouts);
+    }
+}
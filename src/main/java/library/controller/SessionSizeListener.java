@@ -0,0 +1,54 @@
+package library.controller;
+
+import library.utils.session.SessionSizeReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.http.HttpSessionAttributeListener;
+import javax.servlet.http.HttpSessionBindingEvent;
+
+/**
+ * Reports size of session attributes, as every attribute is replicated in cluster. It's diagnostic: attribute is
+ * serialized on request thread, so it's done only if debug level is enabled for this listener. Size of changed
+ * attribute is logged with debug level then, attributes bigger than {@link #WARN_SIZE} bytes or not serializable
+ * are logged as warning.
+ */
+public class SessionSizeListener implements HttpSessionAttributeListener {
+    private static final Logger logger = LogManager.getLogger(SessionSizeListener.class);
+    static final int WARN_SIZE = 16 * 1024;
+
+    @Override
+    public void attributeAdded(HttpSessionBindingEvent event) {
+        report(event);
+    }
+
+    @Override
+    public void attributeReplaced(HttpSessionBindingEvent event) {
+        report(event);
+    }
+
+    @Override
+    public void attributeRemoved(HttpSessionBindingEvent event) {
+        // nothing to report
+    }
+
+    private void report(HttpSessionBindingEvent event) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
+
+        String name = event.getName();
+        int size = SessionSizeReport.sizeOf(event.getSession().getAttribute(name));
+        if (size == SessionSizeReport.NOT_SERIALIZABLE) {
+            logger.warn("session attribute {} is not serializable, it can't be replicated", name);
+        } else if (size > WARN_SIZE) {
+            logger.warn("session attribute {} is {} bytes", name, size);
+        } else {
+            logger.debug("session attribute {} is {} bytes", name, size);
+        }
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("session {}: {}", event.getSession().getId(), SessionSizeReport.of(event.getSession()));
+        }
+    }
+}
@@ -58,9 +58,13 @@ public class AuthFilter implements Filter {
             role = user.getRole();
         }
 
-        String command = req.getParameter(ServletAttributes.COMMAND);
+        // command is authorized for controller only, other servlets are authorized by their URI
+        String command = null;
+        if (Pages.CONTROLLER.equals(httpRequest.getServletPath())) {
+            command = req.getParameter(ServletAttributes.COMMAND);
+        }
         if (command == null) {
-            command = ((HttpServletRequest) req).getRequestURI();
+            command = httpRequest.getRequestURI();
         }
 
         boolean authContext = CommandContext.isAllowed(command, role);
@@ -0,0 +1,143 @@
+package library.controller.filters;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Keeps the whole body in memory, so headers can be added after the chain is finished. It's used in dev mode only.
+ * Redirects and errors are sent at once, {@link #beforeCommit()} is called before them.
+ */
+abstract class BufferedResponse extends HttpServletResponseWrapper {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean committed;
+
+    BufferedResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Called once, before anything is sent to client
+     */
+    protected abstract void beforeCommit();
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException("response is buffered");
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        // body is sent by commit()
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        // body is sent by commit()
+    }
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        body.reset();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        resetBuffer();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed || super.isCommitted();
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        commitHeaders();
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        commitHeaders();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        commitHeaders();
+        super.sendError(sc, msg);
+    }
+
+    /**
+     * Sends headers and buffered body to client
+     */
+    void commit() throws IOException {
+        if (committed) {
+            return;
+        }
+        commitHeaders();
+        flushBuffer();
+        if (body.size() > 0) {
+            getResponse().setContentLength(body.size());
+            body.writeTo(getResponse().getOutputStream());
+        }
+        getResponse().flushBuffer();
+    }
+
+    private void commitHeaders() {
+        if (!committed) {
+            committed = true;
+            beforeCommit();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package library.controller.filters;
 
-import com.github.cage.Cage;
-import com.github.cage.GCage;
+import library.utils.CaptchaPool;
 import library.utils.constants.Pages;
 import library.exceptions.ServiceException;
 import library.model.entities.User;
@@ -16,9 +15,12 @@ import java.io.IOException;
 
 import static library.utils.constants.ServletAttributes.*;
 
+/**
+ * Puts new captcha to session of not authenticated user. Captcha is taken from {@link CaptchaPool},
+ * its image is served by {@link library.controller.CaptchaServlet}
+ */
 public class CaptchaGenerator implements Filter {
     private static final Logger logger = LogManager.getLogger(CaptchaGenerator.class);
-    private final Cage cage = new GCage();
 
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
@@ -27,16 +29,20 @@ public class CaptchaGenerator implements Filter {
         User currentUser = (User) session.getAttribute(USER);
         if (currentUser != null) { //means user is authenticated
             filterChain.doFilter(servletRequest, servletResponse);
+            return;
         }
 
         try {
-            Captcha captcha = new Captcha();
-            session.setAttribute("captcha", captcha);
+            CaptchaPool pool = CaptchaPool.getInstance();
+            Captcha captcha = pool.issue();
+            pool.release((Captcha) session.getAttribute(CAPTCHA));
+            session.setAttribute(CAPTCHA, captcha);
             logger.trace("captcha saved to session {}", captcha);
         } catch (ServiceException e) {
             session.setAttribute(SERVICE_ERROR, e);
             session.setAttribute(SERVICE_ERROR_PARAMETERS, e.getMsgParameters());
             servletRequest.getRequestDispatcher(Pages.ERROR).forward(servletRequest, servletResponse);
+            return;
         }
 
         filterChain.doFilter(servletRequest, servletResponse);
@@ -0,0 +1,68 @@
+package library.controller.filters;
+
+import library.model.connection.QueryCounter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Dev mode only (system property {@code library.devMode=true}): counts SQL statements of request and returns
+ * the number in {@code X-Query-Count} header, request over budget (init parameter) is logged. Response is buffered,
+ * so the header includes statements done by rendering of page. Otherwise the filter does nothing.
+ */
+public class QueryCount implements Filter {
+    private static final Logger logger = LogManager.getLogger(QueryCount.class);
+    static final String DEV_MODE_PROPERTY = "library.devMode";
+    static final String HEADER = "X-Query-Count";
+    static final String INIT_PARAM_BUDGET = "budget";
+    private boolean enabled;
+    private int budget;
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp,
+                         FilterChain chain) throws IOException, ServletException {
+        if (!enabled || QueryCounter.isStarted()) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        BufferedResponse buffered = new BufferedResponse((HttpServletResponse) resp) {
+            @Override
+            protected void beforeCommit() {
+                setHeader(HEADER, String.valueOf(QueryCounter.get()));
+            }
+        };
+        QueryCounter.start();
+        try {
+            chain.doFilter(req, buffered);
+            buffered.commit();
+        } finally {
+            int count = QueryCounter.stop();
+            if (budget > 0 && count > budget) {
+                HttpServletRequest httpRequest = (HttpServletRequest) req;
+                logger.warn("{} SQL statements (budget is {}) for uri={}, query={}", count, budget,
+                        httpRequest.getRequestURI(), httpRequest.getQueryString());
+            }
+        }
+    }
+
+    @Override
+    public void init(FilterConfig conf) throws ServletException {
+        logger.debug("Filter initialization starts");
+        enabled = Boolean.getBoolean(DEV_MODE_PROPERTY);
+        String budgetStr = conf.getInitParameter(INIT_PARAM_BUDGET);
+        try {
+            budget = budgetStr == null ? 0 : Integer.parseInt(budgetStr);
+        } catch (NumberFormatException e) {
+            throw new ServletException(INIT_PARAM_BUDGET + " should be valid integer value: " + e.getMessage());
+        }
+        if (enabled) {
+            logger.info("dev mode: SQL statements are counted per request, budget is {}", budget);
+        }
+        logger.debug("Filter initialization finished");
+    }
+}
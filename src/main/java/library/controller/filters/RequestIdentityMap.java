@@ -0,0 +1,37 @@
+package library.controller.filters;
+
+import library.model.connection.IdentityMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.*;
+import java.io.IOException;
+
+/**
+ * Opens {@link IdentityMap} for request, so every entity is read once and is one instance till the page is rendered
+ */
+public class RequestIdentityMap implements Filter {
+    private static final Logger logger = LogManager.getLogger(RequestIdentityMap.class);
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp,
+                         FilterChain chain) throws IOException, ServletException {
+        if (IdentityMap.isOpen()) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        IdentityMap.open();
+        try {
+            chain.doFilter(req, resp);
+        } finally {
+            IdentityMap.close();
+        }
+    }
+
+    @Override
+    public void init(FilterConfig conf) {
+        logger.debug("Filter initialization starts");
+        logger.debug("Filter initialization finished");
+    }
+}
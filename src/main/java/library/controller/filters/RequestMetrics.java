@@ -0,0 +1,61 @@
+package library.controller.filters;
+
+import library.model.command.CommandContext;
+import library.utils.metrics.LatencyMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records latency of the whole request (filters, command and rendering of page) to
+ * {@link LatencyMetrics#getRequests()}. Request is named by command or by page, the unknown ones are recorded
+ * as {@link LatencyMetrics#OTHER}. Request is failed if it's finished by exception or server error status.
+ * <p>
+ * Name is resolved after the chain, so parameters are decoded with encoding set by {@link EncodingFilter}.
+ */
+public class RequestMetrics implements Filter {
+    private static final Logger logger = LogManager.getLogger(RequestMetrics.class);
+    private final LatencyMetrics metrics;
+
+    public RequestMetrics() {
+        this(LatencyMetrics.getRequests());
+    }
+
+    /**
+     * For testing purpose
+     */
+    RequestMetrics(LatencyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp,
+                         FilterChain chain) throws IOException, ServletException {
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            chain.doFilter(req, resp);
+            error = ((HttpServletResponse) resp).getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        } finally {
+            metrics.record(name((HttpServletRequest) req), System.nanoTime() - start, error);
+        }
+    }
+
+    static String name(HttpServletRequest req) {
+        String command = req.getParameter("command");
+        if (command != null) {
+            return CommandContext.contains(command) ? command : LatencyMetrics.OTHER;
+        }
+        String uri = req.getRequestURI();
+        return CommandContext.contains(uri) ? uri : LatencyMetrics.OTHER;
+    }
+
+    @Override
+    public void init(FilterConfig conf) {
+        logger.debug("Filter initialization finished");
+    }
+}
@@ -0,0 +1,58 @@
+package library.controller.filters;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+
+import javax.servlet.*;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Marks every N-th request as sampled (N is specified in web.xml), so trace is written for it only.
+ * Marker is put to thread context, log configuration should filter events by it with DynamicThresholdFilter
+ * (see prod profile).
+ */
+public class TraceSampling implements Filter {
+    private static final Logger logger = LogManager.getLogger(TraceSampling.class);
+    static final String SAMPLED_KEY = "sampled";
+    static final String INIT_PARAM_RATE = "rate";
+    private final AtomicLong counter = new AtomicLong();
+    private volatile int rate;
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp,
+                         FilterChain chain) throws IOException, ServletException {
+        if (rate == 0 || counter.getAndIncrement() % rate != 0) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        ThreadContext.put(SAMPLED_KEY, "true");
+        try {
+            chain.doFilter(req, resp);
+        } finally {
+            ThreadContext.remove(SAMPLED_KEY);
+        }
+    }
+
+    @Override
+    public void init(FilterConfig conf) throws ServletException {
+        logger.debug("Filter initialization starts");
+        String rateStr = conf.getInitParameter(INIT_PARAM_RATE);
+        try {
+            rate = rateStr == null ? 0 : Integer.parseInt(rateStr);
+            if (rate < 0) {
+                throw new NumberFormatException("it's negative " + rate);
+            }
+        } catch (NumberFormatException e) {
+            throw new ServletException(INIT_PARAM_RATE + " should be valid positive integer value: " + e.getMessage());
+        }
+        if (rate == 0) {
+            logger.info("trace sampling is disabled");
+        } else {
+            logger.info("every {} request will be traced", rate);
+        }
+        logger.debug("Filter initialization finished");
+    }
+}
@@ -5,8 +5,8 @@ import library.utils.constants.ServletAttributes;
 import library.controller.FrontController;
 import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
-import library.model.dao.AuthorDao;
 import library.model.dao.BookDao;
+import library.model.dao.ReadResult;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.dao.factory.DaoFactoryImpl;
 import library.model.entities.Author;
@@ -93,20 +93,20 @@ public class BookLogic {
         List<Author> authors = new ArrayList<>(authorIDsAsStr.length);
         savedUserInput.setAuthors(authors);
 
-        AuthorDao authorDao = daoFactory.getAuthorDao();
+        List<Long> authorIDs = new ArrayList<>(authorIDsAsStr.length);
         for (String s : authorIDsAsStr) {
             try {
-                long id = Long.parseLong(s);
-                Author author = authorDao.read(id);
-                if (author == null) {
-                    logger.error("author with id {} was not found", id);
-                    throw new ServiceException("error.no.object.with.such.id");
-                }
-                authors.add(author);
+                authorIDs.add(Long.parseLong(s));
             } catch (NumberFormatException e) {
                 throw new ServiceException("error.wrong.number.format");
             }
         }
+        ReadResult<Author> found = daoFactory.getAuthorDao().readAll(authorIDs);
+        if (!found.isComplete()) {
+            logger.error("authors with ids {} were not found", found.getMissing());
+            throw new ServiceException("error.no.object.with.such.id");
+        }
+        authors.addAll(found.getFound());
 
         if (!isValidISOLanguage(langCode)) {
             throw new ServiceException("error.wrong.language.code");
@@ -223,7 +223,18 @@ public class BookLogic {
         session.setAttribute(ATTR_PROCEED_BOOK, updatedBookVersion); // for not loosing user edition
         logger.trace("oldBookVersion={}", oldBookVersion);
 
-        BookStat oldStat = oldBookVersion.getBookStat();
+        // stats are changed by bookings while book is edited, so current ones are read from DB
+        BookStat oldStat;
+        try {
+            Book storedBook = daoFactory.getBookDao().read(oldBookVersion.getId());
+            if (storedBook == null) {
+                throw new ServiceException("error.not.found");
+            }
+            oldStat = storedBook.getBookStat();
+        } catch (ServiceException | DaoException e) {
+            session.setAttribute(ServletAttributes.USER_ERROR, e.getMessage());
+            return errorPage;
+        }
 
         long newTotal = updatedBookVersion.getBookStat().getTotal();
         long booksUsersAreHolding = oldStat.getTotal() - oldStat.getInStock();
@@ -1,18 +1,26 @@
 package library.model.command;
 
 import library.utils.constants.Pages;
+import library.utils.constants.ServletAttributes;
 import library.exceptions.AjaxException;
 import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
+import library.model.connection.IdentityMap;
 import library.model.dao.AbstractSuperDao;
 import library.model.dao.BookDao;
 import library.model.dao.BookingDao;
+import library.model.dao.ReadResult;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.dao.factory.DaoFactoryImpl;
+import library.model.dto.BookingListItem;
 import library.model.entities.Book;
 import library.model.entities.BookStat;
 import library.model.entities.Booking;
+import library.model.entities.Lang;
 import library.model.entities.User;
+import library.model.tasks.BasketStore;
+import library.model.tasks.BookingDeadlines;
+import library.utils.session.BasketState;
 import library.utils.validation.SafeRequest;
 import library.utils.validation.SafeSession;
 import org.apache.logging.log4j.LogManager;
@@ -47,13 +55,16 @@ import static library.utils.constants.ServletAttributes.*;
  * <li> see books in subscription (means see all books in bookings with state equal to DELIVERED and LOCATION
  * equal to USER
  * </ul>
- * All new booking are saved to session. User can have only one new booking. (//TODO save new booking to DB also)
+ * New booking is kept by {@link BasketStore} as {@link BasketState}, which keeps only ids of books, and is written
+ * to DB as draft in background. User can have only one new booking. It's restored from DB once per request, so
+ * reserved books are counted against current book stats. Copy of basket is put to session for page header only.
  * Look up for new booking should be in such order:
  * <ul>
- *      <li> in session? if no:
- *      <li> in db? if no:
+ *      <li> restored in this request? if no:
+ *      <li> in basket store (memory, then DB draft)? if no:
  *      <li> if needed, create new booking
  * </ul>
+ * Lists of bookings are put to request only, they are never saved to session.
  *
  *
  * LIBRARIAN role can:
@@ -70,6 +81,8 @@ public class BookingLogic {
     private static final DaoFactoryImpl daoFactory = DaoFactoryCreator.getDefaultFactory().newInstance();
     private static final String BOOKING_TRACE = "booking={}";
     private static final String ATTR_BOOKING_SEARCH_LINK = "booking" + ATTR_SEARCH_LINK;
+    private static final String ATTR_BASKET = ServletAttributes.BOOKING;
+    private static final String ATTR_RESTORED_BOOKING = "restoredBooking";
 
     /**
      * Made private intentionally, no instance is needed by design
@@ -91,7 +104,7 @@ public class BookingLogic {
 
         Booking booking = null;
         if (u.getRole().equals(User.Role.USER)) {
-            booking = findBookingForUser(session, u, create);
+            booking = findBookingForUser(req, u, create);
         }
 
         if (u.getRole().equals(User.Role.LIBRARIAN)) {
@@ -114,12 +127,22 @@ public class BookingLogic {
     /**
      * This will definitely return booking in case of create=true;
      */
-    private static Booking findBookingForUser(HttpSession session, User u, boolean create) throws AjaxException {
+    private static Booking findBookingForUser(HttpServletRequest req, User u, boolean create) throws AjaxException,
+            DaoException {
         logger.debug("findBooking request for USER role init...");
 
-        Booking booking = (Booking) session.getAttribute(BOOKING);
+        Booking booking = (Booking) req.getAttribute(ATTR_RESTORED_BOOKING);
         if (booking != null) {
-            logger.debug("found booking in session");
+            logger.debug("booking is already restored in this request");
+            return booking;
+        }
+
+        HttpSession session = req.getSession();
+        BasketState basket = BasketStore.getInstance().find(u.getId());
+        if (!basket.isEmpty()) {
+            logger.debug("found booking in basket store");
+            booking = restoreBooking(session, basket, u);
+            req.setAttribute(ATTR_RESTORED_BOOKING, booking);
             logger.trace(BOOKING_TRACE, booking);
             return booking;
         }
@@ -133,7 +156,7 @@ public class BookingLogic {
             Booking.Builder builder = new Booking.Builder();
             builder.setUser(u);
             booking = builder.build();
-            session.setAttribute(BOOKING, booking);
+            req.setAttribute(ATTR_RESTORED_BOOKING, booking);
             logger.trace(BOOKING_TRACE, booking);
         }
 
@@ -141,24 +164,81 @@ public class BookingLogic {
     }
 
     /**
-     * Finds all booking in state DELIVERED and saves this list to session for further showing to a user
+     * Reads books of basket from DB and reserves them again. Books, which were deleted or can't be reserved anymore,
+     * are removed from basket.
+     */
+    private static Booking restoreBooking(HttpSession session, BasketState basket, User u) throws DaoException {
+        logger.debug("start");
+        Booking booking = new Booking.Builder().setUser(u).build();
+
+        ReadResult<Book> books = daoFactory.getBookDao().readAll(basket.getBookIds());
+        if (!books.isComplete()) {
+            logger.debug("books (ids {}) were deleted, they are removed from basket", books.getMissing());
+        }
+        for (Book book: books.getFound()) {
+            try {
+                booking.addBook(book);
+            } catch (ServiceException e) {
+                logger.debug("book (id {}) can't be reserved anymore, it's removed from basket", book.getId());
+            }
+        }
+
+        if (booking.getBooks().size() != basket.getSize()) {
+            saveBooking(session, booking);
+        }
+        logger.debug("end");
+        return booking;
+    }
+
+    /**
+     * Saves NEW booking to basket store as ids only, its copy is set to session for page header
+     */
+    /**
+     * Language of session or default one of application if session has no language yet
+     */
+    private static Lang preferredLang(HttpServletRequest req) {
+        Lang lang = (Lang) req.getSession().getAttribute(PREFERRED_USER_LANG);
+        if (lang == null) {
+            lang = (Lang) req.getServletContext().getAttribute(DEFAULT_LANG);
+        }
+        return lang;
+    }
+
+    private static void saveBooking(HttpSession session, Booking booking) {
+        List<Long> bookIds = new ArrayList<>();
+        for (Book book: booking.getBooks()) {
+            bookIds.add(book.getId());
+        }
+        BasketState basket = new BasketState(booking.getUser().getId(), bookIds);
+        BasketStore.getInstance().save(basket);
+
+        if (basket.isEmpty()) {
+            session.removeAttribute(ATTR_BASKET);
+        } else {
+            session.setAttribute(ATTR_BASKET, basket);
+        }
+        logger.trace("basket saved {}", basket);
+    }
+
+    /**
+     * Finds all booking in state DELIVERED and puts this list to request for further showing to a user
      *
      * @param req user request
      * @return page to be shown to user
      */
     public static String listBookInSubscription(HttpServletRequest req) throws DaoException {
         logger.debug("start");
-        HttpSession session = req.getSession();
-
-        User user = (User) session.getAttribute("user");
+        User user = (User) req.getSession().getAttribute("user");
         logger.trace("user={}", user);
 
         logger.debug("looking for user bookings in DB...");
+        // books and their authors are loaded by one query per table for all bookings
+        IdentityMap.lazyLoading();
         BookingDao dao = daoFactory.getBookingDao();
         List<Booking> bookings = dao.findDeliveredByUserID(user.getId());
 
-        session.setAttribute(ATTR_BOOKINGS, bookings);
-        logger.trace("set session attribute {}={}", ATTR_BOOKINGS, bookings);
+        req.setAttribute(ATTR_BOOKINGS, bookings);
+        logger.trace("set request attribute {}={}", ATTR_BOOKINGS, bookings);
         logger.debug("end");
         return Pages.MY_BOOKS;
     }
@@ -175,11 +255,14 @@ public class BookingLogic {
         // only for librarian now
         logger.debug("start");
         BookingDao dao = daoFactory.getBookingDao();
-        return CommonLogicFunctions.findWithPagination(req, dao, ATTR_BOOKINGS, BOOKING, Pages.BOOKING);
+        Lang lang = preferredLang(req);
+        return CommonLogicFunctions.findWithPagination(req, dao::findByPatternCount,
+                (what, searchBy, sortBy, num, page) -> dao.findItemsByPattern(what, searchBy, sortBy, num, page, lang),
+                ATTR_BOOKINGS, BOOKING, Pages.BOOKING);
     }
 
     /**
-     * Finds current booking for a user and also all previous bookings. Saves all this to session
+     * Finds current booking for a user and also all previous bookings. Puts all this to request
      *
      * @param req user request
      * @return page to be shown to user
@@ -194,18 +277,21 @@ public class BookingLogic {
             throw new ServiceException("error.resource.forbidden");
         }
 
-        Booking currentBooking = findBookingForUser(session, u, false);
-        session.setAttribute(ATTR_PROCEED_BOOKING, currentBooking);
+        Booking currentBooking = findBookingForUser(req, u, false);
+        req.setAttribute(ATTR_PROCEED_BOOKING, currentBooking);
         logger.trace("set {} to {}", ATTR_PROCEED_BOOKING, currentBooking);
 
         BookingDao bookingDao = daoFactory.getBookingDao();
 
-        List<Booking> bookings = bookingDao.findBy(u.getEmail(), "email");
+        Lang lang = preferredLang(req);
+        List<BookingListItem> bookings = bookingDao.findItemsBy(u.getEmail(), "email", lang);
         // we don't want current booking to be repeated
-        bookings.remove(currentBooking);
-        bookings.sort(Comparator.comparing(Booking::getState));
+        if (currentBooking != null) {
+            bookings.removeIf(b -> b.getId() == currentBooking.getId());
+        }
+        bookings.sort(Comparator.comparing(BookingListItem::getState));
 
-        session.setAttribute(ATTR_BOOKINGS, bookings);
+        req.setAttribute(ATTR_BOOKINGS, bookings);
         logger.trace("set {} to {}", ATTR_BOOKINGS, bookings);
 
         logger.debug("end");
@@ -246,6 +332,7 @@ public class BookingLogic {
 
         if (!booking.getBooks().contains(book)) {
             booking.addBook(book);
+            saveBooking(req.getSession(), booking);
             logger.debug("Book was added");
         } else {
             logger.debug("Book already exists in booking");
@@ -284,9 +371,10 @@ public class BookingLogic {
         AbstractSuperDao<Book> bookDao = daoFactory.getBookDao();
         Book book = bookDao.read(id);
         booking.removeBook(book);
+        saveBooking(req.getSession(), booking);
 
         logger.debug("end");
-        return Pages.BASKET;
+        return basket(req);
     }
 
     /**
@@ -312,8 +400,10 @@ public class BookingLogic {
         }
 
         if (state == Booking.State.NEW) {
-            // nothing was added to DB yet, so just delete and forget
+            // only draft is in DB, it'll be deleted by basket store
             booking.setBooks(new ArrayList<>());
+            saveBooking(session, booking);
+            req.removeAttribute(ATTR_RESTORED_BOOKING);
             return nextPageLogic(session);
         }
 
@@ -325,6 +415,7 @@ public class BookingLogic {
         booking.setState(Booking.State.CANCELED);
         booking.setModified(Calendar.getInstance());
         daoFactory.getBookingDao().update(booking);
+        BookingDeadlines.getInstance().track(booking);
         //req.setAttribute(PAGE, Pages.BASKET);
 
         logger.debug("end");
@@ -340,7 +431,7 @@ public class BookingLogic {
             logger.trace("no previous search link in session");
 
             User currentUser = safeSession.get(USER).notNull().convert(User.class::cast);
-            page = currentUser.getRole() == User.Role.LIBRARIAN ? Pages.BOOKING : Pages.BASKET;
+            page = currentUser.getRole() == User.Role.LIBRARIAN ? Pages.BOOKING : Pages.USER_BASKET;
         }
 
         logger.debug("end");
@@ -370,10 +461,14 @@ public class BookingLogic {
         booking.setState(Booking.State.BOOKED);
         booking.setModified(Calendar.getInstance());
 
-        daoFactory.getBookingDao().create(booking);
-        req.getSession().removeAttribute(BOOKING);
+        // flush of basket would write the draft back after it's deleted
+        BasketStore.getInstance().remove(booking.getUser().getId());
+        daoFactory.getBookingDao().createFromDraft(booking);
+        BookingDeadlines.getInstance().track(booking);
+        req.getSession().removeAttribute(ATTR_BASKET);
+        req.removeAttribute(ATTR_RESTORED_BOOKING);
         logger.debug("end");
-        return Pages.BASKET;
+        return Pages.USER_BASKET;
     }
 
     /**
@@ -418,6 +513,7 @@ public class BookingLogic {
 
         BookingDao dao = daoFactory.getBookingDao();
         dao.update(booking);
+        BookingDeadlines.getInstance().track(booking);
 
         logger.debug("end");
         return nextPageLogic(req.getSession());
@@ -451,6 +547,7 @@ public class BookingLogic {
         booking.setModified(Calendar.getInstance());
 
         daoFactory.getBookingDao().update(booking);
+        BookingDeadlines.getInstance().track(booking);
 
         logger.debug("end");
         return nextPageLogic(req.getSession());
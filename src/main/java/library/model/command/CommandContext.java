@@ -50,6 +50,8 @@ public class CommandContext {
         commands.put("author.delete", new AuthContext(AuthorLogic::delete, User.Role.ADMIN));
         commands.put("author.find", new AuthContext(AuthorLogic::find, User.Role.ADMIN));
         commands.put("author.findAll", new AuthContext(AuthorLogic::findAll, User.Role.ADMIN));
+        commands.put("sql.stats", new AuthContext(MonitoringLogic::sqlStats, User.Role.ADMIN));
+        commands.put("sql.reset", new AuthContext(MonitoringLogic::sqlReset, User.Role.ADMIN));
         commands.put("/img/favicon.png", new AuthContext(null, User.Role.UNKNOWN));
         commands.put("/img/lib-background.jpg", new AuthContext(null, User.Role.UNKNOWN));
         commands.put("/img/lib-background1.jpg", new AuthContext(null, User.Role.UNKNOWN));
@@ -65,8 +67,11 @@ public class CommandContext {
         commands.put(Pages.USERS, new AuthContext(null, User.Role.ADMIN));
         commands.put(Pages.BOOK_EDIT, new AuthContext(null, User.Role.ADMIN));
         commands.put(Pages.JS, new AuthContext(null, User.Role.UNKNOWN));
+        commands.put(Pages.CAPTCHA, new AuthContext(null, User.Role.UNKNOWN));
+        commands.put(Pages.METRICS, new AuthContext(null, User.Role.ADMIN));
         commands.put(Pages.AUTHORS, new AuthContext(null, User.Role.ADMIN));
         commands.put(Pages.AUTHOR_EDIT, new AuthContext(null, User.Role.ADMIN));
+        commands.put(Pages.SQL_STATS, new AuthContext(null, User.Role.ADMIN));
     }
 
     private static class AuthContext {
@@ -123,6 +128,14 @@ public class CommandContext {
         return commands.get(s).isAllowed(role);
     }
 
+    /**
+     * @param s page name or command name
+     * @return true if command or page is known
+     */
+    public static boolean contains(String s) {
+        return s != null && commands.containsKey(s);
+    }
+
     private static void checkCommandString(String s) throws ServiceException {
         if (s == null || commands.get(s) == null) {
             throw new ServiceException("error.illegal.command");
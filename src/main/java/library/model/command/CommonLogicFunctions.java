@@ -27,6 +27,23 @@ class CommonLogicFunctions {
     private CommonLogicFunctions() {
     }
 
+    /**
+     * Counts search result, see {@link AbstractSuperDao#findByPatternCount(String, String)}
+     */
+    @FunctionalInterface
+    interface PatternCounter {
+        int count(String what, String searchBy) throws ServiceException, DaoException;
+    }
+
+    /**
+     * Finds page of search result, see {@link AbstractSuperDao#findByPattern(String, String, String, int, int)}
+     */
+    @FunctionalInterface
+    interface PatternFinder<T> {
+        List<T> find(String what, String searchBy, String sortBy, int num, int page)
+                throws ServiceException, DaoException;
+    }
+
     /**
      * Find Entities, according DAO of which implements {@link library.model.dao.AbstractSuperDao}
      * interface.
@@ -47,6 +64,24 @@ class CommonLogicFunctions {
                                                                String reqAttribute,
                                                                String searchLinkAttribute,
                                                                String desiredPage) throws ServiceException {
+        return findWithPagination(req, dao::findByPatternCount, dao::findByPattern, reqAttribute,
+                searchLinkAttribute, desiredPage);
+    }
+
+    /**
+     * The same as {@link #findWithPagination(HttpServletRequest, AbstractSuperDao, String, String, String)}, page is
+     * found by given finder, so list can show projection of entities
+     *
+     * @param counter counts all found
+     * @param finder finds page
+     * @param <T> type of list items
+     */
+    public static <T> String findWithPagination(HttpServletRequest req,
+                                                PatternCounter counter,
+                                                PatternFinder<T> finder,
+                                                String reqAttribute,
+                                                String searchLinkAttribute,
+                                                String desiredPage) throws ServiceException {
 
         SafeRequest safeReq = new SafeRequest(req);
         String query = safeReq.get("query").escape().convert();
@@ -69,19 +104,19 @@ class CommonLogicFunctions {
         logger.trace("query={}, searchBy={}, sortBy={}, num={}, pageNum={}",
                 query, searchBy, sortBy, num, pageNum);
 
-        List<E> list = null;
+        List<T> list = null;
         String page;
         int totalCount = -1;
         HttpSession session = req.getSession();
         try {
             if (pageNum == 1) {
                 session.removeAttribute(PAGES_NUM);
-                totalCount = dao.findByPatternCount(query, searchBy);
+                totalCount = counter.count(query, searchBy);
                 session.setAttribute(PAGES_NUM, Math.ceil(1.0 * totalCount / num));
                 logger.trace("totalCount={}", totalCount);
             }
             if ((pageNum == 1 && totalCount > 0) || pageNum > 1) {
-                list = dao.findByPattern(query, searchBy, sortBy, num, pageNum);
+                list = finder.find(query, searchBy, sortBy, num, pageNum);
             }
             page = desiredPage;
         } catch (DaoException | ServiceException e) {
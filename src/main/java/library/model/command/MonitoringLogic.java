@@ -0,0 +1,53 @@
+package library.model.command;
+
+import library.model.connection.SqlStats;
+import library.utils.constants.Pages;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static library.utils.constants.ServletAttributes.ATTR_SQL_STATS;
+
+/**
+ * Class-util, has only static methods by design. All methods are related to monitoring of application, they're
+ * available for admin only. All public methods here must comply with {@link Command} signature, as
+ * they will be used in CommandContext as lambda-functions and called from Front Controller
+ * {@link library.controller.FrontController}
+ */
+public class MonitoringLogic {
+    private static final Logger logger = LogManager.getLogger(MonitoringLogic.class);
+    static final int TOP_STATEMENTS = 50;
+
+    /**
+     * Made private intentionally, no instance is needed by design
+     */
+    private MonitoringLogic() {
+    }
+
+    /**
+     * Shows SQL statements with the biggest total time
+     *
+     * @param req user request
+     * @return page with statements
+     */
+    public static String sqlStats(HttpServletRequest req) {
+        logger.debug("start");
+        req.setAttribute(ATTR_SQL_STATS, SqlStats.getInstance().top(TOP_STATEMENTS));
+        logger.debug("end");
+        return Pages.SQL_STATS;
+    }
+
+    /**
+     * Clears SQL statistics, so the next values are collected from scratch
+     *
+     * @param req user request
+     * @return page with statements
+     */
+    public static String sqlReset(HttpServletRequest req) {
+        logger.debug("start");
+        SqlStats.getInstance().reset();
+        logger.debug("end");
+        return Pages.SQL_STATS_COMMAND;
+    }
+}
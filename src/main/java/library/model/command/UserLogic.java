@@ -9,7 +9,8 @@ import library.model.dao.factory.DaoFactoryImpl;
 import library.model.entities.Lang;
 import library.model.entities.User;
 import library.utils.Captcha;
-import library.utils.PasswordUtil;
+import library.utils.CaptchaPool;
+import library.utils.password.PasswordHashing;
 import library.utils.validation.SafeContext;
 import library.utils.validation.SafeRequest;
 import library.utils.validation.SafeSession;
@@ -18,8 +19,6 @@ import org.apache.logging.log4j.Logger;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
-import java.security.NoSuchAlgorithmException;
-import java.security.spec.InvalidKeySpecException;
 import java.util.Calendar;
 import java.util.List;
 
@@ -55,8 +54,8 @@ public class UserLogic {
                 throw new ServiceException("error.incorrect.login");
             }
 
-            String hash = PasswordUtil.genHash(password);
-            if (!hash.equals(user.getPassword())) {
+            PasswordHashing hashing = PasswordHashing.getInstance();
+            if (!hashing.verify(password, user.getPassword())) {
                 logger.trace("authentication error");
                 throw new ServiceException("error.incorrect.login");
             }
@@ -67,16 +66,28 @@ public class UserLogic {
                 throw new ServiceException("error.invalid.user.state");
             }
 
+            if (hashing.needsRehash(user.getPassword())) {
+                rehashPassword(userDao, user, password);
+            }
             return user;
-        } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
-            final String msg = "Password hashing issue";
-            logger.error(ERROR_DESCR, msg, e.getMessage());
-            throw new ServiceException(msg, e);
         } finally {
             logger.debug("end");
         }
     }
 
+    /**
+     * Replaces legacy or outdated password hash, user is logged in anyway
+     */
+    private static void rehashPassword(UserDao userDao, User user, String password) {
+        try {
+            user.setPassword(PasswordHashing.getInstance().hash(password));
+            userDao.updatePassword(user);
+            logger.info("password of user (id {}) is rehashed", user.getId());
+        } catch (ServiceException | DaoException e) {
+            logger.error(ERROR_DESCR, "Unable to rehash password", e.getMessage());
+        }
+    }
+
     /**
      * Adds new user to the app. Saves to DB. Preserves user input. Errors are shown in page, if any.
      *
@@ -115,23 +126,16 @@ public class UserLogic {
             throw new ServiceException("error.password.is.empty");
         }
 
-        try {
-//            String salt = PasswordUtil.genSalt();
-            String pass = PasswordUtil.genHash(newUser.getPassword());
-//            newUser.setSalt(salt);
-            newUser.setPassword(pass);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-            throw new ServiceException("error.password.generation");
-        }
-
-        newUser.setFineLastChecked(Calendar.getInstance());
-
+        // captcha is checked first to not spend hashing executor on bots
         SafeSession safeSession = new SafeSession(req.getSession());
         User currentUser = safeSession.get(USER).convert(User.class::cast);
         if (currentUser == null) {
             checkCaptcha(req);
         }
 
+        newUser.setPassword(PasswordHashing.getInstance().hash(newUser.getPassword()));
+        newUser.setFineLastChecked(Calendar.getInstance());
+
         return newUser;
     }
 
@@ -169,10 +173,13 @@ public class UserLogic {
 
             HttpSession session = req.getSession();
             User user = authenticateUser(email, pass);
+            // session copy is replicated in cluster, password hash isn't needed there
+            user.setPassword(null);
 
             session.setAttribute(USER, user);
             session.setAttribute(PREFERRED_USER_LANG, user.getPreferredLang());
             session.removeAttribute(LOGIN_TRIES_NUMBER);
+            CaptchaPool.getInstance().release((Captcha) session.getAttribute(CAPTCHA));
             session.removeAttribute(CAPTCHA);
             logger.trace("Added attributes to session: {}={}, {}={}", USER, user, PREFERRED_USER_LANG,
                     user.getPreferredLang());
@@ -290,6 +297,7 @@ public class UserLogic {
 
             User currentUser = (User) session.getAttribute(USER);
             if (currentUser.getId() == newVersionOfUser.getId()) {
+                newVersionOfUser.setPassword(null);
                 session.setAttribute(USER, newVersionOfUser);
             }
         } catch (ServiceException | DaoException e) {
@@ -317,15 +325,14 @@ public class UserLogic {
         session.setAttribute(ATTR_PROCEED_USER, newVersionOfUser);
 
         if (newVersionOfUser.getPassword().equals("")) {
-            newVersionOfUser.setPassword(oldVersionOfUser.getPassword());
-        } else {
-//            String salt = oldVersionOfUser.getSalt();
-            try {
-                String pass = PasswordUtil.genHash(newVersionOfUser.getPassword());
-                newVersionOfUser.setPassword(pass);
-            } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-                throw new ServiceException("error.password.generation");
+            // password hash isn't kept in session, so current one is read from DB
+            User storedUser = daoFactory.getUserDao().read(oldVersionOfUser.getId());
+            if (storedUser == null) {
+                throw new ServiceException("error.user.not.found", String.valueOf(oldVersionOfUser.getId()));
             }
+            newVersionOfUser.setPassword(storedUser.getPassword());
+        } else {
+            newVersionOfUser.setPassword(PasswordHashing.getInstance().hash(newVersionOfUser.getPassword()));
         }
 
         UserDao dao = daoFactory.getUserDao();
@@ -362,6 +369,7 @@ public class UserLogic {
             if (user == null) {
                 throw new ServiceException("error.user.not.found", String.valueOf(userID));
             }
+            user.setPassword(null);
             session.setAttribute(ATTR_PROCEED_USER, user);
         } catch (DaoException | ServiceException e) {
             errorPageLogic(session, e);
@@ -467,7 +475,9 @@ public class UserLogic {
      */
     public static String find(HttpServletRequest req) throws ServiceException {
         logger.debug("start");
-        return CommonLogicFunctions.findWithPagination(req, daoFactory.getUserDao(), ATTR_USERS, "user", Pages.USERS);
+        UserDao dao = daoFactory.getUserDao();
+        return CommonLogicFunctions.findWithPagination(req, dao::findByPatternCount, dao::findItemsByPattern,
+                ATTR_USERS, "user", Pages.USERS);
     }
 
     /**
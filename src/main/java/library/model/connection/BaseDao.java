@@ -7,16 +7,23 @@ import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
- * Common low level MySQL functions to be used by all DAO
+ * Common low level MySQL functions to be used by all DAO. Every statement is measured by {@link SqlStats}.
+ * It's called on every query, so trace with primitive parameters is guarded to avoid boxing when trace is off
  * @param <T> Entity with which instance will be working
  */
 public class BaseDao<T extends Entity> {
   private static final Logger logger = LogManager.getLogger(BaseDao.class);
   public static final int START = 1;
   public static final String PATTERN_QUERY_LOG = "pattern={}, query={}";
+  // MySQL has no limit of IN list, it keeps statements and their plans reasonably small
+  public static final int IN_CHUNK = 500;
+  public static final int SCAN_FETCH_SIZE = 1000;
   private final Connection conn;
 
   public BaseDao(Connection conn) {
@@ -24,6 +31,19 @@ public class BaseDao<T extends Entity> {
     logger.trace("conn={}", conn);
   }
 
+  // statements are measured by SqlStats
+  private PreparedStatement prepare(String query) throws SQLException {
+    return SqlStats.getInstance().prepare(conn, query);
+  }
+
+  private PreparedStatement prepare(String query, int autoGeneratedKeys) throws SQLException {
+    return SqlStats.getInstance().prepare(conn, query, autoGeneratedKeys);
+  }
+
+  private Statement createStatement() throws SQLException {
+    return SqlStats.getInstance().create(conn);
+  }
+
   private void logAndThrow(SQLException e) throws DaoException {
     logger.error(e.getMessage());
     throw new DaoException(e.getMessage(), e);
@@ -52,7 +72,7 @@ public class BaseDao<T extends Entity> {
     logger.debug("start");
     logger.trace("entity={}, query={}", entity, query);
 
-    try(PreparedStatement ps = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+    try(PreparedStatement ps = prepare(query, Statement.RETURN_GENERATED_KEYS)) {
       filler.accept(entity, ps);
       if (ps.executeUpdate() > 0) {
         try (ResultSet rs = ps.getGeneratedKeys()) {
@@ -82,9 +102,11 @@ public class BaseDao<T extends Entity> {
    */
   public T read(long id, String query, EntityParser<T> parser) throws DaoException {
     logger.debug("start");
-    logger.trace("id={}, query={}", id, query);
+    if (logger.isTraceEnabled()) {
+      logger.trace("id={}, query={}", id, query);
+    }
 
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       ps.setLong(START, id);
       try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
@@ -111,7 +133,7 @@ public class BaseDao<T extends Entity> {
     logger.debug("start");
     logger.trace(PATTERN_QUERY_LOG, pattern, query);
 
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       ps.setString(START, escapeForLike(pattern));
       try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
@@ -132,14 +154,17 @@ public class BaseDao<T extends Entity> {
    * @param entity to be updated
    * @param query SQL request
    * @param filler fills request with entity data
+   * @return number of updated rows
    * @throws DaoException in case of error
    */
-  public void update(T entity, String query, StatementFiller<T> filler) throws DaoException {
+  public int update(T entity, String query, StatementFiller<T> filler) throws DaoException {
     logger.debug("start");
     logger.trace("entity={}, query={}", entity, query);
-    try(PreparedStatement ps = conn.prepareStatement(query)) {
+    int updated = 0;
+    try(PreparedStatement ps = prepare(query)) {
       filler.accept(entity, ps);
-      if (ps.executeUpdate() > 0) {
+      updated = ps.executeUpdate();
+      if (updated > 0) {
         logger.info("Successful update: id={}", entity.getId());
       } else {
         logger.info("nothing was updated");
@@ -149,6 +174,7 @@ public class BaseDao<T extends Entity> {
     } finally {
       logger.debug("end");
     }
+    return updated;
   }
 
   /**
@@ -160,8 +186,10 @@ public class BaseDao<T extends Entity> {
    */
   public void delete(long id, String query) throws DaoException {
     logger.debug("start");
-    logger.trace("id={}, query={}", id, query);
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    if (logger.isTraceEnabled()) {
+      logger.trace("id={}, query={}", id, query);
+    }
+    try (PreparedStatement ps = prepare(query)) {
       ps.setLong(START, id);
       if (ps.executeUpdate() > 0) {
         logger.info("Successful deleting: id={}", id);
@@ -175,9 +203,11 @@ public class BaseDao<T extends Entity> {
 
   public void deleteBound(long id1, long id2, String query) throws DaoException {
     logger.debug("start");
-    logger.trace("id1={}, id2={}, query={}", id1, id2, query);
+    if (logger.isTraceEnabled()) {
+      logger.trace("id1={}, id2={}, query={}", id1, id2, query);
+    }
 
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       int i = START;
       ps.setLong(i++, id1);
       ps.setLong(i, id2);
@@ -204,9 +234,11 @@ public class BaseDao<T extends Entity> {
    */
   public void createBound(long id, T entity, String query, StatementFiller<T> filler) throws DaoException {
     logger.debug("start");
-    logger.trace("id={}, entity={}, query={}", id, entity, query);
+    if (logger.isTraceEnabled()) {
+      logger.trace("id={}, entity={}, query={}", id, entity, query);
+    }
 
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       int i = filler.accept(entity, ps);
       ps.setLong(i, id);
       if (ps.executeUpdate() > 0) {
@@ -236,10 +268,12 @@ public class BaseDao<T extends Entity> {
   public List<T> findByPattern(String pattern, int num, int page, String query, EntityParser<T> parser)
       throws DaoException {
     logger.debug("start");
-    logger.trace("pattern={}, query={}, num={}, page={}",
-        pattern, query, num, page);
+    if (logger.isTraceEnabled()) {
+      logger.trace("pattern={}, query={}, num={}, page={}",
+          pattern, query, num, page);
+    }
     List<T> list = new ArrayList<>();
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       int i = START;
       ps.setString(i++, escapeForLike(pattern));
       ps.setInt(i++, num);
@@ -274,7 +308,7 @@ public class BaseDao<T extends Entity> {
         pattern, query);
 
     List<T> list = new ArrayList<>();
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       ps.setString(START, escapeForLike(pattern));
       try (ResultSet rs = ps.executeQuery()) {
         while (rs.next()) {
@@ -306,7 +340,7 @@ public class BaseDao<T extends Entity> {
         pattern, query);
 
     List<T> list = new ArrayList<>();
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       ps.setString(START, pattern);
       try (ResultSet rs = ps.executeQuery()) {
         while (rs.next()) {
@@ -322,6 +356,68 @@ public class BaseDao<T extends Entity> {
     return list;
   }
 
+  /**
+   * Passes rows of query to handler one by one, they aren't collected, so the whole table can be read. Rows are
+   * fetched by {@value #SCAN_FETCH_SIZE}, MySQL driver does it by server cursor (useCursorFetch of db.url).
+   *
+   * @param query SQL query without parameters
+   * @param handler handles current row of result set, its result is ignored
+   * @throws DaoException in case of errors
+   */
+  public void forEach(String query, EntityParser<T> handler) throws DaoException {
+    logger.debug("start");
+    logger.trace("query={}", query);
+
+    try (PreparedStatement ps = prepare(query)) {
+      ps.setFetchSize(SCAN_FETCH_SIZE);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          handler.accept(conn, rs);
+        }
+      }
+    } catch (SQLException e) {
+      logAndThrow(e);
+    } finally {
+      logger.debug("end");
+    }
+  }
+
+  /**
+   * Finds all entities of given type by equals expression and upper bound of time. No limit and offset are used.
+   *
+   * @param pattern pattern for looking up
+   * @param before upper bound of time
+   * @param query SQL query with 2 parameters: pattern and time, for example {@code state = ? AND modified < ?}
+   * @param parser parses Result set to Entity of given type
+   * @return list of entities of given type
+   * @throws DaoException in case of errors
+   */
+  public List<T> findByStringBefore(String pattern, Calendar before, String query, EntityParser<T> parser)
+      throws DaoException {
+    logger.debug("start");
+    if (logger.isTraceEnabled()) {
+      logger.trace("pattern={}, before={}, query={}", pattern, before.getTime(), query);
+    }
+
+    List<T> list = new ArrayList<>();
+    try (PreparedStatement ps = prepare(query)) {
+      int i = START;
+      ps.setString(i++, pattern);
+      ps.setTimestamp(i, new Timestamp(before.getTimeInMillis()));
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          list.add(parser.accept(conn, rs));
+        }
+      }
+    } catch (SQLException e) {
+      logAndThrow(e);
+    } finally {
+      logger.debug("end");
+    }
+
+    return list;
+  }
+
   /**
    * Updates bound for 2 entities in many-to-many relationship table.
    *
@@ -332,9 +428,11 @@ public class BaseDao<T extends Entity> {
    */
   public void updateBound(long id1, long id2, String query) throws DaoException {
     logger.debug("start");
-    logger.trace("id1={}, id2={}, query={}", id1, id2, query);
+    if (logger.isTraceEnabled()) {
+      logger.trace("id1={}, id2={}, query={}", id1, id2, query);
+    }
 
-    try(PreparedStatement ps = conn.prepareStatement(query)) {
+    try(PreparedStatement ps = prepare(query)) {
       int i = START;
       ps.setLong(i++, id1);
       ps.setLong(i, id2);
@@ -361,7 +459,7 @@ public class BaseDao<T extends Entity> {
     logger.trace("query={}", query);
 
     List<T> list = new ArrayList<>();
-    try (Statement ps = conn.createStatement()) {
+    try (Statement ps = createStatement()) {
       try (ResultSet rs = ps.executeQuery(query)) {
         while (rs.next()) {
           list.add(parser.accept(conn, rs));
@@ -390,7 +488,7 @@ public class BaseDao<T extends Entity> {
     logger.trace("key={}, {}", lookUp, query);
 
     T result = null;
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       ps.setString(START, lookUp);
       try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
@@ -408,10 +506,12 @@ public class BaseDao<T extends Entity> {
 
   public List<T> findById(long id, String query, EntityParser<T> parser) throws DaoException {
     logger.debug("start");
-    logger.trace("id={}, {}", id, query);
+    if (logger.isTraceEnabled()) {
+      logger.trace("id={}, {}", id, query);
+    }
 
     List<T> list = new ArrayList<>();
-    try (PreparedStatement ps = conn.prepareStatement(query)) {
+    try (PreparedStatement ps = prepare(query)) {
       ps.setLong(START, id);
       try (ResultSet rs = ps.executeQuery()) {
         while (rs.next()) {
@@ -426,4 +526,173 @@ public class BaseDao<T extends Entity> {
 
     return list;
   }
+
+  /**
+   * Reads entities of given type by ids, chunk of {@value #IN_CHUNK} ids per query.
+   *
+   * @param ids ids of entities, duplicates are read once
+   * @param query SQL query ending by IN, for example {@code SELECT * FROM book WHERE id IN}, list of parameters is
+   *              appended to it
+   * @param parser parses result set to entity of given type
+   * @return found entities in any order
+   * @throws DaoException in case of error
+   */
+  public List<T> readAll(Collection<Long> ids, String query, EntityParser<T> parser) throws DaoException {
+    logger.debug("start");
+    if (logger.isTraceEnabled()) {
+      logger.trace("ids={}, {}", ids, query);
+    }
+    return readAll(new long[0], ids, query, parser);
+  }
+
+  /**
+   * The same as {@link #readAll(Collection, String, EntityParser)}, but query has one more parameter before the list
+   * of ids
+   *
+   * @param bound value of the first parameter of query, for example id of language
+   * @param ids ids of entities, duplicates are read once
+   * @param query SQL query with one parameter ending by IN
+   * @param parser parses result set to entity of given type
+   * @return found entities in any order
+   * @throws DaoException in case of error
+   */
+  public List<T> readAllBound(long bound, Collection<Long> ids, String query, EntityParser<T> parser)
+      throws DaoException {
+    logger.debug("start");
+    if (logger.isTraceEnabled()) {
+      logger.trace("bound={}, ids={}, {}", bound, ids, query);
+    }
+    return readAll(new long[] {bound}, ids, query, parser);
+  }
+
+  private List<T> readAll(long[] bound, Collection<Long> ids, String query, EntityParser<T> parser)
+      throws DaoException {
+
+    List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    List<T> list = new ArrayList<>(distinct.size());
+    for (int from = 0; from < distinct.size(); from += IN_CHUNK) {
+      List<Long> chunk = distinct.subList(from, Math.min(from + IN_CHUNK, distinct.size()));
+      StringBuilder sql = new StringBuilder(query).append(" (?");
+      for (int i = 1; i < chunk.size(); i++) {
+        sql.append(", ?");
+      }
+      sql.append(')');
+
+      try (PreparedStatement ps = prepare(sql.toString())) {
+        int i = START;
+        for (long param: bound) {
+          ps.setLong(i++, param);
+        }
+        for (long id: chunk) {
+          ps.setLong(i++, id);
+        }
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            list.add(parser.accept(conn, rs));
+          }
+        }
+      } catch (SQLException e) {
+        logAndThrow(e);
+      }
+    }
+    logger.debug("end");
+    return list;
+  }
+
+  /**
+   * Finds all entities of given type with ids in range [from, to). No limit and offset are used.
+   *
+   * @param from first id of range, inclusive
+   * @param to last id of range, exclusive
+   * @param query SQL query with 2 parameters: from and to
+   * @param parser parses result set to entity of given type
+   * @return list of entities of given type
+   * @throws DaoException in case of error
+   */
+  public List<T> findByIdRange(long from, long to, String query, EntityParser<T> parser) throws DaoException {
+    logger.debug("start");
+    if (logger.isTraceEnabled()) {
+      logger.trace("from={}, to={}, {}", from, to, query);
+    }
+
+    List<T> list = new ArrayList<>();
+    try (PreparedStatement ps = prepare(query)) {
+      int i = START;
+      ps.setLong(i++, from);
+      ps.setLong(i, to);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          list.add(parser.accept(conn, rs));
+        }
+      }
+    } catch (SQLException e) {
+      logAndThrow(e);
+    } finally {
+      logger.debug("end");
+    }
+
+    return list;
+  }
+
+  /**
+   * Updates entities of given type in DB in one batch.
+   *
+   * @param entities to be updated
+   * @param query SQL request
+   * @param filler fills request with entity data
+   * @return number of updated rows
+   * @throws DaoException in case of error
+   */
+  public int batchUpdate(List<T> entities, String query, StatementFiller<T> filler) throws DaoException {
+    logger.debug("start");
+    if (logger.isTraceEnabled()) {
+      logger.trace("entities={}, query={}", entities.size(), query);
+    }
+
+    int updated = 0;
+    if (entities.isEmpty()) {
+      return updated;
+    }
+
+    try (PreparedStatement ps = prepare(query)) {
+      for (T entity: entities) {
+        filler.accept(entity, ps);
+        ps.addBatch();
+      }
+      for (int count: ps.executeBatch()) {
+        updated += Math.max(count, 0);
+      }
+      logger.info("Successful batch update: {} rows", updated);
+    } catch (SQLException e) {
+      logAndThrow(e);
+    } finally {
+      logger.debug("end");
+    }
+    return updated;
+  }
+
+  /**
+   * Reads single number by non-parametrised query, like MAX(id)
+   *
+   * @param query SQL query
+   * @return number or 0 if query returns nothing
+   * @throws DaoException in case of error
+   */
+  public long readNumber(String query) throws DaoException {
+    logger.debug("start");
+    logger.trace("query={}", query);
+
+    try (Statement st = createStatement()) {
+      try (ResultSet rs = st.executeQuery(query)) {
+        if (rs.next()) {
+          return rs.getLong(START);
+        }
+      }
+    } catch (SQLException e) {
+      logAndThrow(e);
+    } finally {
+      logger.debug("end");
+    }
+    return 0;
+  }
 }
@@ -2,6 +2,7 @@ package library.model.connection;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -12,13 +13,17 @@ import java.util.ResourceBundle;
 /**
  * Configures and obtains HikariDataSource that we use to connect to the dataBase.
  * return instance of HikariDataSource
+ * <p>
+ * Every setting of dataBase.properties can be overridden by system property of the same name,
+ * e.g. {@code -Ddb.url=...}, so the app can be run against another database in tests.
  */
 public class ConnectionPool {
     static ResourceBundle resourceBundle = ResourceBundle.getBundle("dataBase");
-    private static final String DB_USER = resourceBundle.getString("db.user");
-    private static final String DB_PASSWORD = resourceBundle.getString("db.password");
-    private static String DB_URL = resourceBundle.getString("db.url");
-    private static String DRIVER = resourceBundle.getString("driver");
+    private static final String DB_USER = getSetting("db.user");
+    private static final String DB_PASSWORD = getSetting("db.password");
+    private static String DB_URL = getSetting("db.url");
+    private static String DRIVER = getSetting("driver");
+    private static final int POOL_SIZE = Integer.parseInt(getSetting("db.pool.size"));
     private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
     private static HikariDataSource dataSource;
 
@@ -45,12 +50,31 @@ public class ConnectionPool {
         return conn;
     }
 
+    /**
+     * @return maximum number of connections, which can be used simultaneously
+     */
+    public int getMaxPoolSize() {
+        return POOL_SIZE;
+    }
+
+    /**
+     * @return state of pool: active, idle connections and threads awaiting connection, null if pool isn't started
+     */
+    public HikariPoolMXBean getPoolState() {
+        return dataSource == null ? null : dataSource.getHikariPoolMXBean();
+    }
+
+    private static String getSetting(String key) {
+        return System.getProperty(key, resourceBundle.getString(key));
+    }
+
     private static HikariConfig getHikariConfig() {
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(DB_URL);
         config.setUsername(DB_USER);
         config.setPassword(DB_PASSWORD);
         config.setDriverClassName(DRIVER);
+        config.setMaximumPoolSize(POOL_SIZE);
         return config;
     }
 }
@@ -0,0 +1,99 @@
+package library.model.connection;
+
+import library.model.entities.Entity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entities read by current thread, keyed by entity class and id, while the map is open. DAOs look entity up before
+ * query and put it after parsing, so within one request ({@link library.controller.filters.RequestIdentityMap})
+ * the same user, lang or author is read once and is the same instance everywhere. DAOs evict entity they write.
+ * <p>
+ * When the map isn't open (periodic tasks, tests), lookups find nothing and nothing is kept.
+ * <p>
+ * Request, which doesn't show everything DAOs read, can opt in lazy loading by {@link #lazyLoading()}: associations
+ * of entities read afterwards are loaded on first access ({@link library.model.entities.Lazy}).
+ */
+public class IdentityMap {
+  private static final ThreadLocal<Map<Class<?>, Map<Long, Entity>>> entities = new ThreadLocal<>();
+  private static final ThreadLocal<Boolean> lazy = new ThreadLocal<>();
+
+  private IdentityMap() {
+  }
+
+  /**
+   * Opens empty map for current thread
+   */
+  public static void open() {
+    entities.set(new HashMap<>());
+  }
+
+  /**
+   * Forgets entities of current thread
+   */
+  public static void close() {
+    entities.remove();
+    lazy.remove();
+  }
+
+  public static boolean isOpen() {
+    return entities.get() != null;
+  }
+
+  /**
+   * Associations of entities read from now till the map is closed are loaded on first access, together for all
+   * entities read by the same call. Nothing is changed if the map isn't open.
+   */
+  public static void lazyLoading() {
+    if (isOpen()) {
+      lazy.set(Boolean.TRUE);
+    }
+  }
+
+  public static boolean isLazyLoading() {
+    return lazy.get() != null;
+  }
+
+  /**
+   * @param type class of entity
+   * @param id id of entity
+   * @return known entity, null if it isn't known or map isn't open
+   */
+  public static <E extends Entity> E get(Class<E> type, long id) {
+    Map<Class<?>, Map<Long, Entity>> current = entities.get();
+    if (current == null) {
+      return null;
+    }
+    Map<Long, Entity> byId = current.get(type);
+    return byId == null ? null : type.cast(byId.get(id));
+  }
+
+  /**
+   * @param entity just read entity
+   * @return known entity of the same class and id, given one if there is no such (it's kept then)
+   */
+  @SuppressWarnings("unchecked")
+  public static <E extends Entity> E put(E entity) {
+    Map<Class<?>, Map<Long, Entity>> current = entities.get();
+    if (current == null || entity == null) {
+      return entity;
+    }
+    Map<Long, Entity> byId = current.computeIfAbsent(entity.getClass(), type -> new HashMap<>());
+    Entity known = byId.putIfAbsent(entity.getId(), entity);
+    return known == null ? entity : (E) known;
+  }
+
+  /**
+   * Forgets entity, so it's read again next time
+   */
+  public static void evict(Class<? extends Entity> type, long id) {
+    Map<Class<?>, Map<Long, Entity>> current = entities.get();
+    if (current != null) {
+      Map<Long, Entity> byId = current.get(type);
+      if (byId != null) {
+        byId.remove(id);
+      }
+    }
+  }
+}
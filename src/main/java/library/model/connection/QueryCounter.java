@@ -0,0 +1,48 @@
+package library.model.connection;
+
+/**
+ * Counts SQL statements executed by current thread through {@link BaseDao}, while counting is started.
+ * It's used to find N+1 queries: per request in dev mode ({@link library.controller.filters.QueryCount})
+ * and per operation in tests. Batch counts as one statement.
+ */
+public class QueryCounter {
+  private static final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+  private QueryCounter() {
+  }
+
+  /**
+   * Starts counting from zero for current thread
+   */
+  public static void start() {
+    count.set(new int[1]);
+  }
+
+  /**
+   * @return number of statements since start, counting is stopped
+   */
+  public static int stop() {
+    int result = get();
+    count.remove();
+    return result;
+  }
+
+  /**
+   * @return number of statements since start, 0 if counting isn't started
+   */
+  public static int get() {
+    int[] current = count.get();
+    return current == null ? 0 : current[0];
+  }
+
+  public static boolean isStarted() {
+    return count.get() != null;
+  }
+
+  static void increment() {
+    int[] current = count.get();
+    if (current != null) {
+      current[0]++;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package library.model.connection;
+
+import library.exceptions.DaoException;
+import library.model.entities.Entity;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parser, which resolves indexes of its columns by {@link ResultSetMetaData} once per result set and reads every
+ * row by index. Lookup by label is done for every column of every row otherwise, and it's linear by columns in some
+ * drivers.
+ * <p>
+ * Mapper keeps indexes of the last result set, so it isn't thread safe and is created per query, DAO passes
+ * {@code new Mapper()} where it passed {@code this::parse}.
+ * @param <T> Entity of row
+ */
+public abstract class RowMapper<T extends Entity> implements EntityParser<T> {
+  private ResultSet resolved;
+  private Calendar prototype;
+
+  /**
+   * Indexes of columns by label (case insensitive), the first column is taken if label is repeated by join,
+   * as {@link ResultSet#findColumn(String)} does
+   */
+  public static final class Columns {
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private Columns(ResultSetMetaData meta) throws SQLException {
+      for (int i = meta.getColumnCount(); i >= 1; i--) {
+        indexes.put(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+      }
+    }
+
+    public int index(String label) throws SQLException {
+      Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+      if (index == null) {
+        throw new SQLException("Column " + label + " isn't in result set");
+      }
+      return index;
+    }
+  }
+
+  @Override
+  public final T accept(Connection c, ResultSet rs) throws SQLException, DaoException {
+    if (rs != resolved) {
+      resolve(new Columns(rs.getMetaData()));
+      resolved = rs;
+    }
+    return map(c, rs);
+  }
+
+  /**
+   * Keeps indexes of columns read by {@link #map(Connection, ResultSet)}
+   */
+  protected abstract void resolve(Columns columns) throws SQLException;
+
+  /**
+   * @param c connection of query, dependencies are read by it
+   * @param rs result set on current row
+   * @return entity of row
+   */
+  protected abstract T map(Connection c, ResultSet rs) throws SQLException, DaoException;
+
+  /**
+   * Time of column in default time zone. Calendar is cloned from the one created for the first row, which is much
+   * cheaper than {@link Calendar#getInstance()} with zone and locale lookup and fields computed for current time.
+   *
+   * @return time of column, null if it's NULL
+   */
+  protected Calendar calendar(ResultSet rs, int column) throws SQLException {
+    Timestamp time = rs.getTimestamp(column);
+    if (time == null) {
+      return null;
+    }
+    if (prototype == null) {
+      prototype = Calendar.getInstance();
+    }
+    Calendar cal = (Calendar) prototype.clone();
+    cal.setTimeInMillis(time.getTime());
+    return cal;
+  }
+}
@@ -0,0 +1,178 @@
+package library.model.connection;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Versioned DDL of library schema. Scripts {@code V<version>__<description>.sql} are kept in {@link #LOCATION} and
+ * listed in order in {@link #INDEX}, applied versions are kept in {@code schema_version} table, so every script is
+ * applied once. Statements of script are separated by {@code ;} at the end of line, lines starting with {@code --}
+ * are comments.
+ * <p>
+ * Databases created before migrations had some scripts applied by hand: tables are created if they don't exist,
+ * and MySQL errors of existing table, column or index are logged and skipped. Nodes of cluster migrate one by one
+ * under MySQL named lock.
+ */
+public class SchemaMigrations {
+  private static final Logger logger = LogManager.getLogger(SchemaMigrations.class);
+  public static final String LOCATION = "/db/migration/";
+  public static final String INDEX = LOCATION + "migrations.list";
+  private static final String LOCK = "library.schema";
+  private static final int LOCK_TIMEOUT_SECONDS = 60;
+  // table, column, index already exists
+  private static final Set<Integer> EXISTS_ERRORS = new HashSet<>(Arrays.asList(1050, 1060, 1061));
+
+  private final Connection conn;
+
+  public SchemaMigrations(Connection conn) {
+    this.conn = conn;
+  }
+
+  /**
+   * Applies scripts, which aren't applied yet
+   *
+   * @return number of applied scripts
+   * @throws SQLException if script is failed, following scripts aren't applied then
+   */
+  public int migrate() throws SQLException {
+    logger.debug("start");
+    boolean mysql = conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("MySQL");
+    if (mysql) {
+      lock();
+    }
+    try (Statement st = conn.createStatement()) {
+      st.execute("CREATE TABLE IF NOT EXISTS schema_version (\n"
+          + "  version   INT          NOT NULL PRIMARY KEY,\n"
+          + "  script    VARCHAR(255) NOT NULL,\n"
+          + "  installed TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP\n"
+          + ")");
+
+      Set<Integer> applied = new HashSet<>();
+      try (ResultSet rs = st.executeQuery("SELECT version FROM schema_version")) {
+        while (rs.next()) {
+          applied.add(rs.getInt(1));
+        }
+      }
+
+      int count = 0;
+      for (String script : readLines(INDEX)) {
+        int version = version(script);
+        if (!applied.contains(version)) {
+          apply(st, script);
+          count++;
+        }
+      }
+      logger.info("schema is migrated, {} scripts applied", count);
+      return count;
+    } finally {
+      if (mysql) {
+        unlock();
+      }
+    }
+  }
+
+  private void apply(Statement st, String script) throws SQLException {
+    logger.info("applying {}", script);
+    for (String sql : statements(String.join("\n", readLines(LOCATION + script)))) {
+      try {
+        st.execute(sql);
+      } catch (SQLException e) {
+        if (!EXISTS_ERRORS.contains(e.getErrorCode())) {
+          throw new SQLException(script + " is failed: " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+        }
+        logger.info("{}: {}, skipped", script, e.getMessage());
+      }
+    }
+
+    try (PreparedStatement ps = conn.prepareStatement(
+        "INSERT INTO schema_version (version, script) VALUES (?, ?)")) {
+      ps.setInt(1, version(script));
+      ps.setString(2, script);
+      ps.executeUpdate();
+    }
+  }
+
+  private void lock() throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+      ps.setString(1, LOCK);
+      ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+      try (ResultSet rs = ps.executeQuery()) {
+        if (!rs.next() || rs.getInt(1) != 1) {
+          throw new SQLException("schema is locked by another node for more than " + LOCK_TIMEOUT_SECONDS + " s");
+        }
+      }
+    }
+  }
+
+  private void unlock() throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+      ps.setString(1, LOCK);
+      ps.executeQuery().close();
+    }
+  }
+
+  /**
+   * @param script name of script, {@code V<version>__<description>.sql}
+   * @return version of script
+   */
+  static int version(String script) {
+    int end = script.indexOf("__");
+    if (!script.startsWith("V") || end < 2) {
+      throw new IllegalStateException("name of migration " + script + " isn't V<version>__<description>.sql");
+    }
+    return Integer.parseInt(script.substring(1, end));
+  }
+
+  /**
+   * @param script text of script without comments
+   * @return statements of script
+   */
+  static List<String> statements(String script) {
+    List<String> result = new ArrayList<>();
+    for (String sql : script.split(";\\s*(\n|$)")) {
+      if (!sql.trim().isEmpty()) {
+        result.add(sql.trim());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return lines of resource without empty ones and comments
+   */
+  private static List<String> readLines(String resource) {
+    InputStream in = SchemaMigrations.class.getResourceAsStream(resource);
+    if (in == null) {
+      throw new IllegalStateException(resource + " is not found");
+    }
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String trimmed = line.trim();
+        if (!trimmed.isEmpty() && !trimmed.startsWith("--") && !trimmed.startsWith("#")) {
+          lines.add(line);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("can't read " + resource, e);
+    }
+    return lines;
+  }
+}
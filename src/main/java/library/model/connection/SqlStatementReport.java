@@ -0,0 +1,67 @@
+package library.model.connection;
+
+/**
+ * Statistics of one normalized SQL statement at some moment, see {@link SqlStats}
+ */
+public class SqlStatementReport {
+  private final String sql;
+  private final long calls;
+  private final long errors;
+  private final long rows;
+  private final double totalMillis;
+  private final double maxMillis;
+  private final double p99Millis;
+
+  SqlStatementReport(String sql, long calls, long errors, long rows, double totalMillis, double maxMillis,
+                     double p99Millis) {
+    this.sql = sql;
+    this.calls = calls;
+    this.errors = errors;
+    this.rows = rows;
+    this.totalMillis = totalMillis;
+    this.maxMillis = maxMillis;
+    this.p99Millis = p99Millis;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public long getCalls() {
+    return calls;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public double getTotalMillis() {
+    return totalMillis;
+  }
+
+  public double getMeanMillis() {
+    return calls == 0 ? 0 : totalMillis / calls;
+  }
+
+  public double getMaxMillis() {
+    return maxMillis;
+  }
+
+  public double getP99Millis() {
+    return p99Millis;
+  }
+
+  @Override
+  public String toString() {
+    return "SqlStatementReport{" +
+        "sql='" + sql + '\'' +
+        ", calls=" + calls +
+        ", rows=" + rows +
+        ", totalMillis=" + totalMillis +
+        '}';
+  }
+}
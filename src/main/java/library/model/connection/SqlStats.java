@@ -0,0 +1,190 @@
+package library.model.connection;
+
+import library.exceptions.ServiceException;
+import library.utils.metrics.LatencyStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.ServletContext;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Statistics of SQL statements executed by {@link BaseDao}: calls, errors, rows, total, max and p99 time per
+ * normalized SQL (literals and IN lists are replaced by '?'). Statements are wrapped by {@link StatementRecorder},
+ * which measures execution and captures bind parameters.
+ * <p>
+ * Statement slower than threshold is written with bind parameters to {@code library.sql.slow} logger, parameters
+ * of statements on {@code user} table or with password column are hidden: user is inserted by position
+ * ({@code INSERT INTO user VALUES (DEFAULT, ?, ...)}), so password hash can't be recognized by column name.
+ */
+public class SqlStats {
+  private static final Logger logger = LogManager.getLogger(SqlStats.class);
+  private static final Logger slowLogger = LogManager.getLogger("library.sql.slow");
+  static final String INIT_PARAM_SLOW_QUERY = SqlStats.class.getName() + ".slowQueryMillis";
+  static final long DEFAULT_SLOW_QUERY_MILLIS = 500;
+  static final String OTHER = "other";
+  // bounds memory, if queries are built with literals somewhere
+  static final int MAX_STATEMENTS = 500;
+  private static final int MAX_NORMALIZED = 2000;
+
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern SPACES = Pattern.compile("\\s+");
+  private static final Pattern SENSITIVE = Pattern.compile("(?i)\\b(?:user|password)\\b");
+  private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN \\(\\?(?: ?, ?\\?)*\\)");
+
+  private final Map<String, String> normalized = new ConcurrentHashMap<>();
+  private final Map<String, StatementStats> stats = new ConcurrentHashMap<>();
+  private volatile long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_QUERY_MILLIS);
+
+  private static class Holder {
+    private static final SqlStats INSTANCE = new SqlStats();
+  }
+
+  public static SqlStats getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  /**
+   * For testing purpose, use {@link #getInstance()} otherwise
+   */
+  SqlStats() {
+  }
+
+  private static class StatementStats {
+    private final LatencyStats latency;
+    private final LongAdder rows = new LongAdder();
+
+    StatementStats(String sql) {
+      latency = new LatencyStats(sql);
+    }
+  }
+
+  /**
+   * Reads threshold of slow query log, negative value disables it
+   */
+  public void init(ServletContext context) throws ServiceException {
+    logger.debug("start");
+    String millis = context.getInitParameter(INIT_PARAM_SLOW_QUERY);
+    if (millis != null) {
+      try {
+        setSlowQueryMillis(Long.parseLong(millis));
+      } catch (NumberFormatException e) {
+        throw new ServiceException(INIT_PARAM_SLOW_QUERY + " should be valid number: " + e.getMessage());
+      }
+    }
+    logger.info("Statements slower than {} ms are logged", slowQueryNanos < 0 ? "infinity" :
+        TimeUnit.NANOSECONDS.toMillis(slowQueryNanos));
+    logger.debug("end");
+  }
+
+  void setSlowQueryMillis(long millis) {
+    slowQueryNanos = millis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+    return wrap(conn.prepareStatement(sql), sql, PreparedStatement.class);
+  }
+
+  public PreparedStatement prepare(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
+    return wrap(conn.prepareStatement(sql, autoGeneratedKeys), sql, PreparedStatement.class);
+  }
+
+  public Statement create(Connection conn) throws SQLException {
+    return wrap(conn.createStatement(), null, Statement.class);
+  }
+
+  private <S extends Statement> S wrap(S statement, String sql, Class<S> type) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+        new StatementRecorder(statement, sql, this)));
+  }
+
+  /**
+   * @param sql executed SQL, as it was passed to JDBC
+   * @param nanos time of execution
+   * @param rows rows read or updated
+   * @param error true if execution was failed
+   * @param binds bind parameters, it's called for slow statement only
+   */
+  void record(String sql, long nanos, long rows, boolean error, Supplier<String> binds) {
+    QueryCounter.increment();
+    String key = normalizeCached(sql);
+    StatementStats statement = stats.get(key);
+    if (statement == null) {
+      if (stats.size() >= MAX_STATEMENTS) {
+        key = OTHER;
+      }
+      statement = stats.computeIfAbsent(key, StatementStats::new);
+    }
+    statement.latency.record(nanos, error);
+    statement.rows.add(rows);
+
+    long threshold = slowQueryNanos;
+    if (threshold >= 0 && nanos >= threshold) {
+      slowLogger.warn("{} ms, rows={}{}: {} binds={}", TimeUnit.NANOSECONDS.toMillis(nanos), rows,
+          error ? ", failed" : "", sql, SENSITIVE.matcher(key).find() ? "[hidden]" : binds.get());
+    }
+  }
+
+  /**
+   * @param limit max number of statements
+   * @return statements ordered by total time descending
+   */
+  public List<SqlStatementReport> top(int limit) {
+    List<SqlStatementReport> result = new ArrayList<>();
+    stats.forEach((sql, statement) -> {
+      LatencyStats.Snapshot snapshot = statement.latency.snapshot();
+      result.add(new SqlStatementReport(sql, snapshot.getCount(), snapshot.getErrors(), statement.rows.sum(),
+          snapshot.getSumSeconds() * 1000, snapshot.getMaxSeconds() * 1000,
+          snapshot.getQuantileSeconds(0.99) * 1000));
+    });
+    result.sort(Comparator.comparingDouble(SqlStatementReport::getTotalMillis).reversed());
+    return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+  }
+
+  /**
+   * Starts collecting from scratch
+   */
+  public void reset() {
+    stats.clear();
+    logger.info("SQL statistics reset");
+  }
+
+  private String normalizeCached(String sql) {
+    if (sql == null) {
+      return OTHER;
+    }
+    String result = normalized.get(sql);
+    if (result == null) {
+      result = normalize(sql);
+      if (normalized.size() < MAX_NORMALIZED) {
+        normalized.put(sql, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param sql SQL
+   * @return SQL with one space between words and '?' instead of literals, so it doesn't depend on values
+   */
+  static String normalize(String sql) {
+    String result = STRING_LITERAL.matcher(sql.trim()).replaceAll("?");
+    result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+    result = SPACES.matcher(result).replaceAll(" ");
+    return IN_LIST.matcher(result).replaceAll("IN (?)");
+  }
+}
@@ -0,0 +1,174 @@
+package library.model.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Wraps JDBC statement for {@link SqlStats}: keeps bind parameters and measures execute methods. Rows of query
+ * are counted while result set is read, so query is recorded when result set or statement is closed, time of
+ * reading (and of nested queries done by parsers) isn't counted.
+ */
+class StatementRecorder implements InvocationHandler {
+  private static final int MAX_BIND_LENGTH = 64;
+
+  private final Statement target;
+  private final String sql;
+  private final SqlStats stats;
+  private final Map<Integer, Object> binds = new TreeMap<>();
+  private int batchSize;
+  private RowCounter pending;
+
+  StatementRecorder(Statement target, String sql, SqlStats stats) {
+    this.target = target;
+    this.sql = sql;
+    this.stats = stats;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    if (name.startsWith("execute")) {
+      return execute(method, args);
+    }
+
+    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer &&
+        method.getDeclaringClass() == PreparedStatement.class) {
+      binds.put((Integer) args[0], args[1]);
+    } else if (name.equals("clearParameters")) {
+      binds.clear();
+    } else if (name.equals("addBatch") && args == null) {
+      batchSize++;
+    } else if (name.equals("close")) {
+      finishPending();
+    }
+    return invokeTarget(method, args);
+  }
+
+  private Object execute(Method method, Object[] args) throws Throwable {
+    finishPending();
+    String query = sql;
+    if (query == null && args != null && args.length > 0 && args[0] instanceof String) {
+      query = (String) args[0];
+    }
+
+    long start = System.nanoTime();
+    Object result;
+    try {
+      result = invokeTarget(method, args);
+    } catch (Throwable e) {
+      stats.record(query, System.nanoTime() - start, 0, true, this::describeBinds);
+      throw e;
+    }
+    long nanos = System.nanoTime() - start;
+
+    if (result instanceof ResultSet) {
+      pending = new RowCounter((ResultSet) result, query, nanos);
+      return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, pending);
+    }
+    stats.record(query, nanos, rows(result), false, this::describeBinds);
+    batchSize = 0;
+    return result;
+  }
+
+  private static long rows(Object result) {
+    if (result instanceof Number) {
+      return ((Number) result).longValue();
+    }
+    long rows = 0;
+    if (result instanceof int[]) {
+      for (int count : (int[]) result) {
+        rows += Math.max(count, 0);
+      }
+    } else if (result instanceof long[]) {
+      for (long count : (long[]) result) {
+        rows += Math.max(count, 0);
+      }
+    }
+    return rows;
+  }
+
+  private void finishPending() {
+    if (pending != null) {
+      pending.finish();
+      pending = null;
+    }
+  }
+
+  private String describeBinds() {
+    StringBuilder sb = new StringBuilder("[");
+    for (Map.Entry<Integer, Object> bind : binds.entrySet()) {
+      if (sb.length() > 1) {
+        sb.append(", ");
+      }
+      String value = String.valueOf(bind.getValue());
+      if (value.length() > MAX_BIND_LENGTH) {
+        value = value.substring(0, MAX_BIND_LENGTH) + "...";
+      }
+      sb.append(bind.getKey()).append('=').append(value);
+    }
+    sb.append(']');
+    if (batchSize > 0) {
+      sb.append(" of the last of ").append(batchSize).append(" in batch");
+    }
+    return sb.toString();
+  }
+
+  private Object invokeTarget(Method method, Object[] args) throws Throwable {
+    return delegate(target, method, args);
+  }
+
+  private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Counts rows read from result set, records the query once on close
+   */
+  private class RowCounter implements InvocationHandler {
+    private final ResultSet rs;
+    private final String query;
+    private final long nanos;
+    private long rows;
+    private boolean finished;
+
+    RowCounter(ResultSet rs, String query, long nanos) {
+      this.rs = rs;
+      this.query = query;
+      this.nanos = nanos;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.equals("next")) {
+        Object result = delegate(rs, method, args);
+        if (Boolean.TRUE.equals(result)) {
+          rows++;
+        }
+        return result;
+      }
+      if (name.equals("close")) {
+        finish();
+      }
+      return delegate(rs, method, args);
+    }
+
+    void finish() {
+      if (!finished) {
+        finished = true;
+        stats.record(query, nanos, rows, false, StatementRecorder.this::describeBinds);
+      }
+    }
+  }
+}
@@ -3,6 +3,8 @@ package library.model.dao;
 import library.exceptions.DaoException;
 import library.model.entities.Entity;
 
+import java.util.Collection;
+
 /**
  * Common function for all entities
  * @param <E> sub-class of Entity
@@ -10,6 +12,15 @@ import library.model.entities.Entity;
 public interface AbstractEntityDao<E extends Entity> {
     void create(E entity) throws DaoException;
     E read(long id) throws DaoException;
+
+    /**
+     * Reads entities by few queries instead of query per entity
+     *
+     * @param ids ids of entities, duplicates are read once
+     * @return found entities in order of ids and ids, which were not found
+     */
+    ReadResult<E> readAll(Collection<Long> ids) throws DaoException;
+
     void update(E entity) throws DaoException;
     void delete(long id) throws DaoException;
 }
@@ -1,8 +1,12 @@
 package library.model.dao;
 
 import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.dto.BookingListItem;
 import library.model.entities.Booking;
+import library.model.entities.Lang;
 
+import java.util.Calendar;
 import java.util.List;
 
 /**
@@ -10,4 +14,58 @@ import java.util.List;
  */
 public interface BookingDao extends AbstractSuperDao<Booking> {
     List<Booking> findDeliveredByUserID(long id) throws DaoException;
-}
\ No newline at end of file
+
+    /**
+     * Reads delivered bookings of users in range for fine calculation. Only columns of fine are read: user has id
+     * only, books have id and keep period only, booking without books can be left out.
+     *
+     * @param from first user id, inclusive
+     * @param to last user id, exclusive
+     */
+    List<Booking> findDeliveredByUserIdRange(long from, long to) throws DaoException;
+
+    /**
+     * Reads bookings in state modified before given time, it's used for deadlines of bookings. The same columns as
+     * {@link #findDeliveredByUserIdRange} are read: user has id only, books have id and keep period only.
+     *
+     * @param state state of bookings
+     * @param before upper bound of modified time, exclusive
+     */
+    List<Booking> findByStateModifiedBefore(Booking.State state, Calendar before) throws DaoException;
+
+    /**
+     * @param userId user id
+     * @return ids of books in NEW booking of user, empty list if user has no one
+     */
+    List<Long> findDraftBookIDs(long userId) throws DaoException;
+
+    /**
+     * Saves NEW booking of user, book stats are not changed. Booking is deleted, if there are no books.
+     *
+     * @param userId user id
+     * @param bookIds ids of books in NEW booking
+     */
+    void saveDraft(long userId, List<Long> bookIds) throws DaoException;
+
+    /**
+     * Creates booking and deletes NEW booking of its user in the same transaction, so the draft can't come back
+     * if one of them fails
+     *
+     * @param booking booking made of the draft
+     */
+    void createFromDraft(Booking booking) throws DaoException;
+
+    /**
+     * The same search as {@link #findByPattern(String, String, String, int, int)}, only columns of bookings list
+     * are read, books with names of their authors are read by one query per table for all bookings
+     *
+     * @param lang language of page for names of authors
+     */
+    List<BookingListItem> findItemsByPattern(String what, String searchBy, String sortBy, int num, int page,
+                                             Lang lang) throws ServiceException, DaoException;
+
+    /**
+     * The same search as {@link #findBy(String, String)}, see {@link #findItemsByPattern}
+     */
+    List<BookingListItem> findItemsBy(String what, String searchBy, Lang lang) throws ServiceException, DaoException;
+}
@@ -0,0 +1,87 @@
+package library.model.dao;
+
+import library.model.entities.Entity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of {@link AbstractEntityDao#readAll(Collection)}: found entities in order of requested ids and ids, which
+ * were not found. Every id is taken once, even if it was requested several times.
+ * @param <E> sub-class of Entity
+ */
+public class ReadResult<E extends Entity> {
+    private final List<E> found;
+    private final List<Long> missing;
+    private final Map<Long, E> byId;
+
+    private ReadResult(List<E> found, List<Long> missing, Map<Long, E> byId) {
+        this.found = Collections.unmodifiableList(found);
+        this.missing = Collections.unmodifiableList(missing);
+        this.byId = byId;
+    }
+
+    /**
+     * @param ids requested ids
+     * @param entities entities read in any order
+     * @return entities ordered as ids
+     */
+    public static <E extends Entity> ReadResult<E> of(Collection<Long> ids, Collection<E> entities) {
+        Map<Long, E> byId = new HashMap<>();
+        for (E entity : entities) {
+            byId.put(entity.getId(), entity);
+        }
+        List<E> found = new ArrayList<>(byId.size());
+        List<Long> missing = new ArrayList<>();
+        for (long id : new LinkedHashSet<>(ids)) {
+            E entity = byId.get(id);
+            if (entity == null) {
+                missing.add(id);
+            } else {
+                found.add(entity);
+            }
+        }
+        return new ReadResult<>(found, missing, byId);
+    }
+
+    /**
+     * @return found entities in order of requested ids
+     */
+    public List<E> getFound() {
+        return found;
+    }
+
+    /**
+     * @return requested ids, which were not found, in order of request
+     */
+    public List<Long> getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return true if all requested entities were found
+     */
+    public boolean isComplete() {
+        return missing.isEmpty();
+    }
+
+    /**
+     * @return entity of given id, null if it wasn't found or requested
+     */
+    public E get(long id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public String toString() {
+        return "ReadResult{" +
+                "found=" + found.size() +
+                ", missing=" + missing +
+                '}';
+    }
+}
@@ -0,0 +1,15 @@
+package library.model.dao;
+
+import library.exceptions.DaoException;
+import library.model.entities.TaskCheckpoint;
+
+import java.util.List;
+
+/**
+ * Functions specific to TaskCheckpoint class. Checkpoints are kept only while task run is not finished
+ */
+public interface TaskCheckpointDao {
+    List<TaskCheckpoint> findByTask(String task) throws DaoException;
+    void create(TaskCheckpoint checkpoint) throws DaoException;
+    void deleteByTask(String task) throws DaoException;
+}
@@ -0,0 +1,31 @@
+package library.model.dao;
+
+import library.exceptions.DaoException;
+
+/**
+ * Functions for leases on periodic tasks, used to elect one node in cluster which executes the task
+ */
+public interface TaskLeaseDao {
+    /**
+     * Takes lease if it's free or expired, or prolongs it if it's already owned by this owner
+     *
+     * @return true if owner holds the lease after the call
+     */
+    boolean acquire(String task, String owner, int leaseSeconds) throws DaoException;
+
+    /**
+     * Prolongs lease only if it's still owned by this owner
+     *
+     * @return true if lease was prolonged
+     */
+    boolean renew(String task, String owner, int leaseSeconds) throws DaoException;
+
+    /**
+     * Marks task as executed, if owner holds the lease and task wasn't executed during last period
+     *
+     * @return true if owner is allowed to execute the task now
+     */
+    boolean markRun(String task, String owner, long periodMillis) throws DaoException;
+
+    void release(String task, String owner) throws DaoException;
+}
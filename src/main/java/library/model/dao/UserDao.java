@@ -1,6 +1,8 @@
 package library.model.dao;
 
 import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.dto.UserListItem;
 import library.model.entities.User;
 
 import java.util.List;
@@ -11,4 +13,14 @@ import java.util.List;
 public interface UserDao extends AbstractSuperDao<User> {
     User findByEmail(String email) throws DaoException;
     List<User> getAll() throws DaoException;
+    long getMaxId() throws DaoException;
+    List<User> findByIdRange(long from, long to) throws DaoException;
+    void updateFines(List<User> users) throws DaoException;
+    void updatePassword(User user) throws DaoException;
+
+    /**
+     * The same search as {@link #findByPattern(String, String, String, int, int)}, only columns of users page are read
+     */
+    List<UserListItem> findItemsByPattern(String what, String searchBy, String sortBy, int num, int page)
+            throws ServiceException, DaoException;
 }
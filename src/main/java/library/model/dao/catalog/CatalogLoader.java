@@ -0,0 +1,322 @@
+package library.model.dao.catalog;
+
+import library.exceptions.DaoException;
+import library.model.connection.BaseDao;
+import library.model.connection.EntityParser;
+import library.model.connection.Transaction;
+import library.model.dao.impl.LangDaoImpl;
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.I18AuthorName;
+import library.model.entities.Lang;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reads complete books for {@link CatalogSnapshot}. Unlike {@link library.model.dao.impl.BookDaoImpl} it doesn't
+ * query stats and authors book by book: every table is read by one query per chunk of ids, the whole catalog is
+ * streamed to snapshot file.
+ */
+public class CatalogLoader {
+  private static final Logger logger = LogManager.getLogger(CatalogLoader.class);
+  private static final int CHUNK = 500;
+  private static final String BOOK_QUERY = "SELECT b.*, s.total, s.in_stock, s.reserved, s.times_was_booked"
+      + " FROM book AS b JOIN book_stat AS s ON s.book_id = b.id";
+  private static final String AUTHOR_QUERY = "SELECT ba.book_id, a.id, a.name, a.modified FROM book_author AS ba"
+      + " JOIN author AS a ON a.id = ba.author_id";
+  private static final String STAT_QUERY = "SELECT * FROM book_stat";
+  private static final String NAME_QUERY = "SELECT * FROM author_name_i18n";
+  private static final String ALL_BOOKS_QUERY = "SELECT b.*, s.total, s.in_stock, s.reserved, s.times_was_booked,"
+      + " ba.author_id FROM book AS b JOIN book_stat AS s ON s.book_id = b.id"
+      + " LEFT JOIN book_author AS ba ON ba.book_id = b.id ORDER BY b.id, ba.author_id";
+  private static final String ALL_AUTHORS_QUERY = "SELECT a.*, n.lang_id, n.name AS i18n_name FROM author AS a"
+      + " LEFT JOIN author_name_i18n AS n ON n.author_id = a.id ORDER BY a.id, n.lang_id";
+  private Connection conn;
+
+  /**
+   * Way to instantiate class from business logic
+   */
+  public CatalogLoader() {}
+
+  /**
+   * Way to instantiate class from other DAO or test
+   */
+  public CatalogLoader(Connection conn) {
+    this.conn = conn;
+  }
+
+  /**
+   * Streams all books to writer: langs, books in order of id, then authors in order of id. Tables are read by
+   * cursors in one transaction, so books and authors are consistent, and only the current book or author is kept
+   * in heap.
+   *
+   * @throws DaoException if books can't be read or written
+   */
+  public void readAll(CatalogSnapshot.Writer out) throws DaoException {
+    logger.debug("start");
+    Transaction tr = new Transaction(conn);
+    tr.transactionWrapper(c -> {
+      Map<Long, Lang> langs = new HashMap<>();
+      for (Lang lang: new LangDaoImpl(c).getAll()) {
+        langs.put(lang.getId(), lang);
+        write(() -> out.lang(lang));
+      }
+      BookRows books = new BookRows(out);
+      new BaseDao<Book>(c).forEach(ALL_BOOKS_QUERY, books);
+      books.flush();
+      AuthorRows authors = new AuthorRows(out, langs);
+      new BaseDao<Author>(c).forEach(ALL_AUTHORS_QUERY, authors);
+      authors.flush();
+    });
+    logger.debug("end");
+  }
+
+  /**
+   * @param ids ids of books
+   * @return existing books of given ids
+   */
+  public List<Book> read(Collection<Long> ids) throws DaoException {
+    logger.debug("start");
+    logger.trace("ids={}", ids);
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      List<Long> list = new ArrayList<>(ids);
+      List<Book> result = new ArrayList<>();
+      for (int from = 0; from < list.size(); from += CHUNK) {
+        String in = list.subList(from, Math.min(from + CHUNK, list.size())).stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining(", ", " IN (", ")"));
+        Map<Long, Book> books = new LinkedHashMap<>();
+        for (Book book: new BaseDao<Book>(c).getRecords(BOOK_QUERY + " WHERE b.id" + in, this::parseBook)) {
+          books.put(book.getId(), book);
+        }
+        resolveDependencies(c, books, " WHERE ba.book_id" + in);
+        result.addAll(books.values());
+      }
+      return result;
+    });
+  }
+
+  /**
+   * @param ids ids of books
+   * @return existing stats of given books
+   */
+  public List<BookStat> readStats(Collection<Long> ids) throws DaoException {
+    logger.debug("start");
+    logger.trace("ids={}", ids);
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      List<Long> list = new ArrayList<>(ids);
+      List<BookStat> result = new ArrayList<>();
+      for (int from = 0; from < list.size(); from += CHUNK) {
+        String in = list.subList(from, Math.min(from + CHUNK, list.size())).stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining(", ", " WHERE book_id IN (", ")"));
+        result.addAll(new BaseDao<BookStat>(c).getRecords(STAT_QUERY + in, (c1, rs) -> new BookStat.Builder()
+            .setId(rs.getLong("book_id"))
+            .setTotal(rs.getLong("total"))
+            .setInStock(rs.getLong("in_stock"))
+            .setReserved(rs.getLong("reserved"))
+            .setTimesWasBooked(rs.getLong("times_was_booked"))
+            .build()));
+      }
+      logger.debug("end");
+      return result;
+    });
+  }
+
+  /**
+   * Sets authors with their names to books
+   *
+   * @param condition condition of books for query of authors
+   */
+  private void resolveDependencies(Connection c, Map<Long, Book> books, String condition) throws DaoException {
+    Map<Long, Lang> langs = new HashMap<>();
+    for (Lang lang: new LangDaoImpl(c).getAll()) {
+      langs.put(lang.getId(), lang);
+    }
+    Map<Long, Author> authors = new HashMap<>();
+    for (Book book: books.values()) {
+      book.setAuthors(new ArrayList<>());
+    }
+    new BaseDao<Author>(c).getRecords(AUTHOR_QUERY + condition + " ORDER BY ba.book_id, a.id", (c1, rs) -> {
+      Author author = authors.get(rs.getLong("id"));
+      if (author == null) {
+        author = parseAuthor(rs);
+        authors.put(author.getId(), author);
+      }
+      Book book = books.get(rs.getLong("book_id"));
+      if (book != null) {
+        book.getAuthors().add(author);
+      }
+      return author;
+    });
+
+    List<Long> ids = new ArrayList<>(authors.keySet());
+    Map<Long, List<I18AuthorName>> names = new HashMap<>();
+    for (int from = 0; from < ids.size(); from += CHUNK) {
+      String in = ids.subList(from, Math.min(from + CHUNK, ids.size())).stream()
+          .map(String::valueOf)
+          .collect(Collectors.joining(", ", " WHERE author_id IN (", ")"));
+      new BaseDao<I18AuthorName>(c).getRecords(NAME_QUERY + in + " ORDER BY author_id, lang_id", (c1, rs) -> {
+        I18AuthorName name = new I18AuthorName.Builder()
+            .setId(rs.getLong("author_id"))
+            .setLang(langs.get(rs.getLong("lang_id")))
+            .setName(rs.getString("name"))
+            .build();
+        names.computeIfAbsent(name.getId(), id -> new ArrayList<>()).add(name);
+        return name;
+      });
+    }
+    for (Author author: authors.values()) {
+      List<I18AuthorName> i18Names = names.getOrDefault(author.getId(), new ArrayList<>());
+      author.setI18Names(i18Names);
+      for (I18AuthorName name: i18Names) {
+        if (name.getName().equals(author.getName())) {
+          author.setPrimaryLang(name.getLang());
+          break;
+        }
+      }
+    }
+    logger.debug("end");
+  }
+
+  private Book parseBook(Connection c, ResultSet rs) throws SQLException {
+    long id = rs.getLong("id");
+    return new Book.Builder()
+        .setId(id)
+        .setTitle(rs.getString("title"))
+        .setIsbn(rs.getString("isbn"))
+        .setYear(rs.getInt("year"))
+        .setLangCode(rs.getString("lang_code"))
+        .setKeepPeriod(rs.getInt("keep_period"))
+        .setModified(calendar(rs, "modified"))
+        .setBookStat(new BookStat.Builder()
+            .setId(id)
+            .setTotal(rs.getLong("total"))
+            .setInStock(rs.getLong("in_stock"))
+            .setReserved(rs.getLong("reserved"))
+            .setTimesWasBooked(rs.getLong("times_was_booked"))
+            .build())
+        .build();
+  }
+
+  private static Author parseAuthor(ResultSet rs) throws SQLException {
+    return new Author.Builder()
+        .setId(rs.getLong("id"))
+        .setName(rs.getString("name"))
+        .setModified(calendar(rs, "modified"))
+        .build();
+  }
+
+  private static Calendar calendar(ResultSet rs, String column) throws SQLException {
+    Calendar cal = Calendar.getInstance();
+    cal.setTime(rs.getTimestamp(column));
+    return cal;
+  }
+
+  /**
+   * Write to snapshot file
+   */
+  @FunctionalInterface
+  private interface Write {
+    void run() throws IOException;
+  }
+
+  private static void write(Write write) throws DaoException {
+    try {
+      write.run();
+    } catch (IOException e) {
+      throw new DaoException("Unable to write catalog snapshot", e);
+    }
+  }
+
+  /**
+   * Joins rows of book with its authors, book is written when the next one is read
+   */
+  private class BookRows implements EntityParser<Book> {
+    private final CatalogSnapshot.Writer out;
+    private Book book;
+
+    BookRows(CatalogSnapshot.Writer out) {
+      this.out = out;
+    }
+
+    @Override
+    public Book accept(Connection c, ResultSet rs) throws SQLException, DaoException {
+      if (book == null || book.getId() != rs.getLong("id")) {
+        flush();
+        book = parseBook(c, rs);
+        book.setAuthors(new ArrayList<>());
+      }
+      long authorId = rs.getLong("author_id");
+      if (!rs.wasNull()) {
+        // writer takes ids of authors only
+        book.getAuthors().add(new Author.Builder().setId(authorId).build());
+      }
+      return book;
+    }
+
+    void flush() throws DaoException {
+      Book last = book;
+      if (last != null) {
+        write(() -> out.book(last));
+      }
+    }
+  }
+
+  /**
+   * Joins rows of author with its i18n names, author is written when the next one is read
+   */
+  private static class AuthorRows implements EntityParser<Author> {
+    private final CatalogSnapshot.Writer out;
+    private final Map<Long, Lang> langs;
+    private Author author;
+    private List<I18AuthorName> names;
+
+    AuthorRows(CatalogSnapshot.Writer out, Map<Long, Lang> langs) {
+      this.out = out;
+      this.langs = langs;
+    }
+
+    @Override
+    public Author accept(Connection c, ResultSet rs) throws SQLException, DaoException {
+      if (author == null || author.getId() != rs.getLong("id")) {
+        flush();
+        author = parseAuthor(rs);
+        names = new ArrayList<>();
+      }
+      long langId = rs.getLong("lang_id");
+      if (!rs.wasNull()) {
+        names.add(new I18AuthorName.Builder()
+            .setId(author.getId())
+            .setLang(langs.get(langId))
+            .setName(rs.getString("i18n_name"))
+            .build());
+      }
+      return author;
+    }
+
+    void flush() throws DaoException {
+      Author last = author;
+      if (last != null) {
+        last.setI18Names(names);
+        write(() -> out.author(last));
+      }
+    }
+  }
+}
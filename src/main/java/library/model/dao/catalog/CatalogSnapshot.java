@@ -0,0 +1,894 @@
+package library.model.dao.catalog;
+
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.I18AuthorName;
+import library.model.entities.Lang;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * Catalog of books with authors and their i18n names in memory-mapped file, so it takes no Java heap. Snapshot file
+ * is immutable: it's built by {@link Writer} and swapped with the previous one. Stats are changed by every booking,
+ * so they are kept in their own mutable file ({@link CatalogStats}) and updated in place by
+ * {@link #updateStat(BookStat)}. Layout is columnar: every field of books, authors, names and langs is an array,
+ * strings are references to heap of UTF-8 bytes at the end of file. Search scans lower-case copies of strings, pages
+ * are taken from books presorted by every sort column.
+ * <p>
+ * Search follows {@link library.model.dao.impl.BookDaoImpl}: case-insensitive contains, only books with authors are
+ * found. Order is stable: ties are ordered by id, sorting by author means the least (ignoring case) name of authors
+ * of book.
+ */
+public final class CatalogSnapshot {
+  static final String TITLE_COL = "title";
+  static final String ISBN_COL = "isbn";
+  static final String YEAR_COL = "year";
+  static final String AUTHOR_COL = "author";
+  private static final int MAGIC = 0x4C494243;
+  private static final int VERSION = 2;
+  private static final String STATS_SUFFIX = ".stats";
+  private static final int HEADER = 40;
+  // counts of header: books, links of books to authors, authors, names, langs
+  private static final int BOOKS = 0;
+  private static final int LINKS = 1;
+  private static final int AUTHORS = 2;
+  private static final int NAMES = 3;
+  private static final int LANGS = 4;
+
+  /**
+   * Arrays of file in their order
+   */
+  private enum Column {
+    BOOK_ID(8, c -> c[BOOKS]),
+    BOOK_MODIFIED(8, c -> c[BOOKS]),
+    BOOK_YEAR(4, c -> c[BOOKS]),
+    BOOK_KEEP_PERIOD(4, c -> c[BOOKS]),
+    BOOK_TITLE(4, c -> c[BOOKS]),
+    BOOK_TITLE_LC(4, c -> c[BOOKS]),
+    BOOK_ISBN(4, c -> c[BOOKS]),
+    BOOK_ISBN_LC(4, c -> c[BOOKS]),
+    BOOK_LANG_CODE(4, c -> c[BOOKS]),
+    // authors of book i are BOOK_AUTHOR[BOOK_AUTHOR_START[i] .. BOOK_AUTHOR_START[i + 1])
+    BOOK_AUTHOR_START(4, c -> c[BOOKS] + 1),
+    BOOK_AUTHOR(4, c -> c[LINKS]),
+    BY_TITLE(4, c -> c[BOOKS]),
+    BY_ISBN(4, c -> c[BOOKS]),
+    BY_YEAR(4, c -> c[BOOKS]),
+    BY_AUTHOR(4, c -> c[BOOKS]),
+    AUTHOR_ID(8, c -> c[AUTHORS]),
+    AUTHOR_MODIFIED(8, c -> c[AUTHORS]),
+    AUTHOR_NAME(4, c -> c[AUTHORS]),
+    AUTHOR_NAME_START(4, c -> c[AUTHORS] + 1),
+    NAME_LANG(4, c -> c[NAMES]),
+    NAME(4, c -> c[NAMES]),
+    NAME_LC(4, c -> c[NAMES]),
+    LANG_ID(8, c -> c[LANGS]),
+    LANG_CODE(4, c -> c[LANGS]);
+
+    private final int size;
+    private final ToIntFunction<int[]> count;
+
+    Column(int size, ToIntFunction<int[]> count) {
+      this.size = size;
+      this.count = count;
+    }
+  }
+
+  // strings of book copied as they are, lang code is shared
+  private static final EnumSet<Column> BOOK_STRINGS = EnumSet.of(Column.BOOK_TITLE, Column.BOOK_TITLE_LC,
+      Column.BOOK_ISBN, Column.BOOK_ISBN_LC);
+  // columns, which are written by the end of build
+  private static final EnumSet<Column> FILLED_BY_FINISH = EnumSet.of(Column.BOOK_AUTHOR, Column.BY_TITLE,
+      Column.BY_ISBN, Column.BY_YEAR, Column.BY_AUTHOR);
+
+  private final ByteBuffer map;
+  private final int[] counts;
+  private final int[] offsets;
+  private final int heap;
+  private final CatalogStats stats;
+
+  private CatalogSnapshot(ByteBuffer map, CatalogStats stats) throws IOException {
+    this.map = map;
+    this.stats = stats;
+    if (map.capacity() < HEADER || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+      throw new IOException("not a catalog snapshot of supported version");
+    }
+    counts = new int[LANGS + 1];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = map.getInt(8 + i * 4);
+    }
+    offsets = offsets(counts);
+    heap = offsets[offsets.length - 1];
+  }
+
+  /**
+   * Maps snapshot file read-only and its stats file writable, files can be deleted after it, mappings stay valid
+   * till snapshot is collected
+   */
+  public static CatalogSnapshot open(Path file) throws IOException {
+    ByteBuffer map;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    int books = map.capacity() < HEADER ? 0 : map.getInt(8 + BOOKS * 4);
+    return new CatalogSnapshot(map, CatalogStats.open(statsFile(file), books));
+  }
+
+  /**
+   * @return file of stats of snapshot file
+   */
+  public static Path statsFile(Path file) {
+    return file.resolveSibling(file.getFileName() + STATS_SUFFIX);
+  }
+
+  /**
+   * Writes stat of book to stats file of snapshot. It's called by one thread (refresh), readers see the new stat by
+   * the next read of book.
+   *
+   * @param stat stat read from DB
+   * @return false if book isn't in snapshot, it has to be rebuilt then
+   */
+  public boolean updateStat(BookStat stat) {
+    int i = indexOf(Column.BOOK_ID, counts[BOOKS], stat.getId());
+    if (i < 0) {
+      return false;
+    }
+    stats.put(i, stat);
+    return true;
+  }
+
+  /**
+   * @param ids column of ids of books or authors, rows are ordered by id
+   * @param count number of rows
+   * @return index of row; negative if it's not found
+   */
+  private int indexOf(Column ids, int count, long id) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midId = getLong(ids, mid);
+      if (midId < id) {
+        low = mid + 1;
+      } else if (midId > id) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return number of books
+   */
+  public int size() {
+    return counts[BOOKS];
+  }
+
+  /**
+   * @param what part of column value to be found
+   * @param searchBy title, isbn, year or author
+   * @return number of found books
+   */
+  public int count(String what, String searchBy) {
+    Matcher matcher = new Matcher(what, searchBy);
+    int found = 0;
+    for (int i = 0; i < counts[BOOKS]; i++) {
+      if (matcher.test(i)) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * @param what part of column value to be found
+   * @param searchBy title, isbn, year or author
+   * @param sortBy title, isbn, year or author
+   * @param num size of page
+   * @param page page from 1
+   * @return found books of the page
+   */
+  public List<Book> find(String what, String searchBy, String sortBy, int num, int page) {
+    Matcher matcher = new Matcher(what, searchBy);
+    Column order = order(sortBy);
+    int skip = Math.max(page - 1, 0) * num;
+    List<Book> books = new ArrayList<>();
+    for (int i = 0; i < counts[BOOKS] && books.size() < num; i++) {
+      int book = getInt(order, i);
+      if (matcher.test(book)) {
+        if (skip > 0) {
+          skip--;
+        } else {
+          books.add(book(book));
+        }
+      }
+    }
+    return books;
+  }
+
+  /**
+   * @return ids of books of author
+   */
+  public List<Long> booksOfAuthor(long authorId) {
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < counts[BOOKS]; i++) {
+      for (int a = getInt(Column.BOOK_AUTHOR_START, i); a < getInt(Column.BOOK_AUTHOR_START, i + 1); a++) {
+        if (getLong(Column.AUTHOR_ID, getInt(Column.BOOK_AUTHOR, a)) == authorId) {
+          ids.add(getLong(Column.BOOK_ID, i));
+          break;
+        }
+      }
+    }
+    return ids;
+  }
+
+  private static Column order(String sortBy) {
+    switch (sortBy) {
+      case ISBN_COL:
+        return Column.BY_ISBN;
+      case YEAR_COL:
+        return Column.BY_YEAR;
+      case AUTHOR_COL:
+        return Column.BY_AUTHOR;
+      default:
+        return Column.BY_TITLE;
+    }
+  }
+
+  /**
+   * Condition of search, pattern is encoded once for all books
+   */
+  private final class Matcher {
+    private final Column column;
+    private final String what;
+    private final byte[] pattern;
+
+    Matcher(String what, String searchBy) {
+      this.what = what;
+      this.pattern = what.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+      switch (searchBy) {
+        case ISBN_COL:
+          column = Column.BOOK_ISBN_LC;
+          break;
+        case YEAR_COL:
+          column = Column.BOOK_YEAR;
+          break;
+        case AUTHOR_COL:
+          column = Column.NAME_LC;
+          break;
+        default:
+          column = Column.BOOK_TITLE_LC;
+      }
+    }
+
+    boolean test(int book) {
+      int from = getInt(Column.BOOK_AUTHOR_START, book);
+      int to = getInt(Column.BOOK_AUTHOR_START, book + 1);
+      if (from == to) {
+        return false;
+      }
+      switch (column) {
+        case BOOK_YEAR:
+          return String.valueOf(getInt(Column.BOOK_YEAR, book)).contains(what);
+        case NAME_LC:
+          for (int a = from; a < to; a++) {
+            int author = getInt(Column.BOOK_AUTHOR, a);
+            int end = getInt(Column.AUTHOR_NAME_START, author + 1);
+            for (int n = getInt(Column.AUTHOR_NAME_START, author); n < end; n++) {
+              if (contains(getInt(Column.NAME_LC, n), pattern)) {
+                return true;
+              }
+            }
+          }
+          return false;
+        default:
+          return contains(getInt(column, book), pattern);
+      }
+    }
+  }
+
+  private Book book(int i) {
+    long id = getLong(Column.BOOK_ID, i);
+    Book book = new Book.Builder()
+        .setId(id)
+        .setTitle(string(getInt(Column.BOOK_TITLE, i)))
+        .setIsbn(string(getInt(Column.BOOK_ISBN, i)))
+        .setYear(getInt(Column.BOOK_YEAR, i))
+        .setLangCode(string(getInt(Column.BOOK_LANG_CODE, i)))
+        .setKeepPeriod(getInt(Column.BOOK_KEEP_PERIOD, i))
+        .setModified(calendar(getLong(Column.BOOK_MODIFIED, i)))
+        .setBookStat(stats.get(i, id))
+        .build();
+    List<Author> authors = new ArrayList<>();
+    for (int a = getInt(Column.BOOK_AUTHOR_START, i); a < getInt(Column.BOOK_AUTHOR_START, i + 1); a++) {
+      authors.add(author(getInt(Column.BOOK_AUTHOR, a)));
+    }
+    book.setAuthors(authors);
+    return book;
+  }
+
+  private Author author(int i) {
+    String name = string(getInt(Column.AUTHOR_NAME, i));
+    Author author = new Author.Builder()
+        .setId(getLong(Column.AUTHOR_ID, i))
+        .setName(name)
+        .setModified(calendar(getLong(Column.AUTHOR_MODIFIED, i)))
+        .build();
+    List<I18AuthorName> names = new ArrayList<>();
+    for (int n = getInt(Column.AUTHOR_NAME_START, i); n < getInt(Column.AUTHOR_NAME_START, i + 1); n++) {
+      int lang = getInt(Column.NAME_LANG, n);
+      names.add(new I18AuthorName.Builder()
+          .setId(author.getId())
+          .setLang(new Lang.Builder()
+              .setId(getLong(Column.LANG_ID, lang))
+              .setCode(string(getInt(Column.LANG_CODE, lang)))
+              .build())
+          .setName(string(getInt(Column.NAME, n)))
+          .build());
+    }
+    author.setI18Names(names);
+    for (I18AuthorName i18Name: names) {
+      if (i18Name.getName().equals(name)) {
+        author.setPrimaryLang(i18Name.getLang());
+        break;
+      }
+    }
+    return author;
+  }
+
+  private int getInt(Column column, int index) {
+    return map.getInt(offsets[column.ordinal()] + index * 4);
+  }
+
+  private long getLong(Column column, int index) {
+    return map.getLong(offsets[column.ordinal()] + index * 8);
+  }
+
+  /**
+   * Only file being built is written
+   */
+  private void putInt(Column column, int index, int value) {
+    map.putInt(offsets[column.ordinal()] + index * 4, value);
+  }
+
+  private String string(int ref) {
+    byte[] bytes = new byte[map.getInt(heap + ref)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = map.get(heap + ref + 4 + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * UTF-8 is self-synchronizing, so substring of bytes is substring of chars
+   */
+  private boolean contains(int ref, byte[] pattern) {
+    int start = heap + ref + 4;
+    int last = start + map.getInt(heap + ref) - pattern.length;
+    for (int i = start; i <= last; i++) {
+      int j = 0;
+      while (j < pattern.length && map.get(i + j) == pattern[j]) {
+        j++;
+      }
+      if (j == pattern.length) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Calendar calendar(long millis) {
+    Calendar cal = Calendar.getInstance();
+    cal.setTimeInMillis(millis);
+    return cal;
+  }
+
+  /**
+   * @return offset of every column and offset of string heap as the last element
+   */
+  private static int[] offsets(int[] counts) {
+    int[] offsets = new int[Column.values().length + 1];
+    long offset = HEADER;
+    for (Column column: Column.values()) {
+      offsets[column.ordinal()] = (int) offset;
+      offset += (long) column.size * column.count.applyAsInt(counts);
+    }
+    if (offset > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("catalog is too large: " + offset + " bytes");
+    }
+    offsets[offsets.length - 1] = (int) offset;
+    return offsets;
+  }
+
+  /**
+   * Writes new snapshot of old one and changed books. Rows of old snapshot are copied one by one, strings are copied
+   * as bytes, so its books aren't decoded to heap. Authors of changed books replace old ones, authors left without
+   * books are kept till the next full build.
+   *
+   * @param old current snapshot
+   * @param file new file
+   * @param changed complete books re-read from DB
+   * @param reRead ids of re-read books, the ones, which are not in changed, were deleted
+   */
+  public static void update(CatalogSnapshot old, Path file, List<Book> changed, Collection<Long> reRead)
+      throws IOException {
+    Map<Long, Book> books = new TreeMap<>();
+    Map<Long, Author> authors = new TreeMap<>();
+    Map<Long, Lang> langs = new LinkedHashMap<>();
+    for (int i = 0; i < old.counts[LANGS]; i++) {
+      langs.put(old.getLong(Column.LANG_ID, i), new Lang.Builder()
+          .setId(old.getLong(Column.LANG_ID, i))
+          .setCode(old.string(old.getInt(Column.LANG_CODE, i)))
+          .build());
+    }
+    for (Book book: changed) {
+      books.put(book.getId(), book);
+      for (Author author: book.getAuthors()) {
+        authors.put(author.getId(), author);
+        for (I18AuthorName name: author.getI18NamesAsList()) {
+          langs.putIfAbsent(name.getLang().getId(), name.getLang());
+        }
+      }
+    }
+    Set<Long> skipped = new HashSet<>(reRead);
+
+    try (Writer out = new Writer(file)) {
+      for (Lang lang: langs.values()) {
+        out.lang(lang);
+      }
+
+      Iterator<Book> changedBooks = books.values().iterator();
+      Book book = next(changedBooks);
+      for (int i = 0; i < old.counts[BOOKS]; i++) {
+        long id = old.getLong(Column.BOOK_ID, i);
+        for (; book != null && book.getId() < id; book = next(changedBooks)) {
+          out.book(book);
+        }
+        // re-read book of the same id is written by the next iteration
+        if (!skipped.contains(id) && !books.containsKey(id)) {
+          old.copyBook(i, out);
+        }
+      }
+      for (; book != null; book = next(changedBooks)) {
+        out.book(book);
+      }
+
+      Iterator<Author> changedAuthors = authors.values().iterator();
+      Author author = next(changedAuthors);
+      for (int i = 0; i < old.counts[AUTHORS]; i++) {
+        long id = old.getLong(Column.AUTHOR_ID, i);
+        for (; author != null && author.getId() < id; author = next(changedAuthors)) {
+          out.author(author);
+        }
+        if (!authors.containsKey(id)) {
+          old.copyAuthor(i, out);
+        }
+      }
+      for (; author != null; author = next(changedAuthors)) {
+        out.author(author);
+      }
+      out.finish();
+    }
+  }
+
+  private static <T> T next(Iterator<T> it) {
+    return it.hasNext() ? it.next() : null;
+  }
+
+  private void copyBook(int i, Writer out) throws IOException {
+    long id = getLong(Column.BOOK_ID, i);
+    out.startBook(id, getLong(Column.BOOK_MODIFIED, i), getInt(Column.BOOK_YEAR, i),
+        getInt(Column.BOOK_KEEP_PERIOD, i), stats.get(i, id));
+    for (Column column: BOOK_STRINGS) {
+      out.ref(column, out.copy(this, getInt(column, i)));
+    }
+    out.ref(Column.BOOK_LANG_CODE, out.shared(string(getInt(Column.BOOK_LANG_CODE, i))));
+    for (int a = getInt(Column.BOOK_AUTHOR_START, i); a < getInt(Column.BOOK_AUTHOR_START, i + 1); a++) {
+      out.link(getLong(Column.AUTHOR_ID, getInt(Column.BOOK_AUTHOR, a)));
+    }
+  }
+
+  private void copyAuthor(int i, Writer out) throws IOException {
+    out.startAuthor(getLong(Column.AUTHOR_ID, i), getLong(Column.AUTHOR_MODIFIED, i),
+        out.copy(this, getInt(Column.AUTHOR_NAME, i)));
+    for (int n = getInt(Column.AUTHOR_NAME_START, i); n < getInt(Column.AUTHOR_NAME_START, i + 1); n++) {
+      out.name(getLong(Column.LANG_ID, getInt(Column.NAME_LANG, n)), out.copy(this, getInt(Column.NAME, n)),
+          out.copy(this, getInt(Column.NAME_LC, n)));
+    }
+  }
+
+  /**
+   * Replaces ids of authors of books, which were written by {@link Writer}, by their indexes
+   */
+  private void resolveLinks(Path linkIds) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(linkIds)))) {
+      for (int link = 0; link < counts[LINKS]; link++) {
+        long id = in.readLong();
+        int author = indexOf(Column.AUTHOR_ID, counts[AUTHORS], id);
+        if (author < 0) {
+          throw new IOException("author " + id + " of book isn't in catalog");
+        }
+        putInt(Column.BOOK_AUTHOR, link, author);
+      }
+    }
+  }
+
+  /**
+   * Writes orders of books by every sort column. Indexes of books are sorted, strings are read from the file being
+   * built, ties are ordered by index, which is order of id.
+   */
+  private void sortBooks() {
+    putOrder(Column.BY_TITLE, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(
+        string(getInt(Column.BOOK_TITLE, a)), string(getInt(Column.BOOK_TITLE, b))));
+    putOrder(Column.BY_ISBN, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(
+        string(getInt(Column.BOOK_ISBN, a)), string(getInt(Column.BOOK_ISBN, b))));
+    putOrder(Column.BY_YEAR, (a, b) -> Integer.compare(getInt(Column.BOOK_YEAR, a), getInt(Column.BOOK_YEAR, b)));
+
+    String[] sortAuthor = new String[counts[BOOKS]];
+    for (int i = 0; i < sortAuthor.length; i++) {
+      for (int a = getInt(Column.BOOK_AUTHOR_START, i); a < getInt(Column.BOOK_AUTHOR_START, i + 1); a++) {
+        int author = getInt(Column.BOOK_AUTHOR, a);
+        for (int n = getInt(Column.AUTHOR_NAME_START, author); n < getInt(Column.AUTHOR_NAME_START, author + 1); n++) {
+          String name = string(getInt(Column.NAME, n));
+          if (sortAuthor[i] == null || String.CASE_INSENSITIVE_ORDER.compare(name, sortAuthor[i]) < 0) {
+            sortAuthor[i] = name;
+          }
+        }
+      }
+    }
+    Comparator<String> names = Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+    putOrder(Column.BY_AUTHOR, (a, b) -> names.compare(sortAuthor[a], sortAuthor[b]));
+  }
+
+  private void putOrder(Column column, IntBinaryOperator comparator) {
+    int[] order = new int[counts[BOOKS]];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    sort(order, comparator);
+    for (int i = 0; i < order.length; i++) {
+      putInt(column, i, order[i]);
+    }
+  }
+
+  /**
+   * Stable merge sort of indexes without boxing them
+   */
+  private static void sort(int[] a, IntBinaryOperator comparator) {
+    int[] buffer = new int[a.length];
+    for (int width = 1; width < a.length; width *= 2) {
+      for (int from = 0; from < a.length - width; from += 2 * width) {
+        int mid = from + width;
+        int to = Math.min(from + 2 * width, a.length);
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+          buffer[k++] = comparator.applyAsInt(a[j], a[i]) < 0 ? a[j++] : a[i++];
+        }
+        while (i < mid) {
+          buffer[k++] = a[i++];
+        }
+        while (j < to) {
+          buffer[k++] = a[j++];
+        }
+        System.arraycopy(buffer, from, a, from, to - from);
+      }
+    }
+  }
+
+  private static String lowerCase(String s) {
+    return s == null ? "" : s.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Writes snapshot file and its stats file row by row: langs first, then books and authors, both in order of id.
+   * Every column is streamed to its own temporary file next to the snapshot, so rows aren't kept in heap.
+   * {@link #finish()} joins them to snapshot, replaces ids of authors of books by their indexes and sorts books by
+   * every sort column. Snapshot isn't left, if writer is closed without finish.
+   */
+  public static final class Writer implements Closeable {
+    private final Path file;
+    private final Map<Column, Path> paths = new EnumMap<>(Column.class);
+    private final Map<Column, DataOutputStream> columns = new EnumMap<>(Column.class);
+    private final Path linkPath;
+    private final DataOutputStream linkIds;
+    private final Path stringPath;
+    private final DataOutputStream strings;
+    private final Path statsPath;
+    private final DataOutputStream stats;
+    private final Map<Long, Integer> langIndex = new HashMap<>();
+    // lang codes are repeated by every book
+    private final Map<String, Integer> shared = new HashMap<>();
+    private final int[] counts = new int[LANGS + 1];
+    private byte[] buffer = new byte[256];
+    private long lastBook = Long.MIN_VALUE;
+    private long lastAuthor = Long.MIN_VALUE;
+    private boolean finished;
+
+    /**
+     * @param file new snapshot file, its stats file is written by {@link CatalogSnapshot#statsFile(Path)}
+     */
+    public Writer(Path file) throws IOException {
+      this.file = file;
+      linkPath = temp("links");
+      stringPath = temp("strings");
+      statsPath = temp("stats");
+      linkIds = stream(linkPath);
+      strings = stream(stringPath);
+      stats = stream(statsPath);
+      for (Column column: Column.values()) {
+        if (!FILLED_BY_FINISH.contains(column)) {
+          Path path = temp(column.name());
+          paths.put(column, path);
+          columns.put(column, stream(path));
+        }
+      }
+    }
+
+    private Path temp(String name) {
+      return file.resolveSibling(file.getFileName() + "." + name + ".tmp");
+    }
+
+    private static DataOutputStream stream(Path path) throws IOException {
+      return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+          StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)));
+    }
+
+    /**
+     * Langs are written before names of authors
+     */
+    public void lang(Lang lang) throws IOException {
+      langIndex.put(lang.getId(), counts[LANGS]++);
+      columns.get(Column.LANG_ID).writeLong(lang.getId());
+      ref(Column.LANG_CODE, shared(lang.getCode()));
+    }
+
+    /**
+     * @param book complete book: with stat and authors, books are written in order of id
+     */
+    public void book(Book book) throws IOException {
+      startBook(book.getId(), millis(book.getModified()), book.getYear(), book.getKeepPeriod(), book.getBookStat());
+      ref(Column.BOOK_TITLE, string(book.getTitle()));
+      ref(Column.BOOK_TITLE_LC, string(lowerCase(book.getTitle())));
+      ref(Column.BOOK_ISBN, string(book.getIsbn()));
+      ref(Column.BOOK_ISBN_LC, string(lowerCase(book.getIsbn())));
+      ref(Column.BOOK_LANG_CODE, shared(book.getLangCode()));
+      for (Author author: book.getAuthors()) {
+        link(author.getId());
+      }
+    }
+
+    /**
+     * @param author author with i18n names, authors are written in order of id
+     */
+    public void author(Author author) throws IOException {
+      startAuthor(author.getId(), millis(author.getModified()), string(author.getName()));
+      for (I18AuthorName name: author.getI18NamesAsList()) {
+        name(name.getLang().getId(), string(name.getName()), string(lowerCase(name.getName())));
+      }
+    }
+
+    private void startBook(long id, long modified, int year, int keepPeriod, BookStat stat) throws IOException {
+      if (id <= lastBook) {
+        throw new IllegalArgumentException("books are not ordered by id: " + id + " after " + lastBook);
+      }
+      lastBook = id;
+      counts[BOOKS]++;
+      columns.get(Column.BOOK_ID).writeLong(id);
+      columns.get(Column.BOOK_MODIFIED).writeLong(modified);
+      columns.get(Column.BOOK_YEAR).writeInt(year);
+      columns.get(Column.BOOK_KEEP_PERIOD).writeInt(keepPeriod);
+      columns.get(Column.BOOK_AUTHOR_START).writeInt(counts[LINKS]);
+      stats.writeLong(stat.getTotal());
+      stats.writeLong(stat.getInStock());
+      stats.writeLong(stat.getReserved());
+      stats.writeLong(stat.getTimesWasBooked());
+    }
+
+    private void link(long authorId) throws IOException {
+      counts[LINKS]++;
+      linkIds.writeLong(authorId);
+    }
+
+    private void startAuthor(long id, long modified, int name) throws IOException {
+      if (id <= lastAuthor) {
+        throw new IllegalArgumentException("authors are not ordered by id: " + id + " after " + lastAuthor);
+      }
+      lastAuthor = id;
+      counts[AUTHORS]++;
+      columns.get(Column.AUTHOR_ID).writeLong(id);
+      columns.get(Column.AUTHOR_MODIFIED).writeLong(modified);
+      ref(Column.AUTHOR_NAME, name);
+      columns.get(Column.AUTHOR_NAME_START).writeInt(counts[NAMES]);
+    }
+
+    private void name(long langId, int name, int nameLowerCase) throws IOException {
+      Integer lang = langIndex.get(langId);
+      if (lang == null) {
+        throw new IOException("lang " + langId + " of author name isn't written");
+      }
+      counts[NAMES]++;
+      columns.get(Column.NAME_LANG).writeInt(lang);
+      ref(Column.NAME, name);
+      ref(Column.NAME_LC, nameLowerCase);
+    }
+
+    private void ref(Column column, int ref) throws IOException {
+      columns.get(column).writeInt(ref);
+    }
+
+    /**
+     * @return reference of string added to heap
+     */
+    private int string(String s) throws IOException {
+      byte[] utf8 = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+      int ref = reserve(utf8.length);
+      strings.writeInt(utf8.length);
+      strings.write(utf8);
+      return ref;
+    }
+
+    /**
+     * @return reference of string added once for all rows
+     */
+    private int shared(String s) throws IOException {
+      String value = s == null ? "" : s;
+      Integer ref = shared.get(value);
+      if (ref == null) {
+        ref = string(value);
+        shared.put(value, ref);
+      }
+      return ref;
+    }
+
+    /**
+     * @return reference of string copied from heap of other snapshot as bytes
+     */
+    private int copy(CatalogSnapshot from, int fromRef) throws IOException {
+      int length = from.map.getInt(from.heap + fromRef);
+      if (buffer.length < length) {
+        buffer = new byte[Math.max(length, buffer.length * 2)];
+      }
+      ByteBuffer bytes = from.map.duplicate();
+      bytes.position(from.heap + fromRef + 4);
+      bytes.get(buffer, 0, length);
+      int ref = reserve(length);
+      strings.writeInt(length);
+      strings.write(buffer, 0, length);
+      return ref;
+    }
+
+    private int reserve(int length) throws IOException {
+      int ref = strings.size();
+      if ((long) ref + 4 + length >= Integer.MAX_VALUE) {
+        throw new IOException("strings of catalog are too large");
+      }
+      return ref;
+    }
+
+    /**
+     * Joins columns to snapshot file, snapshot can be opened after it
+     */
+    public void finish() throws IOException {
+      columns.get(Column.BOOK_AUTHOR_START).writeInt(counts[LINKS]);
+      columns.get(Column.AUTHOR_NAME_START).writeInt(counts[NAMES]);
+      closeStreams();
+
+      int[] offsets = offsets(counts);
+      long size = offsets[offsets.length - 1] + Files.size(stringPath);
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("catalog is too large: " + size + " bytes");
+      }
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        map.putInt(0, MAGIC);
+        map.putInt(4, VERSION);
+        for (int i = 0; i < counts.length; i++) {
+          map.putInt(8 + i * 4, counts[i]);
+        }
+        for (Map.Entry<Column, Path> column: paths.entrySet()) {
+          copyTo(column.getValue(), map, offsets[column.getKey().ordinal()]);
+        }
+        copyTo(stringPath, map, offsets[offsets.length - 1]);
+
+        CatalogSnapshot built = new CatalogSnapshot(map, null);
+        built.resolveLinks(linkPath);
+        built.sortBooks();
+        map.force();
+      }
+      Files.move(statsPath, statsFile(file));
+      finished = true;
+    }
+
+    private static void copyTo(Path path, ByteBuffer map, int offset) throws IOException {
+      try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+        ByteBuffer target = map.duplicate();
+        target.position(offset);
+        target.limit(offset + (int) in.size());
+        while (target.hasRemaining()) {
+          if (in.read(target) < 0) {
+            throw new IOException("column " + path + " is shorter than expected");
+          }
+        }
+      }
+    }
+
+    private static long millis(Calendar time) {
+      return time == null ? 0 : time.getTimeInMillis();
+    }
+
+    private void closeStreams() throws IOException {
+      IOException error = null;
+      List<DataOutputStream> streams = new ArrayList<>(columns.values());
+      streams.add(linkIds);
+      streams.add(strings);
+      streams.add(stats);
+      for (DataOutputStream stream: streams) {
+        try {
+          stream.close();
+        } catch (IOException e) {
+          error = e;
+        }
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+
+    /**
+     * Deletes temporary files, and snapshot files, if it's not finished
+     */
+    @Override
+    public void close() throws IOException {
+      try {
+        closeStreams();
+      } finally {
+        List<Path> temp = new ArrayList<>(paths.values());
+        temp.add(linkPath);
+        temp.add(stringPath);
+        temp.add(statsPath);
+        if (!finished) {
+          temp.add(file);
+          temp.add(statsFile(file));
+        }
+        for (Path path: temp) {
+          Files.deleteIfExists(path);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package library.model.dao.catalog;
+
+import library.exceptions.DaoException;
+import library.model.entities.BookStat;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holder of the current {@link CatalogSnapshot}. DAOs tell ids of books changed by committed transactions, refresh
+ * re-reads these books only and writes new snapshot file of rows of the current one and these books, full refresh
+ * streams all books from DB. Neither of them collects books in heap. New snapshot is swapped with the current one,
+ * readers keep snapshot they got, so they are never blocked and never see half-written catalog.
+ * <p>
+ * Bookings change stats only, they are told apart by {@link #statsChanged(Collection)}: refresh re-reads stats of
+ * these books and writes them to stats file of the current snapshot, so snapshot file isn't rewritten for them.
+ * <p>
+ * Snapshot is disabled till {@link #enable(Path)}, DAOs query DB then.
+ */
+public class CatalogSnapshots {
+  private static final Logger logger = LogManager.getLogger(CatalogSnapshots.class);
+  private static final String PREFIX = "catalog-";
+  private static final String SUFFIX = ".snap";
+  private final CatalogLoader loader;
+  private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+  private final Set<Long> dirtyStats = ConcurrentHashMap.newKeySet();
+  private volatile CatalogSnapshot current;
+  private volatile Path dir;
+  private Path currentFile;
+  private long generation;
+
+  private static class Holder {
+    private static final CatalogSnapshots INSTANCE = new CatalogSnapshots(new CatalogLoader());
+  }
+
+  public static CatalogSnapshots getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  /**
+   * For testing purpose, use {@link #getInstance()} otherwise
+   * @param loader loader of books
+   */
+  CatalogSnapshots(CatalogLoader loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * Enables snapshot, it's served after the first {@link #refresh(boolean)}
+   *
+   * @param dir directory of snapshot files, files left by previous run are deleted: snapshots, their stats and
+   *            temporary files of build
+   */
+  public synchronized void enable(Path dir) throws IOException {
+    Files.createDirectories(dir);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*")) {
+      for (Path file: files) {
+        if (currentFile == null || !file.equals(currentFile)
+            && !file.equals(CatalogSnapshot.statsFile(currentFile))) {
+          Files.delete(file);
+        }
+      }
+    }
+    this.dir = dir;
+    logger.info("Catalog snapshot is kept in {}", dir);
+  }
+
+  /**
+   * @return the current snapshot, null if it's disabled or not built yet
+   */
+  public CatalogSnapshot current() {
+    return current;
+  }
+
+  /**
+   * Marks books to be re-read by the next refresh
+   *
+   * @param bookIds ids of books, which were created, changed or deleted
+   */
+  public void changed(Collection<Long> bookIds) {
+    if (dir != null) {
+      dirty.addAll(bookIds);
+    }
+  }
+
+  /**
+   * Marks stats of books to be re-read by the next refresh
+   *
+   * @param bookIds ids of books, which stats were changed
+   */
+  public void statsChanged(Collection<Long> bookIds) {
+    if (dir != null) {
+      dirtyStats.addAll(bookIds);
+    }
+  }
+
+  /**
+   * Marks books of author to be re-read by the next refresh
+   */
+  public void authorChanged(long authorId) {
+    CatalogSnapshot snapshot = current;
+    if (snapshot != null) {
+      dirty.addAll(snapshot.booksOfAuthor(authorId));
+    }
+  }
+
+  /**
+   * Builds new snapshot, if there are changed books
+   *
+   * @param full all books are re-read if true, it picks up changes made by other nodes of cluster
+   * @throws DaoException if books can't be read, changed books will be re-read by the next refresh
+   * @throws IOException if snapshot can't be written, changed books will be re-read by the next refresh
+   */
+  public synchronized void refresh(boolean full) throws DaoException, IOException {
+    CatalogSnapshot old = current;
+    if (dir == null || (!full && old != null && dirty.isEmpty() && dirtyStats.isEmpty())) {
+      return;
+    }
+    logger.debug("start");
+
+    if (full || old == null) {
+      // stats are read with books
+      drain(dirtyStats);
+    } else {
+      updateStats(old);
+      if (dirty.isEmpty()) {
+        logger.debug("end: stats are updated");
+        return;
+      }
+    }
+
+    List<Long> ids = drain(dirty);
+    try {
+      Path file = dir.resolve(PREFIX + (++generation) + SUFFIX);
+      if (full || old == null) {
+        try (CatalogSnapshot.Writer out = new CatalogSnapshot.Writer(file)) {
+          loader.readAll(out);
+          out.finish();
+        }
+      } else {
+        CatalogSnapshot.update(old, file, loader.read(ids), ids);
+      }
+      current = CatalogSnapshot.open(file);
+      deleteOld(file);
+    } catch (DaoException | IOException | RuntimeException e) {
+      dirty.addAll(ids);
+      throw e;
+    }
+    logger.debug("end: {} books, {} re-read", current.size(), full ? "all" : ids.size());
+  }
+
+  /**
+   * Writes stats of changed books to snapshot, books, which aren't in snapshot, are marked to be re-read
+   */
+  private void updateStats(CatalogSnapshot snapshot) throws DaoException {
+    List<Long> ids = drain(dirtyStats);
+    if (ids.isEmpty()) {
+      return;
+    }
+    try {
+      Set<Long> missing = new HashSet<>(ids);
+      for (BookStat stat: loader.readStats(ids)) {
+        if (snapshot.updateStat(stat)) {
+          missing.remove(stat.getId());
+        }
+      }
+      dirty.addAll(missing);
+    } catch (DaoException | RuntimeException e) {
+      dirtyStats.addAll(ids);
+      throw e;
+    }
+    logger.trace("stats of {} books are updated", ids.size());
+  }
+
+  /**
+   * Changes committed meanwhile are taken by the next refresh
+   *
+   * @return ids taken from the set
+   */
+  private static List<Long> drain(Set<Long> ids) {
+    List<Long> result = new ArrayList<>();
+    for (Iterator<Long> it = ids.iterator(); it.hasNext(); ) {
+      result.add(it.next());
+      it.remove();
+    }
+    return result;
+  }
+
+  /**
+   * Mapping of old snapshot stays valid for readers, which still use it. OS, which doesn't allow to delete mapped
+   * file, leaves it till next start.
+   */
+  private void deleteOld(Path file) {
+    Path old = currentFile;
+    currentFile = file;
+    if (old != null) {
+      try {
+        Files.deleteIfExists(old);
+        Files.deleteIfExists(CatalogSnapshot.statsFile(old));
+      } catch (IOException e) {
+        logger.warn("Unable to delete old catalog snapshot {}: {}", old, e.getMessage());
+      }
+    }
+  }
+}
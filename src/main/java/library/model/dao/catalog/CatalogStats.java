@@ -0,0 +1,87 @@
+package library.model.dao.catalog;
+
+import library.model.entities.BookStat;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Stats of books of one {@link CatalogSnapshot} in their own memory-mapped file, by index of book in the snapshot.
+ * They are the only mutable part of catalog: every booking changes them, so they are written in place instead of
+ * rebuilding the snapshot. Refresh writes them under write lock, readers take optimistic read and retry, if it was
+ * broken by write, so they never see half-written stat.
+ */
+final class CatalogStats {
+  // total, in stock, reserved, times was booked
+  static final int SIZE = 32;
+  private final MappedByteBuffer map;
+  private final StampedLock lock = new StampedLock();
+
+  private CatalogStats(MappedByteBuffer map) {
+    this.map = map;
+  }
+
+  /**
+   * Maps stats file writable, file can be deleted after it
+   *
+   * @param books number of books of snapshot
+   */
+  static CatalogStats open(Path file, int books) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      if (channel.size() != (long) books * SIZE) {
+        throw new IOException("stats file " + file + " doesn't match snapshot of " + books + " books");
+      }
+      return new CatalogStats(channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+    }
+  }
+
+  /**
+   * @param book index of book
+   * @param id id of book
+   */
+  BookStat get(int book, long id) {
+    long stamp = lock.tryOptimisticRead();
+    BookStat stat = read(book, id);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        stat = read(book, id);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return stat;
+  }
+
+  private BookStat read(int book, long id) {
+    int offset = book * SIZE;
+    return new BookStat.Builder()
+        .setId(id)
+        .setTotal(map.getLong(offset))
+        .setInStock(map.getLong(offset + 8))
+        .setReserved(map.getLong(offset + 16))
+        .setTimesWasBooked(map.getLong(offset + 24))
+        .build();
+  }
+
+  /**
+   * @param book index of book
+   * @param stat stat read from DB
+   */
+  void put(int book, BookStat stat) {
+    int offset = book * SIZE;
+    long stamp = lock.writeLock();
+    try {
+      map.putLong(offset, stat.getTotal());
+      map.putLong(offset + 8, stat.getInStock());
+      map.putLong(offset + 16, stat.getReserved());
+      map.putLong(offset + 24, stat.getTimesWasBooked());
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+}
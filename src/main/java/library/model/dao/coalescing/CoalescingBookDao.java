@@ -0,0 +1,148 @@
+package library.model.dao.coalescing;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.connection.IdentityMap;
+import library.model.dao.BookDao;
+import library.model.dao.ReadResult;
+import library.model.entities.Book;
+import library.model.entities.codec.EntityCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Book DAO, which coalesces concurrent identical reads of book and pages of catalog by {@link SingleFlight}, so
+ * popular book or search costs one DB call at a time. Writes, exact search and multi-get are passed to DAO as is.
+ * <p>
+ * Caller can get result of call started a bit before its own one, it's the same as if its call was a bit faster.
+ * Time follower waits is set by system property {@value #PROPERTY_TIMEOUT}, 0 disables coalescing. Books with lazy
+ * associations ({@link IdentityMap#lazyLoading()}) aren't shared.
+ */
+public class CoalescingBookDao implements BookDao {
+  public static final String PROPERTY_TIMEOUT = "library.dao.singleFlight.timeoutMillis";
+  static final long DEFAULT_TIMEOUT = 2000;
+  private final BookDao dao;
+  private final Flights flights;
+
+  /**
+   * Single flights of all book DAOs
+   */
+  static class Flights {
+    private final SingleFlight<Long, Book> read;
+    private final SingleFlight<List<Object>, List<Book>> find;
+    private final SingleFlight<List<Object>, Integer> count;
+
+    /**
+     * @param prefix prefix of names in metrics, null if flights aren't registered
+     */
+    Flights(String prefix, long timeoutMillis) {
+      read = new SingleFlight<>(name(prefix, "read"), timeoutMillis, CoalescingBookDao::copy);
+      find = new SingleFlight<>(name(prefix, "find"), timeoutMillis, CoalescingBookDao::copy);
+      count = new SingleFlight<>(name(prefix, "count"), timeoutMillis, value -> value);
+    }
+
+    private static String name(String prefix, String call) {
+      return prefix == null ? null : prefix + "." + call;
+    }
+  }
+
+  private static class Holder {
+    private static final long TIMEOUT = Long.getLong(PROPERTY_TIMEOUT, DEFAULT_TIMEOUT);
+    private static final Flights FLIGHTS = new Flights("book", TIMEOUT);
+  }
+
+  /**
+   * @param dao book DAO
+   * @return coalescing DAO, or given one if coalescing is disabled
+   */
+  public static BookDao wrap(BookDao dao) {
+    return Holder.TIMEOUT > 0 ? new CoalescingBookDao(dao, Holder.FLIGHTS) : dao;
+  }
+
+  /**
+   * For testing purpose, use {@link #wrap(BookDao)} otherwise
+   */
+  CoalescingBookDao(BookDao dao, Flights flights) {
+    this.dao = dao;
+    this.flights = flights;
+  }
+
+  @Override
+  public void create(Book book) throws DaoException {
+    dao.create(book);
+  }
+
+  @Override
+  public Book read(long id) throws DaoException {
+    if (IdentityMap.isLazyLoading()) {
+      // lazy associations are loaded by the thread, which read the book
+      return dao.read(id);
+    }
+    try {
+      return flights.read.execute(id, () -> dao.read(id));
+    } catch (ServiceException e) {
+      // read doesn't throw it
+      throw new DaoException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public ReadResult<Book> readAll(Collection<Long> ids) throws DaoException {
+    return dao.readAll(ids);
+  }
+
+  @Override
+  public void update(Book book) throws DaoException {
+    dao.update(book);
+  }
+
+  @Override
+  public void delete(long id) throws DaoException {
+    dao.delete(id);
+  }
+
+  @Override
+  public List<Book> getBooksInBooking(long id) throws DaoException {
+    return dao.getBooksInBooking(id);
+  }
+
+  @Override
+  public List<Book> findByPattern(String what, String searchBy, String sortBy, int num, int page)
+      throws ServiceException, DaoException {
+    if (IdentityMap.isLazyLoading()) {
+      return dao.findByPattern(what, searchBy, sortBy, num, page);
+    }
+    return flights.find.execute(Arrays.asList(what, searchBy, sortBy, num, page),
+        () -> dao.findByPattern(what, searchBy, sortBy, num, page));
+  }
+
+  @Override
+  public int findByPatternCount(String what, String searchBy) throws ServiceException, DaoException {
+    return flights.count.execute(Arrays.asList(what, searchBy), () -> dao.findByPatternCount(what, searchBy));
+  }
+
+  @Override
+  public List<Book> findBy(String what, String searchBy) throws ServiceException, DaoException {
+    return dao.findBy(what, searchBy);
+  }
+
+  private static Book copy(Book book) throws DaoException {
+    try {
+      return (Book) EntityCodec.fromBytes(EntityCodec.toBytes(book));
+    } catch (IOException e) {
+      throw new DaoException("Unable to copy book " + book.getId(), e);
+    }
+  }
+
+  private static List<Book> copy(List<Book> books) throws DaoException {
+    List<Book> list = new ArrayList<>(books.size());
+    for (Book book: books) {
+      list.add(copy(book));
+    }
+    return list;
+  }
+}
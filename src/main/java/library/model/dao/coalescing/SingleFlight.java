@@ -0,0 +1,192 @@
+package library.model.dao.coalescing;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent identical reads: the first caller of a key (leader) executes the call, callers of the same
+ * key, which come while it's in flight (followers), wait for its result instead of executing their own call.
+ * Follower, which waits longer than timeout, executes the call itself.
+ * <p>
+ * Entities are mutable, so every caller gets own copy, when result is shared. Leader gets the original, if there is
+ * no follower.
+ *
+ * @param <K> key of call, it should have equals and hashCode
+ * @param <V> result of call
+ */
+public class SingleFlight<K, V> implements SingleFlightMXBean {
+  private static final Logger logger = LogManager.getLogger(SingleFlight.class);
+  private static final Map<String, SingleFlight<?, ?>> registered = new ConcurrentHashMap<>();
+  private final String name;
+  private final long timeoutNanos;
+  private final Copier<V> copier;
+  private final Map<K, Call<V>> calls = new ConcurrentHashMap<>();
+  private final LongAdder executed = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+
+  /**
+   * Call of DAO
+   */
+  @FunctionalInterface
+  public interface Loader<V> {
+    V load() throws DaoException, ServiceException;
+  }
+
+  /**
+   * Makes independent copy of result
+   */
+  @FunctionalInterface
+  public interface Copier<V> {
+    V copy(V value) throws DaoException;
+  }
+
+  private static class Call<V> {
+    private final CompletableFuture<V> result = new CompletableFuture<>();
+    // changed inside of ConcurrentHashMap.compute only, so increments are serialized with removal of call
+    private volatile int followers;
+  }
+
+  /**
+   * @param name name in metrics, null if it's not registered in {@link #registered()} and JMX
+   * @param timeoutMillis time follower waits for leader
+   * @param copier makes copy of result for every caller, when it's shared
+   */
+  public SingleFlight(String name, long timeoutMillis, Copier<V> copier) {
+    this.name = name;
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    this.copier = copier;
+    if (name != null) {
+      register();
+    }
+  }
+
+  /**
+   * @return registered single flights ordered by name
+   */
+  public static Collection<SingleFlight<?, ?>> registered() {
+    return Collections.unmodifiableCollection(new TreeMap<>(registered).values());
+  }
+
+  /**
+   * Executes call or joins the same call in flight
+   *
+   * @param key key of call
+   * @param loader call to be executed
+   * @return result of call, own copy if it was shared
+   */
+  public V execute(K key, Loader<V> loader) throws DaoException, ServiceException {
+    Call<V> mine = new Call<>();
+    Call<V> call = calls.compute(key, (k, existing) -> {
+      if (existing == null) {
+        return mine;
+      }
+      existing.followers++;
+      return existing;
+    });
+    if (call == mine) {
+      return lead(key, mine, loader);
+    }
+    return follow(key, call, loader);
+  }
+
+  private V lead(K key, Call<V> call, Loader<V> loader) throws DaoException, ServiceException {
+    executed.increment();
+    V value;
+    try {
+      value = loader.load();
+    } catch (DaoException | ServiceException | RuntimeException e) {
+      calls.remove(key, call);
+      call.result.completeExceptionally(e);
+      throw e;
+    }
+    // no follower can join after removal
+    calls.remove(key, call);
+    call.result.complete(value);
+    return call.followers == 0 || value == null ? value : copier.copy(value);
+  }
+
+  private V follow(K key, Call<V> call, Loader<V> loader) throws DaoException, ServiceException {
+    V value;
+    try {
+      value = call.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      timeouts.increment();
+      logger.warn("Call {} of {} isn't finished in time, it's executed again", key, name);
+      executed.increment();
+      return loader.load();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DaoException("Interrupted while waiting for " + key, e);
+    } catch (ExecutionException e) {
+      // the same exception instance isn't thrown in two threads
+      Throwable cause = e.getCause();
+      if (cause instanceof ServiceException) {
+        throw new ServiceException(cause.getMessage(), cause);
+      }
+      if (cause instanceof DaoException) {
+        throw new DaoException(cause.getMessage(), (DaoException) cause);
+      }
+      throw new IllegalStateException(cause.getMessage(), cause);
+    }
+    coalesced.increment();
+    logger.trace("call {} of {} is coalesced", key, name);
+    return value == null ? null : copier.copy(value);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public long getExecuted() {
+    return executed.sum();
+  }
+
+  @Override
+  public long getCoalesced() {
+    return coalesced.sum();
+  }
+
+  @Override
+  public long getTimeouts() {
+    return timeouts.sum();
+  }
+
+  @Override
+  public int getInFlight() {
+    return calls.size();
+  }
+
+  private void register() {
+    registered.put(name, this);
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName objectName = new ObjectName("library:type=SingleFlight,name=" + ObjectName.quote(name));
+      if (mBeanServer.isRegistered(objectName)) {
+        // left by previous deploy
+        mBeanServer.unregisterMBean(objectName);
+      }
+      mBeanServer.registerMBean(this, objectName);
+    } catch (JMException e) {
+      logger.warn("Unable to register single flight {} in JMX: {}", name, e.getMessage());
+    }
+  }
+}
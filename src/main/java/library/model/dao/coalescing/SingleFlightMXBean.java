@@ -0,0 +1,23 @@
+package library.model.dao.coalescing;
+
+/**
+ * JMX view of {@link SingleFlight}, counters are collected since start
+ */
+public interface SingleFlightMXBean {
+  /**
+   * @return calls executed by DAO
+   */
+  long getExecuted();
+
+  /**
+   * @return calls served by result of the same call in flight
+   */
+  long getCoalesced();
+
+  /**
+   * @return followers, which stopped waiting and executed call themselves
+   */
+  long getTimeouts();
+
+  int getInFlight();
+}
@@ -2,13 +2,25 @@ package library.model.dao.factory;
 
 /**
  * Abstract factory, returns factory of supported storage type: DB, XML, ...
+ * <p>
+ * Storage is chosen by system property {@value #PROPERTY_STORAGE}: {@code db} (default), {@code memory} or
+ * {@code file} (directory is set by {@value library.model.dao.memory.FileStore#PROPERTY_DIR}).
  */
 public class DaoFactoryCreator {
+    public static final String PROPERTY_STORAGE = "library.dao.storage";
+    public static final String STORAGE_MEMORY = "memory";
+    public static final String STORAGE_FILE = "file";
 
     private DaoFactoryCreator() {}
 
     public static AbstractDaoFactory getDefaultFactory() {
+        String storage = System.getProperty(PROPERTY_STORAGE);
+        if (STORAGE_MEMORY.equals(storage)) {
+            return new MemoryDaoFactory();
+        }
+        if (STORAGE_FILE.equals(storage)) {
+            return new FileDaoFactory();
+        }
         return new DBDaoFactory();
     }
 }
-
@@ -11,4 +11,6 @@ public interface DaoFactoryImpl {
     BookDao getBookDao();
     AuthorDao getAuthorDao();
     LangDao getLangDao();
+    TaskLeaseDao getTaskLeaseDao();
+    TaskCheckpointDao getTaskCheckpointDao();
 }
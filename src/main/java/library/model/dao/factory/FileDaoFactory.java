@@ -0,0 +1,12 @@
+package library.model.dao.factory;
+
+import library.model.dao.memory.FileStore;
+
+/**
+ * Abstract factory of factories over local files, all of them share one store
+ */
+public class FileDaoFactory implements AbstractDaoFactory {
+    public DaoFactoryImpl newInstance() {
+        return new InMemoryDaoFactory(FileStore.getInstance());
+    }
+}
@@ -0,0 +1,50 @@
+package library.model.dao.factory;
+
+import library.model.dao.*;
+import library.model.dao.memory.*;
+
+/**
+ * Factory of DAOs, which keep data in memory. Data is lost at exit unless store is {@link FileStore}.
+ */
+public class InMemoryDaoFactory implements DaoFactoryImpl {
+    private final MemoryStore store;
+
+    public InMemoryDaoFactory(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public UserDao getUserDao() {
+        return new UserMemoryDao(store);
+    }
+
+    @Override
+    public BookingDao getBookingDao() {
+        return new BookingMemoryDao(store);
+    }
+
+    @Override
+    public BookDao getBookDao() {
+        return new BookMemoryDao(store);
+    }
+
+    @Override
+    public AuthorDao getAuthorDao() {
+        return new AuthorMemoryDao(store);
+    }
+
+    @Override
+    public LangDao getLangDao() {
+        return new LangMemoryDao(store);
+    }
+
+    @Override
+    public TaskLeaseDao getTaskLeaseDao() {
+        return new TaskLeaseMemoryDao(store);
+    }
+
+    @Override
+    public TaskCheckpointDao getTaskCheckpointDao() {
+        return new TaskCheckpointMemoryDao(store);
+    }
+}
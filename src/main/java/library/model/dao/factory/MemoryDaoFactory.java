@@ -0,0 +1,12 @@
+package library.model.dao.factory;
+
+import library.model.dao.memory.MemoryStore;
+
+/**
+ * Abstract factory of in-memory factories, all of them share one store
+ */
+public class MemoryDaoFactory implements AbstractDaoFactory {
+    public DaoFactoryImpl newInstance() {
+        return new InMemoryDaoFactory(MemoryStore.getInstance());
+    }
+}
@@ -1,6 +1,7 @@
 package library.model.dao.factory;
 
 import library.model.dao.*;
+import library.model.dao.coalescing.CoalescingBookDao;
 import library.model.dao.impl.*;
 
 /**
@@ -20,7 +21,7 @@ public class MySQLDaoFactory implements DaoFactoryImpl {
 
     @Override
     public BookDao getBookDao() {
-        return new BookDaoImpl();
+        return CoalescingBookDao.wrap(new BookDaoImpl());
     }
 
     @Override
@@ -33,4 +34,14 @@ public class MySQLDaoFactory implements DaoFactoryImpl {
         return new LangDaoImpl();
     }
 
+    @Override
+    public TaskLeaseDao getTaskLeaseDao() {
+        return new TaskLeaseDaoImpl();
+    }
+
+    @Override
+    public TaskCheckpointDao getTaskCheckpointDao() {
+        return new TaskCheckpointDaoImpl();
+    }
+
 }
@@ -4,19 +4,27 @@ import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
 import library.model.connection.BaseDao;
 import library.model.connection.Disjoint;
+import library.model.connection.IdentityMap;
+import library.model.connection.RowMapper;
 import library.model.connection.SearchSortColumn;
 import library.model.connection.Transaction;
 import library.model.dao.AuthorDao;
+import library.model.dao.ReadResult;
+import library.model.dao.catalog.CatalogSnapshots;
 import library.model.entities.Author;
 import library.model.entities.I18AuthorName;
+import library.model.entities.Lazy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Author DAO. Produce/consume complete entity of {@link library.model.entities.Author} class
@@ -58,17 +66,46 @@ public class AuthorDaoImpl implements AuthorDao {
       logger.trace("id={}", id);
       final String query = "SELECT * FROM author_name_i18n WHERE author_id = " + id;
 
-      return dao.getRecords(query, this::parse);
+      return dao.getRecords(query, new NameMapper());
     }
 
-    private I18AuthorName parse(Connection c, ResultSet rs) throws SQLException, DaoException {
-      I18AuthorName.Builder builder = new I18AuthorName.Builder();
-      builder.setId(rs.getInt("author_id"));
-      long langID = rs.getInt("lang_id");
+    /**
+     * @param ids ids of authors
+     * @return names by id of author, authors without names are absent
+     */
+    public Map<Long, List<I18AuthorName>> readByAuthorIDs(Collection<Long> ids) throws DaoException {
+      logger.debug("start");
+      final String query = "SELECT * FROM author_name_i18n WHERE author_id IN";
+
+      Map<Long, List<I18AuthorName>> names = new HashMap<>();
+      for (I18AuthorName name: dao.readAll(ids, query, new NameMapper())) {
+        names.computeIfAbsent(name.getId(), id -> new ArrayList<>()).add(name);
+      }
+      return names;
+    }
+
+    private class NameMapper extends RowMapper<I18AuthorName> {
+      private int authorId;
+      private int langId;
+      private int name;
+
+      @Override
+      protected void resolve(Columns columns) throws SQLException {
+        authorId = columns.index("author_id");
+        langId = columns.index("lang_id");
+        name = columns.index("name");
+      }
 
-      builder.setLang(langDao.read(langID));
-      builder.setName(rs.getString("name"));
-      return builder.build();
+      @Override
+      protected I18AuthorName map(Connection c, ResultSet rs) throws SQLException, DaoException {
+        I18AuthorName.Builder builder = new I18AuthorName.Builder();
+        builder.setId(rs.getInt(authorId));
+        long langID = rs.getInt(langId);
+
+        builder.setLang(langDao.read(langID));
+        builder.setName(rs.getString(name));
+        return builder.build();
+      }
     }
 
     public void updateNamesForAuthor(long authorId, List<I18AuthorName> newList) throws DaoException {
@@ -136,17 +173,32 @@ public class AuthorDaoImpl implements AuthorDao {
 
   @Override
   public Author read(long id) throws DaoException {
+    Author known = IdentityMap.get(Author.class, id);
+    if (known != null) {
+      return known;
+    }
     final String query = "SELECT * FROM author WHERE id = ?";
 
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Author> dao = new BaseDao<>(c);
-      List<Author> author = resolveDependencies(c, Collections.singletonList(dao.read(id, query, this::parse)));
+      List<Author> author = resolveDependencies(c, Collections.singletonList(dao.read(id, query, new AuthorMapper())));
 
       return author.get(0);
     });
   }
 
+  @Override
+  public ReadResult<Author> readAll(Collection<Long> ids) throws DaoException {
+    final String query = "SELECT * FROM author WHERE id IN";
+
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<Author> dao = new BaseDao<>(c);
+      return ReadResult.of(ids, resolveDependencies(c, dao.readAll(ids, query, new AuthorMapper())));
+    });
+  }
+
   @Override
   public Author read(String name) throws DaoException {
     final String query = "SELECT * FROM author AS a"
@@ -157,7 +209,7 @@ public class AuthorDaoImpl implements AuthorDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Author> dao = new BaseDao<>(c);
-      Author author = dao.read(name, query, this::parse);
+      Author author = dao.read(name, query, new AuthorMapper());
       if (author == null) {
         return null;
       }
@@ -167,26 +219,37 @@ public class AuthorDaoImpl implements AuthorDao {
     });
   }
 
-  private Author parse(Connection c, ResultSet rs) throws SQLException {
-    logger.trace("parse author...");
-    Author.Builder builder = new Author.Builder();
-    builder.setId(rs.getInt("id"));
-    builder.setName(rs.getString("name"));
+  private static class AuthorMapper extends RowMapper<Author> {
+    private int id;
+    private int name;
+    private int modified;
 
-    Timestamp sqlTime = rs.getTimestamp("modified");
-    Calendar cal = Calendar.getInstance();
-    cal.setTime(sqlTime);
-    builder.setModified(cal);
+    @Override
+    protected void resolve(Columns columns) throws SQLException {
+      id = columns.index("id");
+      name = columns.index("name");
+      modified = columns.index("modified");
+    }
+
+    @Override
+    protected Author map(Connection c, ResultSet rs) throws SQLException {
+      logger.trace("parse author...");
+      Author.Builder builder = new Author.Builder();
+      builder.setId(rs.getInt(id));
+      builder.setName(rs.getString(name));
+      builder.setModified(calendar(rs, modified));
 
-    Author author = builder.build();
+      Author author = builder.build();
 
-    logger.trace("parse author result: {}", author);
-    return author;
+      logger.trace("parse author result: {}", author);
+      return author;
+    }
   }
 
   @Override
   public void update(Author author) throws DaoException {
     final String query = "UPDATE author SET name = ?, modified = ? WHERE id = ?";
+    IdentityMap.evict(Author.class, author.getId());
 
     Transaction tr = new Transaction(conn);
     tr.transactionWrapper( c -> {
@@ -200,17 +263,24 @@ public class AuthorDaoImpl implements AuthorDao {
       I18AuthorNameDaoImpl i18Dao = new I18AuthorNameDaoImpl(c);
       i18Dao.updateNamesForAuthor(author.getId(), author.getI18NamesAsList());
     });
+    if (conn == null) {
+      CatalogSnapshots.getInstance().authorChanged(author.getId());
+    }
   }
 
   @Override
   public void delete(long id) throws DaoException {
     final String query = "DELETE FROM author WHERE id = ?";
+    IdentityMap.evict(Author.class, id);
 
     Transaction tr = new Transaction(conn);
     tr.transactionWrapper(c -> {
       BaseDao<Author> dao = new BaseDao<>(c);
       dao.delete(id, query); // i18n on delete cascade
     });
+    if (conn == null) {
+      CatalogSnapshots.getInstance().authorChanged(id);
+    }
   }
 
   @Override
@@ -226,7 +296,54 @@ public class AuthorDaoImpl implements AuthorDao {
     return tr.noTransactionWrapper(c -> {
       BaseDao<Author> dao = new BaseDao<>(c);
 
-      return resolveDependencies(c, dao.findById(id, query, this::parse));
+      return resolveDependencies(c, dao.findById(id, query, new AuthorMapper()));
+    });
+  }
+
+  /**
+   * Reads authors of several books at once, way to load authors of books lazily
+   *
+   * @param bookIds ids of books
+   * @return authors by id of book, books without authors are absent
+   */
+  Map<Long, List<Author>> findByBookIDs(Collection<Long> bookIds) throws DaoException {
+    final String query = "SELECT ba.book_id, a.id, a.name, a.modified FROM book_author AS ba"
+        + " JOIN author AS a ON a.id = ba.author_id WHERE ba.book_id IN";
+
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      Map<Long, List<Long>> authorIds = new HashMap<>();
+      Map<Long, Author> authors = new LinkedHashMap<>();
+      new BaseDao<Author>(c).readAll(bookIds, query, new AuthorMapper() {
+        private int bookId;
+
+        @Override
+        protected void resolve(Columns columns) throws SQLException {
+          super.resolve(columns);
+          bookId = columns.index("book_id");
+        }
+
+        @Override
+        protected Author map(Connection c1, ResultSet rs) throws SQLException {
+          Author author = super.map(c1, rs);
+          authorIds.computeIfAbsent(rs.getLong(bookId), id -> new ArrayList<>()).add(author.getId());
+          authors.putIfAbsent(author.getId(), author);
+          return author;
+        }
+      });
+      for (Author author: resolveDependencies(c, new ArrayList<>(authors.values()))) {
+        authors.put(author.getId(), author);
+      }
+
+      Map<Long, List<Author>> result = new HashMap<>();
+      for (Map.Entry<Long, List<Long>> entry: authorIds.entrySet()) {
+        List<Author> list = new ArrayList<>(entry.getValue().size());
+        for (long id: entry.getValue()) {
+          list.add(authors.get(id));
+        }
+        result.put(entry.getKey(), list);
+      }
+      return result;
     });
   }
 
@@ -235,25 +352,57 @@ public class AuthorDaoImpl implements AuthorDao {
       return new ArrayList<>();
     }
 
-    I18AuthorNameDaoImpl i18Dao = new I18AuthorNameDaoImpl(c);
+    List<Author> resolved = new ArrayList<>(authors.size());
+    List<Author> batch = new ArrayList<>();
+    Lazy names = IdentityMap.isLazyLoading()
+        ? new BatchLoader(conn, "names of authors", c1 -> loadNames(c1, batch))
+        : null;
     for (Author a: authors) {
-      if (a == null) {
+      Author known = a == null ? null : IdentityMap.get(Author.class, a.getId());
+      if (a == null || known != null) {
+        // author of several books is resolved once per request
+        resolved.add(known);
         continue;
       }
 
-      List<I18AuthorName> i18names = i18Dao.readByAuthorID(a.getId());
-      a.setI18Names(i18names);
-
-      String authorPrimaryName = a.getName();
-      for (I18AuthorName name: i18names) {
-        if (name.getName().equals(authorPrimaryName)) {
-          a.setPrimaryLang(name.getLang());
-          break;
-        }
+      if (names != null) {
+        a.setI18Names(names);
       }
+      batch.add(a);
+      resolved.add(IdentityMap.put(a));
     }
+    if (names == null && !batch.isEmpty()) {
+      // names of all authors by one query
+      loadNames(c, batch);
+    }
+
+    return resolved;
+  }
 
-    return authors;
+  private static void loadNames(Connection c, List<Author> authors) throws DaoException {
+    List<Long> ids = new ArrayList<>(authors.size());
+    for (Author a: authors) {
+      ids.add(a.getId());
+    }
+    Map<Long, List<I18AuthorName>> names = new I18AuthorNameDaoImpl(c).readByAuthorIDs(ids);
+    for (Author a: authors) {
+      setNames(a, names.getOrDefault(a.getId(), new ArrayList<>()));
+    }
+  }
+
+  /**
+   * Sets names of author, the one equal to author's name gives primary lang
+   */
+  private static void setNames(Author a, List<I18AuthorName> i18names) {
+    a.setI18Names(i18names);
+
+    String authorPrimaryName = a.getName();
+    for (I18AuthorName name: i18names) {
+      if (name.getName().equals(authorPrimaryName)) {
+        a.setPrimaryLang(name.getLang());
+        break;
+      }
+    }
   }
 
   @Override
@@ -266,7 +415,7 @@ public class AuthorDaoImpl implements AuthorDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Author> dao = new BaseDao<>(c);
-      return resolveDependencies(c, dao.findByPattern(what, num, page, query, this::parse));
+      return resolveDependencies(c, dao.findByPattern(what, num, page, query, new AuthorMapper()));
     });
   }
 
@@ -276,7 +425,7 @@ public class AuthorDaoImpl implements AuthorDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Author> dao = new BaseDao<>(c);
-      return resolveDependencies(c, dao.findByPattern(what, query, this::parse));
+      return resolveDependencies(c, dao.findByPattern(what, query, new AuthorMapper()));
     });
   }
 
@@ -300,7 +449,7 @@ public class AuthorDaoImpl implements AuthorDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Author> dao = new BaseDao<>(c);
-      List<Author> authors = dao.findByString(what, query, this::parse);
+      List<Author> authors = dao.findByString(what, query, new AuthorMapper());
       return resolveDependencies(c, authors);
     });
   }
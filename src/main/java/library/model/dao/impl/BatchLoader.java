@@ -0,0 +1,55 @@
+package library.model.dao.impl;
+
+import library.exceptions.DaoException;
+import library.model.connection.Transaction;
+import library.model.entities.Lazy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Loader of lazy association shared by entities read together, the first access loads association of all of them
+ * by one batch. Connection of reading is used, if it's still open (outer transaction, test), otherwise loading takes
+ * connection from pool.
+ */
+class BatchLoader implements Lazy {
+  private static final Logger logger = LogManager.getLogger(BatchLoader.class);
+  private final Connection conn;
+  private final String association;
+  private final Batch batch;
+
+  /**
+   * Loads association and sets it to every entity of batch
+   */
+  @FunctionalInterface
+  interface Batch {
+    void load(Connection c) throws DaoException;
+  }
+
+  /**
+   * @param conn connection of reading, null if it was taken from pool
+   * @param association name of association for logs
+   * @param batch loads association of all entities
+   */
+  BatchLoader(Connection conn, String association, Batch batch) {
+    this.conn = conn;
+    this.association = association;
+    this.batch = batch;
+  }
+
+  @Override
+  public void load() {
+    logger.debug("loading of {}", association);
+    try {
+      Connection c = conn != null && !conn.isClosed() ? conn : null;
+      new Transaction(c).noTransactionWrapper(c1 -> {
+        batch.load(c1);
+        return null;
+      });
+    } catch (DaoException | SQLException e) {
+      throw new IllegalStateException("Unable to load " + association + ": " + e.getMessage(), e);
+    }
+  }
+}
@@ -4,21 +4,30 @@ import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
 import library.model.connection.BaseDao;
 import library.model.connection.Disjoint;
+import library.model.connection.IdentityMap;
+import library.model.connection.RowMapper;
 import library.model.connection.SearchSortColumn;
 import library.model.connection.Transaction;
 import library.model.dao.AbstractEntityDao;
 import library.model.dao.BookDao;
+import library.model.dao.ReadResult;
+import library.model.dao.catalog.CatalogSnapshot;
+import library.model.dao.catalog.CatalogSnapshots;
 import library.model.entities.Author;
 import library.model.entities.Book;
 import library.model.entities.BookStat;
+import library.model.entities.Lazy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -53,7 +62,15 @@ public class BookDaoImpl implements BookDao {
       logger.debug("start");
       final String query = "SELECT * FROM book WHERE id = ?";
 
-      return dao.read(id, query, this::parse);
+      return dao.read(id, query, new BookMapper());
+    }
+
+    @Override
+    public ReadResult<Book> readAll(Collection<Long> ids) throws DaoException {
+      logger.debug("start");
+      final String query = "SELECT * FROM book WHERE id IN";
+
+      return ReadResult.of(ids, dao.readAll(ids, query, new BookMapper()));
     }
 
     @Override
@@ -74,27 +91,50 @@ public class BookDaoImpl implements BookDao {
     @Override
     public void delete(long id) throws DaoException {
       logger.debug("start");
+      // basket drafts don't keep book from deletion, books missing in basket are dropped on its restore
+      final String draftQuery = "DELETE FROM book_in_booking WHERE book_id = ?"
+          + " AND booking_id IN (SELECT id FROM booking WHERE state = 'NEW')";
       final String query = "DELETE FROM book WHERE id = ?";
 
+      dao.delete(id, draftQuery);
       dao.delete(id, query);
     }
 
-    private Book parse(Connection c, ResultSet rs) throws SQLException {
-      Book.Builder builder = new Book.Builder();
-      builder.setId(rs.getInt("id"));
-      builder.setTitle(rs.getString("title"));
-      builder.setIsbn(rs.getString("ISBN"));
-      builder.setKeepPeriod(rs.getInt("keep_period"));
+    private static class BookMapper extends RowMapper<Book> {
+      private int id;
+      private int title;
+      private int isbn;
+      private int keepPeriod;
+      private int modified;
+      private int year;
+      private int langCode;
+
+      @Override
+      protected void resolve(Columns columns) throws SQLException {
+        id = columns.index("id");
+        title = columns.index("title");
+        isbn = columns.index("ISBN");
+        keepPeriod = columns.index("keep_period");
+        modified = columns.index("modified");
+        year = columns.index("year");
+        langCode = columns.index("lang_code");
+      }
 
-      Timestamp sqlTime = rs.getTimestamp("modified");
-      Calendar cal = Calendar.getInstance();
-      cal.setTime(sqlTime);
-      builder.setModified(cal);
+      @Override
+      protected Book map(Connection c, ResultSet rs) throws SQLException {
+        Book.Builder builder = new Book.Builder();
+        builder.setId(rs.getInt(id));
+        builder.setTitle(rs.getString(title));
+        builder.setIsbn(rs.getString(isbn));
+        builder.setKeepPeriod(rs.getInt(keepPeriod));
+        builder.setModified(calendar(rs, modified));
 
-      builder.setYear(rs.getDate("year"));
-      builder.setLangCode(rs.getString("lang_code"));
+        // YEAR column is read as number, MySQL would convert it to date of 1st January
+        builder.setYear(rs.getInt(year));
+        builder.setLangCode(rs.getString(langCode));
 
-      return builder.build();
+        return builder.build();
+      }
     }
 
     private int fillStatement(Book book, PreparedStatement ps) throws SQLException {
@@ -116,7 +156,7 @@ public class BookDaoImpl implements BookDao {
         throws DaoException {
       logger.debug("start");
       final String query = patternQuery(searchBy, sortBy, false);
-      return dao.findByPattern(pattern, num, page, query, this::parse)
+      return dao.findByPattern(pattern, num, page, query, new BookMapper())
           .stream()
           .distinct()
           .collect(Collectors.toList());
@@ -125,7 +165,7 @@ public class BookDaoImpl implements BookDao {
     public List<Book> findBy(String pattern, String searchBy) throws DaoException {
       logger.debug("start");
       final String query = patternQuery(searchBy, null, true);
-      return dao.findByString(pattern, query, this::parse)
+      return dao.findByString(pattern, query, new BookMapper())
           .stream()
           .distinct()
           .collect(Collectors.toList());
@@ -157,7 +197,7 @@ public class BookDaoImpl implements BookDao {
         throws DaoException {
       logger.debug("start");
       final String query = patternQuery(searchBy, null, false);
-      return (int) dao.findByPattern(pattern, query, this::parse)
+      return (int) dao.findByPattern(pattern, query, new BookMapper())
           .stream()
           .distinct()
           .count();
@@ -173,16 +213,35 @@ public class BookDaoImpl implements BookDao {
         return builder.build();
       });
 
-      List<Book> books = new ArrayList<>();
+      List<Long> ids = new ArrayList<>(bookGerms.size());
       for (Book g: bookGerms) {
-        Book book = read(g.getId());
-        books.add(book);
+        ids.add(g.getId());
       }
+      List<Book> books = readAll(ids).getFound();
       logger.debug("end");
-      logger.trace("books={}", books);
+      if (logger.isTraceEnabled()) {
+        logger.trace("books={}", books);
+      }
       return books;
     }
 
+    /**
+     * @param bookingIds ids of bookings
+     * @return ids of books by id of booking, bookings without books are absent
+     */
+    public Map<Long, List<Long>> getBookIdsInBookings(Collection<Long> bookingIds) throws DaoException {
+      logger.debug("start");
+      final String query = "SELECT * FROM book_in_booking WHERE booking_id IN";
+
+      Map<Long, List<Long>> bookIds = new HashMap<>();
+      dao.readAll(bookingIds, query, (c, rs) -> {
+        long bookId = rs.getLong("book_id");
+        bookIds.computeIfAbsent(rs.getLong("booking_id"), id -> new ArrayList<>()).add(bookId);
+        return new Book.Builder().setId(bookId).build();
+      });
+      return bookIds;
+    }
+
     public void deleteBound(Book book, Author author) throws DaoException {
       logger.debug("start");
       final String boundQuery = "DELETE FROM book_author WHERE book_id = ? and author_id = ?";
@@ -225,17 +284,46 @@ public class BookDaoImpl implements BookDao {
       logger.debug("start");
       final String query = "SELECT * FROM book_stat WHERE book_id = ?";
 
-      return dao.read(id, query, this::parse);
+      return dao.read(id, query, new BookStatMapper());
+    }
+
+    /**
+     * @param ids ids of books
+     * @return found stats in any order
+     */
+    public List<BookStat> readAll(Collection<Long> ids) throws DaoException {
+      logger.debug("start");
+      final String query = "SELECT * FROM book_stat WHERE book_id IN";
+
+      return dao.readAll(ids, query, new BookStatMapper());
     }
 
-    private BookStat parse(Connection c, ResultSet rs) throws SQLException {
-      BookStat.Builder builder = new BookStat.Builder();
-      builder.setId(rs.getInt("book_id"));
-      builder.setTotal(rs.getInt("total"));
-      builder.setInStock(rs.getInt("in_stock"));
-      builder.setReserved(rs.getInt("reserved"));
-      builder.setTimesWasBooked(rs.getInt("times_was_booked"));
-      return builder.build();
+    private static class BookStatMapper extends RowMapper<BookStat> {
+      private int bookId;
+      private int total;
+      private int inStock;
+      private int reserved;
+      private int timesWasBooked;
+
+      @Override
+      protected void resolve(Columns columns) throws SQLException {
+        bookId = columns.index("book_id");
+        total = columns.index("total");
+        inStock = columns.index("in_stock");
+        reserved = columns.index("reserved");
+        timesWasBooked = columns.index("times_was_booked");
+      }
+
+      @Override
+      protected BookStat map(Connection c, ResultSet rs) throws SQLException {
+        BookStat.Builder builder = new BookStat.Builder();
+        builder.setId(rs.getInt(bookId));
+        builder.setTotal(rs.getInt(total));
+        builder.setInStock(rs.getInt(inStock));
+        builder.setReserved(rs.getInt(reserved));
+        builder.setTimesWasBooked(rs.getInt(timesWasBooked));
+        return builder.build();
+      }
     }
 
     public void update(BookStat entity) throws DaoException {
@@ -297,6 +385,7 @@ public class BookDaoImpl implements BookDao {
       bookStatDao.create(book.getBookStat());
       // TODO add editing history
     });
+    catalogChanged(book.getId());
   }
 
   @Override
@@ -312,11 +401,24 @@ public class BookDaoImpl implements BookDao {
         return null;
       }
 
-      List<Book> list = resolveDependencies(c, Collections.singletonList(bookDao.read(id)));
+      List<Book> list = resolveDependencies(c, Collections.singletonList(book));
       return list.get(0);
     });
   }
 
+  @Override
+  public ReadResult<Book> readAll(Collection<Long> ids) throws DaoException {
+    logger.debug("start");
+    logger.trace("Read request: ids={}", ids);
+
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      ReadResult<Book> result = new BookDaoLowLevel(c).readAll(ids);
+      resolveDependencies(c, result.getFound());
+      return result;
+    });
+  }
+
   @Override
   public void update(Book book) throws DaoException {
     logger.debug("start");
@@ -341,6 +443,7 @@ public class BookDaoImpl implements BookDao {
         dao.createBound(book, author);
       }
     });
+    catalogChanged(book.getId());
   }
 
   @Override
@@ -354,7 +457,9 @@ public class BookDaoImpl implements BookDao {
       dao.delete(id);
       // book_stat deletes by cascade
       // book_author also
+      // book_in_booking of drafts is deleted above, other bookings keep book
     });
+    catalogChanged(id);
   }
 
   @Override
@@ -366,6 +471,11 @@ public class BookDaoImpl implements BookDao {
 
     validColumns.checkSearch(searchBy);
 
+    CatalogSnapshot snapshot = snapshot();
+    if (snapshot != null) {
+      return snapshot.count(what, searchBy);
+    }
+
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper( c -> {
       BookDaoLowLevel dao = new BookDaoLowLevel(c);
@@ -398,6 +508,11 @@ public class BookDaoImpl implements BookDao {
     validColumns.checkSearch(searchBy);
     validColumns.checkSort(sortBy);
 
+    CatalogSnapshot snapshot = snapshot();
+    if (snapshot != null) {
+      return snapshot.find(what, searchBy, sortBy, num, page);
+    }
+
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper( c -> {
       BookDaoLowLevel dao = new BookDaoLowLevel(c);
@@ -418,20 +533,106 @@ public class BookDaoImpl implements BookDao {
     });
   }
 
+  /**
+   * Reads books of several bookings at once, way to load books of bookings lazily
+   *
+   * @param bookingIds ids of bookings
+   * @return books by id of booking, bookings without books are absent
+   */
+  Map<Long, List<Book>> getBooksInBookings(Collection<Long> bookingIds) throws DaoException {
+    logger.debug("start");
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BookDaoLowLevel dao = new BookDaoLowLevel(c);
+      Map<Long, List<Long>> bookIds = dao.getBookIdsInBookings(bookingIds);
+      Collection<Long> allIds = new LinkedHashSet<>();
+      for (List<Long> ids: bookIds.values()) {
+        allIds.addAll(ids);
+      }
+      ReadResult<Book> books = dao.readAll(allIds);
+      resolveDependencies(c, books.getFound());
+
+      Map<Long, List<Book>> result = new HashMap<>();
+      for (Map.Entry<Long, List<Long>> entry: bookIds.entrySet()) {
+        List<Book> list = new ArrayList<>(entry.getValue().size());
+        for (long id: entry.getValue()) {
+          Book book = books.get(id);
+          if (book != null) {
+            list.add(book);
+          }
+        }
+        result.put(entry.getKey(), list);
+      }
+      logger.debug("end");
+      return result;
+    });
+  }
+
+  /**
+   * @return catalog snapshot, if it's enabled and DAO doesn't work inside of outer transaction
+   */
+  private CatalogSnapshot snapshot() {
+    return conn == null ? CatalogSnapshots.getInstance().current() : null;
+  }
+
+  /**
+   * Tells snapshot about committed change, outer transaction tells it itself
+   */
+  private void catalogChanged(long id) {
+    if (conn == null) {
+      CatalogSnapshots.getInstance().changed(Collections.singletonList(id));
+    }
+  }
+
   private List<Book> resolveDependencies(Connection c, List<Book> books) throws DaoException {
     logger.debug("start");
     if (books == null) {
       return new ArrayList<>();
     }
-    AuthorDaoImpl authorDao = new AuthorDaoImpl(c);
-    BookStatDao bookStatDao = new BookStatDao(c);
-
-    for (Book b: books) {
-      b.setBookStat(bookStatDao.read(b.getId()));
-      b.setAuthors(authorDao.findByBookID(b.getId()));
+    if (IdentityMap.isLazyLoading()) {
+      // siblings are copied, caller can change the list
+      List<Book> batch = new ArrayList<>(books);
+      Lazy stats = new BatchLoader(conn, "stats of books", c1 -> loadStats(c1, batch));
+      Lazy authors = new BatchLoader(conn, "authors of books", c1 -> loadAuthors(c1, batch));
+      for (Book b: books) {
+        b.setBookStat(stats);
+        b.setAuthors(authors);
+      }
+      logger.debug("end");
+      return books;
+    }
+    // one query per table for all books, not per book
+    loadStats(c, books);
+    loadAuthors(c, books);
+    if (logger.isTraceEnabled()) {
+      logger.trace("complete books={}", books);
     }
-    logger.trace("complete books={}", books);
     logger.debug("end");
     return books;
   }
+
+  private static void loadStats(Connection c, List<Book> books) throws DaoException {
+    Map<Long, BookStat> stats = new HashMap<>();
+    for (BookStat stat: new BookStatDao(c).readAll(ids(books))) {
+      stats.put(stat.getId(), stat);
+    }
+    for (Book b: books) {
+      b.setBookStat(stats.get(b.getId()));
+    }
+  }
+
+  private static void loadAuthors(Connection c, List<Book> books) throws DaoException {
+    Map<Long, List<Author>> authors = new AuthorDaoImpl(c).findByBookIDs(ids(books));
+    for (Book b: books) {
+      b.setAuthors(authors.getOrDefault(b.getId(), new ArrayList<>()));
+    }
+  }
+
+  private static List<Long> ids(List<Book> books) {
+    List<Long> ids = new ArrayList<>(books.size());
+    for (Book b: books) {
+      ids.add(b.getId());
+    }
+    return ids;
+  }
 }
@@ -4,12 +4,20 @@ import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
 import library.model.connection.BaseDao;
 import library.model.connection.Disjoint;
+import library.model.connection.IdentityMap;
+import library.model.connection.RowMapper;
 import library.model.connection.SearchSortColumn;
 import library.model.connection.Transaction;
 import library.model.dao.BookDao;
 import library.model.dao.BookingDao;
+import library.model.dao.ReadResult;
+import library.model.dao.catalog.CatalogSnapshots;
+import library.model.dto.BookListItem;
+import library.model.dto.BookingListItem;
 import library.model.entities.Book;
 import library.model.entities.Booking;
+import library.model.entities.Lang;
+import library.model.entities.Lazy;
 import library.model.entities.User;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,7 +25,11 @@ import org.apache.logging.log4j.Logger;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Booking DAO. Produce/consume complete entity of {@link library.model.entities.Booking} class
@@ -28,6 +40,18 @@ public class BookingDaoImpl implements BookingDao {
   private static final String BOOKING_LOCATED_COL = "located";
   private static final SearchSortColumn validColumns =
       new SearchSortColumn("email", "name", BOOKING_STATE_COL, BOOKING_LOCATED_COL);
+  private static final String ITEM_COLUMNS = "b.id, b.state, b.located, b.modified, u.email, u.name";
+  private static final String ITEM_BOOKS_QUERY = "SELECT bb.booking_id, bk.id, bk.title, bk.isbn, bk.year, bk.keep_period"
+      + " FROM book_in_booking AS bb JOIN book AS bk ON bk.id = bb.book_id WHERE bb.booking_id IN";
+  // name in language of page or primary one, the first parameter is id of lang
+  private static final String ITEM_AUTHORS_QUERY = "SELECT ba.book_id, COALESCE(i18.name, a.name) AS name"
+      + " FROM book_author AS ba JOIN author AS a ON a.id = ba.author_id"
+      + " LEFT JOIN author_name_i18n AS i18 ON i18.author_id = a.id AND i18.lang_id = ?"
+      + " WHERE ba.book_id IN";
+  // row per book in booking, columns of deadlines and fines only
+  private static final String KEEP_PERIOD_COLUMNS =
+      "SELECT b.id, b.user_id, b.state, b.located, b.modified, bk.id AS book_id, bk.keep_period"
+      + " FROM booking AS b JOIN book_in_booking AS bb ON bb.booking_id = b.id JOIN book AS bk ON bk.id = bb.book_id";
   private Connection conn;
 
   /**
@@ -46,17 +70,35 @@ public class BookingDaoImpl implements BookingDao {
   public void create(Booking booking) throws DaoException {
     logger.debug("start");
     logger.trace("booking={}", booking);
+    create(booking, false);
+  }
 
+  @Override
+  public void createFromDraft(Booking booking) throws DaoException {
+    logger.debug("start");
+    logger.trace("booking={}", booking);
+    create(booking, true);
+  }
+
+  private void create(Booking booking, boolean deleteDraft) throws DaoException {
     // user id we don't change
     final String query = "INSERT INTO booking VALUES(DEFAULT, ?, ?, ?, ?)";
+    final String clearDraftQuery = "DELETE FROM book_in_booking"
+        + " WHERE booking_id IN (SELECT id FROM booking WHERE user_id = ? AND state = 'NEW')";
+    final String deleteDraftQuery = "DELETE FROM booking WHERE user_id = ? AND state = 'NEW'";
     Transaction tr = new Transaction(conn);
     tr.transactionWrapper(c -> {
       BaseDao<Booking> dao = new BaseDao<>(c);
 
+      if (deleteDraft) {
+        dao.delete(booking.getUser().getId(), clearDraftQuery);
+        dao.delete(booking.getUser().getId(), deleteDraftQuery);
+      }
       dao.create(booking, query, this::statementFiller);
 
       createBooksInBooking(new BaseDao<>(c), new BookDaoImpl(c), booking.getId(), booking.getBooks());
     });
+    catalogChanged(booking.getBooks());
     logger.debug("create booking request finished");
   }
 
@@ -69,7 +111,7 @@ public class BookingDaoImpl implements BookingDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Booking> dao = new BaseDao<>(c);
-      Booking booking = dao.read(id, query, this::parse);
+      Booking booking = dao.read(id, query, new BookingMapper());
 
       BookDaoImpl bookDao = new BookDaoImpl(c);
       booking.setBooks(bookDao.getBooksInBooking(id));
@@ -78,6 +120,23 @@ public class BookingDaoImpl implements BookingDao {
     });
   }
 
+  @Override
+  public ReadResult<Booking> readAll(Collection<Long> ids) throws DaoException {
+    logger.debug("start");
+    logger.trace("ids={}", ids);
+
+    final String query = "SELECT * FROM booking WHERE id IN";
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<Booking> dao = new BaseDao<>(c);
+      ReadResult<Booking> result = ReadResult.of(ids, dao.readAll(ids, query, new BookingMapper()));
+
+      resolveBooks(c, result.getFound());
+      logger.debug("end");
+      return result;
+    });
+  }
+
   @Override
   public void update(Booking booking) throws DaoException {
     logger.debug("start");
@@ -85,6 +144,8 @@ public class BookingDaoImpl implements BookingDao {
 
     // user id we don't change
     final String query = "UPDATE booking SET user_id = ?, state = ?, located = ?, modified = ? WHERE id = ?";
+    // stats of removed books are changed also
+    List<Book> changed = new ArrayList<>();
     Transaction tr = new Transaction(conn);
     tr.transactionWrapper(c -> {
       BaseDao<Booking> dao = new BaseDao<>(c);
@@ -93,10 +154,91 @@ public class BookingDaoImpl implements BookingDao {
       BookDaoImpl bookDao = new BookDaoImpl(c);
       List<Book> oldList = bookDao.getBooksInBooking(booking.getId());
       updateBooksInBooking(c, booking.getId(), oldList, booking.getBooks());
+      changed.addAll(oldList);
     });
+    changed.addAll(booking.getBooks());
+    catalogChanged(changed);
     logger.debug("update booking request finished");
   }
 
+  @Override
+  public List<Long> findDraftBookIDs(long userId) throws DaoException {
+    logger.debug("start");
+    logger.trace("userId={}", userId);
+    final String query = "SELECT bb.book_id FROM booking AS b\n" +
+        "  JOIN book_in_booking AS bb\n" +
+        "    ON bb.booking_id = b.id\n" +
+        " WHERE b.user_id = ? AND b.state = 'NEW'";
+
+    Transaction tr = new Transaction(conn);
+    List<Book> books = tr.noTransactionWrapper(c -> {
+      BaseDao<Book> dao = new BaseDao<>(c);
+      return dao.findById(userId, query, (c1, rs) -> new Book.Builder().setId(rs.getLong("book_id")).build());
+    });
+
+    List<Long> bookIds = new ArrayList<>();
+    for (Book book: books) {
+      bookIds.add(book.getId());
+    }
+    logger.debug("end");
+    return bookIds;
+  }
+
+  @Override
+  public void saveDraft(long userId, List<Long> bookIds) throws DaoException {
+    logger.debug("start");
+    logger.trace("userId={}, bookIds={}", userId, bookIds);
+    final String findQuery = "SELECT id FROM booking WHERE user_id = ? AND state = 'NEW'";
+    final String createQuery = "INSERT INTO booking VALUES(DEFAULT, ?, ?, ?, ?)";
+    final String touchQuery = "UPDATE booking SET modified = ? WHERE id = ?";
+    final String deleteQuery = "DELETE FROM booking WHERE id = ?";
+    final String clearBooksQuery = "DELETE FROM book_in_booking WHERE booking_id = ?";
+    final String addBookQuery = "INSERT INTO book_in_booking VALUES (?, ?)";
+
+    Transaction tr = new Transaction(conn);
+    tr.transactionWrapper(c -> {
+      BaseDao<Booking> dao = new BaseDao<>(c);
+      Booking draft = dao.read(userId, findQuery, (c1, rs) -> new Booking.Builder().setId(rs.getLong("id")).build());
+
+      if (draft != null) {
+        dao.delete(draft.getId(), clearBooksQuery);
+        if (bookIds.isEmpty()) {
+          dao.delete(draft.getId(), deleteQuery);
+          return;
+        }
+        draft.setModified(Calendar.getInstance());
+        dao.update(draft, touchQuery, (b, ps) -> {
+          int i = BaseDao.START;
+          ps.setTimestamp(i++, new Timestamp(b.getModified().getTimeInMillis()));
+          ps.setLong(i++, b.getId());
+          return i;
+        });
+      } else {
+        if (bookIds.isEmpty()) {
+          return;
+        }
+        draft = new Booking.Builder()
+            .setUser(new User.Builder().setId(userId).build())
+            .setModified(Calendar.getInstance())
+            .build();
+        dao.create(draft, createQuery, this::statementFiller);
+      }
+
+      List<Book> books = new ArrayList<>();
+      for (long id: bookIds) {
+        books.add(new Book.Builder().setId(id).build());
+      }
+      final long draftId = draft.getId();
+      new BaseDao<Book>(c).batchUpdate(books, addBookQuery, (book, ps) -> {
+        int i = BaseDao.START;
+        ps.setLong(i++, draftId);
+        ps.setLong(i++, book.getId());
+        return i;
+      });
+    });
+    logger.debug("end");
+  }
+
   private int statementFiller(Booking booking, PreparedStatement ps) throws SQLException {
     logger.debug("fill statement");
 
@@ -132,38 +274,124 @@ public class BookingDaoImpl implements BookingDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper( c -> {
       BaseDao<Booking> dao = new BaseDao<>(c);
-      List<Booking> bookings = dao.findById(id, query, this::parse);
+      List<Booking> bookings = dao.findById(id, query, new BookingMapper());
 
-      BookDaoImpl bookDao = new BookDaoImpl(c);
-      for (Booking b: bookings) {
-        List<Book> books = bookDao.getBooksInBooking(b.getId());
-        b.setBooks(books);
-      }
+      resolveBooks(c, bookings);
       return bookings;
     });
   }
 
-  private Booking parse(Connection c, ResultSet rs) throws SQLException, DaoException {
-    logger.debug("result set parsing init...");
-    Booking.Builder builder = new Booking.Builder();
+  @Override
+  public List<Booking> findDeliveredByUserIdRange(long from, long to) throws DaoException {
+    logger.debug("start");
+    logger.trace("from={}, to={}", from, to);
+
+    // partition can be big, so only columns of fine are read by one query, a row per book
+    final String query = KEEP_PERIOD_COLUMNS + " WHERE b.state = 'DELIVERED' AND b.user_id >= ? AND b.user_id < ?";
+
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper( c -> {
+      KeepPeriodMapper mapper = new KeepPeriodMapper();
+      new BaseDao<Book>(c).findByIdRange(from, to, query, mapper);
+      return new ArrayList<>(mapper.bookings.values());
+    });
+  }
+
+  @Override
+  public List<Booking> findByStateModifiedBefore(Booking.State state, Calendar before) throws DaoException {
+    logger.debug("start");
+    logger.trace("state={}, before={}", state, before.getTime());
+
+    // range of booking_state_modified index
+    final String query = KEEP_PERIOD_COLUMNS + " WHERE b.state = ? AND b.modified < ?";
+
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper( c -> {
+      KeepPeriodMapper mapper = new KeepPeriodMapper();
+      new BaseDao<Book>(c).findByStringBefore(state.name(), before, query, mapper);
+      return new ArrayList<>(mapper.bookings.values());
+    });
+  }
+
+  /**
+   * Collects rows of {@link #KEEP_PERIOD_COLUMNS} to bookings with user of id only and books of keep period only
+   */
+  private static class KeepPeriodMapper extends RowMapper<Book> {
+    private final Map<Long, Booking> bookings = new LinkedHashMap<>();
+    private int id;
+    private int userId;
+    private int state;
+    private int located;
+    private int modified;
+    private int bookId;
+    private int keepPeriod;
+
+    @Override
+    protected void resolve(Columns columns) throws SQLException {
+      id = columns.index("id");
+      userId = columns.index("user_id");
+      state = columns.index(BOOKING_STATE_COL);
+      located = columns.index(BOOKING_LOCATED_COL);
+      modified = columns.index("modified");
+      bookId = columns.index("book_id");
+      keepPeriod = columns.index("keep_period");
+    }
+
+    @Override
+    protected Book map(Connection c, ResultSet rs) throws SQLException {
+      Booking booking = bookings.get(rs.getLong(id));
+      if (booking == null) {
+        booking = new Booking.Builder()
+            .setId(rs.getLong(id))
+            .setUser(new User.Builder().setId(rs.getLong(userId)).build())
+            .setState(Booking.State.valueOf(rs.getString(state)))
+            .setLocated(Booking.Place.valueOf(rs.getString(located)))
+            .setModified(calendar(rs, modified))
+            .setBooks(new ArrayList<>())
+            .build();
+        bookings.put(booking.getId(), booking);
+      }
+      Book book = new Book.Builder().setId(rs.getLong(bookId)).setKeepPeriod(rs.getInt(keepPeriod)).build();
+      booking.getBooks().add(book);
+      return book;
+    }
+  }
+
+  private static class BookingMapper extends RowMapper<Booking> {
+    private int id;
+    private int state;
+    private int located;
+    private int modified;
+    private int userId;
+
+    @Override
+    protected void resolve(Columns columns) throws SQLException {
+      id = columns.index("id");
+      state = columns.index(BOOKING_STATE_COL);
+      located = columns.index(BOOKING_LOCATED_COL);
+      modified = columns.index("modified");
+      userId = columns.index("user_id");
+    }
 
-    builder.setId(rs.getInt("id"));
-    builder.setState(Booking.State.valueOf(rs.getString(BOOKING_STATE_COL)));
-    builder.setLocated(Booking.Place.valueOf(rs.getString(BOOKING_LOCATED_COL)));
+    @Override
+    protected Booking map(Connection c, ResultSet rs) throws SQLException, DaoException {
+      logger.debug("result set parsing init...");
+      Booking.Builder builder = new Booking.Builder();
 
-    Timestamp sqlTimestamp = rs.getTimestamp("modified");
-    Calendar cal = Calendar.getInstance();
-    cal.setTime(sqlTimestamp);
-    builder.setModified(cal);
+      builder.setId(rs.getInt(id));
+      builder.setState(Booking.State.valueOf(rs.getString(state)));
+      builder.setLocated(Booking.Place.valueOf(rs.getString(located)));
+      builder.setModified(calendar(rs, modified));
 
-    // get dependencies
-    long userID = rs.getInt("user_id");
-    UserDaoImpl userDao = new UserDaoImpl(c);
-    User user = userDao.read(userID);
-    builder.setUser(user);
+      // get dependencies
+      long userID = rs.getInt(userId);
+      UserDaoImpl userDao = new UserDaoImpl(c);
+      User user = userDao.read(userID);
+      builder.setUser(user);
 
-    logger.debug("result set parsing finished");
-    return builder.build();
+      logger.debug("result set parsing finished");
+      return builder.build();
+    }
   }
 
   @Override
@@ -176,13 +404,9 @@ public class BookingDaoImpl implements BookingDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper( c -> {
       BaseDao<Booking> dao = new BaseDao<>(c);
-      List<Booking> bookings = dao.findByPattern(what, num, page,query, this::parse);
+      List<Booking> bookings = dao.findByPattern(what, num, page,query, new BookingMapper());
 
-      BookDaoImpl bookDao = new BookDaoImpl(c);
-      for (Booking b: bookings) {
-        List<Book> books = bookDao.getBooksInBooking(b.getId());
-        b.setBooks(books);
-      }
+      resolveBooks(c, bookings);
 
       return bookings;
     });
@@ -212,34 +436,134 @@ public class BookingDaoImpl implements BookingDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper( c -> {
       BaseDao<Booking> dao = new BaseDao<>(c);
-      List<Booking> bookings = dao.findByString(what, query, this::parse);
+      List<Booking> bookings = dao.findByString(what, query, new BookingMapper());
 
-      BookDaoImpl bookDao = new BookDaoImpl(c);
-      for (Booking b: bookings) {
-        List<Book> books = bookDao.getBooksInBooking(b.getId());
-        b.setBooks(books);
-      }
+      resolveBooks(c, bookings);
 
       return bookings;
     });
   }
 
+  @Override
+  public List<BookingListItem> findItemsByPattern(String what, String searchBy, String sortBy, int num, int page,
+                                                  Lang lang) throws ServiceException, DaoException {
+    logger.debug("start");
+    logger.trace("what={}, searchBy={}, sortBy={}, num={}, page={}", what, searchBy, sortBy, num, page);
+
+    final String query = patternQuery(ITEM_COLUMNS, searchBy, sortBy, false);
+
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<BookingListItem> dao = new BaseDao<>(c);
+      List<BookingListItem> items = dao.findByPattern(what, num, page, query, new BookingListItemMapper());
+      resolveItemBooks(c, items, lang);
+      return items;
+    });
+  }
+
+  @Override
+  public List<BookingListItem> findItemsBy(String what, String searchBy, Lang lang)
+      throws ServiceException, DaoException {
+    logger.debug("start");
+    logger.trace("what={}, searchBy={}", what, searchBy);
+
+    validColumns.checkSearch(searchBy);
+    final String query = patternQuery(ITEM_COLUMNS, searchBy, null, true);
+
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<BookingListItem> dao = new BaseDao<>(c);
+      List<BookingListItem> items = dao.findByString(what, query, new BookingListItemMapper());
+      resolveItemBooks(c, items, lang);
+      return items;
+    });
+  }
+
+  private static class BookingListItemMapper extends RowMapper<BookingListItem> {
+    private int id;
+    private int state;
+    private int located;
+    private int modified;
+    private int email;
+    private int name;
+
+    @Override
+    protected void resolve(Columns columns) throws SQLException {
+      id = columns.index("id");
+      state = columns.index(BOOKING_STATE_COL);
+      located = columns.index(BOOKING_LOCATED_COL);
+      modified = columns.index("modified");
+      email = columns.index("email");
+      name = columns.index("name");
+    }
+
+    @Override
+    protected BookingListItem map(Connection c, ResultSet rs) throws SQLException {
+      return new BookingListItem(
+          rs.getLong(id),
+          calendar(rs, modified),
+          Booking.State.valueOf(rs.getString(state)),
+          Booking.Place.valueOf(rs.getString(located)),
+          rs.getString(email),
+          rs.getString(name));
+    }
+  }
+
+  /**
+   * Adds books to items, names of authors are taken in given language, primary name is used if there is no such or
+   * lang is null
+   */
+  private void resolveItemBooks(Connection c, List<BookingListItem> items, Lang lang) throws DaoException {
+    Map<Long, BookingListItem> bookings = new HashMap<>();
+    for (BookingListItem item: items) {
+      bookings.put(item.getId(), item);
+    }
+    Map<Long, List<BookListItem>> books = new HashMap<>();
+    // columns are read by position of ITEM_BOOKS_QUERY and ITEM_AUTHORS_QUERY
+    new BaseDao<BookListItem>(c).readAll(bookings.keySet(), ITEM_BOOKS_QUERY, (c1, rs) -> {
+      BookListItem book = new BookListItem(
+          rs.getLong(2),
+          rs.getString(3),
+          rs.getString(4),
+          rs.getInt(5),
+          rs.getInt(6));
+      bookings.get(rs.getLong(1)).getBooks().add(book);
+      books.computeIfAbsent(book.getId(), id -> new ArrayList<>()).add(book);
+      return book;
+    });
+
+    // there is no lang with id 0, so primary names are taken if lang is unknown
+    final long langId = lang == null ? 0 : lang.getId();
+    new BaseDao<BookListItem>(c).readAllBound(langId, books.keySet(), ITEM_AUTHORS_QUERY, (c1, rs) -> {
+      List<BookListItem> sameBook = books.get(rs.getLong(1));
+      for (BookListItem book: sameBook) {
+        book.getAuthorNames().add(rs.getString(2));
+      }
+      return sameBook.get(0);
+    });
+  }
+
   private String patternQuery(String searchBy, String sortBy, boolean count, boolean exactSearch) throws ServiceException {
+    return patternQuery(count ? "COUNT(*)" : "*", searchBy, sortBy, exactSearch);
+  }
+
+  private String patternQuery(String what, String searchBy, String sortBy, boolean exactSearch) throws ServiceException {
     logger.debug("start");
-    logger.trace("searchBy={}, sortBy={}, count={}, exactSearch={}",
-        searchBy, sortBy, count, exactSearch);
+    logger.trace("what={}, searchBy={}, sortBy={}, exactSearch={}",
+        what, searchBy, sortBy, exactSearch);
 
     validColumns.checkSearch(searchBy);
 
     final String searchCol = searchBy.equals(BOOKING_STATE_COL) || searchBy.equals(BOOKING_LOCATED_COL)
         ? "b." + searchBy : "u." + searchBy;
-    final String what = count ? "COUNT(*)" : "*";
     final String operator = exactSearch ? " = ?" : " LIKE ?";
 
     String query = "SELECT " + what + " FROM booking AS b\n" +
         "  JOIN user AS u\n" +
         "    ON u.id = b.user_id\n" +
-        " WHERE " + searchCol + operator;
+        " WHERE " + searchCol + operator +
+        // NEW bookings are drafts of user baskets, see library.model.tasks.BasketStore
+        " AND b.state <> 'NEW'";
 
     if (sortBy != null) {
       validColumns.checkSort(sortBy);
@@ -270,9 +594,55 @@ public class BookingDaoImpl implements BookingDao {
     }
   }
 
+  /**
+   * Sets books to bookings, books are loaded on first access for all bookings at once, if request opted in lazy
+   * loading
+   */
+  private void resolveBooks(Connection c, List<Booking> bookings) throws DaoException {
+    if (IdentityMap.isLazyLoading()) {
+      // siblings are copied, caller can change the list
+      List<Booking> batch = new ArrayList<>(bookings);
+      Lazy books = new BatchLoader(conn, "books of bookings", c1 -> loadBooks(c1, batch));
+      for (Booking b: bookings) {
+        b.setBooks(books);
+      }
+      return;
+    }
+    BookDaoImpl bookDao = new BookDaoImpl(c);
+    for (Booking b: bookings) {
+      b.setBooks(bookDao.getBooksInBooking(b.getId()));
+    }
+  }
+
+  private static void loadBooks(Connection c, List<Booking> bookings) throws DaoException {
+    List<Long> ids = new ArrayList<>(bookings.size());
+    for (Booking b: bookings) {
+      ids.add(b.getId());
+    }
+    Map<Long, List<Book>> books = new BookDaoImpl(c).getBooksInBookings(ids);
+    for (Booking b: bookings) {
+      b.setBooks(books.getOrDefault(b.getId(), new ArrayList<>()));
+    }
+  }
+
+  /**
+   * Tells catalog snapshot about changed stats of committed booking, outer transaction tells it itself
+   */
+  private void catalogChanged(List<Book> books) {
+    if (conn == null) {
+      List<Long> ids = new ArrayList<>();
+      for (Book b: books) {
+        ids.add(b.getId());
+      }
+      CatalogSnapshots.getInstance().statsChanged(ids);
+    }
+  }
+
   private void deleteBooksInBooking(BaseDao<Book> dao, BookDao bookDao, long id, List<Book> books) throws DaoException {
     logger.debug("start");
-    logger.trace("id={}, books={}", id, books);
+    if (logger.isTraceEnabled()) {
+      logger.trace("id={}, books={}", id, books);
+    }
 
     // book_id, author_id
     final String delQuery = "DELETE FROM book_in_booking WHERE booking_id = ? AND book_id = ?";
@@ -286,7 +656,9 @@ public class BookingDaoImpl implements BookingDao {
   private void createBooksInBooking(BaseDao<Book> dao, BookDao bookDao, long id, List<Book> books) throws DaoException {
     // book_id, author_id
     logger.debug("start");
-    logger.trace("id={}, books={}", id, books);
+    if (logger.isTraceEnabled()) {
+      logger.trace("id={}, books={}", id, books);
+    }
 
     final String addQuery = "INSERT INTO book_in_booking VALUES (?, ?)";
 
@@ -2,6 +2,8 @@ package library.model.dao.impl;
 
 import library.exceptions.DaoException;
 import library.model.connection.BaseDao;
+import library.model.connection.IdentityMap;
+import library.model.connection.RowMapper;
 import library.model.connection.Transaction;
 import library.model.dao.LangDao;
 import library.model.entities.Lang;
@@ -39,25 +41,41 @@ public class LangDaoImpl implements LangDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Lang> dao = new BaseDao<>(c);
-      return dao.getRecords(query, this::parse);
+      return dao.getRecords(query, new LangMapper());
     });
   }
 
-  private Lang parse(Connection c, ResultSet rs) throws SQLException {
-    Lang.Builder builder = new Lang.Builder();
-    builder.setId(rs.getInt("id"));
-    builder.setCode(rs.getString("code"));
-    return builder.build();
+  private static class LangMapper extends RowMapper<Lang> {
+    private int id;
+    private int code;
+
+    @Override
+    protected void resolve(Columns columns) throws SQLException {
+      id = columns.index("id");
+      code = columns.index("code");
+    }
+
+    @Override
+    protected Lang map(Connection c, ResultSet rs) throws SQLException {
+      Lang.Builder builder = new Lang.Builder();
+      builder.setId(rs.getInt(id));
+      builder.setCode(rs.getString(code));
+      return IdentityMap.put(builder.build());
+    }
   }
 
   @Override
   public Lang read(long id) throws DaoException {
+    Lang known = IdentityMap.get(Lang.class, id);
+    if (known != null) {
+      return known;
+    }
     final String query = "SELECT * FROM lang WHERE id = ?";
 
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Lang> dao = new BaseDao<>(c);
-      return dao.read(id, query, this::parse);
+      return dao.read(id, query, new LangMapper());
     });
   }
 
@@ -68,7 +86,7 @@ public class LangDaoImpl implements LangDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<Lang> dao = new BaseDao<>(c);
-      return dao.read(code, query, this::parse);
+      return dao.read(code, query, new LangMapper());
     });
   }
 }
@@ -0,0 +1,99 @@
+package library.model.dao.impl;
+
+import library.exceptions.DaoException;
+import library.model.connection.BaseDao;
+import library.model.connection.Transaction;
+import library.model.dao.TaskCheckpointDao;
+import library.model.entities.TaskCheckpoint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.*;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Task checkpoint DAO. Produce/consume complete entity of {@link library.model.entities.TaskCheckpoint} class
+ */
+public class TaskCheckpointDaoImpl implements TaskCheckpointDao {
+  private static final Logger logger = LogManager.getLogger(TaskCheckpointDaoImpl.class);
+  private Connection conn;
+
+  /**
+   * Way to instantiate class from business logic
+   */
+  public TaskCheckpointDaoImpl() {}
+
+  /**
+   * Way to instantiate class from other DAO or test
+   */
+  public TaskCheckpointDaoImpl(Connection conn) {
+    this.conn = conn;
+  }
+
+  @Override
+  public List<TaskCheckpoint> findByTask(String task) throws DaoException {
+    logger.debug("start");
+    logger.trace("task={}", task);
+    final String query = "SELECT * FROM task_checkpoint WHERE task = ?";
+
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<TaskCheckpoint> dao = new BaseDao<>(c);
+      return dao.findByString(task, query, this::parse);
+    });
+  }
+
+  private TaskCheckpoint parse(Connection c, ResultSet rs) throws SQLException {
+    TaskCheckpoint.Builder builder = new TaskCheckpoint.Builder();
+    builder.setId(rs.getLong("partition_from"));
+    builder.setTask(rs.getString("task"));
+
+    Timestamp sqlTime = rs.getTimestamp("run_started");
+    Calendar cal = Calendar.getInstance();
+    cal.setTime(sqlTime);
+    builder.setRunStarted(cal);
+
+    return builder.build();
+  }
+
+  @Override
+  public void create(TaskCheckpoint checkpoint) throws DaoException {
+    logger.debug("start");
+    logger.trace("checkpoint={}", checkpoint);
+    final String query = "INSERT INTO task_checkpoint (task, partition_from, run_started) VALUES (?, ?, ?)";
+
+    Transaction tr = new Transaction(conn);
+    tr.transactionWrapper(c -> {
+      BaseDao<TaskCheckpoint> dao = new BaseDao<>(c);
+      dao.update(checkpoint, query, (cp, ps) -> {
+        int i = BaseDao.START;
+        ps.setString(i++, cp.getTask());
+        ps.setLong(i++, cp.getId());
+        if (cp.getRunStarted() == null) {
+          throw new SQLException("runStarted field cannot be null");
+        }
+        ps.setTimestamp(i++, new Timestamp(cp.getRunStarted().getTimeInMillis()));
+        return i;
+      });
+    });
+  }
+
+  @Override
+  public void deleteByTask(String task) throws DaoException {
+    logger.debug("start");
+    logger.trace("task={}", task);
+    final String query = "DELETE FROM task_checkpoint WHERE task = ?";
+
+    TaskCheckpoint checkpoint = new TaskCheckpoint.Builder().setTask(task).build();
+    Transaction tr = new Transaction(conn);
+    tr.transactionWrapper(c -> {
+      BaseDao<TaskCheckpoint> dao = new BaseDao<>(c);
+      dao.update(checkpoint, query, (cp, ps) -> {
+        int i = BaseDao.START;
+        ps.setString(i++, cp.getTask());
+        return i;
+      });
+    });
+  }
+}
@@ -0,0 +1,127 @@
+package library.model.dao.impl;
+
+import library.exceptions.DaoException;
+import library.model.connection.BaseDao;
+import library.model.connection.Transaction;
+import library.model.dao.TaskLeaseDao;
+import library.model.entities.TaskLease;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+
+/**
+ * Task lease DAO. Lease expiration is calculated by DB time, so time on cluster nodes may differ
+ */
+public class TaskLeaseDaoImpl implements TaskLeaseDao {
+  private static final Logger logger = LogManager.getLogger(TaskLeaseDaoImpl.class);
+  private static final String RENEW_QUERY = "UPDATE task_lease SET expires = TIMESTAMPADD(SECOND, ?, NOW(3))" +
+      " WHERE name = ? AND owner = ?";
+  private Connection conn;
+
+  /**
+   * Way to instantiate class from business logic
+   */
+  public TaskLeaseDaoImpl() {}
+
+  /**
+   * Way to instantiate class from other DAO or test
+   */
+  public TaskLeaseDaoImpl(Connection conn) {
+    this.conn = conn;
+  }
+
+  @Override
+  public boolean acquire(String task, String owner, int leaseSeconds) throws DaoException {
+    logger.debug("start");
+    logger.trace("task={}, owner={}, leaseSeconds={}", task, owner, leaseSeconds);
+
+    // lease row is created once, expired from the very beginning
+    final String createQuery = "INSERT IGNORE INTO task_lease (name, owner, expires) VALUES (?, ?, NOW(3))";
+    final String acquireQuery = "UPDATE task_lease SET owner = ?, expires = TIMESTAMPADD(SECOND, ?, NOW(3))" +
+        " WHERE name = ? AND (owner = ? OR expires <= NOW(3))";
+
+    TaskLease lease = new TaskLease.Builder().setName(task).setOwner(owner).build();
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<TaskLease> dao = new BaseDao<>(c);
+      dao.update(lease, createQuery, (l, ps) -> {
+        int i = BaseDao.START;
+        ps.setString(i++, l.getName());
+        ps.setString(i++, "");
+        return i;
+      });
+
+      return dao.update(lease, acquireQuery, (l, ps) -> {
+        int i = BaseDao.START;
+        ps.setString(i++, l.getOwner());
+        ps.setInt(i++, leaseSeconds);
+        ps.setString(i++, l.getName());
+        ps.setString(i++, l.getOwner());
+        return i;
+      }) > 0;
+    });
+  }
+
+  @Override
+  public boolean renew(String task, String owner, int leaseSeconds) throws DaoException {
+    logger.debug("start");
+    logger.trace("task={}, owner={}, leaseSeconds={}", task, owner, leaseSeconds);
+
+    TaskLease lease = new TaskLease.Builder().setName(task).setOwner(owner).build();
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<TaskLease> dao = new BaseDao<>(c);
+      return dao.update(lease, RENEW_QUERY, (l, ps) -> {
+        int i = BaseDao.START;
+        ps.setInt(i++, leaseSeconds);
+        ps.setString(i++, l.getName());
+        ps.setString(i++, l.getOwner());
+        return i;
+      }) > 0;
+    });
+  }
+
+  @Override
+  public boolean markRun(String task, String owner, long periodMillis) throws DaoException {
+    logger.debug("start");
+    logger.trace("task={}, owner={}, periodMillis={}", task, owner, periodMillis);
+
+    final String query = "UPDATE task_lease SET last_run = NOW(3)" +
+        " WHERE name = ? AND owner = ? AND expires > NOW(3)" +
+        "   AND (last_run IS NULL OR TIMESTAMPADD(MICROSECOND, ?, last_run) <= NOW(3))";
+
+    TaskLease lease = new TaskLease.Builder().setName(task).setOwner(owner).build();
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<TaskLease> dao = new BaseDao<>(c);
+      return dao.update(lease, query, (l, ps) -> {
+        int i = BaseDao.START;
+        ps.setString(i++, l.getName());
+        ps.setString(i++, l.getOwner());
+        ps.setLong(i++, periodMillis * 1000);
+        return i;
+      }) > 0;
+    });
+  }
+
+  @Override
+  public void release(String task, String owner) throws DaoException {
+    logger.debug("start");
+    logger.trace("task={}, owner={}", task, owner);
+
+    final String query = "UPDATE task_lease SET expires = NOW(3) WHERE name = ? AND owner = ?";
+
+    TaskLease lease = new TaskLease.Builder().setName(task).setOwner(owner).build();
+    Transaction tr = new Transaction(conn);
+    tr.noTransactionWrapper(c -> {
+      BaseDao<TaskLease> dao = new BaseDao<>(c);
+      return dao.update(lease, query, (l, ps) -> {
+        int i = BaseDao.START;
+        ps.setString(i++, l.getName());
+        ps.setString(i++, l.getOwner());
+        return i;
+      });
+    });
+  }
+}
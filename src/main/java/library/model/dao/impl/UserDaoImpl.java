@@ -3,15 +3,19 @@ package library.model.dao.impl;
 import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
 import library.model.connection.BaseDao;
+import library.model.connection.IdentityMap;
+import library.model.connection.RowMapper;
 import library.model.connection.SearchSortColumn;
 import library.model.connection.Transaction;
+import library.model.dao.ReadResult;
 import library.model.dao.UserDao;
+import library.model.dto.UserListItem;
 import library.model.entities.User;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
-import java.util.Calendar;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -41,7 +45,7 @@ public class UserDaoImpl implements UserDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper( c -> {
       BaseDao<User> dao = new BaseDao<>(c);
-      return dao.read(email, query, this::parse);
+      return dao.read(email, query, new UserMapper());
     });
   }
 
@@ -51,7 +55,64 @@ public class UserDaoImpl implements UserDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<User> dao = new BaseDao<>(c);
-      return dao.getRecords(query, this::parse);
+      return dao.getRecords(query, new UserMapper());
+    });
+  }
+
+  @Override
+  public long getMaxId() throws DaoException {
+    final String query = "SELECT MAX(id) FROM user";
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<User> dao = new BaseDao<>(c);
+      return dao.readNumber(query);
+    });
+  }
+
+  @Override
+  public List<User> findByIdRange(long from, long to) throws DaoException {
+    final String query = "SELECT * FROM user WHERE id >= ? AND id < ? AND state != 'DELETED'";
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<User> dao = new BaseDao<>(c);
+      return dao.findByIdRange(from, to, query, new UserMapper());
+    });
+  }
+
+  @Override
+  public void updateFines(List<User> users) throws DaoException {
+    final String query = "UPDATE user SET fine = ?, modified = ?, fine_last_checked = ? WHERE id = ?";
+    for (User user: users) {
+      IdentityMap.evict(User.class, user.getId());
+    }
+    Transaction tr = new Transaction(conn);
+    tr.transactionWrapper(c -> {
+      BaseDao<User> dao = new BaseDao<>(c);
+      dao.batchUpdate(users, query, (user, ps) -> {
+        int i = BaseDao.START;
+        ps.setDouble(i++, user.getFine());
+        ps.setTimestamp(i++, new Timestamp(user.getModified().getTimeInMillis()));
+        ps.setTimestamp(i++, new Timestamp(user.getFineLastChecked().getTimeInMillis()));
+        ps.setLong(i++, user.getId());
+        return i;
+      });
+    });
+  }
+
+  @Override
+  public void updatePassword(User user) throws DaoException {
+    logger.debug("start");
+    final String query = "UPDATE user SET password = ? WHERE id = ?";
+    IdentityMap.evict(User.class, user.getId());
+    Transaction tr = new Transaction(conn);
+    tr.transactionWrapper(c -> {
+      BaseDao<User> dao = new BaseDao<>(c);
+      dao.update(user, query, (u, ps) -> {
+        int i = BaseDao.START;
+        ps.setString(i++, u.getPassword());
+        ps.setLong(i++, u.getId());
+        return i;
+      });
     });
   }
 
@@ -96,47 +157,115 @@ public class UserDaoImpl implements UserDao {
 
   @Override
   public User read(long id) throws DaoException {
+    User known = IdentityMap.get(User.class, id);
+    if (known != null) {
+      return known;
+    }
     final String query = "SELECT * FROM user WHERE id = ?";
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper( c -> {
       BaseDao<User> dao = new BaseDao<>(c);
-      return dao.read(id, query, this::parse);
+      return dao.read(id, query, new UserMapper());
+    });
+  }
+
+  @Override
+  public ReadResult<User> readAll(Collection<Long> ids) throws DaoException {
+    final String query = "SELECT * FROM user WHERE id IN";
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper( c -> {
+      BaseDao<User> dao = new BaseDao<>(c);
+      return ReadResult.of(ids, dao.readAll(ids, query, new UserMapper()));
     });
   }
 
-  private User parse(Connection c, ResultSet rs) throws SQLException, DaoException {
-    User.Builder builder = new User.Builder();
-    builder.setId(rs.getInt("id"));
-    builder.setEmail(rs.getString("email"));
-    builder.setName(rs.getString("name"));
-    builder.setPassword(rs.getString("password"));
-    String dbRole = rs.getString("role");
-    builder.setRole(User.Role.valueOf(dbRole));
-    String dbState = rs.getString("state");
-    builder.setState(User.State.valueOf(dbState));
-    builder.setFine(rs.getDouble("fine"));
-    builder.setFineLastChecked(getCalendar(rs, "fine_last_checked"));
-    builder.setModified(getCalendar(rs, "modified"));
+  private static class UserMapper extends RowMapper<User> {
+    private int id;
+    private int email;
+    private int name;
+    private int password;
+    private int role;
+    private int state;
+    private int fine;
+    private int fineLastChecked;
+    private int modified;
+    private int preferredLangId;
+
+    @Override
+    protected void resolve(Columns columns) throws SQLException {
+      id = columns.index("id");
+      email = columns.index("email");
+      name = columns.index("name");
+      password = columns.index("password");
+      role = columns.index("role");
+      state = columns.index("state");
+      fine = columns.index("fine");
+      fineLastChecked = columns.index("fine_last_checked");
+      modified = columns.index("modified");
+      preferredLangId = columns.index("preferred_lang_id");
+    }
 
-    // get dependencies
-    long langID = rs.getInt("preferred_lang_id");
-    LangDaoImpl langDao = new LangDaoImpl(c);
-    builder.setPreferredLang(langDao.read(langID));
+    @Override
+    protected User map(Connection c, ResultSet rs) throws SQLException, DaoException {
+      User known = IdentityMap.get(User.class, rs.getInt(id));
+      if (known != null) {
+        return known;
+      }
+      User.Builder builder = new User.Builder();
+      builder.setId(rs.getInt(id));
+      builder.setEmail(rs.getString(email));
+      builder.setName(rs.getString(name));
+      builder.setPassword(rs.getString(password));
+      builder.setRole(User.Role.valueOf(rs.getString(role)));
+      builder.setState(User.State.valueOf(rs.getString(state)));
+      builder.setFine(rs.getDouble(fine));
+      builder.setFineLastChecked(calendar(rs, fineLastChecked));
+      builder.setModified(calendar(rs, modified));
 
-    return builder.build();
+      // get dependencies
+      long langID = rs.getInt(preferredLangId);
+      LangDaoImpl langDao = new LangDaoImpl(c);
+      builder.setPreferredLang(langDao.read(langID));
+
+      return IdentityMap.put(builder.build());
+    }
   }
 
-  private Calendar getCalendar(ResultSet rs, String column) throws SQLException {
-    Timestamp sqlTimestamp = rs.getTimestamp(column);
-    Calendar cal = Calendar.getInstance();
-    cal.setTime(sqlTimestamp);
-    return cal;
+  private static class UserListItemMapper extends RowMapper<UserListItem> {
+    private int id;
+    private int email;
+    private int name;
+    private int role;
+    private int state;
+    private int fine;
+
+    @Override
+    protected void resolve(Columns columns) throws SQLException {
+      id = columns.index("id");
+      email = columns.index("email");
+      name = columns.index("name");
+      role = columns.index("role");
+      state = columns.index("state");
+      fine = columns.index("fine");
+    }
+
+    @Override
+    protected UserListItem map(Connection c, ResultSet rs) throws SQLException {
+      return new UserListItem(
+          rs.getLong(id),
+          rs.getString(email),
+          rs.getString(name),
+          User.Role.valueOf(rs.getString(role)),
+          User.State.valueOf(rs.getString(state)),
+          rs.getDouble(fine));
+    }
   }
 
   @Override
   public void update(User user) throws DaoException {
     final String query = "UPDATE user SET email = ?, password = ?, role = ?, state = ?, " +
         "fine = ?, name = ?, preferred_lang_id = ?, modified = ?, fine_last_checked = ? WHERE id = ?";
+    IdentityMap.evict(User.class, user.getId());
     Transaction tr = new Transaction(conn);
     tr.transactionWrapper(c -> {
       BaseDao<User> dao = new BaseDao<>(c);
@@ -153,6 +282,7 @@ public class UserDaoImpl implements UserDao {
   @Override
   public void delete(long id) throws DaoException {
     final String query = "UPDATE user SET state = 'deleted' WHERE id = ?";
+    IdentityMap.evict(User.class, id);
     Transaction tr = new Transaction(conn);
     tr.transactionWrapper(c -> {
       BaseDao<User> dao = new BaseDao<>(c);
@@ -171,7 +301,23 @@ public class UserDaoImpl implements UserDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<User> dao = new BaseDao<>(c);
-      return dao.findByPattern(what, num, page, query, this::parse);
+      return dao.findByPattern(what, num, page, query, new UserMapper());
+    });
+  }
+
+  @Override
+  public List<UserListItem> findItemsByPattern(String what, String searchBy, String sortBy, int num, int page)
+      throws ServiceException, DaoException {
+
+    validColumns.checkSearch(searchBy);
+    validColumns.checkSort(sortBy);
+
+    final String query = "SELECT id, email, name, role, state, fine FROM user WHERE " + searchBy
+        + " LIKE ? AND state != 'DELETED' ORDER BY " + sortBy + " LIMIT ? OFFSET ?";
+    Transaction tr = new Transaction(conn);
+    return tr.noTransactionWrapper(c -> {
+      BaseDao<UserListItem> dao = new BaseDao<>(c);
+      return dao.findByPattern(what, num, page, query, new UserListItemMapper());
     });
   }
 
@@ -198,7 +344,7 @@ public class UserDaoImpl implements UserDao {
     Transaction tr = new Transaction(conn);
     return tr.noTransactionWrapper(c -> {
       BaseDao<User> dao = new BaseDao<>(c);
-      return dao.findByPattern(what, query, this::parse);
+      return dao.findByPattern(what, query, new UserMapper());
     });
   }
 }
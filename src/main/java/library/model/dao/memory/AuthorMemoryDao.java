@@ -0,0 +1,148 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.connection.SearchSortColumn;
+import library.model.dao.AuthorDao;
+import library.model.dao.ReadResult;
+import library.model.dao.memory.MemoryStore.AuthorRow;
+import library.model.dao.memory.MemoryStore.BookRow;
+import library.model.entities.Author;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * In-memory author DAO, searches by any of i18n names as {@link library.model.dao.impl.AuthorDaoImpl}. Found
+ * authors are ordered by id.
+ */
+public class AuthorMemoryDao implements AuthorDao {
+  private static final Logger logger = LogManager.getLogger(AuthorMemoryDao.class);
+  private static final SearchSortColumn validColumns = new SearchSortColumn("name");
+  private final MemoryStore store;
+
+  public AuthorMemoryDao(MemoryStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public void create(Author author) throws DaoException {
+    store.write(() -> {
+      AuthorRow row = new AuthorRow(store.nextAuthorId(), author);
+      store.putAuthor(row);
+      author.setId(row.id);
+      logger.info("New entity added: id={}", row.id);
+      return null;
+    });
+  }
+
+  @Override
+  public Author read(long id) throws DaoException {
+    return store.read(() -> {
+      AuthorRow row = store.authors.get(id);
+      return row == null ? null : store.author(row);
+    });
+  }
+
+  @Override
+  public ReadResult<Author> readAll(Collection<Long> ids) throws DaoException {
+    return store.read(() -> {
+      List<Author> found = new ArrayList<>();
+      for (long id: ids) {
+        AuthorRow row = store.authors.get(id);
+        if (row != null) {
+          found.add(store.author(row));
+        }
+      }
+      return ReadResult.of(ids, found);
+    });
+  }
+
+  @Override
+  public Author read(String name) throws DaoException {
+    return store.read(() -> {
+      List<AuthorRow> found = find(n -> n.equals(name));
+      return found.isEmpty() ? null : store.author(found.get(0));
+    });
+  }
+
+  @Override
+  public void update(Author author) throws DaoException {
+    store.write(() -> {
+      if (store.authors.containsKey(author.getId())) {
+        store.putAuthor(new AuthorRow(author.getId(), author));
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void delete(long id) throws DaoException {
+    store.write(() -> {
+      store.removeAuthor(id);
+      return null;
+    });
+  }
+
+  @Override
+  public List<Author> findByBookID(long id) throws DaoException {
+    return store.read(() -> {
+      BookRow book = store.books.get(id);
+      return book == null ? new ArrayList<>() : store.authorsOf(book);
+    });
+  }
+
+  @Override
+  public List<Author> findByPattern(String what, String searchBy, String sortBy, int num, int page)
+      throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    validColumns.checkSort(sortBy);
+    return store.read(() -> toAuthors(MemoryStore.page(find(n -> MemoryStore.like(n, what)), num, page)));
+  }
+
+  @Override
+  public List<Author> findByPattern(String what) throws DaoException {
+    return store.read(() -> toAuthors(find(n -> MemoryStore.like(n, what))));
+  }
+
+  @Override
+  public int findByPatternCount(String what, String searchBy) throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    return store.read(() -> find(n -> MemoryStore.like(n, what)).size());
+  }
+
+  @Override
+  public List<Author> findBy(String what, String searchBy) throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    return store.read(() -> toAuthors(find(n -> n.equals(what))));
+  }
+
+  /**
+   * @return authors, which have i18n name matching condition, ordered by id
+   */
+  private List<AuthorRow> find(Predicate<String> condition) {
+    List<AuthorRow> found = new ArrayList<>();
+    for (AuthorRow row: store.authors.values()) {
+      for (String name: row.names) {
+        if (condition.test(name)) {
+          found.add(row);
+          break;
+        }
+      }
+    }
+    found.sort((a, b) -> Long.compare(a.id, b.id));
+    return found;
+  }
+
+  private List<Author> toAuthors(List<AuthorRow> rows) {
+    List<Author> list = new ArrayList<>(rows.size());
+    for (AuthorRow row: rows) {
+      list.add(store.author(row));
+    }
+    return list;
+  }
+}
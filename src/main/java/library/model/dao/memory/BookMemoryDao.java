@@ -0,0 +1,213 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.connection.SearchSortColumn;
+import library.model.dao.BookDao;
+import library.model.dao.ReadResult;
+import library.model.dao.memory.MemoryStore.AuthorRow;
+import library.model.dao.memory.MemoryStore.BookRow;
+import library.model.dao.memory.MemoryStore.BookingRow;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * In-memory book DAO, searches and sorts as {@link library.model.dao.impl.BookDaoImpl}: only books with authors are
+ * found, author column means any i18n name of any author of book.
+ */
+public class BookMemoryDao implements BookDao {
+  private static final Logger logger = LogManager.getLogger(BookMemoryDao.class);
+  private static final String AUTHOR_COL = "author";
+  private static final SearchSortColumn validColumns =
+      new SearchSortColumn("title", "isbn", "year", AUTHOR_COL);
+  private final MemoryStore store;
+
+  public BookMemoryDao(MemoryStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public void create(Book book) throws DaoException {
+    if (book.getBookStat() == null) {
+      throw new DaoException("book stat cannot be null");
+    }
+    store.write(() -> {
+      if (store.booksByIsbn.containsKey(book.getIsbn())) {
+        throw new DaoException("Duplicate entry '" + book.getIsbn() + "' for key 'isbn'");
+      }
+      // as book_stat defaults, all copies are in stock
+      BookStat stat = new BookStat.Builder().setTotal(book.getBookStat().getTotal()).build();
+      BookRow row = new BookRow(store.nextBookId(), book, stat);
+      store.putBook(row);
+      book.setId(row.id);
+      book.getBookStat().setId(row.id);
+      logger.info("New entity added: id={}", row.id);
+      return null;
+    });
+  }
+
+  @Override
+  public Book read(long id) throws DaoException {
+    return store.read(() -> {
+      BookRow row = store.books.get(id);
+      return row == null ? null : store.book(row);
+    });
+  }
+
+  @Override
+  public ReadResult<Book> readAll(Collection<Long> ids) throws DaoException {
+    return store.read(() -> {
+      List<Book> found = new ArrayList<>();
+      for (long id: ids) {
+        BookRow row = store.books.get(id);
+        if (row != null) {
+          found.add(store.book(row));
+        }
+      }
+      return ReadResult.of(ids, found);
+    });
+  }
+
+  @Override
+  public void update(Book book) throws DaoException {
+    store.write(() -> {
+      store.updateBook(book);
+      return null;
+    });
+  }
+
+  @Override
+  public void delete(long id) throws DaoException {
+    store.write(() -> {
+      BookRow row = store.books.get(id);
+      if (row == null) {
+        return null;
+      }
+      for (BookingRow booking: store.bookings.values()) {
+        for (long bookId: booking.bookIds) {
+          if (bookId == id) {
+            throw new DaoException("Cannot delete book " + id + ", it is referenced by booking " + booking.id);
+          }
+        }
+      }
+      store.removeBook(id);
+      return null;
+    });
+  }
+
+  @Override
+  public List<Book> getBooksInBooking(long id) throws DaoException {
+    return store.read(() -> {
+      BookingRow booking = store.bookings.get(id);
+      List<Book> list = new ArrayList<>();
+      if (booking != null) {
+        for (long bookId: booking.bookIds) {
+          list.add(store.book(store.books.get(bookId)));
+        }
+      }
+      return list;
+    });
+  }
+
+  @Override
+  public List<Book> findByPattern(String what, String searchBy, String sortBy, int num, int page)
+      throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    validColumns.checkSort(sortBy);
+
+    return store.read(() -> {
+      Map<BookRow, String> found = search(searchBy, value -> MemoryStore.like(value, what));
+      List<BookRow> rows = new ArrayList<>(found.keySet());
+      rows.sort(order(sortBy, found));
+      return toBooks(MemoryStore.page(rows, num, page));
+    });
+  }
+
+  @Override
+  public int findByPatternCount(String what, String searchBy) throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    return store.read(() -> search(searchBy, value -> MemoryStore.like(value, what)).size());
+  }
+
+  @Override
+  public List<Book> findBy(String what, String searchBy) throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+
+    return store.read(() -> {
+      List<BookRow> rows = new ArrayList<>(search(searchBy, what::equals).keySet());
+      rows.sort(Comparator.comparingLong(b -> b.id));
+      return toBooks(rows);
+    });
+  }
+
+  /**
+   * @return found books with authors and first (in order of names) matching author name of each one. Name is
+   * needed for sorting by author as JOIN of SQL DAO gives row for every matching name.
+   */
+  private Map<BookRow, String> search(String searchBy, Predicate<String> condition) {
+    Map<BookRow, String> found = new HashMap<>();
+    for (BookRow book: store.books.values()) {
+      String authorName = null;
+      for (long authorId: book.authorIds) {
+        AuthorRow author = store.authors.get(authorId);
+        if (author == null) {
+          continue;
+        }
+        for (String name: author.names) {
+          boolean matches = !searchBy.equals(AUTHOR_COL) || condition.test(name);
+          if (matches && (authorName == null || name.compareToIgnoreCase(authorName) < 0)) {
+            authorName = name;
+          }
+        }
+      }
+      if (authorName != null && (searchBy.equals(AUTHOR_COL) || condition.test(column(book, searchBy)))) {
+        found.put(book, authorName);
+      }
+    }
+    return found;
+  }
+
+  private static String column(BookRow book, String name) {
+    switch (name) {
+      case "title":
+        return book.title;
+      case "isbn":
+        return book.isbn;
+      default:
+        return String.valueOf(book.year);
+    }
+  }
+
+  private static Comparator<BookRow> order(String sortBy, Map<BookRow, String> authorNames) {
+    Comparator<BookRow> order;
+    switch (sortBy) {
+      case "year":
+        order = Comparator.comparingInt(b -> b.year);
+        break;
+      case AUTHOR_COL:
+        order = Comparator.comparing(authorNames::get, String.CASE_INSENSITIVE_ORDER);
+        break;
+      default:
+        order = Comparator.comparing(b -> column(b, sortBy), Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    }
+    return order.thenComparingLong(b -> b.id);
+  }
+
+  private List<Book> toBooks(List<BookRow> rows) {
+    List<Book> list = new ArrayList<>(rows.size());
+    for (BookRow row: rows) {
+      list.add(store.book(row));
+    }
+    return list;
+  }
+}
@@ -0,0 +1,298 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.connection.SearchSortColumn;
+import library.model.dao.BookingDao;
+import library.model.dao.ReadResult;
+import library.model.dao.memory.MemoryStore.BookingRow;
+import library.model.dto.BookingListItem;
+import library.model.entities.Book;
+import library.model.entities.Booking;
+import library.model.entities.Lang;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory booking DAO, searches and sorts as {@link library.model.dao.impl.BookingDaoImpl}. NEW bookings are
+ * drafts of user baskets and aren't found by search.
+ */
+public class BookingMemoryDao implements BookingDao {
+  private static final Logger logger = LogManager.getLogger(BookingMemoryDao.class);
+  private static final String BOOKING_STATE_COL = "state";
+  private static final String BOOKING_LOCATED_COL = "located";
+  private static final SearchSortColumn validColumns =
+      new SearchSortColumn("email", "name", BOOKING_STATE_COL, BOOKING_LOCATED_COL);
+  private final MemoryStore store;
+
+  public BookingMemoryDao(MemoryStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public void create(Booking booking) throws DaoException {
+    store.write(() -> {
+      insert(row(store.nextBookingId(), booking), booking);
+      return null;
+    });
+  }
+
+  @Override
+  public void createFromDraft(Booking booking) throws DaoException {
+    store.write(() -> {
+      // checked before the draft is gone
+      BookingRow row = row(store.nextBookingId(), booking);
+      BookingRow draft = draft(row.userId);
+      if (draft != null) {
+        store.removeBooking(draft.id);
+      }
+      insert(row, booking);
+      return null;
+    });
+  }
+
+  private void insert(BookingRow row, Booking booking) throws DaoException {
+    store.putBooking(row);
+    booking.setId(row.id);
+    // stats of booked books are changed by logic
+    updateBooks(booking);
+    logger.info("New entity added: id={}", row.id);
+  }
+
+  @Override
+  public Booking read(long id) throws DaoException {
+    return store.read(() -> {
+      BookingRow row = store.bookings.get(id);
+      return row == null ? null : store.booking(row);
+    });
+  }
+
+  @Override
+  public ReadResult<Booking> readAll(Collection<Long> ids) throws DaoException {
+    return store.read(() -> {
+      List<Booking> found = new ArrayList<>();
+      for (long id: ids) {
+        BookingRow row = store.bookings.get(id);
+        if (row != null) {
+          found.add(store.booking(row));
+        }
+      }
+      return ReadResult.of(ids, found);
+    });
+  }
+
+  @Override
+  public void update(Booking booking) throws DaoException {
+    store.write(() -> {
+      if (store.bookings.containsKey(booking.getId())) {
+        store.putBooking(row(booking.getId(), booking));
+        updateBooks(booking);
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void delete(long id) {
+    throw new UnsupportedOperationException("not yet supported");
+  }
+
+  @Override
+  public List<Booking> findDeliveredByUserID(long id) throws DaoException {
+    return store.read(() -> {
+      List<BookingRow> found = new ArrayList<>();
+      for (BookingRow row: store.bookingsOfUser(id)) {
+        if (row.state == Booking.State.DELIVERED) {
+          found.add(row);
+        }
+      }
+      return toBookings(sorted(found, Comparator.comparingLong(b -> b.id)));
+    });
+  }
+
+  @Override
+  public List<Booking> findDeliveredByUserIdRange(long from, long to) throws DaoException {
+    return store.read(() -> {
+      List<BookingRow> found = store.bookingsByState.get(Booking.State.DELIVERED).values();
+      found.removeIf(b -> b.userId < from || b.userId >= to);
+      return toBookings(sorted(found, Comparator.comparingLong(b -> b.id)));
+    });
+  }
+
+  @Override
+  public List<Booking> findByStateModifiedBefore(Booking.State state, Calendar before) throws DaoException {
+    return store.read(() -> {
+      List<BookingRow> found = store.bookingsByState.get(state).values();
+      found.removeIf(b -> b.modified >= before.getTimeInMillis());
+      return toBookings(sorted(found, Comparator.comparingLong(b -> b.id)));
+    });
+  }
+
+  @Override
+  public List<Long> findDraftBookIDs(long userId) throws DaoException {
+    return store.read(() -> {
+      List<Long> bookIds = new ArrayList<>();
+      BookingRow draft = draft(userId);
+      if (draft != null) {
+        for (long id: draft.bookIds) {
+          bookIds.add(id);
+        }
+      }
+      return bookIds;
+    });
+  }
+
+  @Override
+  public void saveDraft(long userId, List<Long> bookIds) throws DaoException {
+    logger.debug("start");
+    store.write(() -> {
+      BookingRow draft = draft(userId);
+      if (bookIds.isEmpty()) {
+        if (draft != null) {
+          store.removeBooking(draft.id);
+        }
+        return null;
+      }
+      long id = draft != null ? draft.id : store.nextBookingId();
+      store.putBooking(new BookingRow(id, userId, Booking.State.NEW, Booking.Place.LIBRARY,
+          System.currentTimeMillis(), bookIds.stream().mapToLong(Long::longValue).toArray()));
+      return null;
+    });
+  }
+
+  @Override
+  public List<Booking> findByPattern(String what, String searchBy, String sortBy, int num, int page)
+      throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    validColumns.checkSort(sortBy);
+
+    return store.read(() -> {
+      List<BookingRow> found = search(searchBy, value -> MemoryStore.like(value, what));
+      return toBookings(MemoryStore.page(sorted(found, order(sortBy)), num, page));
+    });
+  }
+
+  @Override
+  public int findByPatternCount(String what, String searchBy) throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    return store.read(() -> search(searchBy, value -> MemoryStore.like(value, what)).size());
+  }
+
+  @Override
+  public List<Booking> findBy(String what, String searchBy) throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    return store.read(() -> {
+      List<BookingRow> found = search(searchBy, what::equals);
+      return toBookings(sorted(found, Comparator.comparingLong(b -> b.id)));
+    });
+  }
+
+  @Override
+  public List<BookingListItem> findItemsByPattern(String what, String searchBy, String sortBy, int num, int page,
+                                                  Lang lang) throws ServiceException, DaoException {
+    return toItems(findByPattern(what, searchBy, sortBy, num, page), lang);
+  }
+
+  @Override
+  public List<BookingListItem> findItemsBy(String what, String searchBy, Lang lang)
+      throws ServiceException, DaoException {
+    return toItems(findBy(what, searchBy), lang);
+  }
+
+  private static List<BookingListItem> toItems(List<Booking> bookings, Lang lang) {
+    List<BookingListItem> items = new ArrayList<>(bookings.size());
+    for (Booking booking: bookings) {
+      items.add(BookingListItem.of(booking, lang));
+    }
+    return items;
+  }
+
+  private BookingRow draft(long userId) {
+    for (BookingRow row: store.bookingsOfUser(userId)) {
+      if (row.state == Booking.State.NEW) {
+        return row;
+      }
+    }
+    return null;
+  }
+
+  private List<BookingRow> search(String searchBy, Predicate<String> condition) {
+    Function<BookingRow, String> column = column(searchBy);
+    List<BookingRow> found = new ArrayList<>();
+    for (BookingRow row: store.bookings.values()) {
+      if (row.state != Booking.State.NEW && condition.test(column.apply(row))) {
+        found.add(row);
+      }
+    }
+    return found;
+  }
+
+  private Function<BookingRow, String> column(String name) {
+    switch (name) {
+      case "email":
+        return b -> store.users.get(b.userId).email;
+      case "name":
+        return b -> store.users.get(b.userId).name;
+      case BOOKING_STATE_COL:
+        return b -> b.state.name();
+      default:
+        return b -> b.located.name();
+    }
+  }
+
+  private Comparator<BookingRow> order(String sortBy) {
+    Comparator<BookingRow> order;
+    switch (sortBy) {
+      case BOOKING_STATE_COL:
+        order = Comparator.comparing(b -> b.state.name());
+        break;
+      case BOOKING_LOCATED_COL:
+        order = Comparator.comparing(b -> b.located.name());
+        break;
+      default:
+        order = Comparator.comparing(column(sortBy), Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    }
+    return order.thenComparingLong(b -> b.id);
+  }
+
+  private static BookingRow row(long id, Booking booking) throws DaoException {
+    if (booking.getUser() == null) {
+      throw new DaoException("user field cannot be null");
+    }
+    if (booking.getModified() == null) {
+      throw new DaoException("modified field cannot be null");
+    }
+    List<Book> books = booking.getBooks() == null ? new ArrayList<>() : booking.getBooks();
+    return new BookingRow(id, booking.getUser().getId(), booking.getState(), booking.getLocated(),
+        booking.getModified().getTimeInMillis(), books.stream().mapToLong(Book::getId).distinct().toArray());
+  }
+
+  private void updateBooks(Booking booking) throws DaoException {
+    if (booking.getBooks() != null) {
+      for (Book book: booking.getBooks()) {
+        store.updateBook(book);
+      }
+    }
+  }
+
+  private static List<BookingRow> sorted(List<BookingRow> rows, Comparator<BookingRow> order) {
+    rows.sort(order);
+    return rows;
+  }
+
+  private List<Booking> toBookings(List<BookingRow> rows) {
+    List<Booking> list = new ArrayList<>(rows.size());
+    for (BookingRow row: rows) {
+      list.add(store.booking(row));
+    }
+    return list;
+  }
+}
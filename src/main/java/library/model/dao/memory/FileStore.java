@@ -0,0 +1,551 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent {@link MemoryStore}: tables are kept in memory as there, every write section is appended to log file as
+ * one frame and forced to disk before lock is released, so a change of several tables (booking and stats of its
+ * books) survives crash completely or not at all.
+ * <p>
+ * Log is {@code [magic, version, generation]} header and frames {@code [length, crc32, records]}, record is
+ * {@code [table, op, id, row]}. Each table has {@link MappedIndex} with offset of the latest frame of every row, so
+ * start reads live rows only and replays frames after the last checkpoint of indexes. Frame with wrong length or CRC
+ * is unfinished write of crash, log is cut before it. When log is more than twice as large as live rows, it's
+ * rewritten to new generation (compaction), indexes of old generation aren't trusted.
+ * <p>
+ * Task leases and checkpoints aren't logged: store is used by one process, interrupted task starts over after restart.
+ */
+public class FileStore extends MemoryStore implements Closeable {
+  private static final Logger logger = LogManager.getLogger(FileStore.class);
+  /**
+   * System property with directory of files, {@value #DEFAULT_DIR} by default
+   */
+  public static final String PROPERTY_DIR = "library.dao.file.dir";
+  private static final String DEFAULT_DIR = "data";
+  static final String LOG_FILE = "library.log";
+  static final String COMPACT_FILE = LOG_FILE + ".compact";
+  private static final int MAGIC = 0x4C49424C;
+  private static final int VERSION = 1;
+  private static final int LOG_HEADER = 16;
+  private static final int FRAME_HEADER = 8;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 0;
+  private static final int COMPACT_FRAME_BYTES = 64 * 1024;
+  private static final int CHECKPOINT_FRAMES = 1000;
+  private static final long COMPACT_MIN_BYTES = 1 << 20;
+  private final File dir;
+  private final Map<Table, MappedIndex> indexes = new EnumMap<>(Table.class);
+  private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private final DataOutputStream pendingOut = new DataOutputStream(pending);
+  private final List<Record> pendingRecords = new ArrayList<>();
+  private FileChannel log;
+  private long generation;
+  private long logLength;
+  private long loggedRecords;
+  private int framesSinceCheckpoint;
+
+  private static class Holder {
+    private static final FileStore INSTANCE = open();
+
+    private static FileStore open() {
+      File dir = new File(System.getProperty(PROPERTY_DIR, DEFAULT_DIR));
+      try {
+        FileStore store = new FileStore(dir, "en", "uk");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+          try {
+            store.close();
+          } catch (IOException e) {
+            logger.error("Unable to close storage: {}", e.getMessage());
+          }
+        }));
+        return store;
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to open storage in " + dir.getAbsolutePath(), e);
+      }
+    }
+  }
+
+  /**
+   * @return store shared by all file DAOs of application
+   */
+  public static FileStore getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  /**
+   * Opens storage, data of previous run is loaded
+   *
+   * @param dir directory of files, created if it doesn't exist
+   * @param langCodes codes of langs, which are created with ids from 1
+   */
+  public FileStore(File dir, String... langCodes) throws IOException {
+    super(langCodes);
+    this.dir = dir;
+    Files.createDirectories(dir.toPath());
+    // compaction was interrupted, old log is complete
+    Files.deleteIfExists(new File(dir, COMPACT_FILE).toPath());
+
+    log = FileChannel.open(logPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (log.size() < LOG_HEADER) {
+      log.truncate(0);
+      generation = 1;
+      writeHeader(log, generation);
+      log.force(true);
+    } else {
+      ByteBuffer header = read(log, 0, LOG_HEADER);
+      if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+        throw new IOException(logPath() + " is not a log of supported version");
+      }
+      generation = header.getLong();
+    }
+    logLength = log.size();
+    for (Table table: Table.values()) {
+      indexes.put(table, new MappedIndex(new File(dir, table.name().toLowerCase() + ".idx")));
+    }
+    recover();
+  }
+
+  @Override
+  <T> T write(Action<T> action) throws DaoException {
+    return super.write(() -> {
+      try {
+        return action.apply();
+      } finally {
+        // memory isn't rolled back, so disk follows it even if action failed half-way
+        commit();
+      }
+    });
+  }
+
+  @Override
+  void saved(Table table, long id, Row row) {
+    append(new Record(table, id, row));
+  }
+
+  @Override
+  void removed(Table table, long id) {
+    append(new Record(table, id, null));
+  }
+
+  /**
+   * Rewrites log with live rows only
+   */
+  public void compact() throws DaoException {
+    super.write(() -> {
+      try {
+        compactLog();
+      } catch (IOException e) {
+        throw new DaoException("Unable to compact " + logPath(), e);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Checkpoints indexes and closes files, so next start reads no frames twice
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      super.write(() -> {
+        try {
+          if (log.isOpen()) {
+            checkpoint();
+            for (MappedIndex index: indexes.values()) {
+              index.close();
+            }
+            log.close();
+          }
+        } catch (IOException e) {
+          throw new DaoException("Unable to close " + logPath(), e);
+        }
+        return null;
+      });
+    } catch (DaoException e) {
+      throw new IOException(e.getMessage(), e.getCause());
+    }
+  }
+
+  /**
+   * @return current size of log file
+   */
+  long logLength() {
+    return logLength;
+  }
+
+  private void recover() throws IOException {
+    long from = LOG_HEADER;
+    boolean indexed = true;
+    for (MappedIndex index: indexes.values()) {
+      indexed &= index.isValid(generation, logLength);
+    }
+    if (indexed) {
+      from = indexes.values().stream().mapToLong(MappedIndex::covered).min().orElse(LOG_HEADER);
+      List<Record> rows = readIndexed();
+      if (rows == null) {
+        logger.warn("Indexes of {} don't match it, log is replayed", logPath());
+        from = LOG_HEADER;
+      } else {
+        for (Record record: rows) {
+          restore(record.table, record.id, record.row);
+        }
+        loggedRecords = rows.size();
+      }
+    }
+    if (from == LOG_HEADER) {
+      for (MappedIndex index: indexes.values()) {
+        index.clear();
+      }
+    }
+
+    long offset = from;
+    while (offset < logLength) {
+      List<Record> frame = readFrame(offset);
+      if (frame == null) {
+        logger.warn("{} is cut at {}, {} bytes of unfinished write are dropped",
+            logPath(), offset, logLength - offset);
+        log.truncate(offset);
+        log.force(true);
+        logLength = offset;
+        break;
+      }
+      for (Record record: frame) {
+        restore(record.table, record.id, record.row);
+        indexes.get(record.table).put(record.id, record.row == null ? 0 : offset);
+      }
+      loggedRecords += frame.size();
+      offset += FRAME_HEADER + frameLength(offset);
+    }
+    restoreSequences();
+    checkpoint();
+    logger.info("{} is loaded: {} rows, {} bytes", logPath(), liveRecords(), logLength);
+  }
+
+  /**
+   * @return rows of indexes, null if some slot doesn't point to frame with the row
+   */
+  private List<Record> readIndexed() throws IOException {
+    List<Record> rows = new ArrayList<>();
+    long frameOffset = 0;
+    List<Record> frame = null;
+    for (Table table: Table.values()) {
+      MappedIndex index = indexes.get(table);
+      for (long id = 0; id < index.slots(); id++) {
+        long offset = index.get(id);
+        if (offset == 0) {
+          continue;
+        }
+        if (offset != frameOffset) {
+          // rows of one frame have near ids, so last frame is cached
+          frameOffset = offset;
+          frame = offset < LOG_HEADER || offset >= logLength ? null : readFrame(offset);
+        }
+        Record found = frame == null ? null : last(frame, table, id);
+        if (found == null || found.row == null) {
+          return null;
+        }
+        rows.add(found);
+      }
+    }
+    return rows;
+  }
+
+  private static Record last(List<Record> frame, Table table, long id) {
+    for (int i = frame.size() - 1; i >= 0; i--) {
+      Record record = frame.get(i);
+      if (record.table == table && record.id == id) {
+        return record;
+      }
+    }
+    return null;
+  }
+
+  private void append(Record record) {
+    try {
+      pendingOut.writeByte(record.table.ordinal());
+      pendingOut.writeByte(record.row == null ? REMOVE : PUT);
+      pendingOut.writeLong(record.id);
+      if (record.row != null) {
+        record.row.write(pendingOut);
+      }
+    } catch (IOException e) {
+      // writes to memory
+      throw new IllegalStateException(e);
+    }
+    pendingRecords.add(record);
+  }
+
+  /**
+   * Writes pending records as one frame
+   */
+  private void commit() throws DaoException {
+    if (pendingRecords.isEmpty()) {
+      return;
+    }
+    byte[] payload = pending.toByteArray();
+    pending.reset();
+    long offset = logLength;
+    try {
+      write(log, offset, frame(payload));
+      log.force(false);
+    } catch (IOException e) {
+      pendingRecords.clear();
+      try {
+        log.truncate(offset);
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw new DaoException("Unable to write " + logPath(), e);
+    }
+    logLength = offset + FRAME_HEADER + payload.length;
+    loggedRecords += pendingRecords.size();
+    try {
+      for (Record record: pendingRecords) {
+        indexes.get(record.table).put(record.id, record.row == null ? 0 : offset);
+      }
+      pendingRecords.clear();
+      if (++framesSinceCheckpoint >= CHECKPOINT_FRAMES) {
+        checkpoint();
+      }
+      if (logLength > COMPACT_MIN_BYTES && loggedRecords > 2 * liveRecords()) {
+        compactLog();
+      }
+    } catch (IOException e) {
+      // frame is on disk, index is replayed from log at next start
+      pendingRecords.clear();
+      logger.error("Unable to update indexes of {}: {}", logPath(), e.getMessage());
+    }
+  }
+
+  private void checkpoint() {
+    for (MappedIndex index: indexes.values()) {
+      index.checkpoint(generation, logLength);
+    }
+    framesSinceCheckpoint = 0;
+  }
+
+  private void compactLog() throws IOException {
+    logger.debug("start");
+    long before = logLength;
+    Path compacted = new File(dir, COMPACT_FILE).toPath();
+    Map<Table, long[]> ids = new EnumMap<>(Table.class);
+    Map<Table, long[]> offsets = new EnumMap<>(Table.class);
+    try (FileChannel out = FileChannel.open(compacted,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeHeader(out, generation + 1);
+      long offset = LOG_HEADER;
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      DataOutputStream data = new DataOutputStream(buffer);
+      for (Table table: Table.values()) {
+        long[] tableIds = keys(table);
+        long[] tableOffsets = new long[tableIds.length];
+        int first = 0;
+        for (int i = 0; i < tableIds.length; i++) {
+          data.writeByte(table.ordinal());
+          data.writeByte(PUT);
+          data.writeLong(tableIds[i]);
+          row(table, tableIds[i]).write(data);
+          if (buffer.size() >= COMPACT_FRAME_BYTES || i == tableIds.length - 1) {
+            byte[] payload = buffer.toByteArray();
+            buffer.reset();
+            write(out, offset, frame(payload));
+            Arrays.fill(tableOffsets, first, i + 1, offset);
+            offset += FRAME_HEADER + payload.length;
+            first = i + 1;
+          }
+        }
+        ids.put(table, tableIds);
+        offsets.put(table, tableOffsets);
+      }
+      out.force(true);
+    }
+
+    // indexes of old log mustn't be used with new one, if crash comes before new checkpoint
+    for (MappedIndex index: indexes.values()) {
+      index.invalidate();
+    }
+    try {
+      Files.move(compacted, logPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // old log and its slots are still in use
+      checkpoint();
+      throw e;
+    }
+    log.close();
+    log = FileChannel.open(logPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    generation++;
+    for (MappedIndex index: indexes.values()) {
+      index.clear();
+    }
+    logLength = log.size();
+    loggedRecords = liveRecords();
+    for (Table table: Table.values()) {
+      long[] tableIds = ids.get(table);
+      long[] tableOffsets = offsets.get(table);
+      for (int i = 0; i < tableIds.length; i++) {
+        indexes.get(table).put(tableIds[i], tableOffsets[i]);
+      }
+    }
+    checkpoint();
+    logger.info("{} is compacted from {} to {} bytes", logPath(), before, logLength);
+  }
+
+  private long[] keys(Table table) {
+    long[] keys;
+    switch (table) {
+      case AUTHOR:
+        keys = authors.keys();
+        break;
+      case USER:
+        keys = users.keys();
+        break;
+      case BOOK:
+        keys = books.keys();
+        break;
+      default:
+        keys = bookings.keys();
+    }
+    Arrays.sort(keys);
+    return keys;
+  }
+
+  private Row row(Table table, long id) {
+    switch (table) {
+      case AUTHOR:
+        return authors.get(id);
+      case USER:
+        return users.get(id);
+      case BOOK:
+        return books.get(id);
+      default:
+        return bookings.get(id);
+    }
+  }
+
+  private long liveRecords() {
+    return authors.size() + users.size() + books.size() + bookings.size();
+  }
+
+  /**
+   * @return records of frame, null if frame is incomplete or damaged
+   */
+  private List<Record> readFrame(long offset) throws IOException {
+    int length = frameLength(offset);
+    if (length <= 0 || offset + FRAME_HEADER + length > logLength) {
+      return null;
+    }
+    ByteBuffer header = read(log, offset, FRAME_HEADER);
+    header.getInt();
+    int crc = header.getInt();
+    byte[] payload = read(log, offset + FRAME_HEADER, length).array();
+    CRC32 actual = new CRC32();
+    actual.update(payload);
+    if ((int) actual.getValue() != crc) {
+      return null;
+    }
+
+    List<Record> records = new ArrayList<>();
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    try {
+      while (in.available() > 0) {
+        int tableIndex = in.readByte();
+        byte op = in.readByte();
+        long id = in.readLong();
+        if (tableIndex < 0 || tableIndex >= Table.values().length) {
+          return null;
+        }
+        Table table = Table.values()[tableIndex];
+        records.add(new Record(table, id, op == PUT ? readRow(table, id, in) : null));
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      // CRC matches, but frame can't be parsed
+      return null;
+    }
+    return records;
+  }
+
+  private int frameLength(long offset) throws IOException {
+    if (offset + FRAME_HEADER > logLength) {
+      return -1;
+    }
+    return read(log, offset, 4).getInt();
+  }
+
+  private Path logPath() {
+    return new File(dir, LOG_FILE).toPath();
+  }
+
+  private static ByteBuffer frame(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+    frame.putInt(payload.length);
+    frame.putInt((int) crc.getValue());
+    frame.put(payload);
+    frame.flip();
+    return frame;
+  }
+
+  private static void writeHeader(FileChannel channel, long generation) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(LOG_HEADER);
+    header.putInt(MAGIC);
+    header.putInt(VERSION);
+    header.putLong(generation);
+    header.flip();
+    write(channel, 0, header);
+  }
+
+  private static void write(FileChannel channel, long offset, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, offset + buffer.position());
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("unexpected end of file at " + (offset + buffer.position()));
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Change of row, row is null for removal
+   */
+  private static final class Record {
+    final Table table;
+    final long id;
+    final Row row;
+
+    Record(Table table, long id, Row row) {
+      this.table = table;
+      this.id = id;
+      this.row = row;
+    }
+  }
+}
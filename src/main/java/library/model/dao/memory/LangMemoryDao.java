@@ -0,0 +1,46 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.model.dao.LangDao;
+import library.model.entities.Lang;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory lang DAO
+ */
+public class LangMemoryDao implements LangDao {
+  private final MemoryStore store;
+
+  public LangMemoryDao(MemoryStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public List<Lang> getAll() throws DaoException {
+    return store.read(() -> {
+      long[] ids = store.langs.keys();
+      Arrays.sort(ids);
+      List<Lang> list = new ArrayList<>(ids.length);
+      for (long id: ids) {
+        list.add(store.lang(id));
+      }
+      return list;
+    });
+  }
+
+  @Override
+  public Lang read(long id) throws DaoException {
+    return store.read(() -> store.lang(id));
+  }
+
+  @Override
+  public Lang read(String code) throws DaoException {
+    return store.read(() -> {
+      Long id = store.langsByCode.get(code);
+      return id == null ? null : store.lang(id);
+    });
+  }
+}
@@ -0,0 +1,162 @@
+package library.model.dao.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash map with primitive long keys: open addressing with linear probing, so there are no boxed keys and no entry
+ * objects. Values can't be null. Not thread safe, {@link MemoryStore} guards it by its lock.
+ *
+ * @param <V> type of values
+ */
+class LongMap<V> {
+  private static final int MIN_CAPACITY = 16;
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+
+  LongMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize number of entries, which are put without resize
+   */
+  LongMap(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity * 3 / 4 < expectedSize) {
+      capacity <<= 1;
+    }
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(long key) {
+    for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return (V) values[i];
+      }
+    }
+    return null;
+  }
+
+  boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  /**
+   * @return previous value, null if there was no one
+   */
+  @SuppressWarnings("unchecked")
+  V put(long key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("null value of key " + key);
+    }
+    int i = slot(key);
+    for (; values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        V old = (V) values[i];
+        values[i] = value;
+        return old;
+      }
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size > values.length * 3 / 4) {
+      resize(values.length << 1);
+    }
+    return null;
+  }
+
+  /**
+   * @return removed value, null if there was no one
+   */
+  @SuppressWarnings("unchecked")
+  V remove(long key) {
+    int i = slot(key);
+    for (; values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        break;
+      }
+    }
+    if (values[i] == null) {
+      return null;
+    }
+    V old = (V) values[i];
+    // entries after the removed one are shifted back, so probing never stops at the gap
+    int gap = i;
+    for (int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+      int home = slot(keys[j]);
+      if (((j - home) & mask) >= ((j - gap) & mask)) {
+        keys[gap] = keys[j];
+        values[gap] = values[j];
+        gap = j;
+      }
+    }
+    values[gap] = null;
+    size--;
+    return old;
+  }
+
+  /**
+   * @return values in order of slots, which isn't order of keys
+   */
+  @SuppressWarnings("unchecked")
+  List<V> values() {
+    List<V> list = new ArrayList<>(size);
+    for (Object value: values) {
+      if (value != null) {
+        list.add((V) value);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * @return keys in order of slots
+   */
+  long[] keys() {
+    long[] list = new long[size];
+    int n = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        list[n++] = keys[i];
+      }
+    }
+    return list;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int j = slot(oldKeys[i]);
+        while (values[j] != null) {
+          j = (j + 1) & mask;
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  private int slot(long key) {
+    // Fibonacci hashing, sequential ids are spread over the table
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+  }
+}
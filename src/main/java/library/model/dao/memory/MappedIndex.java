@@ -0,0 +1,110 @@
+package library.model.dao.memory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped primary index of one table of {@link FileStore}: slot of id keeps offset of the latest log frame,
+ * which has row of the id, 0 means there is no row.
+ * <p>
+ * Slots are changed in mapped memory only, OS writes them back when it likes. Header tells which part of log is
+ * surely covered by slots: it is written by {@link #checkpoint(long, long)} after slots are forced to disk.
+ */
+class MappedIndex implements Closeable {
+  private static final int MAGIC = 0x4C494249;
+  private static final int HEADER = 24;
+  private static final int MIN_SLOTS = 1024;
+  private final FileChannel channel;
+  private MappedByteBuffer map;
+
+  MappedIndex(File file) throws IOException {
+    channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long size = Math.max(channel.size(), HEADER + MIN_SLOTS * 8L);
+    map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  /**
+   * @return true if index was checkpointed for log of given generation and length not less than covered part
+   */
+  boolean isValid(long generation, long logLength) {
+    return map.getInt(0) == MAGIC && map.getLong(8) == generation && covered() <= logLength;
+  }
+
+  /**
+   * @return length of log, which slots are complete for
+   */
+  long covered() {
+    return map.getLong(16);
+  }
+
+  /**
+   * @return number of slots, ids are less than it
+   */
+  long slots() {
+    return (map.capacity() - HEADER) / 8;
+  }
+
+  long get(long id) {
+    return id >= 0 && id < slots() ? map.getLong(slot(id)) : 0;
+  }
+
+  void put(long id, long frameOffset) throws IOException {
+    if (id >= slots()) {
+      if (frameOffset == 0) {
+        return;
+      }
+      long slots = slots();
+      while (slots <= id) {
+        slots <<= 1;
+      }
+      if (HEADER + slots * 8 > Integer.MAX_VALUE) {
+        throw new IOException("id " + id + " is too large for index");
+      }
+      map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + slots * 8);
+    }
+    map.putLong(slot(id), frameOffset);
+  }
+
+  /**
+   * Clears all slots and makes index invalid till next checkpoint
+   */
+  void clear() {
+    invalidate();
+    for (int i = HEADER; i < map.capacity(); i += 8) {
+      map.putLong(i, 0);
+    }
+  }
+
+  /**
+   * Marks index as invalid on disk, so it isn't trusted after crash
+   */
+  void invalidate() {
+    map.putInt(0, 0);
+    map.force();
+  }
+
+  /**
+   * Forces slots to disk and then marks them as complete for log of given generation and length
+   */
+  void checkpoint(long generation, long logLength) {
+    map.force();
+    map.putLong(8, generation);
+    map.putLong(16, logLength);
+    map.putInt(0, MAGIC);
+    map.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private static int slot(long id) {
+    return (int) (HEADER + id * 8);
+  }
+}
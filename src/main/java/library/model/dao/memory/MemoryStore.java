@@ -0,0 +1,780 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.I18AuthorName;
+import library.model.entities.Lang;
+import library.model.entities.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Tables of in-memory storage. Rows are immutable and keyed by primitive ids ({@link LongMap}), a change replaces
+ * the row. Secondary indexes: users by email, books by ISBN, bookings by state and by user.
+ * <p>
+ * Every DAO call runs as one {@link #read(Action)} or {@link #write(Action)} under lock of the whole store, so read
+ * sees all tables in the same state and never sees half of other change. Entities are built anew on every read,
+ * changes of returned entity don't touch the store. Langs {@code en} and {@code uk} are created by
+ * {@link #getInstance()}, other stores start empty.
+ * <p>
+ * Every change of entity table is reported to {@link #saved(Table, long, Row)} or {@link #removed(Table, long)},
+ * {@link FileStore} persists them.
+ */
+public class MemoryStore {
+  final LongMap<String> langs = new LongMap<>();
+  final Map<String, Long> langsByCode = new HashMap<>();
+  final LongMap<UserRow> users = new LongMap<>();
+  final Map<String, Long> usersByEmail = new HashMap<>();
+  final LongMap<BookRow> books = new LongMap<>();
+  final Map<String, Long> booksByIsbn = new HashMap<>();
+  final LongMap<AuthorRow> authors = new LongMap<>();
+  final LongMap<BookingRow> bookings = new LongMap<>();
+  final Map<Booking.State, LongMap<BookingRow>> bookingsByState = new EnumMap<>(Booking.State.class);
+  final LongMap<LongMap<BookingRow>> bookingsByUser = new LongMap<>();
+  final Map<String, LeaseRow> leases = new HashMap<>();
+  final Map<String, LongMap<Long>> checkpoints = new HashMap<>();
+  private final StampedLock lock = new StampedLock();
+  private long langSequence;
+  private long userSequence;
+  private long bookSequence;
+  private long authorSequence;
+  private long bookingSequence;
+
+  private static class Holder {
+    private static final MemoryStore INSTANCE = new MemoryStore("en", "uk");
+  }
+
+  /**
+   * @return store shared by all in-memory DAOs of application
+   */
+  public static MemoryStore getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  /**
+   * @param langCodes codes of langs, which are created with ids from 1
+   */
+  public MemoryStore(String... langCodes) {
+    for (Booking.State state: Booking.State.values()) {
+      bookingsByState.put(state, new LongMap<>());
+    }
+    for (String code: langCodes) {
+      long id = ++langSequence;
+      langs.put(id, code);
+      langsByCode.put(code, id);
+    }
+  }
+
+  /**
+   * Action on tables, which is done under lock
+   */
+  @FunctionalInterface
+  interface Action<T> {
+    T apply() throws DaoException;
+  }
+
+  <T> T read(Action<T> action) throws DaoException {
+    long stamp = lock.readLock();
+    try {
+      return action.apply();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  <T> T write(Action<T> action) throws DaoException {
+    long stamp = lock.writeLock();
+    try {
+      return action.apply();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  long nextUserId() {
+    return ++userSequence;
+  }
+
+  long maxUserId() {
+    return userSequence;
+  }
+
+  long nextBookId() {
+    return ++bookSequence;
+  }
+
+  long nextAuthorId() {
+    return ++authorSequence;
+  }
+
+  long nextBookingId() {
+    return ++bookingSequence;
+  }
+
+  /**
+   * Sets sequences after the largest ids of tables, as AUTO_INCREMENT of InnoDB does after restart
+   */
+  void restoreSequences() {
+    userSequence = maxKey(users);
+    bookSequence = maxKey(books);
+    authorSequence = maxKey(authors);
+    bookingSequence = maxKey(bookings);
+  }
+
+  private static long maxKey(LongMap<?> map) {
+    long max = 0;
+    for (long key: map.keys()) {
+      max = Math.max(max, key);
+    }
+    return max;
+  }
+
+  // ---- changes
+
+  /**
+   * Tables of entities. Order of constants is order of loading.
+   */
+  enum Table { AUTHOR, USER, BOOK, BOOKING }
+
+  /**
+   * Row of entity table
+   */
+  interface Row {
+    void write(DataOutput out) throws IOException;
+  }
+
+  /**
+   * Called under write lock after row is put to table
+   */
+  void saved(Table table, long id, Row row) {
+  }
+
+  /**
+   * Called under write lock after row is removed from table
+   */
+  void removed(Table table, long id) {
+  }
+
+  /**
+   * Puts row loaded from storage or removes it, if row is null. Constraints aren't checked, state is valid after
+   * all rows are restored only.
+   */
+  void restore(Table table, long id, Row row) {
+    switch (table) {
+      case AUTHOR:
+        if (row == null) {
+          authors.remove(id);
+        } else {
+          authors.put(id, (AuthorRow) row);
+        }
+        break;
+      case USER:
+        if (row != null) {
+          indexUser((UserRow) row);
+        }
+        break;
+      case BOOK:
+        if (row == null) {
+          unindexBook(id);
+        } else {
+          indexBook((BookRow) row);
+        }
+        break;
+      default:
+        if (row == null) {
+          unindexBooking(id);
+        } else {
+          indexBooking((BookingRow) row);
+        }
+    }
+  }
+
+  Row readRow(Table table, long id, DataInput in) throws IOException {
+    switch (table) {
+      case AUTHOR:
+        return new AuthorRow(id, in);
+      case USER:
+        return new UserRow(id, in);
+      case BOOK:
+        return new BookRow(id, in);
+      default:
+        return new BookingRow(id, in);
+    }
+  }
+
+  // ---- users
+
+  static final class UserRow implements Row {
+    final long id;
+    final String email;
+    final String password;
+    final User.Role role;
+    final User.State state;
+    final double fine;
+    final String name;
+    final long langId;
+    final long modified;
+    final long fineLastChecked;
+
+    UserRow(long id, User user) throws DaoException {
+      if (user.getPreferredLang() == null) {
+        throw new DaoException("Preferred lang is null");
+      }
+      if (user.getModified() == null) {
+        throw new DaoException("Modified time is null");
+      }
+      if (user.getFineLastChecked() == null) {
+        throw new DaoException("fineLastChecked time is null");
+      }
+      this.id = id;
+      this.email = user.getEmail();
+      this.password = user.getPassword();
+      this.role = user.getRole();
+      this.state = user.getState();
+      this.fine = user.getFine();
+      this.name = user.getName();
+      this.langId = user.getPreferredLang().getId();
+      this.modified = user.getModified().getTimeInMillis();
+      this.fineLastChecked = user.getFineLastChecked().getTimeInMillis();
+    }
+
+    UserRow(long id, DataInput in) throws IOException {
+      this.id = id;
+      this.email = readString(in);
+      this.password = readString(in);
+      this.role = readEnum(in, User.Role.class);
+      this.state = readEnum(in, User.State.class);
+      this.fine = in.readDouble();
+      this.name = readString(in);
+      this.langId = in.readLong();
+      this.modified = in.readLong();
+      this.fineLastChecked = in.readLong();
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      writeString(out, email);
+      writeString(out, password);
+      writeEnum(out, role);
+      writeEnum(out, state);
+      out.writeDouble(fine);
+      writeString(out, name);
+      out.writeLong(langId);
+      out.writeLong(modified);
+      out.writeLong(fineLastChecked);
+    }
+  }
+
+  /**
+   * Puts new or changed user and keeps email index
+   */
+  void putUser(UserRow row) throws DaoException {
+    Long owner = usersByEmail.get(row.email);
+    if (owner != null && owner != row.id) {
+      throw new DaoException("Duplicate entry '" + row.email + "' for key 'email'");
+    }
+    checkLang(row.langId);
+    indexUser(row);
+    saved(Table.USER, row.id, row);
+  }
+
+  private void indexUser(UserRow row) {
+    UserRow old = users.put(row.id, row);
+    if (old != null && !old.email.equals(row.email)) {
+      usersByEmail.remove(old.email, row.id);
+    }
+    usersByEmail.put(row.email, row.id);
+  }
+
+  User user(UserRow row) {
+    return new User.Builder()
+        .setId(row.id)
+        .setEmail(row.email)
+        .setName(row.name)
+        .setPassword(row.password)
+        .setRole(row.role)
+        .setState(row.state)
+        .setFine(row.fine)
+        .setFineLastChecked(calendar(row.fineLastChecked))
+        .setModified(calendar(row.modified))
+        .setPreferredLang(lang(row.langId))
+        .build();
+  }
+
+  // ---- langs
+
+  Lang lang(long id) {
+    String code = langs.get(id);
+    return code == null ? null : new Lang.Builder().setId(id).setCode(code).build();
+  }
+
+  private void checkLang(long id) throws DaoException {
+    if (!langs.containsKey(id)) {
+      throw new DaoException("no lang with id " + id);
+    }
+  }
+
+  // ---- books
+
+  static final class BookRow implements Row {
+    final long id;
+    final String title;
+    final String isbn;
+    final int year;
+    final String langCode;
+    final int keepPeriod;
+    final long modified;
+    final long total;
+    final long inStock;
+    final long reserved;
+    final long timesWasBooked;
+    final long[] authorIds;
+
+    BookRow(long id, Book book, BookStat stat) throws DaoException {
+      if (book.getModified() == null) {
+        throw new DaoException("modified field is null");
+      }
+      this.id = id;
+      this.title = book.getTitle();
+      this.isbn = book.getIsbn();
+      this.year = book.getYear();
+      this.langCode = book.getLangCode();
+      this.keepPeriod = book.getKeepPeriod();
+      this.modified = book.getModified().getTimeInMillis();
+      this.total = stat.getTotal();
+      this.inStock = stat.getInStock();
+      this.reserved = stat.getReserved();
+      this.timesWasBooked = stat.getTimesWasBooked();
+      List<Author> list = book.getAuthors() == null ? new ArrayList<>() : book.getAuthors();
+      this.authorIds = list.stream().mapToLong(Author::getId).distinct().toArray();
+    }
+
+    private BookRow(BookRow row, long[] authorIds) {
+      this.id = row.id;
+      this.title = row.title;
+      this.isbn = row.isbn;
+      this.year = row.year;
+      this.langCode = row.langCode;
+      this.keepPeriod = row.keepPeriod;
+      this.modified = row.modified;
+      this.total = row.total;
+      this.inStock = row.inStock;
+      this.reserved = row.reserved;
+      this.timesWasBooked = row.timesWasBooked;
+      this.authorIds = authorIds;
+    }
+
+    BookRow(long id, DataInput in) throws IOException {
+      this.id = id;
+      this.title = readString(in);
+      this.isbn = readString(in);
+      this.year = in.readInt();
+      this.langCode = readString(in);
+      this.keepPeriod = in.readInt();
+      this.modified = in.readLong();
+      this.total = in.readLong();
+      this.inStock = in.readLong();
+      this.reserved = in.readLong();
+      this.timesWasBooked = in.readLong();
+      this.authorIds = readLongs(in);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      writeString(out, title);
+      writeString(out, isbn);
+      out.writeInt(year);
+      writeString(out, langCode);
+      out.writeInt(keepPeriod);
+      out.writeLong(modified);
+      out.writeLong(total);
+      out.writeLong(inStock);
+      out.writeLong(reserved);
+      out.writeLong(timesWasBooked);
+      writeLongs(out, authorIds);
+    }
+
+    BookRow withoutAuthor(long authorId) {
+      return new BookRow(this, Arrays.stream(authorIds).filter(id -> id != authorId).toArray());
+    }
+  }
+
+  /**
+   * Puts new or changed book and keeps ISBN index
+   */
+  void putBook(BookRow row) throws DaoException {
+    Long owner = booksByIsbn.get(row.isbn);
+    if (owner != null && owner != row.id) {
+      throw new DaoException("Duplicate entry '" + row.isbn + "' for key 'isbn'");
+    }
+    for (long authorId: row.authorIds) {
+      if (!authors.containsKey(authorId)) {
+        throw new DaoException("no author with id " + authorId);
+      }
+    }
+    indexBook(row);
+    saved(Table.BOOK, row.id, row);
+  }
+
+  /**
+   * Removes book, caller checks that there are no bookings of it
+   */
+  void removeBook(long id) {
+    if (unindexBook(id)) {
+      removed(Table.BOOK, id);
+    }
+  }
+
+  private void indexBook(BookRow row) {
+    BookRow old = books.put(row.id, row);
+    if (old != null && !old.isbn.equals(row.isbn)) {
+      booksByIsbn.remove(old.isbn, row.id);
+    }
+    booksByIsbn.put(row.isbn, row.id);
+  }
+
+  private boolean unindexBook(long id) {
+    BookRow old = books.remove(id);
+    if (old == null) {
+      return false;
+    }
+    booksByIsbn.remove(old.isbn, id);
+    return true;
+  }
+
+  /**
+   * @param book book as it's given by logic, its row has to exist
+   */
+  void updateBook(Book book) throws DaoException {
+    if (books.containsKey(book.getId())) {
+      BookStat stat = book.getBookStat();
+      if (stat == null) {
+        throw new DaoException("book stat cannot be null");
+      }
+      putBook(new BookRow(book.getId(), book, stat));
+    }
+  }
+
+  Book book(BookRow row) {
+    Book book = new Book.Builder()
+        .setId(row.id)
+        .setTitle(row.title)
+        .setIsbn(row.isbn)
+        .setYear(row.year)
+        .setLangCode(row.langCode)
+        .setKeepPeriod(row.keepPeriod)
+        .setModified(calendar(row.modified))
+        .setBookStat(new BookStat.Builder()
+            .setId(row.id)
+            .setTotal(row.total)
+            .setInStock(row.inStock)
+            .setReserved(row.reserved)
+            .setTimesWasBooked(row.timesWasBooked)
+            .build())
+        .build();
+    book.setAuthors(authorsOf(row));
+    return book;
+  }
+
+  List<Author> authorsOf(BookRow row) {
+    List<Author> list = new ArrayList<>(row.authorIds.length);
+    for (long id: row.authorIds) {
+      AuthorRow author = authors.get(id);
+      if (author != null) {
+        list.add(author(author));
+      }
+    }
+    return list;
+  }
+
+  // ---- authors
+
+  static final class AuthorRow implements Row {
+    final long id;
+    final String name;
+    final long modified;
+    final long[] langIds;
+    final String[] names;
+
+    AuthorRow(long id, Author author) throws DaoException {
+      if (author.getModified() == null) {
+        throw new DaoException("modified field is null");
+      }
+      this.id = id;
+      this.name = author.getName();
+      this.modified = author.getModified().getTimeInMillis();
+      List<I18AuthorName> list = author.getI18NamesAsList();
+      langIds = new long[list.size()];
+      names = new String[list.size()];
+      for (int i = 0; i < list.size(); i++) {
+        if (list.get(i).getLang() == null) {
+          throw new DaoException("getLang() is null");
+        }
+        langIds[i] = list.get(i).getLang().getId();
+        names[i] = list.get(i).getName();
+      }
+    }
+
+    AuthorRow(long id, DataInput in) throws IOException {
+      this.id = id;
+      this.name = readString(in);
+      this.modified = in.readLong();
+      this.langIds = readLongs(in);
+      this.names = new String[langIds.length];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = readString(in);
+      }
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      writeString(out, name);
+      out.writeLong(modified);
+      writeLongs(out, langIds);
+      for (String n: names) {
+        writeString(out, n);
+      }
+    }
+  }
+
+  void putAuthor(AuthorRow row) throws DaoException {
+    for (long langId: row.langIds) {
+      checkLang(langId);
+    }
+    authors.put(row.id, row);
+    saved(Table.AUTHOR, row.id, row);
+  }
+
+  /**
+   * Removes author and its links to books, as cascade of book_author does
+   */
+  void removeAuthor(long id) throws DaoException {
+    if (authors.remove(id) == null) {
+      return;
+    }
+    removed(Table.AUTHOR, id);
+    for (BookRow book: books.values()) {
+      for (long authorId: book.authorIds) {
+        if (authorId == id) {
+          putBook(book.withoutAuthor(id));
+          break;
+        }
+      }
+    }
+  }
+
+  Author author(AuthorRow row) {
+    Author author = new Author.Builder()
+        .setId(row.id)
+        .setName(row.name)
+        .setModified(calendar(row.modified))
+        .build();
+    List<I18AuthorName> names = new ArrayList<>(row.names.length);
+    for (int i = 0; i < row.names.length; i++) {
+      Lang lang = lang(row.langIds[i]);
+      names.add(new I18AuthorName.Builder().setId(row.id).setLang(lang).setName(row.names[i]).build());
+      if (row.names[i].equals(row.name) && author.getPrimaryLang() == null) {
+        author.setPrimaryLang(lang);
+      }
+    }
+    author.setI18Names(names);
+    return author;
+  }
+
+  // ---- bookings
+
+  static final class BookingRow implements Row {
+    final long id;
+    final long userId;
+    final Booking.State state;
+    final Booking.Place located;
+    final long modified;
+    final long[] bookIds;
+
+    BookingRow(long id, long userId, Booking.State state, Booking.Place located, long modified, long[] bookIds) {
+      this.id = id;
+      this.userId = userId;
+      this.state = state;
+      this.located = located;
+      this.modified = modified;
+      this.bookIds = bookIds;
+    }
+
+    BookingRow(long id, DataInput in) throws IOException {
+      this.id = id;
+      this.userId = in.readLong();
+      this.state = readEnum(in, Booking.State.class);
+      this.located = readEnum(in, Booking.Place.class);
+      this.modified = in.readLong();
+      this.bookIds = readLongs(in);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      out.writeLong(userId);
+      writeEnum(out, state);
+      writeEnum(out, located);
+      out.writeLong(modified);
+      writeLongs(out, bookIds);
+    }
+  }
+
+  /**
+   * Puts new or changed booking and keeps state and user indexes
+   */
+  void putBooking(BookingRow row) throws DaoException {
+    if (!users.containsKey(row.userId)) {
+      throw new DaoException("no user with id " + row.userId);
+    }
+    for (long bookId: row.bookIds) {
+      if (!books.containsKey(bookId)) {
+        throw new DaoException("no book with id " + bookId);
+      }
+    }
+    indexBooking(row);
+    saved(Table.BOOKING, row.id, row);
+  }
+
+  void removeBooking(long id) {
+    if (unindexBooking(id)) {
+      removed(Table.BOOKING, id);
+    }
+  }
+
+  private void indexBooking(BookingRow row) {
+    unindexBooking(row.id);
+    bookings.put(row.id, row);
+    bookingsByState.get(row.state).put(row.id, row);
+    LongMap<BookingRow> byUser = bookingsByUser.get(row.userId);
+    if (byUser == null) {
+      byUser = new LongMap<>();
+      bookingsByUser.put(row.userId, byUser);
+    }
+    byUser.put(row.id, row);
+  }
+
+  private boolean unindexBooking(long id) {
+    BookingRow old = bookings.remove(id);
+    if (old == null) {
+      return false;
+    }
+    bookingsByState.get(old.state).remove(id);
+    LongMap<BookingRow> byUser = bookingsByUser.get(old.userId);
+    byUser.remove(id);
+    if (byUser.isEmpty()) {
+      bookingsByUser.remove(old.userId);
+    }
+    return true;
+  }
+
+  List<BookingRow> bookingsOfUser(long userId) {
+    LongMap<BookingRow> byUser = bookingsByUser.get(userId);
+    return byUser == null ? new ArrayList<>() : byUser.values();
+  }
+
+  Booking booking(BookingRow row) {
+    List<Book> list = new ArrayList<>(row.bookIds.length);
+    for (long id: row.bookIds) {
+      list.add(book(books.get(id)));
+    }
+    return new Booking.Builder()
+        .setId(row.id)
+        .setState(row.state)
+        .setLocated(row.located)
+        .setModified(calendar(row.modified))
+        .setUser(user(users.get(row.userId)))
+        .setBooks(list)
+        .build();
+  }
+
+  // ---- tasks
+
+  static final class LeaseRow {
+    final String owner;
+    final long expires;
+    final long lastRun;
+
+    LeaseRow(String owner, long expires, long lastRun) {
+      this.owner = owner;
+      this.expires = expires;
+      this.lastRun = lastRun;
+    }
+  }
+
+  // ---- search
+
+  /**
+   * @return true if value contains pattern ignoring case, as {@code LIKE '%pattern%'} of MySQL does
+   */
+  static boolean like(String value, String pattern) {
+    return value != null && value.toLowerCase(Locale.ROOT).contains(pattern.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * @return part of sorted list for page (from 1) of given size
+   */
+  static <T> List<T> page(List<T> sorted, int num, int page) {
+    int from = Math.max(page - 1, 0) * num;
+    if (num <= 0 || from >= sorted.size()) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(sorted.subList(from, Math.min(from + num, sorted.size())));
+  }
+
+  // ---- serialization of rows
+
+  private static void writeString(DataOutput out, String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeEnum(DataOutput out, Enum<?> e) throws IOException {
+    writeString(out, e == null ? null : e.name());
+  }
+
+  private static <E extends Enum<E>> E readEnum(DataInput in, Class<E> type) throws IOException {
+    String name = readString(in);
+    return name == null ? null : Enum.valueOf(type, name);
+  }
+
+  private static void writeLongs(DataOutput out, long[] values) throws IOException {
+    out.writeInt(values.length);
+    for (long value: values) {
+      out.writeLong(value);
+    }
+  }
+
+  private static long[] readLongs(DataInput in) throws IOException {
+    long[] values = new long[in.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readLong();
+    }
+    return values;
+  }
+
+  static Calendar calendar(long millis) {
+    Calendar cal = Calendar.getInstance();
+    cal.setTimeInMillis(millis);
+    return cal;
+  }
+}
@@ -0,0 +1,62 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.model.dao.TaskCheckpointDao;
+import library.model.entities.TaskCheckpoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory DAO of checkpoints of periodic tasks
+ */
+public class TaskCheckpointMemoryDao implements TaskCheckpointDao {
+  private final MemoryStore store;
+
+  public TaskCheckpointMemoryDao(MemoryStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public List<TaskCheckpoint> findByTask(String task) throws DaoException {
+    return store.read(() -> {
+      List<TaskCheckpoint> list = new ArrayList<>();
+      LongMap<Long> partitions = store.checkpoints.get(task);
+      if (partitions == null) {
+        return list;
+      }
+      long[] from = partitions.keys();
+      Arrays.sort(from);
+      for (long partition: from) {
+        list.add(new TaskCheckpoint.Builder()
+            .setId(partition)
+            .setTask(task)
+            .setRunStarted(MemoryStore.calendar(partitions.get(partition)))
+            .build());
+      }
+      return list;
+    });
+  }
+
+  @Override
+  public void create(TaskCheckpoint checkpoint) throws DaoException {
+    if (checkpoint.getRunStarted() == null) {
+      throw new DaoException("runStarted field is null");
+    }
+    store.write(() -> {
+      LongMap<Long> partitions = store.checkpoints.computeIfAbsent(checkpoint.getTask(), t -> new LongMap<>());
+      if (partitions.containsKey(checkpoint.getId())) {
+        throw new DaoException("Duplicate entry '" + checkpoint.getTask() + "-" + checkpoint.getId() +
+            "' for key 'PRIMARY'");
+      }
+      partitions.put(checkpoint.getId(), checkpoint.getRunStarted().getTimeInMillis());
+      return null;
+    });
+  }
+
+  @Override
+  public void deleteByTask(String task) throws DaoException {
+    store.write(() -> store.checkpoints.remove(task));
+  }
+}
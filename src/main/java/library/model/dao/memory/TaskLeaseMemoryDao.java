@@ -0,0 +1,66 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.model.dao.TaskLeaseDao;
+import library.model.dao.memory.MemoryStore.LeaseRow;
+
+/**
+ * In-memory leases of periodic tasks. Store isn't shared between JVMs, so it elects one thread of this JVM only.
+ */
+public class TaskLeaseMemoryDao implements TaskLeaseDao {
+  private final MemoryStore store;
+
+  public TaskLeaseMemoryDao(MemoryStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public boolean acquire(String task, String owner, int leaseSeconds) throws DaoException {
+    return store.write(() -> {
+      long now = System.currentTimeMillis();
+      LeaseRow lease = store.leases.get(task);
+      if (lease != null && !lease.owner.equals(owner) && lease.expires >= now) {
+        return false;
+      }
+      store.leases.put(task, new LeaseRow(owner, now + leaseSeconds * 1000L, lease == null ? 0 : lease.lastRun));
+      return true;
+    });
+  }
+
+  @Override
+  public boolean renew(String task, String owner, int leaseSeconds) throws DaoException {
+    return store.write(() -> {
+      LeaseRow lease = store.leases.get(task);
+      if (lease == null || !lease.owner.equals(owner)) {
+        return false;
+      }
+      store.leases.put(task, new LeaseRow(owner, System.currentTimeMillis() + leaseSeconds * 1000L, lease.lastRun));
+      return true;
+    });
+  }
+
+  @Override
+  public boolean markRun(String task, String owner, long periodMillis) throws DaoException {
+    return store.write(() -> {
+      long now = System.currentTimeMillis();
+      LeaseRow lease = store.leases.get(task);
+      if (lease == null || !lease.owner.equals(owner) || lease.expires <= now ||
+          lease.lastRun != 0 && lease.lastRun + periodMillis > now) {
+        return false;
+      }
+      store.leases.put(task, new LeaseRow(owner, lease.expires, now));
+      return true;
+    });
+  }
+
+  @Override
+  public void release(String task, String owner) throws DaoException {
+    store.write(() -> {
+      LeaseRow lease = store.leases.get(task);
+      if (lease != null && lease.owner.equals(owner)) {
+        store.leases.put(task, new LeaseRow(owner, System.currentTimeMillis(), lease.lastRun));
+      }
+      return null;
+    });
+  }
+}
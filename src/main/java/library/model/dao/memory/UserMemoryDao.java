@@ -0,0 +1,258 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.connection.SearchSortColumn;
+import library.model.dao.ReadResult;
+import library.model.dao.UserDao;
+import library.model.dao.memory.MemoryStore.UserRow;
+import library.model.dto.UserListItem;
+import library.model.entities.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * In-memory user DAO, searches and sorts as {@link library.model.dao.impl.UserDaoImpl}
+ */
+public class UserMemoryDao implements UserDao {
+  private static final Logger logger = LogManager.getLogger(UserMemoryDao.class);
+  private static final SearchSortColumn validColumns =
+      new SearchSortColumn("email", "name", "role", "state");
+  private final MemoryStore store;
+
+  public UserMemoryDao(MemoryStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public User findByEmail(String email) throws DaoException {
+    return store.read(() -> {
+      Long id = store.usersByEmail.get(email);
+      return id == null ? null : store.user(store.users.get(id));
+    });
+  }
+
+  @Override
+  public List<User> getAll() throws DaoException {
+    return store.read(() -> toUsers(sorted(notDeleted(), Comparator.comparingLong(u -> u.id))));
+  }
+
+  @Override
+  public long getMaxId() throws DaoException {
+    return store.read(store::maxUserId);
+  }
+
+  @Override
+  public List<User> findByIdRange(long from, long to) throws DaoException {
+    return store.read(() -> {
+      List<User> list = new ArrayList<>();
+      for (long id = Math.max(from, 1); id < to && id <= store.maxUserId(); id++) {
+        UserRow row = store.users.get(id);
+        if (row != null && row.state != User.State.DELETED) {
+          list.add(store.user(row));
+        }
+      }
+      return list;
+    });
+  }
+
+  @Override
+  public void updateFines(List<User> users) throws DaoException {
+    store.write(() -> {
+      for (User user: users) {
+        UserRow row = store.users.get(user.getId());
+        if (row != null) {
+          User changed = store.user(row);
+          changed.setFine(user.getFine());
+          changed.setModified(user.getModified());
+          changed.setFineLastChecked(user.getFineLastChecked());
+          store.putUser(new UserRow(row.id, changed));
+        }
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void updatePassword(User user) throws DaoException {
+    logger.debug("start");
+    store.write(() -> {
+      UserRow row = store.users.get(user.getId());
+      if (row != null) {
+        User changed = store.user(row);
+        changed.setPassword(user.getPassword());
+        store.putUser(new UserRow(row.id, changed));
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void create(User user) throws DaoException {
+    store.write(() -> {
+      if (store.usersByEmail.containsKey(user.getEmail())) {
+        throw new DaoException("Duplicate entry '" + user.getEmail() + "' for key 'email'");
+      }
+      UserRow row = new UserRow(store.nextUserId(), user);
+      store.putUser(row);
+      user.setId(row.id);
+      logger.info("New entity added: id={}", row.id);
+      return null;
+    });
+  }
+
+  @Override
+  public User read(long id) throws DaoException {
+    return store.read(() -> {
+      UserRow row = store.users.get(id);
+      return row == null ? null : store.user(row);
+    });
+  }
+
+  @Override
+  public ReadResult<User> readAll(Collection<Long> ids) throws DaoException {
+    return store.read(() -> {
+      List<User> found = new ArrayList<>();
+      for (long id: ids) {
+        UserRow row = store.users.get(id);
+        if (row != null) {
+          found.add(store.user(row));
+        }
+      }
+      return ReadResult.of(ids, found);
+    });
+  }
+
+  @Override
+  public void update(User user) throws DaoException {
+    store.write(() -> {
+      if (store.users.containsKey(user.getId())) {
+        store.putUser(new UserRow(user.getId(), user));
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void delete(long id) throws DaoException {
+    store.write(() -> {
+      UserRow row = store.users.get(id);
+      if (row != null) {
+        User deleted = store.user(row);
+        deleted.setState(User.State.DELETED);
+        store.putUser(new UserRow(id, deleted));
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public List<User> findByPattern(String what, String searchBy, String sortBy, int num, int page)
+      throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+    validColumns.checkSort(sortBy);
+
+    return store.read(() -> {
+      List<UserRow> found = search(what, searchBy);
+      return toUsers(MemoryStore.page(sorted(found, order(sortBy)), num, page));
+    });
+  }
+
+  @Override
+  public List<UserListItem> findItemsByPattern(String what, String searchBy, String sortBy, int num, int page)
+      throws ServiceException, DaoException {
+    List<User> users = findByPattern(what, searchBy, sortBy, num, page);
+    List<UserListItem> items = new ArrayList<>(users.size());
+    for (User user: users) {
+      items.add(UserListItem.of(user));
+    }
+    return items;
+  }
+
+  @Override
+  public int findByPatternCount(String what, String searchBy) throws ServiceException, DaoException {
+    logger.debug("start");
+    validColumns.checkSearch(searchBy);
+    return store.read(() -> search(what, searchBy).size());
+  }
+
+  @Override
+  public List<User> findBy(String what, String searchBy) throws ServiceException, DaoException {
+    validColumns.checkSearch(searchBy);
+
+    Function<UserRow, String> column = column(searchBy);
+    return store.read(() -> {
+      List<UserRow> found = new ArrayList<>();
+      for (UserRow row: notDeleted()) {
+        if (what.equals(column.apply(row))) {
+          found.add(row);
+        }
+      }
+      return toUsers(sorted(found, Comparator.comparingLong(u -> u.id)));
+    });
+  }
+
+  private List<UserRow> search(String what, String searchBy) {
+    Function<UserRow, String> column = column(searchBy);
+    List<UserRow> found = new ArrayList<>();
+    for (UserRow row: notDeleted()) {
+      if (MemoryStore.like(column.apply(row), what)) {
+        found.add(row);
+      }
+    }
+    return found;
+  }
+
+  private List<UserRow> notDeleted() {
+    List<UserRow> list = store.users.values();
+    list.removeIf(u -> u.state == User.State.DELETED);
+    return list;
+  }
+
+  private static Function<UserRow, String> column(String name) {
+    switch (name) {
+      case "email":
+        return u -> u.email;
+      case "name":
+        return u -> u.name;
+      case "role":
+        return u -> u.role.name();
+      default:
+        return u -> u.state.name();
+    }
+  }
+
+  private static Comparator<UserRow> order(String sortBy) {
+    Comparator<UserRow> order;
+    switch (sortBy) {
+      case "role":
+        order = Comparator.comparing(u -> u.role);
+        break;
+      case "state":
+        order = Comparator.comparing(u -> u.state);
+        break;
+      default:
+        order = Comparator.comparing(column(sortBy), Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    }
+    return order.thenComparingLong(u -> u.id);
+  }
+
+  private static List<UserRow> sorted(List<UserRow> rows, Comparator<UserRow> order) {
+    rows.sort(order);
+    return rows;
+  }
+
+  private List<User> toUsers(List<UserRow> rows) {
+    List<User> list = new ArrayList<>(rows.size());
+    for (UserRow row: rows) {
+      list.add(store.user(row));
+    }
+    return list;
+  }
+}
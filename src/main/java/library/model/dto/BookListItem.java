@@ -0,0 +1,74 @@
+package library.model.dto;
+
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.Entity;
+import library.model.entities.Lang;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row of books list of booking: columns shown in list and names of authors in language of page
+ */
+public class BookListItem extends Entity {
+    private static final long serialVersionUID = 1L;
+
+    private final String title;
+    private final String isbn;
+    private final int year;
+    private final int keepPeriod;
+    private final List<String> authorNames = new ArrayList<>();
+
+    public BookListItem(long id, String title, String isbn, int year, int keepPeriod) {
+        super(id);
+        this.title = title;
+        this.isbn = isbn;
+        this.year = year;
+        this.keepPeriod = keepPeriod;
+    }
+
+    /**
+     * @param lang language of page, name of author falls back to primary one
+     */
+    public static BookListItem of(Book book, Lang lang) {
+        BookListItem item = new BookListItem(book.getId(), book.getTitle(), book.getIsbn(), book.getYear(),
+                book.getKeepPeriod());
+        for (Author author: book.getAuthors()) {
+            item.authorNames.add(author.getName(lang));
+        }
+        return item;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getKeepPeriod() {
+        return keepPeriod;
+    }
+
+    /**
+     * @return names of authors, list is filled by DAO
+     */
+    public List<String> getAuthorNames() {
+        return authorNames;
+    }
+
+    @Override
+    public String toString() {
+        return "BookListItem{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", authorNames=" + authorNames +
+                '}';
+    }
+}
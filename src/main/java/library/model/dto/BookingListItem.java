@@ -0,0 +1,87 @@
+package library.model.dto;
+
+import library.model.entities.Book;
+import library.model.entities.Booking;
+import library.model.entities.Entity;
+import library.model.entities.Lang;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Row of bookings list: columns shown in list, email and name of owner and books of booking
+ */
+public class BookingListItem extends Entity {
+    private static final long serialVersionUID = 1L;
+
+    private final Calendar modified;
+    private final Booking.State state;
+    private final Booking.Place located;
+    private final String userEmail;
+    private final String userName;
+    private final List<BookListItem> books = new ArrayList<>();
+
+    public BookingListItem(long id, Calendar modified, Booking.State state, Booking.Place located,
+                           String userEmail, String userName) {
+        super(id);
+        this.modified = modified;
+        this.state = state;
+        this.located = located;
+        this.userEmail = userEmail;
+        this.userName = userName;
+    }
+
+    /**
+     * @param lang language of page for names of authors
+     */
+    public static BookingListItem of(Booking booking, Lang lang) {
+        BookingListItem item = new BookingListItem(booking.getId(), booking.getModified(), booking.getState(),
+                booking.getLocated(), booking.getUser().getEmail(), booking.getUser().getName());
+        for (Book book: booking.getBooks()) {
+            item.books.add(BookListItem.of(book, lang));
+        }
+        return item;
+    }
+
+    public Calendar getModified() {
+        return modified;
+    }
+
+    public Booking.State getState() {
+        return state;
+    }
+
+    public Booking.Place getLocated() {
+        return located;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * @return books of booking, list is filled by DAO
+     */
+    public List<BookListItem> getBooks() {
+        return books;
+    }
+
+    public int getBookCount() {
+        return books.size();
+    }
+
+    @Override
+    public String toString() {
+        return "BookingListItem{" +
+                "id=" + id +
+                ", state=" + state +
+                ", userEmail='" + userEmail + '\'' +
+                ", books=" + books.size() +
+                '}';
+    }
+}
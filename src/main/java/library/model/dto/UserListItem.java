@@ -0,0 +1,61 @@
+package library.model.dto;
+
+import library.model.entities.Entity;
+import library.model.entities.User;
+
+/**
+ * Row of users page: columns shown in list only, no password and preferred lang
+ */
+public class UserListItem extends Entity {
+    private static final long serialVersionUID = 1L;
+
+    private final String email;
+    private final String name;
+    private final User.Role role;
+    private final User.State state;
+    private final double fine;
+
+    public UserListItem(long id, String email, String name, User.Role role, User.State state, double fine) {
+        super(id);
+        this.email = email;
+        this.name = name;
+        this.role = role;
+        this.state = state;
+        this.fine = fine;
+    }
+
+    public static UserListItem of(User user) {
+        return new UserListItem(user.getId(), user.getEmail(), user.getName(), user.getRole(), user.getState(),
+                user.getFine());
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public User.Role getRole() {
+        return role;
+    }
+
+    public User.State getState() {
+        return state;
+    }
+
+    public double getFine() {
+        return fine;
+    }
+
+    @Override
+    public String toString() {
+        return "UserListItem{" +
+                "id=" + id +
+                ", email='" + email + '\'' +
+                ", role=" + role +
+                ", state=" + state +
+                '}';
+    }
+}
@@ -1,5 +1,7 @@
 package library.model.entities;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
@@ -15,6 +17,7 @@ public class Author extends ModifiableEntity {
     private String name;
     private Map<Lang, String> i18Names;
     private Lang primaryLang;
+    private transient Lazy i18NamesLoader;
 
     /**
      * Made private intentionally, use Builder class to instantiate
@@ -71,7 +74,7 @@ public class Author extends ModifiableEntity {
     }
 
     public List<I18AuthorName> getI18NamesAsList() {
-        return i18Names.entrySet()
+        return getI18Names().entrySet()
                 .stream()
                 .map(x -> new I18AuthorName.Builder().setLang(x.getKey()).setName(x.getValue()).build())
                 .collect(Collectors.toList());
@@ -90,7 +93,7 @@ public class Author extends ModifiableEntity {
     }
 
     public String getName(Lang lang, boolean fallback) {
-        String s = i18Names.get(lang);
+        String s = getI18Names().get(lang);
 
         if (s == null && fallback) {
             return name;
@@ -99,7 +102,7 @@ public class Author extends ModifiableEntity {
     }
 
     public void setName(Lang lang, String s) {
-        String oldName = i18Names.get(lang);
+        String oldName = getI18Names().get(lang);
 
         if (oldName != null) {
             if (oldName.equals(name)) {
@@ -113,11 +116,24 @@ public class Author extends ModifiableEntity {
     }
 
     public Map<Lang, String> getI18Names() {
+        if (i18NamesLoader != null) {
+            i18NamesLoader.load();
+        }
         return i18Names;
     }
 
     public void setI18Names(List<I18AuthorName> i18Names) {
         this.i18Names = convertToMap(i18Names);
+        this.i18NamesLoader = null;
+    }
+
+    /**
+     * Names and primary lang, which is one of them, are loaded on first access
+     */
+    public void setI18Names(Lazy loader) {
+        this.i18Names = null;
+        this.primaryLang = null;
+        this.i18NamesLoader = loader;
     }
 
     public void setPrimaryLang(Lang lang) {
@@ -125,6 +141,7 @@ public class Author extends ModifiableEntity {
     }
 
     public Lang getPrimaryLang() {
+        getI18Names();
         return primaryLang;
     }
 
@@ -141,6 +158,11 @@ public class Author extends ModifiableEntity {
         return name.hashCode();
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getI18Names();
+        out.defaultWriteObject();
+    }
+
     @Override
     public String toString() {
 
@@ -1,5 +1,7 @@
 package library.model.entities;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -16,6 +18,8 @@ public class Book extends ModifiableEntity {
     private BookStat bookStat;
     private int keepPeriod;
     private List<Author> authors;
+    private transient Lazy bookStatLoader;
+    private transient Lazy authorsLoader;
 
     /**
      * Made private intentionally, use Builder class to instantiate
@@ -141,19 +145,43 @@ public class Book extends ModifiableEntity {
     }
 
     public BookStat getBookStat() {
+        if (bookStatLoader != null) {
+            bookStatLoader.load();
+        }
         return bookStat;
     }
 
     public void setBookStat(BookStat bookStat) {
         this.bookStat = bookStat;
+        this.bookStatLoader = null;
+    }
+
+    /**
+     * Stat is loaded on first access
+     */
+    public void setBookStat(Lazy loader) {
+        this.bookStat = null;
+        this.bookStatLoader = loader;
     }
 
     public List<Author> getAuthors() {
+        if (authorsLoader != null) {
+            authorsLoader.load();
+        }
         return authors;
     }
 
     public void setAuthors(List<Author> authors) {
         this.authors = authors;
+        this.authorsLoader = null;
+    }
+
+    /**
+     * Authors are loaded on first access
+     */
+    public void setAuthors(Lazy loader) {
+        this.authors = null;
+        this.authorsLoader = loader;
     }
 
     public int getKeepPeriod() {
@@ -177,6 +205,12 @@ public class Book extends ModifiableEntity {
         return Objects.hash(title, isbn, year);
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getBookStat();
+        getAuthors();
+        out.defaultWriteObject();
+    }
+
     @Override
     public String toString() {
         return "Book{" +
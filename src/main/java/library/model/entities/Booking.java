@@ -2,6 +2,8 @@ package library.model.entities;
 
 import library.exceptions.ServiceException;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -14,6 +16,7 @@ public class Booking extends ModifiableEntity {
     private State state;
     private Place located;
     private List<Book> books;
+    private transient Lazy booksLoader;
 
     /**
      * Made private intentionally, use Builder class to instantiate
@@ -117,11 +120,23 @@ public class Booking extends ModifiableEntity {
     }
 
     public List<Book> getBooks() {
+        if (booksLoader != null) {
+            booksLoader.load();
+        }
         return books;
     }
 
     public void setBooks(List<Book> books) {
         this.books = books;
+        this.booksLoader = null;
+    }
+
+    /**
+     * Books are loaded on first access
+     */
+    public void setBooks(Lazy loader) {
+        this.books = null;
+        this.booksLoader = loader;
     }
 
     public void addBook(Book book) throws ServiceException {
@@ -133,14 +148,14 @@ public class Booking extends ModifiableEntity {
 
         bookStat.setReserved(bookStat.getReserved() + 1);
         bookStat.setTimesWasBooked(bookStat.getTimesWasBooked() + 1);
-        books.add(book);
+        getBooks().add(book);
     }
 
     public void removeBook(Book book) {
         BookStat bookStat = book.getBookStat();
 
         bookStat.setReserved(bookStat.getReserved() - 1);
-        books.remove(book);
+        getBooks().remove(book);
     }
 
     @Override
@@ -148,12 +163,17 @@ public class Booking extends ModifiableEntity {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Booking booking = (Booking) o;
-        return user.equals(booking.user) && books.equals(booking.books);
+        return user.equals(booking.user) && getBooks().equals(booking.getBooks());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(user, books);
+        return Objects.hash(user, getBooks());
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getBooks();
+        out.defaultWriteObject();
     }
 
     @Override
@@ -1,9 +1,12 @@
 package library.model.entities;
 
+import library.model.entities.codec.EntityCodec;
+import library.model.entities.codec.SerializedEntity;
+
 import java.io.Serializable;
 
 /**
- * Common parent class to all entities
+ * Common parent class to all entities. Supported entities are serialized in compact format of {@link EntityCodec}
  */
 public abstract class Entity implements Serializable {
     protected long id;
@@ -19,4 +22,11 @@ public abstract class Entity implements Serializable {
     public void setId(long id) {
         this.id = id;
     }
+
+    /**
+     * Replaces entity by its compact form on java serialization
+     */
+    protected Object writeReplace() {
+        return EntityCodec.isEnabled() && EntityCodec.supports(this) ? new SerializedEntity(this) : this;
+    }
 }
@@ -0,0 +1,16 @@
+package library.model.entities;
+
+/**
+ * Association of entity, which is loaded on first access by its getter. DAO sets the same loader to all entities
+ * read together, so the association is loaded for all of them at once. Loader sets loaded values by setters, which
+ * drop the loader.
+ */
+@FunctionalInterface
+public interface Lazy {
+    /**
+     * Loads association of entity and entities read along with it
+     *
+     * @throws IllegalStateException if it can't be loaded
+     */
+    void load();
+}
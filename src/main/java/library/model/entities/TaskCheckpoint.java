@@ -0,0 +1,90 @@
+package library.model.entities;
+
+import java.util.Calendar;
+import java.util.Objects;
+
+/**
+ * Marks partition of periodic task run as done. Id of checkpoint is the first id of the partition.
+ * Should be instantiated only with Builder help
+ */
+public class TaskCheckpoint extends Entity {
+    private static final long serialVersionUID = 1L;
+
+    private String task;
+    private Calendar runStarted;
+
+    /**
+     * Made private intentionally, use Builder class to instantiate
+     */
+    private TaskCheckpoint(long id, String task, Calendar runStarted) {
+        super(id);
+        this.task = task;
+        this.runStarted = runStarted;
+    }
+
+    /**
+     * Builder pattern
+     */
+    public static class Builder {
+        private long id = -1;
+        private String task;
+        private Calendar runStarted;
+
+        public Builder setId(long id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder setTask(String task) {
+            this.task = task;
+            return this;
+        }
+
+        public Builder setRunStarted(Calendar runStarted) {
+            this.runStarted = runStarted;
+            return this;
+        }
+
+        public TaskCheckpoint build() {
+            return new TaskCheckpoint(id, task, runStarted);
+        }
+    }
+
+    public String getTask() {
+        return task;
+    }
+
+    public void setTask(String task) {
+        this.task = task;
+    }
+
+    public Calendar getRunStarted() {
+        return runStarted;
+    }
+
+    public void setRunStarted(Calendar runStarted) {
+        this.runStarted = runStarted;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskCheckpoint that = (TaskCheckpoint) o;
+        return id == that.id && task.equals(that.task);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, task);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskCheckpoint{" +
+                "id=" + id +
+                ", task='" + task + '\'' +
+                ", runStarted=" + ModifiableEntity.format(runStarted) +
+                '}';
+    }
+}
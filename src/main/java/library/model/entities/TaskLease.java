@@ -0,0 +1,88 @@
+package library.model.entities;
+
+import java.util.Objects;
+
+/**
+ * Lease on periodic task. Only node which owns not expired lease is allowed to run the task.
+ * Expiration time is kept by DB only, so nodes clocks don't matter.
+ */
+public class TaskLease extends Entity {
+    private static final long serialVersionUID = 1L;
+
+    private String name;
+    private String owner;
+
+    /**
+     * Made private intentionally, use Builder class to instantiate
+     */
+    private TaskLease(long id, String name, String owner) {
+        super(id);
+        this.name = name;
+        this.owner = owner;
+    }
+
+    /**
+     * Builder pattern
+     */
+    public static class Builder {
+        private long id = -1;
+        private String name;
+        private String owner;
+
+        public Builder setId(long id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder setOwner(String owner) {
+            this.owner = owner;
+            return this;
+        }
+
+        public TaskLease build() {
+            return new TaskLease(id, name, owner);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskLease lease = (TaskLease) o;
+        return name.equals(lease.name) && Objects.equals(owner, lease.owner);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, owner);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskLease{" +
+                "name='" + name + '\'' +
+                ", owner='" + owner + '\'' +
+                '}';
+    }
+}
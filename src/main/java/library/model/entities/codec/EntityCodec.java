@@ -0,0 +1,120 @@
+package library.model.entities.codec;
+
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.Entity;
+import library.model.entities.Lang;
+import library.model.entities.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Compact binary format of entities. It's used instead of default java serialization for sessions and can be used by
+ * any cache or snapshot, which needs entities as bytes. Format:
+ * <ul>
+ *     <li> numbers are written as var-length integers, ids and other signed numbers are zigzag encoded
+ *     <li> time is written as epoch millis, timezone isn't kept, as entities read from DB have default one
+ *     <li> {@link Lang}, {@link Author} and {@link User} are written once per {@link EntityOutput}, next references
+ *     to the same instance are written as index
+ * </ul>
+ * Default java serialization can be switched back by system property {@value #PROPERTY_ENABLED}=false, for example
+ * while cluster nodes with previous version are still running.
+ */
+public class EntityCodec {
+    public static final String PROPERTY_ENABLED = "library.entities.compactSerialization";
+
+    static final byte TYPE_NULL = 0;
+    static final byte TYPE_LANG = 1;
+    static final byte TYPE_BOOK_STAT = 2;
+    static final byte TYPE_AUTHOR = 3;
+    static final byte TYPE_BOOK = 4;
+    static final byte TYPE_USER = 5;
+    static final byte TYPE_BOOKING = 6;
+
+    static final byte REF_NULL = 0;
+    static final byte REF_NEW = 1;
+    static final byte REF_BACK = 2;
+
+    private static volatile boolean enabled =
+            Boolean.parseBoolean(System.getProperty(PROPERTY_ENABLED, "true"));
+
+    private EntityCodec() {
+    }
+
+    /**
+     * @return true if entities are replaced by {@link SerializedEntity} on java serialization
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * For tests and benchmarks, use system property {@value #PROPERTY_ENABLED} otherwise
+     */
+    public static void setEnabled(boolean enabled) {
+        EntityCodec.enabled = enabled;
+    }
+
+    /**
+     * @param entity any entity
+     * @return true if entity has compact format
+     */
+    public static boolean supports(Entity entity) {
+        return type(entity) != TYPE_NULL;
+    }
+
+    static byte type(Entity entity) {
+        if (entity == null) {
+            return TYPE_NULL;
+        }
+
+        Class<?> clazz = entity.getClass();
+        if (clazz == Lang.class) {
+            return TYPE_LANG;
+        } else if (clazz == BookStat.class) {
+            return TYPE_BOOK_STAT;
+        } else if (clazz == Author.class) {
+            return TYPE_AUTHOR;
+        } else if (clazz == Book.class) {
+            return TYPE_BOOK;
+        } else if (clazz == User.class) {
+            return TYPE_USER;
+        } else if (clazz == Booking.class) {
+            return TYPE_BOOKING;
+        }
+        return TYPE_NULL;
+    }
+
+    /**
+     * @param entity supported entity or null
+     * @return entity in compact format
+     * @throws IllegalArgumentException if entity is not supported
+     */
+    public static byte[] toBytes(Entity entity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            new EntityOutput(out).writeEntity(entity);
+        } catch (IOException e) {
+            // there is no IO in byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param bytes entity written by {@link #toBytes(Entity)}
+     * @return entity or null
+     * @throws IOException if bytes are corrupted
+     */
+    public static Entity fromBytes(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return new EntityInput(in).readEntity();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package library.model.entities.codec;
+
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.Entity;
+import library.model.entities.Lang;
+import library.model.entities.User;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static library.model.entities.codec.EntityCodec.*;
+
+/**
+ * Reads entities written by {@link EntityOutput}. Shared entities are restored as the same instance.
+ * Not thread safe.
+ */
+public class EntityInput {
+    private static final Object NEW = new Object();
+    private final DataInput in;
+    private final List<Object> read = new ArrayList<>();
+
+    public EntityInput(DataInput in) {
+        this.in = in;
+    }
+
+    /**
+     * @return entity written by {@link EntityOutput#writeEntity(Entity)}, can be null
+     */
+    public Entity readEntity() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_LANG:
+                return readLang();
+            case TYPE_BOOK_STAT:
+                return readBookStat();
+            case TYPE_AUTHOR:
+                return readAuthor();
+            case TYPE_BOOK:
+                return readBook();
+            case TYPE_USER:
+                return readUser();
+            case TYPE_BOOKING:
+                return readBooking();
+            default:
+                throw new StreamCorruptedException("unknown entity type " + type);
+        }
+    }
+
+    public Lang readLang() throws IOException {
+        Object ref = readRef();
+        if (ref == null) {
+            return null;
+        }
+        if (ref != NEW) {
+            return cast(ref, Lang.class);
+        }
+
+        return register(new Lang.Builder()
+                .setId(readSignedVarLong())
+                .setCode(readString())
+                .build());
+    }
+
+    public BookStat readBookStat() throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        BookStat stat = new BookStat.Builder()
+                .setId(readSignedVarLong())
+                .setTotal(readSignedVarLong())
+                .build();
+        stat.setInStock(readSignedVarLong());
+        stat.setReserved(readSignedVarLong());
+        stat.setTimesWasBooked(readSignedVarLong());
+        return stat;
+    }
+
+    public Author readAuthor() throws IOException {
+        Object ref = readRef();
+        if (ref == null) {
+            return null;
+        }
+        if (ref != NEW) {
+            return cast(ref, Author.class);
+        }
+
+        // registered before names are read, so index is the same as on writing
+        int index = reserve();
+        Author.Builder builder = new Author.Builder()
+                .setId(readSignedVarLong())
+                .setModified(readTime())
+                .setName(readString());
+        Lang primaryLang = readLang();
+
+        int size = readSize();
+        for (int i = 0; i < size; i++) {
+            builder.addI18Name(readLang(), readString());
+        }
+        Author author = builder.build();
+        author.setPrimaryLang(primaryLang);
+        read.set(index, author);
+        return author;
+    }
+
+    public Book readBook() throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Book.Builder builder = new Book.Builder()
+                .setId(readSignedVarLong())
+                .setModified(readTime())
+                .setTitle(readString())
+                .setIsbn(readString())
+                .setYear((int) readSignedVarLong())
+                .setLangCode(readString())
+                .setBookStat(readBookStat())
+                .setKeepPeriod((int) readSignedVarLong());
+
+        int size = readSize();
+        List<Author> authors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            authors.add(readAuthor());
+        }
+        return builder.setAuthors(authors).build();
+    }
+
+    public User readUser() throws IOException {
+        Object ref = readRef();
+        if (ref == null) {
+            return null;
+        }
+        if (ref != NEW) {
+            return cast(ref, User.class);
+        }
+
+        int index = reserve();
+        User user = new User.Builder()
+                .setId(readSignedVarLong())
+                .setModified(readTime())
+                .setEmail(readString())
+                .setPassword(readString())
+                .setRole(readEnum(User.Role.values()))
+                .setState(readEnum(User.State.values()))
+                .setFine(in.readDouble())
+                .setName(readString())
+                .setPreferredLang(readLang())
+                .setFineLastChecked(readTime())
+                .build();
+        read.set(index, user);
+        return user;
+    }
+
+    public Booking readBooking() throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Booking.Builder builder = new Booking.Builder()
+                .setId(readSignedVarLong())
+                .setModified(readTime())
+                .setUser(readUser())
+                .setState(readEnum(Booking.State.values()))
+                .setLocated(readEnum(Booking.Place.values()));
+
+        int size = readSize();
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            books.add(readBook());
+        }
+        return builder.setBooks(books).build();
+    }
+
+    /**
+     * @return null, {@link #NEW} if entity follows, or previously read entity
+     */
+    private Object readRef() throws IOException {
+        byte ref = in.readByte();
+        switch (ref) {
+            case REF_NULL:
+                return null;
+            case REF_NEW:
+                return NEW;
+            case REF_BACK:
+                int index = readSize();
+                if (index >= read.size() || read.get(index) == null) {
+                    throw new StreamCorruptedException("illegal back reference " + index);
+                }
+                return read.get(index);
+            default:
+                throw new StreamCorruptedException("unknown reference type " + ref);
+        }
+    }
+
+    private int reserve() {
+        read.add(null);
+        return read.size() - 1;
+    }
+
+    private <T> T register(T entity) {
+        read.add(entity);
+        return entity;
+    }
+
+    private static <T> T cast(Object ref, Class<T> clazz) throws StreamCorruptedException {
+        if (!clazz.isInstance(ref)) {
+            throw new StreamCorruptedException("back reference to " + ref.getClass().getName() + " instead of " +
+                    clazz.getName());
+        }
+        return clazz.cast(ref);
+    }
+
+    private <E extends Enum<E>> E readEnum(E[] values) throws IOException {
+        int ordinal = readSize();
+        if (ordinal > values.length) {
+            throw new StreamCorruptedException("illegal enum ordinal " + ordinal);
+        }
+        return ordinal == 0 ? null : values[ordinal - 1];
+    }
+
+    private Calendar readTime() throws IOException {
+        long value = readVarLong();
+        if (value == 0) {
+            return null;
+        }
+        Calendar time = Calendar.getInstance();
+        time.setTimeInMillis(unzigzag(value - 1));
+        return time;
+    }
+
+    private String readString() throws IOException {
+        int length = readSize();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readSize() throws IOException {
+        long size = readVarLong();
+        if (size > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("illegal size " + size);
+        }
+        return (int) size;
+    }
+
+    private long readSignedVarLong() throws IOException {
+        return unzigzag(readVarLong());
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("malformed var-length number");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
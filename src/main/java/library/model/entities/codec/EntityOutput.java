@@ -0,0 +1,221 @@
+package library.model.entities.codec;
+
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.Entity;
+import library.model.entities.Lang;
+import library.model.entities.User;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static library.model.entities.codec.EntityCodec.*;
+
+/**
+ * Writes entities in format described in {@link EntityCodec}. Remembers written shared entities, so one instance
+ * should be used for one object graph and read by one {@link EntityInput}. Not thread safe.
+ */
+public class EntityOutput {
+    private final DataOutput out;
+    private final Map<Object, Integer> written = new IdentityHashMap<>();
+
+    public EntityOutput(DataOutput out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes entity with its type, so it can be read by {@link EntityInput#readEntity()}
+     *
+     * @param entity supported entity or null
+     * @throws IllegalArgumentException if entity is not supported
+     */
+    public void writeEntity(Entity entity) throws IOException {
+        byte type = type(entity);
+        if (entity != null && type == TYPE_NULL) {
+            throw new IllegalArgumentException("unsupported entity " + entity.getClass().getName());
+        }
+
+        out.writeByte(type);
+        switch (type) {
+            case TYPE_LANG:
+                writeLang((Lang) entity);
+                break;
+            case TYPE_BOOK_STAT:
+                writeBookStat((BookStat) entity);
+                break;
+            case TYPE_AUTHOR:
+                writeAuthor((Author) entity);
+                break;
+            case TYPE_BOOK:
+                writeBook((Book) entity);
+                break;
+            case TYPE_USER:
+                writeUser((User) entity);
+                break;
+            case TYPE_BOOKING:
+                writeBooking((Booking) entity);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void writeLang(Lang lang) throws IOException {
+        if (writeRef(lang)) {
+            writeSignedVarLong(lang.getId());
+            writeString(lang.getCode());
+        }
+    }
+
+    public void writeBookStat(BookStat stat) throws IOException {
+        out.writeBoolean(stat != null);
+        if (stat == null) {
+            return;
+        }
+        writeSignedVarLong(stat.getId());
+        writeSignedVarLong(stat.getTotal());
+        writeSignedVarLong(stat.getInStock());
+        writeSignedVarLong(stat.getReserved());
+        writeSignedVarLong(stat.getTimesWasBooked());
+    }
+
+    public void writeAuthor(Author author) throws IOException {
+        if (!writeRef(author)) {
+            return;
+        }
+        writeSignedVarLong(author.getId());
+        writeTime(author.getModified());
+        writeString(author.getName());
+        writeLang(author.getPrimaryLang());
+
+        Map<Lang, String> names = author.getI18Names();
+        writeVarLong(names.size());
+        for (Map.Entry<Lang, String> name: names.entrySet()) {
+            writeLang(name.getKey());
+            writeString(name.getValue());
+        }
+    }
+
+    public void writeBook(Book book) throws IOException {
+        out.writeBoolean(book != null);
+        if (book == null) {
+            return;
+        }
+        writeSignedVarLong(book.getId());
+        writeTime(book.getModified());
+        writeString(book.getTitle());
+        writeString(book.getIsbn());
+        writeSignedVarLong(book.getYear());
+        writeString(book.getLangCode());
+        writeBookStat(book.getBookStat());
+        writeSignedVarLong(book.getKeepPeriod());
+
+        List<Author> authors = book.getAuthors();
+        writeVarLong(authors.size());
+        for (Author author: authors) {
+            writeAuthor(author);
+        }
+    }
+
+    public void writeUser(User user) throws IOException {
+        if (!writeRef(user)) {
+            return;
+        }
+        writeSignedVarLong(user.getId());
+        writeTime(user.getModified());
+        writeString(user.getEmail());
+        writeString(user.getPassword());
+        writeEnum(user.getRole());
+        writeEnum(user.getState());
+        out.writeDouble(user.getFine());
+        writeString(user.getName());
+        writeLang(user.getPreferredLang());
+        writeTime(user.getFineLastChecked());
+    }
+
+    public void writeBooking(Booking booking) throws IOException {
+        out.writeBoolean(booking != null);
+        if (booking == null) {
+            return;
+        }
+        writeSignedVarLong(booking.getId());
+        writeTime(booking.getModified());
+        writeUser(booking.getUser());
+        writeEnum(booking.getState());
+        writeEnum(booking.getLocated());
+
+        List<Book> books = booking.getBooks();
+        writeVarLong(books.size());
+        for (Book book: books) {
+            writeBook(book);
+        }
+    }
+
+    /**
+     * @return true if entity should be written, false if it's null or was already written
+     */
+    private boolean writeRef(Object shared) throws IOException {
+        if (shared == null) {
+            out.writeByte(REF_NULL);
+            return false;
+        }
+
+        Integer index = written.get(shared);
+        if (index != null) {
+            out.writeByte(REF_BACK);
+            writeVarLong(index);
+            return false;
+        }
+
+        written.put(shared, written.size());
+        out.writeByte(REF_NEW);
+        return true;
+    }
+
+    private void writeEnum(Enum<?> value) throws IOException {
+        writeVarLong(value == null ? 0 : value.ordinal() + 1L);
+    }
+
+    /**
+     * Null is written as 0, otherwise zigzag encoded epoch millis + 1
+     */
+    private void writeTime(Calendar time) throws IOException {
+        writeVarLong(time == null ? 0 : zigzag(time.getTimeInMillis()) + 1);
+    }
+
+    /**
+     * Null is written as 0, otherwise length of UTF-8 bytes + 1 and bytes
+     */
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private void writeSignedVarLong(long value) throws IOException {
+        writeVarLong(zigzag(value));
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,42 @@
+package library.model.entities.codec;
+
+import library.model.entities.Entity;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Serialization proxy of entity. {@link Entity} is replaced by it on java serialization, so entity graph is written
+ * in compact format of {@link EntityCodec} instead of default one
+ */
+public class SerializedEntity implements Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private Entity entity;
+
+    /**
+     * Required by {@link Externalizable}
+     */
+    public SerializedEntity() {
+    }
+
+    public SerializedEntity(Entity entity) {
+        this.entity = entity;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        new EntityOutput(out).writeEntity(entity);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        entity = new EntityInput(in).readEntity();
+    }
+
+    protected Object readResolve() {
+        return entity;
+    }
+}
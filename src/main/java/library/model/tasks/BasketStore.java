@@ -0,0 +1,177 @@
+package library.model.tasks;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.dao.factory.DaoFactoryCreator;
+import library.model.dao.factory.DaoFactoryImpl;
+import library.utils.session.BasketState;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.ServletContext;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store of NEW bookings (baskets) keyed by user id. Basket is saved to DB as NEW booking (draft), so it isn't lost on
+ * failover or logout. Changes are kept in memory and written behind by this task, so many adding/removing of books
+ * between two runs cost one DB write. Look up is in memory first, then in DB.
+ * <p>
+ * Basket, which wasn't changed during a whole period, is evicted from memory. So memory is taken by active users only
+ * and basket changed on other node of cluster is read from DB after one period at most.
+ */
+public class BasketStore extends AbstractPeriodicTask {
+    private static final Logger logger = LogManager.getLogger(BasketStore.class);
+    static final String INIT_PARAM_FLUSH_PERIOD = BasketStore.class.getName() + ".flushPeriod";
+    static final long DEFAULT_FLUSH_PERIOD = 5000;
+
+    private final DaoFactoryImpl daoFactory;
+    private final Map<Long, Entry> baskets = new ConcurrentHashMap<>();
+    private volatile long flushPeriod = DEFAULT_FLUSH_PERIOD;
+
+    private static class Holder {
+        private static final BasketStore INSTANCE =
+                new BasketStore(DaoFactoryCreator.getDefaultFactory().newInstance());
+    }
+
+    public static BasketStore getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * For testing purpose, use {@link #getInstance()} otherwise
+     * @param daoFactory daoFactory to be used to get daos
+     */
+    BasketStore(DaoFactoryImpl daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    /**
+     * Basket in memory. Changed flag is reset by flush, not changed entry is evicted by the next one.
+     */
+    private static class Entry {
+        private final BasketState basket;
+        private final boolean dirty;
+        private final boolean changed;
+
+        Entry(BasketState basket, boolean dirty, boolean changed) {
+            this.basket = basket;
+            this.dirty = dirty;
+            this.changed = changed;
+        }
+    }
+
+    /**
+     * @return period in milliseconds, this task should be executed with
+     */
+    public long getFlushPeriod() {
+        return flushPeriod;
+    }
+
+    @Override
+    public void init(ServletContext context) throws ServiceException {
+        logger.debug("start");
+        String period = context.getInitParameter(INIT_PARAM_FLUSH_PERIOD);
+        if (period != null) {
+            try {
+                long periodCandidate = Long.parseLong(period);
+                if (periodCandidate <= 0) {
+                    throw new NumberFormatException("it's not positive " + periodCandidate);
+                }
+                flushPeriod = periodCandidate;
+            } catch (NumberFormatException e) {
+                throw new ServiceException(INIT_PARAM_FLUSH_PERIOD + " should be valid positive number: " +
+                        e.getMessage());
+            }
+        }
+        logger.info("Baskets will be flushed every {} milliseconds", flushPeriod);
+        logger.debug("end");
+    }
+
+    /**
+     * @param userId user id
+     * @return basket of user, empty basket if user has no one
+     * @throws DaoException if basket isn't in memory and can't be read from DB
+     */
+    public BasketState find(long userId) throws DaoException {
+        Entry entry = baskets.get(userId);
+        if (entry != null) {
+            logger.trace("basket of user {} found in memory", userId);
+            return entry.basket;
+        }
+
+        BasketState basket = new BasketState(userId, daoFactory.getBookingDao().findDraftBookIDs(userId));
+        // basket saved meanwhile wins
+        entry = baskets.putIfAbsent(userId, new Entry(basket, false, true));
+        logger.trace("basket of user {} read from DB: {}", userId, basket);
+        return entry == null ? basket : entry.basket;
+    }
+
+    /**
+     * Saves basket in memory, it'll be written to DB by the next run
+     */
+    public void save(BasketState basket) {
+        baskets.put(basket.getUserId(), new Entry(basket, true, true));
+        logger.trace("basket saved {}", basket);
+    }
+
+    /**
+     * Deletes basket of user from memory, it's used when basket becomes real booking. Draft in DB is deleted by
+     * {@link library.model.dao.BookingDao#createFromDraft} in the same transaction as the booking is created.
+     *
+     * @param userId user id
+     */
+    public void remove(long userId) {
+        // waits for running flush of the basket, otherwise it could write the draft back after it's deleted
+        synchronized (this) {
+            baskets.remove(userId);
+        }
+        logger.trace("basket of user {} removed", userId);
+    }
+
+    /**
+     * Writes changed baskets to DB and evicts ones, which were not changed since previous run
+     */
+    @Override
+    public void run() {
+        int flushed = 0;
+        for (Map.Entry<Long, Entry> mapEntry: baskets.entrySet()) {
+            Entry entry = mapEntry.getValue();
+
+            if (!entry.changed) {
+                // removed only if it's still the same, save() could replace it
+                baskets.remove(mapEntry.getKey(), entry);
+                continue;
+            }
+
+            synchronized (this) {
+                if (entry.dirty) {
+                    if (baskets.get(mapEntry.getKey()) != entry) {
+                        // removed or saved again meanwhile
+                        continue;
+                    }
+                    try {
+                        daoFactory.getBookingDao().saveDraft(entry.basket.getUserId(), entry.basket.getBookIds());
+                        flushed++;
+                    } catch (DaoException e) {
+                        logger.error("Unable to save basket of user (id {}), it'll be retried: {}",
+                                mapEntry.getKey(), e.getMessage());
+                        continue;
+                    }
+                }
+                baskets.replace(mapEntry.getKey(), entry, new Entry(entry.basket, false, false));
+            }
+        }
+
+        if (flushed > 0) {
+            logger.debug("{} baskets flushed", flushed);
+        }
+    }
+
+    /**
+     * @return number of baskets in memory
+     */
+    int size() {
+        return baskets.size();
+    }
+}
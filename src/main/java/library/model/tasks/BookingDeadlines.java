@@ -0,0 +1,300 @@
+package library.model.tasks;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.dao.BookingDao;
+import library.model.dao.factory.DaoFactoryCreator;
+import library.model.dao.factory.DaoFactoryImpl;
+import library.model.entities.Book;
+import library.model.entities.Booking;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.ServletContext;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps deadlines of BOOKED and DELIVERED bookings in {@link TimingWheel}, so booking is handled exactly when its
+ * deadline comes, instead of hourly scan of all bookings:
+ * <ul>
+ *     <li> BOOKED booking is canceled after period specified for {@link BookingExpireTask}
+ *     <li> for DELIVERED booking user fine is updated, when keep period of its books is exceeded, and then every day
+ *     while booking is not done
+ * </ul>
+ * Wheel keeps only deadlines, which come within {@link #INIT_PARAM_WINDOW} (and overdue bookings, which are fined
+ * daily). Deadlines of the next window are read from DB by index of state and modified time every half of window, so
+ * booking changed on any node is loaded at least half of window before its deadline. Deadlines are also updated by
+ * {@link library.model.command.BookingLogic} on every booking state change. Before action booking is read from DB
+ * again, so stale deadline does nothing.
+ * <p>
+ * In cluster deadlines are kept and fired by the node, which holds the lease of the task only. Lease is taken by
+ * {@link LeaderElection#campaign(String)} and prolonged by heartbeat, not checked in DB every tick. Node loads
+ * deadlines of the window, when it takes the lease, and drops them, when the lease is lost.
+ * {@link BookingExpireTask} is left as rare safety sweep.
+ */
+public class BookingDeadlines extends AbstractPeriodicTask {
+    private static final Logger logger = LogManager.getLogger(BookingDeadlines.class);
+    public static final String TASK_NAME = BookingDeadlines.class.getName();
+    static final String INIT_PARAM_TICK = BookingDeadlines.class.getName() + ".tick";
+    static final String INIT_PARAM_WINDOW = BookingDeadlines.class.getName() + ".window";
+    static final long DEFAULT_WINDOW = TimeUnit.MINUTES.toMillis(10);
+    static final int WHEEL_SIZE = 64;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    /**
+     * Failed load is retried after this number of ticks
+     */
+    private static final int RETRY_TICKS = 10;
+
+    private final DaoFactoryImpl daoFactory;
+    private volatile TimingWheel<Booking.State> wheel;
+    private volatile UpdateFineTask fineTask;
+    private volatile LeaderElection election;
+    private volatile long tick = -1;
+    private volatile long window = DEFAULT_WINDOW;
+    private volatile int daysBeforeExpired = -1;
+    /**
+     * Deadlines before this time are in wheel, 0 if they are not loaded, because node isn't leader
+     */
+    private volatile long loadedUntil;
+    private long nextLoad;
+
+    private static class Holder {
+        private static final BookingDeadlines INSTANCE =
+                new BookingDeadlines(DaoFactoryCreator.getDefaultFactory().newInstance());
+    }
+
+    public static BookingDeadlines getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * For testing purpose, use {@link #getInstance()} otherwise
+     * @param daoFactory daoFactory to be used to get daos
+     */
+    BookingDeadlines(DaoFactoryImpl daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    /**
+     * @return tick of wheel in milliseconds, it's period this task should be executed with
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @param election election of cluster, deadlines are fired on node holding lease {@link #TASK_NAME} only.
+     *                 Null means single node, which fires all deadlines
+     */
+    public void setElection(LeaderElection election) {
+        this.election = election;
+    }
+
+    @Override
+    public void init(ServletContext context) throws ServiceException {
+        logger.debug("start");
+
+        String tickStr = context.getInitParameter(INIT_PARAM_TICK);
+        if (tickStr == null) {
+            throw new ServiceException(INIT_PARAM_TICK + " is not specified in web.xml");
+        }
+        String periodStr = context.getInitParameter(BookingExpireTask.INIT_PARAM_PERIOD);
+        if (periodStr == null) {
+            throw new ServiceException(BookingExpireTask.INIT_PARAM_PERIOD + " is not specified in web.xml");
+        }
+        String windowStr = context.getInitParameter(INIT_PARAM_WINDOW);
+
+        long tickCandidate;
+        int daysCandidate;
+        long windowCandidate = DEFAULT_WINDOW;
+        try {
+            tickCandidate = Long.parseLong(tickStr);
+            daysCandidate = Integer.parseInt(periodStr);
+            if (windowStr != null) {
+                windowCandidate = Long.parseLong(windowStr);
+            }
+            if (tickCandidate <= 0 || daysCandidate < 0 || windowCandidate < 2 * tickCandidate) {
+                throw new NumberFormatException("it's not positive " + tickCandidate + ", " + daysCandidate
+                        + " or window " + windowCandidate + " is less than 2 ticks");
+            }
+        } catch (NumberFormatException e) {
+            throw new ServiceException(INIT_PARAM_TICK + ", " + INIT_PARAM_WINDOW + " and "
+                    + BookingExpireTask.INIT_PARAM_PERIOD + " should be valid positive numbers: " + e.getMessage());
+        }
+
+        UpdateFineTask fineTaskCandidate = new UpdateFineTask(daoFactory);
+        fineTaskCandidate.init(context);
+
+        synchronized (this) {
+            tick = tickCandidate;
+            window = windowCandidate;
+            daysBeforeExpired = daysCandidate;
+            fineTask = fineTaskCandidate;
+            wheel = new TimingWheel<>(tickCandidate, WHEEL_SIZE, System.currentTimeMillis());
+            loadedUntil = 0;
+        }
+        logger.info("Booking deadlines initialized: tick={} ms, window={} ms, days before expired={}",
+                tickCandidate, windowCandidate, daysCandidate);
+        logger.debug("end");
+    }
+
+    /**
+     * Loads deadlines of BOOKED and DELIVERED bookings, which come before now + window, all overdue included.
+     * Booking already tracked in its current state keeps its deadline, so fine of overdue booking isn't updated again
+     * on every load.
+     *
+     * @param now current time
+     */
+    void load(long now) throws DaoException {
+        logger.debug("start");
+        TimingWheel<Booking.State> w = wheel;
+        long until = now + window;
+        BookingDao dao = daoFactory.getBookingDao();
+
+        Calendar booked = Calendar.getInstance();
+        booked.setTimeInMillis(until - daysBeforeExpired * DAY);
+        // keep days are 1 at least, later deadlines of candidates are skipped by track
+        Calendar delivered = Calendar.getInstance();
+        delivered.setTimeInMillis(until - DAY);
+
+        List<Booking> bookings = new ArrayList<>(dao.findByStateModifiedBefore(Booking.State.BOOKED, booked));
+        bookings.addAll(dao.findByStateModifiedBefore(Booking.State.DELIVERED, delivered));
+        for (Booking booking: bookings) {
+            if (w.payload(booking.getId()) != booking.getState()) {
+                schedule(w, booking, until);
+            }
+        }
+        loadedUntil = until;
+        logger.info("{} booking deadlines loaded till {}", w.size(), new Date(until));
+        logger.debug("end");
+    }
+
+    /**
+     * Schedules or cancels deadline according to current state of booking. Does nothing, if node doesn't keep
+     * deadlines, because it wasn't initialized or it isn't leader. Deadline after the loaded window is left to
+     * the next load.
+     *
+     * @param booking booking after state change
+     */
+    public void track(Booking booking) {
+        TimingWheel<Booking.State> w = wheel;
+        long until = loadedUntil;
+        if (w == null || until == 0) {
+            return;
+        }
+        schedule(w, booking, until);
+    }
+
+    private void schedule(TimingWheel<Booking.State> w, Booking booking, long until) {
+        Booking.State state = booking.getState();
+        long deadline;
+        if (state == Booking.State.BOOKED) {
+            deadline = booking.getModified().getTimeInMillis() + daysBeforeExpired * DAY;
+        } else if (state == Booking.State.DELIVERED) {
+            deadline = booking.getModified().getTimeInMillis() + keepDays(booking) * DAY;
+        } else {
+            w.cancel(booking.getId());
+            return;
+        }
+
+        if (deadline >= until) {
+            // deadline of previous state isn't actual anymore
+            w.cancel(booking.getId());
+            return;
+        }
+        w.schedule(booking.getId(), deadline, state);
+        logger.trace("booking {} in state {} is tracked", booking.getId(), state);
+    }
+
+    /**
+     * @return number of tracked deadlines
+     */
+    int size() {
+        return wheel == null ? 0 : wheel.size();
+    }
+
+    /**
+     * Fine is charged for days exceeding keep period, so the first fine is after keep period + 1 days
+     */
+    private static long keepDays(Booking booking) {
+        if (booking.getLocated() != Booking.Place.USER) {
+            return 2;
+        }
+
+        long keepPeriod = Long.MAX_VALUE;
+        for (Book book: booking.getBooks()) {
+            keepPeriod = Math.min(keepPeriod, book.getKeepPeriod());
+        }
+        return keepPeriod == Long.MAX_VALUE ? 1 : keepPeriod + 1;
+    }
+
+    @Override
+    public void run() {
+        TimingWheel<Booking.State> w = wheel;
+        if (w == null) {
+            logger.fatal(UpdateFineTask.TIMER_TASK_INIT_ERROR, INIT_PARAM_TICK);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        LeaderElection e = election;
+        if (e != null && !e.holds(TASK_NAME)) {
+            if (loadedUntil != 0) {
+                // leader keeps them, wheel of other node would only grow
+                synchronized (this) {
+                    wheel = new TimingWheel<>(tick, WHEEL_SIZE, now);
+                    loadedUntil = 0;
+                }
+                logger.info("lease of booking deadlines is lost, deadlines are dropped");
+            }
+            return;
+        }
+
+        if (loadedUntil == 0 || now >= nextLoad) {
+            try {
+                load(now);
+                nextLoad = now + window / 2;
+            } catch (DaoException ex) {
+                nextLoad = now + RETRY_TICKS * tick;
+                logger.error("Unable to load booking deadlines: {}", ex.getMessage());
+            }
+        }
+
+        List<TimingWheel.Timeout<Booking.State>> expired = w.advance(now);
+        for (TimingWheel.Timeout<Booking.State> timeout: expired) {
+            try {
+                fire(w, timeout);
+            } catch (DaoException ex) {
+                logger.error("Unable to proceed deadline of booking (id {}): {}", timeout.getKey(), ex.getMessage());
+            }
+        }
+    }
+
+    private void fire(TimingWheel<Booking.State> w, TimingWheel.Timeout<Booking.State> timeout) throws DaoException {
+        logger.trace("proceed {}", timeout);
+        BookingDao dao = daoFactory.getBookingDao();
+        Booking booking = dao.read(timeout.getKey());
+        if (booking == null || booking.getState() != timeout.getPayload()) {
+            logger.debug("booking (id {}) state was changed, deadline is skipped", timeout.getKey());
+            return;
+        }
+
+        if (booking.getState() == Booking.State.BOOKED) {
+            BookingExpireTask.expire(dao, booking);
+        } else {
+            fineTask.updateUser(booking.getUser().getId());
+            // fine grows every day till books are returned, days missed before load are charged by this update
+            long next = timeout.getDeadline() + DAY;
+            long now = System.currentTimeMillis();
+            if (next <= now) {
+                next += ((now - next) / DAY + 1) * DAY;
+            }
+            w.schedule(booking.getId(), next, booking.getState());
+            logger.info("booking (id {}) is overdue", booking.getId());
+        }
+    }
+}
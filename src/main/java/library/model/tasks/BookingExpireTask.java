@@ -5,6 +5,8 @@ import library.exceptions.ServiceException;
 import library.model.dao.BookingDao;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.dao.factory.DaoFactoryImpl;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
 import library.model.entities.Booking;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -56,9 +58,7 @@ public class BookingExpireTask extends AbstractPeriodicTask {
                 long pastDays = ChronoUnit.DAYS.between(booking.getModified().toInstant(), now.toInstant());
 
                 if (pastDays >= daysBeforeExpired) {
-                    booking.setState(Booking.State.CANCELED);
-                    dao.update(booking);
-                    logger.info("booking (id {}) is expired", booking.getId());
+                    expire(dao, booking);
                 }
             }
             logger.info("All BOOKED bookings proceed");
@@ -69,6 +69,24 @@ public class BookingExpireTask extends AbstractPeriodicTask {
         logger.debug("end");
     }
 
+    /**
+     * Cancels BOOKED booking and frees books reserved by it. Used by this sweep and by {@link BookingDeadlines}
+     *
+     * @param dao booking dao
+     * @param booking BOOKED booking read from DB
+     * @throws DaoException in case of DB errors
+     */
+    static void expire(BookingDao dao, Booking booking) throws DaoException {
+        for (Book book: booking.getBooks()) {
+            BookStat bookStat = book.getBookStat();
+            bookStat.setReserved(bookStat.getReserved() - 1);
+        }
+        booking.setState(Booking.State.CANCELED);
+        booking.setModified(Calendar.getInstance());
+        dao.update(booking);
+        logger.info("booking (id {}) is expired", booking.getId());
+    }
+
     @Override
     public void init(ServletContext context) throws ServiceException {
         logger.debug("start");
@@ -0,0 +1,114 @@
+package library.model.tasks;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.dao.catalog.CatalogSnapshots;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Keeps {@link library.model.dao.catalog.CatalogSnapshot} up to date: books changed on this node are re-read every
+ * period, the whole catalog is re-read every full period, so changes made on other nodes of cluster are picked up
+ * too. Snapshot is enabled only if directory for it is given.
+ */
+public class CatalogRefresh extends AbstractPeriodicTask {
+    private static final Logger logger = LogManager.getLogger(CatalogRefresh.class);
+    static final String INIT_PARAM_DIR = CatalogRefresh.class.getName() + ".dir";
+    static final String INIT_PARAM_PERIOD = CatalogRefresh.class.getName() + ".period";
+    static final String INIT_PARAM_FULL_PERIOD = CatalogRefresh.class.getName() + ".fullPeriod";
+    static final long DEFAULT_PERIOD = 1000;
+    static final long DEFAULT_FULL_PERIOD = 600000;
+
+    private final CatalogSnapshots snapshots;
+    private volatile boolean enabled;
+    private volatile long period = DEFAULT_PERIOD;
+    private volatile long fullPeriod = DEFAULT_FULL_PERIOD;
+    private long lastFull;
+
+    private static class Holder {
+        private static final CatalogRefresh INSTANCE = new CatalogRefresh(CatalogSnapshots.getInstance());
+    }
+
+    public static CatalogRefresh getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * For testing purpose, use {@link #getInstance()} otherwise
+     * @param snapshots holder of snapshot to be refreshed
+     */
+    CatalogRefresh(CatalogSnapshots snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * @return true if snapshot directory is given and this task should be scheduled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return period in milliseconds, this task should be executed with
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    @Override
+    public void init(ServletContext context) throws ServiceException {
+        logger.debug("start");
+        period = positive(context, INIT_PARAM_PERIOD, period);
+        fullPeriod = positive(context, INIT_PARAM_FULL_PERIOD, fullPeriod);
+
+        String dir = context.getInitParameter(INIT_PARAM_DIR);
+        if (dir == null) {
+            logger.info("Catalog snapshot is disabled, books are searched in DB");
+            logger.debug("end");
+            return;
+        }
+        try {
+            snapshots.enable(Paths.get(dir));
+        } catch (IOException e) {
+            throw new ServiceException("Unable to use " + dir + " for catalog snapshot: " + e.getMessage());
+        }
+        enabled = true;
+        logger.info("Catalog snapshot will be refreshed every {} milliseconds, re-read every {} milliseconds",
+                period, fullPeriod);
+        logger.debug("end");
+    }
+
+    private static long positive(ServletContext context, String name, long defaultValue) throws ServiceException {
+        String value = context.getInitParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long candidate = Long.parseLong(value);
+            if (candidate <= 0) {
+                throw new NumberFormatException("it's not positive " + candidate);
+            }
+            return candidate;
+        } catch (NumberFormatException e) {
+            throw new ServiceException(name + " should be valid positive number: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        boolean full = now - lastFull >= fullPeriod;
+        try {
+            snapshots.refresh(full);
+            if (full) {
+                lastFull = now;
+            }
+        } catch (DaoException | IOException e) {
+            logger.error("Unable to refresh catalog snapshot, it'll be retried: {}", e.getMessage());
+        }
+    }
+}
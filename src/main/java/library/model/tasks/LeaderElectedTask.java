@@ -0,0 +1,55 @@
+package library.model.tasks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.TimerTask;
+
+/**
+ * Wrapper for periodic task, which runs it only on elected node in cluster
+ */
+public class LeaderElectedTask extends TimerTask {
+    private static final Logger logger = LogManager.getLogger(LeaderElectedTask.class);
+
+    private final String name;
+    private final TimerTask task;
+    private final long period;
+    private final LeaderElection election;
+
+    /**
+     * @param name task name, unique in cluster
+     * @param task task to be executed
+     * @param period task period in milliseconds
+     * @param election leader election
+     */
+    public LeaderElectedTask(String name, TimerTask task, long period, LeaderElection election) {
+        this.name = name;
+        this.task = task;
+        this.period = period;
+        this.election = election;
+    }
+
+    @Override
+    public void run() {
+        if (election.shouldRun(name, period)) {
+            logger.debug("run task {} on node {}", name, election.getNodeId());
+            task.run();
+        } else {
+            logger.debug("skip task {} on node {}", name, election.getNodeId());
+        }
+    }
+
+    @Override
+    public boolean cancel() {
+        task.cancel();
+        return super.cancel();
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderElectedTask{" +
+                "name='" + name + '\'' +
+                ", task=" + task +
+                '}';
+    }
+}
@@ -0,0 +1,191 @@
+package library.model.tasks;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.dao.TaskLeaseDao;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.ServletContext;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Set;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lease based leader election for periodic tasks in cluster (web.xml is distributable).
+ * Every task has its own lease in DB. Node, which holds the lease, runs the task and prolongs the lease by heartbeat.
+ * If node dies, heartbeat stops, lease expires and will be taken by another node on its next task execution.
+ */
+public class LeaderElection {
+    private static final Logger logger = LogManager.getLogger(LeaderElection.class);
+    static final String INIT_PARAM_LEASE = LeaderElection.class.getName() + ".leaseSeconds";
+    /**
+     * Timer may fire a bit earlier than exactly after the period, so we allow some tolerance
+     */
+    private static final double RUN_PERIOD_TOLERANCE = 0.9;
+    private static final int HEARTBEATS_PER_LEASE = 3;
+
+    private final TaskLeaseDao dao;
+    private final String nodeId;
+    private final int leaseSeconds;
+    private final Set<String> heldLeases = ConcurrentHashMap.newKeySet();
+
+    public LeaderElection(TaskLeaseDao dao, int leaseSeconds) {
+        this.dao = dao;
+        this.leaseSeconds = leaseSeconds;
+        this.nodeId = generateNodeId();
+        logger.info("node id={}, lease={} seconds", nodeId, leaseSeconds);
+    }
+
+    /**
+     * Creates election from web.xml configuration
+     *
+     * @param context application context
+     * @param dao lease dao
+     * @return election or null if lease is not configured, that means single node mode
+     * @throws ServiceException in case of wrong configuration
+     */
+    public static LeaderElection fromContext(ServletContext context, TaskLeaseDao dao) throws ServiceException {
+        String leaseStr = context.getInitParameter(INIT_PARAM_LEASE);
+        if (leaseStr == null || leaseStr.isEmpty()) {
+            logger.info("{} is not specified, tasks will be executed on every node", INIT_PARAM_LEASE);
+            return null;
+        }
+
+        try {
+            int lease = Integer.parseInt(leaseStr);
+            if (lease < HEARTBEATS_PER_LEASE) {
+                throw new NumberFormatException("it's less than " + HEARTBEATS_PER_LEASE);
+            }
+            return new LeaderElection(dao, lease);
+        } catch (NumberFormatException e) {
+            throw new ServiceException(INIT_PARAM_LEASE + " should be valid positive integer value: " + e.getMessage());
+        }
+    }
+
+    private static String generateNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        // restarted node must not inherit lease of previous process
+        return host + '-' + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Checks if this node is leader for the task and whether task wasn't executed by anyone during the last period
+     *
+     * @param task task name
+     * @param period task period in milliseconds
+     * @return true if task should be executed on this node now
+     */
+    public boolean shouldRun(String task, long period) {
+        try {
+            if (!acquire(task)) {
+                return false;
+            }
+
+            boolean run = dao.markRun(task, nodeId, (long) (period * RUN_PERIOD_TOLERANCE));
+            logger.debug("node is leader for task {}, run={}", task, run);
+            return run;
+        } catch (DaoException e) {
+            logger.error("Unable to check lease for task {}: {}", task, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean acquire(String task) throws DaoException {
+        if (!dao.acquire(task, nodeId, leaseSeconds)) {
+            heldLeases.remove(task);
+            logger.debug("task {} is leaded by another node", task);
+            return false;
+        }
+        if (heldLeases.add(task)) {
+            logger.info("node is leader for task {}", task);
+        }
+        return true;
+    }
+
+    /**
+     * For task, which runs more often than lease can be checked in DB, for example every second. Task runs locally
+     * and asks {@link #holds(String)}, lease is taken by this campaign and prolonged by {@link #heartbeat()}.
+     *
+     * @param task task name
+     * @return task, which takes the lease, when it's free. Should be scheduled with {@link #getHeartbeatPeriod()}
+     */
+    public TimerTask campaign(String task) {
+        return new TimerTask() {
+            @Override
+            public void run() {
+                if (heldLeases.contains(task)) {
+                    return;
+                }
+                try {
+                    acquire(task);
+                } catch (DaoException e) {
+                    logger.error("Unable to check lease for task {}: {}", task, e.getMessage());
+                }
+            }
+        };
+    }
+
+    /**
+     * @param task task name
+     * @return true if this node took the lease of task, and it wasn't lost since then
+     */
+    public boolean holds(String task) {
+        return heldLeases.contains(task);
+    }
+
+    /**
+     * @return task, which prolongs all held leases. Should be scheduled with {@link #getHeartbeatPeriod()}
+     */
+    public TimerTask heartbeat() {
+        return new TimerTask() {
+            @Override
+            public void run() {
+                for (String task: heldLeases) {
+                    try {
+                        if (!dao.renew(task, nodeId, leaseSeconds)) {
+                            logger.warn("lease for task {} was lost", task);
+                            heldLeases.remove(task);
+                        }
+                    } catch (DaoException e) {
+                        logger.error("Unable to renew lease for task {}: {}", task, e.getMessage());
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @return heartbeat period in milliseconds
+     */
+    public long getHeartbeatPeriod() {
+        return leaseSeconds * 1000L / HEARTBEATS_PER_LEASE;
+    }
+
+    /**
+     * Frees all held leases, so another node can take them without waiting for expiration
+     */
+    public void releaseAll() {
+        for (String task: heldLeases) {
+            try {
+                dao.release(task, nodeId);
+                logger.info("lease for task {} released", task);
+            } catch (DaoException e) {
+                logger.error("Unable to release lease for task {}: {}", task, e.getMessage());
+            }
+        }
+        heldLeases.clear();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
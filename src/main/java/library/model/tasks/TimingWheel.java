@@ -0,0 +1,214 @@
+package library.model.tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel. Every level is a ring of buckets, each bucket holds timeouts of one tick of the level.
+ * Timeouts, which don't fit to the level, go to the overflow level with tick equal to the whole lower level interval,
+ * and are moved down when their bucket comes due. So schedule and cancel are O(1) and advance touches only due
+ * buckets, however many timeouts are scheduled.
+ * <p>
+ * Timeout never fires before its deadline, but may fire up to one tick later. Timeouts are identified by key,
+ * scheduling with the same key replaces previous timeout.
+ *
+ * @param <T> payload of timeout
+ */
+public class TimingWheel<T> {
+    private final long tickMillis;
+    private final int wheelSize;
+    private final Level level;
+    private final Map<Long, Timeout<T>> timeouts = new HashMap<>();
+    /**
+     * Timeouts which are already due on scheduling, they'll be returned by the next advance
+     */
+    private final Set<Timeout<T>> due = new LinkedHashSet<>();
+
+    /**
+     * @param tickMillis precision of the wheel in milliseconds
+     * @param wheelSize number of buckets on every level
+     * @param now current time in milliseconds
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long now) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tick should be positive and wheel size should be greater than 1");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.level = new Level(tickMillis, now);
+    }
+
+    /**
+     * Schedules timeout, previous timeout with the same key is canceled
+     *
+     * @param key timeout key
+     * @param deadline time in milliseconds, when timeout should fire
+     * @param payload will be returned with timeout
+     */
+    public synchronized void schedule(long key, long deadline, T payload) {
+        cancel(key);
+        // rounded up to tick, so timeout never fires before deadline
+        Timeout<T> timeout = new Timeout<>(key, deadline, payload, deadline + tickMillis - 1);
+        timeouts.put(key, timeout);
+        if (!level.add(timeout)) {
+            timeout.bucket = due;
+            due.add(timeout);
+        }
+    }
+
+    /**
+     * @param key timeout key
+     * @return true if timeout was scheduled
+     */
+    public synchronized boolean cancel(long key) {
+        Timeout<T> timeout = timeouts.remove(key);
+        if (timeout == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        return true;
+    }
+
+    /**
+     * Moves wheel to specified time
+     *
+     * @param now current time in milliseconds
+     * @return timeouts, which deadline has come, they are removed from the wheel
+     */
+    public synchronized List<Timeout<T>> advance(long now) {
+        List<Timeout<T>> drained = new ArrayList<>(due);
+        due.clear();
+        level.advance(now, drained);
+
+        List<Timeout<T>> expired = new ArrayList<>();
+        for (Timeout<T> timeout: drained) {
+            // timeouts from upper levels are moved down, if they are not due yet
+            if (!level.add(timeout)) {
+                timeouts.remove(timeout.key);
+                timeout.bucket = null;
+                expired.add(timeout);
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    public synchronized boolean contains(long key) {
+        return timeouts.containsKey(key);
+    }
+
+    /**
+     * @param key timeout key
+     * @return payload of scheduled timeout, null if it's not scheduled
+     */
+    public synchronized T payload(long key) {
+        Timeout<T> timeout = timeouts.get(key);
+        return timeout == null ? null : timeout.payload;
+    }
+
+    /**
+     * Scheduled timeout
+     */
+    public static class Timeout<T> {
+        private final long key;
+        private final long deadline;
+        private final T payload;
+        private final long expiration;
+        private Set<Timeout<T>> bucket;
+
+        private Timeout(long key, long deadline, T payload, long expiration) {
+            this.key = key;
+            this.deadline = deadline;
+            this.payload = payload;
+            this.expiration = expiration;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        @Override
+        public String toString() {
+            return "Timeout{" +
+                    "key=" + key +
+                    ", deadline=" + deadline +
+                    ", payload=" + payload +
+                    '}';
+        }
+    }
+
+    private class Level {
+        private final long tick;
+        private final long interval;
+        private final List<Set<Timeout<T>>> buckets;
+        private long currentTime;
+        private Level overflow;
+
+        Level(long tick, long now) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.currentTime = now - now % tick;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new LinkedHashSet<>());
+            }
+        }
+
+        /**
+         * @return false if timeout is already due
+         */
+        boolean add(Timeout<T> timeout) {
+            if (timeout.expiration < currentTime + tick) {
+                return false;
+            }
+
+            if (timeout.expiration < currentTime + interval) {
+                Set<Timeout<T>> bucket = buckets.get((int) ((timeout.expiration / tick) % wheelSize));
+                bucket.add(timeout);
+                timeout.bucket = bucket;
+                return true;
+            }
+
+            if (overflow == null) {
+                overflow = new Level(interval, currentTime);
+            }
+            return overflow.add(timeout);
+        }
+
+        void advance(long now, List<Timeout<T>> drained) {
+            long time = now - now % tick;
+            if (time <= currentTime) {
+                return;
+            }
+
+            // after full round all buckets are due
+            long steps = Math.min((time - currentTime) / tick, wheelSize);
+            long currentTick = currentTime / tick;
+            for (long step = 1; step <= steps; step++) {
+                Set<Timeout<T>> bucket = buckets.get((int) ((currentTick + step) % wheelSize));
+                drained.addAll(bucket);
+                bucket.clear();
+            }
+            currentTime = time;
+
+            if (overflow != null) {
+                overflow.advance(time, drained);
+            }
+        }
+    }
+}
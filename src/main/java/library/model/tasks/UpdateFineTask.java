@@ -2,45 +2,70 @@ package library.model.tasks;
 
 import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
+import library.model.connection.ConnectionPool;
 import library.model.dao.BookingDao;
+import library.model.dao.TaskCheckpointDao;
 import library.model.dao.UserDao;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.dao.factory.DaoFactoryImpl;
 import library.model.entities.Book;
 import library.model.entities.Booking;
+import library.model.entities.TaskCheckpoint;
 import library.model.entities.User;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.servlet.ServletContext;
 import java.time.temporal.ChronoUnit;
-import java.util.Calendar;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * TimerTask which updates user fine in case of non-return books in time
+ * TimerTask which updates user fine in case of non-return books in time.
+ * <p>
+ * Users are split to partitions by id ranges, which are proceeded in parallel on fork-join pool. Every finished
+ * partition is saved as checkpoint, so interrupted run is resumed by the next one instead of starting over.
+ * Parallelism must be less than connection pool size, as each partition holds one connection at a time.
  */
 public class UpdateFineTask extends AbstractPeriodicTask {
     private static final Logger logger = LogManager.getLogger(UpdateFineTask.class);
-    static final String INIT_PARAM_FINE_PER_DAY = UpdateFineTask.class.getName() + ".finePerDay";
+    static final String TASK_NAME = UpdateFineTask.class.getName();
+    static final String INIT_PARAM_FINE_PER_DAY = TASK_NAME + ".finePerDay";
+    static final String INIT_PARAM_PARALLELISM = TASK_NAME + ".parallelism";
+    static final String INIT_PARAM_PARTITION_SIZE = TASK_NAME + ".partitionSize";
+    static final int DEFAULT_PARTITION_SIZE = 1000;
     public static final String TIMER_TASK_INIT_ERROR = "Required attribute {} was not set: " +
             "this.init(servletContext) was not called";
     private final DaoFactoryImpl daoFactory;
+    private final int maxConnections;
     private volatile double finePerDay = -1;
+    private volatile int parallelism = 1;
+    private volatile int partitionSize = DEFAULT_PARTITION_SIZE;
 
     /**
      * Normal way to use this class
      */
     public UpdateFineTask() {
-        daoFactory = DaoFactoryCreator.getDefaultFactory().newInstance();
+        this(DaoFactoryCreator.getDefaultFactory().newInstance(), ConnectionPool.getInstance().getMaxPoolSize());
     }
 
     /**
-     * For tests, you can instantiate class with your daoFactory
+     * For tests, you can instantiate class with your daoFactory. Connection pool size isn't checked.
      * @param daoFactory will be used to get DAOs
      */
     public UpdateFineTask(DaoFactoryImpl daoFactory) {
+        this(daoFactory, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param daoFactory will be used to get DAOs
+     * @param maxConnections size of connection pool, parallelism should be less than it
+     */
+    public UpdateFineTask(DaoFactoryImpl daoFactory, int maxConnections) {
         this.daoFactory = daoFactory;
+        this.maxConnections = maxConnections;
     }
 
     @Override
@@ -52,34 +77,144 @@ public class UpdateFineTask extends AbstractPeriodicTask {
             return;
         }
 
-        BookingDao bookingDao = daoFactory.getBookingDao();
         UserDao userDao = daoFactory.getUserDao();
+        TaskCheckpointDao checkpointDao = daoFactory.getTaskCheckpointDao();
 
+        long maxId;
+        List<TaskCheckpoint> checkpoints;
         try {
-            for (User user: userDao.getAll()) {
-                checkUser(bookingDao, userDao, user);
-            }
+            maxId = userDao.getMaxId();
+            checkpoints = checkpointDao.findByTask(TASK_NAME);
         } catch (DaoException e) {
-            logger.error("Unable to get users list: {}", e.getMessage());
+            logger.error("Unable to prepare fine update: {}", e.getMessage());
             return;
         }
 
-        logger.info("update finished");
-    }
+        // run is resumed with the same time it was started to get the same result for all partitions
+        Calendar runStarted = checkpoints.isEmpty() ? Calendar.getInstance() : checkpoints.get(0).getRunStarted();
+        Set<Long> done = new HashSet<>();
+        for (TaskCheckpoint checkpoint: checkpoints) {
+            done.add(checkpoint.getId());
+        }
+        if (!done.isEmpty()) {
+            logger.info("resume interrupted run, {} partitions are already done", done.size());
+        }
 
-    private void checkUser(BookingDao bookingDao, UserDao userDao, User user) {
-        logger.trace("proceed user={}", user);
-        double oldFine = user.getFine();
-        Calendar now = Calendar.getInstance();
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<FinePartition> partitions = new ArrayList<>();
+        for (long from = 0; from <= maxId; from += partitionSize) {
+            if (!done.contains(from)) {
+                partitions.add(new FinePartition(from, from + partitionSize, runStarted, failed));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(partitions);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        if (failed.get()) {
+            logger.error("update is not finished, it'll be resumed on next run");
+            return;
+        }
 
-        List<Booking> bookings;
         try {
-            bookings = bookingDao.findDeliveredByUserID(user.getId());
+            checkpointDao.deleteByTask(TASK_NAME);
         } catch (DaoException e) {
-            logger.error("Unable to get booking list for user: {}", e.getMessage());
+            logger.error("Unable to clear checkpoints: {}", e.getMessage());
+        }
+        logger.info("update finished");
+    }
+
+    /**
+     * Users with ids in range [from, to). All users of partition are read by one query, all their delivered bookings
+     * by another one, and all changed fines are written by one batch.
+     */
+    private class FinePartition extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final long from;
+        private final long to;
+        private final Calendar now;
+        private final AtomicBoolean failed;
+
+        FinePartition(long from, long to, Calendar now, AtomicBoolean failed) {
+            this.from = from;
+            this.to = to;
+            this.now = now;
+            this.failed = failed;
+        }
+
+        @Override
+        protected void compute() {
+            logger.debug("partition [{}, {}) started", from, to);
+            UserDao userDao = daoFactory.getUserDao();
+            BookingDao bookingDao = daoFactory.getBookingDao();
+
+            try {
+                Map<Long, List<Booking>> bookingsByUser = new HashMap<>();
+                for (Booking booking: bookingDao.findDeliveredByUserIdRange(from, to)) {
+                    bookingsByUser.computeIfAbsent(booking.getUser().getId(), id -> new ArrayList<>()).add(booking);
+                }
+
+                List<User> changed = new ArrayList<>();
+                for (User user: userDao.findByIdRange(from, to)) {
+                    List<Booking> bookings = bookingsByUser.getOrDefault(user.getId(), Collections.emptyList());
+                    if (checkUser(user, bookings, now)) {
+                        changed.add(user);
+                    }
+                }
+                userDao.updateFines(changed);
+
+                daoFactory.getTaskCheckpointDao().create(new TaskCheckpoint.Builder()
+                        .setId(from)
+                        .setTask(TASK_NAME)
+                        .setRunStarted(now)
+                        .build());
+                logger.debug("partition [{}, {}) finished, {} fines changed", from, to, changed.size());
+            } catch (DaoException e) {
+                failed.set(true);
+                logger.error("Unable to update fines for users [{}, {}): {}", from, to, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Updates fine of one user only, it's used when booking becomes overdue
+     *
+     * @param userId user id
+     * @throws DaoException in case of DB errors
+     */
+    public void updateUser(long userId) throws DaoException {
+        logger.debug("start");
+        if (finePerDay == -1) {
+            logger.fatal(TIMER_TASK_INIT_ERROR, INIT_PARAM_FINE_PER_DAY);
             return;
         }
 
+        UserDao userDao = daoFactory.getUserDao();
+        User user = userDao.read(userId);
+        List<Booking> bookings = daoFactory.getBookingDao().findDeliveredByUserID(userId);
+        if (checkUser(user, bookings, Calendar.getInstance())) {
+            userDao.updateFines(Collections.singletonList(user));
+            logger.info("fine of user (id {}) is updated", userId);
+        }
+        logger.debug("end");
+    }
+
+    /**
+     * @return true if user fine was changed
+     */
+    private boolean checkUser(User user, List<Booking> bookings, Calendar now) {
+        logger.trace("proceed user={}", user);
+        double oldFine = user.getFine();
+
         Calendar fineLastChecked = user.getFineLastChecked();
         for (Booking booking: bookings) {
             logger.trace("check booking={}", booking);
@@ -87,7 +222,9 @@ public class UpdateFineTask extends AbstractPeriodicTask {
             Calendar lastModified =
                     booking.getModified().after(fineLastChecked) ? booking.getModified() : fineLastChecked;
             long pastDays = ChronoUnit.DAYS.between(lastModified.toInstant(), now.toInstant());
-            logger.trace("booking {}: {} unchecked days past", booking.getId(), pastDays);
+            if (logger.isTraceEnabled()) {
+                logger.trace("booking {}: {} unchecked days past", booking.getId(), pastDays);
+            }
 
             for (Book book : booking.getBooks()) {
                 logger.trace("check book={}", book);
@@ -95,7 +232,9 @@ public class UpdateFineTask extends AbstractPeriodicTask {
                 long fineDays = pastDays - keepPeriod;
 
                 if (fineDays > 0) {
-                    logger.trace("fineDays={}", fineDays);
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("fineDays={}", fineDays);
+                    }
                     double fine = fineDays * finePerDay;
                     user.setFine(user.getFine() + fine);
                     logger.trace("keep period exceed, user fine increased on {}", fine);
@@ -106,12 +245,9 @@ public class UpdateFineTask extends AbstractPeriodicTask {
         if (user.getFine() != oldFine) {
             user.setModified(now);
             user.setFineLastChecked(now);
-            try {
-                userDao.update(user);
-            } catch (DaoException e) {
-                logger.error(e.getMessage());
-            }
+            return true;
         }
+        return false;
     }
 
     @Override
@@ -135,6 +271,36 @@ public class UpdateFineTask extends AbstractPeriodicTask {
         } catch (NumberFormatException e) {
             throw new ServiceException(INIT_PARAM_FINE_PER_DAY + " should be valid positive double value: " + e.getMessage());
         }
+
+        int parallelismCandidate = readPositiveInt(context, INIT_PARAM_PARALLELISM, 1);
+        if (parallelismCandidate >= maxConnections) {
+            throw new ServiceException(INIT_PARAM_PARALLELISM + " should be less than connection pool size "
+                    + maxConnections);
+        }
+        int partitionSizeCandidate = readPositiveInt(context, INIT_PARAM_PARTITION_SIZE, DEFAULT_PARTITION_SIZE);
+        synchronized (this) {
+            parallelism = parallelismCandidate;
+            partitionSize = partitionSizeCandidate;
+        }
+        logger.info("parallelism={}, partitionSize={}", parallelismCandidate, partitionSizeCandidate);
         logger.debug("end");
     }
+
+    private static int readPositiveInt(ServletContext context, String param, int defaultValue)
+            throws ServiceException {
+        String value = context.getInitParameter(param);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int result = Integer.parseInt(value);
+            if (result <= 0) {
+                throw new NumberFormatException("it's not positive " + result);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new ServiceException(param + " should be valid positive integer value: " + e.getMessage());
+        }
+    }
 }
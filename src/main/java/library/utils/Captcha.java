@@ -1,35 +1,24 @@
 package library.utils;
 
-import com.github.cage.Cage;
-import com.github.cage.GCage;
-import library.exceptions.ServiceException;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.Serializable;
-import java.util.Base64;
 
+/**
+ * Captcha saved to session. Only token and id are kept here, image is taken from {@link CaptchaPool} by id
+ */
 public class Captcha implements Serializable {
-    private static final Logger logger = LogManager.getLogger(Captcha.class);
-    private static final long serialVersionUID = 1L;
-    private static final Cage cage = new GCage();
+    private static final long serialVersionUID = 2L;
 
+    private final String id;
     private final String token;
     private boolean used;
-    private String base64Image;
-
-    public Captcha() throws ServiceException {
-        token = cage.getTokenGenerator().next();
-        try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-            cage.draw(token, output);
-            byte[] bytes = output.toByteArray();
-            base64Image = Base64.getEncoder().encodeToString(bytes);
-        } catch (IOException e) {
-            logger.error("error in captcha generation: {}", e.getMessage());
-            throw new ServiceException("error.in.captcha.generation", e.getMessage());
-        }
+
+    public Captcha(String id, String token) {
+        this.id = id;
+        this.token = token;
+    }
+
+    public String getId() {
+        return id;
     }
 
     public String getToken() {
@@ -42,21 +31,13 @@ public class Captcha implements Serializable {
 
     public void setUsed(boolean used) {
         this.used = used;
-        if (used) {
-            base64Image = "";
-        }
-    }
-
-    public String getBase64Image() {
-        return base64Image;
     }
 
     @Override
     public String toString() {
         return "Captcha{" +
-                "token='" + token + '\'' +
+                "id='" + id + '\'' +
                 ", used=" + used +
-                ", base64Image='" + base64Image + '\'' +
                 '}';
     }
 }
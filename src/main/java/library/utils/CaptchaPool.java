@@ -0,0 +1,166 @@
+package library.utils;
+
+import com.github.cage.Cage;
+import com.github.cage.GCage;
+import library.exceptions.ServiceException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded pool of pre-rendered captcha images. It's filled by background thread, so request thread only takes
+ * ready captcha. If pool is empty, captcha is rendered on request thread as before.
+ * <p>
+ * Session keeps only {@link Captcha} (id and token), images of issued captchas are kept here till they are
+ * released or evicted by newer ones, and are served by {@link library.controller.CaptchaServlet}.
+ */
+public class CaptchaPool {
+    private static final Logger logger = LogManager.getLogger(CaptchaPool.class);
+    static final int DEFAULT_CAPACITY = 64;
+    static final int DEFAULT_MAX_ISSUED = 4096;
+    private static final CaptchaPool INSTANCE = new CaptchaPool(new GCage(), DEFAULT_CAPACITY, DEFAULT_MAX_ISSUED);
+
+    private final Cage cage;
+    private final BlockingQueue<Rendered> ready;
+    private final Map<String, byte[]> issued;
+    private final ExecutorService filler = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "captcha-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean filling = new AtomicBoolean(false);
+
+    public static CaptchaPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param cage captcha renderer
+     * @param capacity number of pre-rendered captchas
+     * @param maxIssued number of issued captcha images kept for serving, older ones are evicted
+     */
+    CaptchaPool(Cage cage, int capacity, int maxIssued) {
+        this.cage = cage;
+        this.ready = new ArrayBlockingQueue<>(capacity);
+        this.issued = new LinkedHashMap<String, byte[]>(16, 0.75f, false) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxIssued;
+            }
+        };
+    }
+
+    /**
+     * Takes pre-rendered captcha and starts refilling of the pool
+     *
+     * @return captcha to be saved to session, its image is available by {@link #getImage(String)}
+     * @throws ServiceException if pool is empty and captcha can't be rendered
+     */
+    public Captcha issue() throws ServiceException {
+        Rendered rendered = ready.poll();
+        refill();
+        if (rendered == null) {
+            logger.debug("pool is empty, render captcha on request thread");
+            rendered = render();
+        }
+
+        synchronized (issued) {
+            issued.put(rendered.captcha.getId(), rendered.image);
+        }
+        logger.trace("captcha issued {}", rendered.captcha);
+        return rendered.captcha;
+    }
+
+    /**
+     * @param id captcha id
+     * @return image of issued captcha or null, if it was released, evicted or issued on other node
+     */
+    public byte[] getImage(String id) {
+        synchronized (issued) {
+            return issued.get(id);
+        }
+    }
+
+    /**
+     * Renders image again by captcha token, it's used if image is not kept in pool
+     */
+    public byte[] render(Captcha captcha) throws ServiceException {
+        return draw(captcha.getToken());
+    }
+
+    /**
+     * Frees image of captcha, which is not needed anymore
+     *
+     * @param captcha captcha, can be null
+     */
+    public void release(Captcha captcha) {
+        if (captcha == null) {
+            return;
+        }
+        synchronized (issued) {
+            issued.remove(captcha.getId());
+        }
+    }
+
+    int size() {
+        return ready.size();
+    }
+
+    /**
+     * Fills the pool in background, only one filling is run at time
+     */
+    public void refill() {
+        if (ready.remainingCapacity() == 0 || !filling.compareAndSet(false, true)) {
+            return;
+        }
+
+        filler.execute(() -> {
+            try {
+                while (ready.remainingCapacity() > 0) {
+                    ready.offer(render());
+                }
+            } catch (ServiceException e) {
+                logger.error("Unable to fill captcha pool: {}", e.getMessage());
+            } finally {
+                filling.set(false);
+            }
+        });
+    }
+
+    private Rendered render() throws ServiceException {
+        String token = cage.getTokenGenerator().next();
+        return new Rendered(new Captcha(UUID.randomUUID().toString(), token), draw(token));
+    }
+
+    private byte[] draw(String token) throws ServiceException {
+        try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            cage.draw(token, output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            logger.error("error in captcha generation: {}", e.getMessage());
+            throw new ServiceException("error.in.captcha.generation", e.getMessage());
+        }
+    }
+
+    private static class Rendered {
+        private final Captcha captcha;
+        private final byte[] image;
+
+        Rendered(Captcha captcha, byte[] image) {
+            this.captcha = captcha;
+            this.image = image;
+        }
+    }
+}
@@ -17,9 +17,16 @@ public class Pages {
     public static final String BOOKING = "/jsp/librarian/booking.jsp";
     public static final String BOOK_EDIT = "/jsp/admin/book_edit.jsp";
     public static final String AUTHOR_EDIT = "/jsp/admin/author_edit.jsp";
+    public static final String SQL_STATS = "/jsp/admin/sql_stats.jsp";
     public static final String XML_AUTHOR = "/WEB-INF/xml/authors.jsp";
     public static final String XML_SIMPLE_OUTPUT = "/WEB-INF/xml/simpleOutput.jsp";
 
+    public static final String CONTROLLER = "/controller";
+    public static final String USER_BASKET = "/controller?command=user.basket";
+    public static final String SQL_STATS_COMMAND = "/controller?command=sql.stats";
+
     public static final String JS = "/js/libraryCustom.js";
+    public static final String CAPTCHA = "/captcha";
+    public static final String METRICS = "/admin/metrics";
     public static final String ROOT = "/";
 }
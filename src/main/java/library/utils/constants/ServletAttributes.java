@@ -33,6 +33,7 @@ public class ServletAttributes {
     public static final String ATTR_BOOKS = "books";
     public static final String ATTR_USERS = "users";
     public static final String ATTR_AUTHORS = "authors";
+    public static final String ATTR_SQL_STATS = "sqlStats";
 
     public static final String SUPPORTED_LANGUAGES = "langs";
     public static final String PREFERRED_USER_LANG = "lang";
@@ -0,0 +1,125 @@
+package library.utils.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link LatencyStats} of one group: commands of {@link library.controller.FrontController} or
+ * requests passed through {@link library.controller.filters.RequestMetrics}. Every stats is registered in JMX as
+ * {@code library:type=Latency,group=<group>,name=<name>}.
+ * <p>
+ * Names should be taken from fixed set (known commands and pages), otherwise {@link #OTHER} should be used,
+ * so number of histograms isn't driven by user input.
+ */
+public class LatencyMetrics {
+    private static final Logger logger = LogManager.getLogger(LatencyMetrics.class);
+    public static final String OTHER = "other";
+    static final String JMX_DOMAIN = "library";
+
+    private final String group;
+    private final MBeanServer mBeanServer;
+    private final Map<String, LatencyStats> stats = new ConcurrentHashMap<>();
+
+    private static class Holder {
+        private static final LatencyMetrics COMMANDS =
+                new LatencyMetrics("command", ManagementFactory.getPlatformMBeanServer());
+        private static final LatencyMetrics REQUESTS =
+                new LatencyMetrics("request", ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * @return latency of commands executed by {@link library.controller.FrontController}
+     */
+    public static LatencyMetrics getCommands() {
+        return Holder.COMMANDS;
+    }
+
+    /**
+     * @return latency of whole requests, including filters and rendering of pages
+     */
+    public static LatencyMetrics getRequests() {
+        return Holder.REQUESTS;
+    }
+
+    /**
+     * For testing purpose, use {@link #getCommands()} or {@link #getRequests()} otherwise
+     * @param group name of group
+     * @param mBeanServer server to register stats in, null if JMX isn't used
+     */
+    LatencyMetrics(String group, MBeanServer mBeanServer) {
+        this.group = group;
+        this.mBeanServer = mBeanServer;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @param name command or page name
+     * @param nanos duration
+     * @param error true if it was failed
+     */
+    public void record(String name, long nanos, boolean error) {
+        LatencyStats latency = stats.get(name);
+        if (latency == null) {
+            latency = stats.computeIfAbsent(name, this::create);
+        }
+        latency.record(nanos, error);
+    }
+
+    /**
+     * @return snapshots of all stats ordered by name
+     */
+    public Map<String, LatencyStats.Snapshot> snapshot() {
+        Map<String, LatencyStats.Snapshot> result = new TreeMap<>();
+        stats.forEach((name, latency) -> result.put(name, latency.snapshot()));
+        return result;
+    }
+
+    /**
+     * Unregisters all stats from JMX, it's used on undeploy
+     */
+    public void unregister() {
+        if (mBeanServer == null) {
+            return;
+        }
+        for (String name : stats.keySet()) {
+            try {
+                mBeanServer.unregisterMBean(objectName(name));
+            } catch (JMException e) {
+                logger.warn("Unable to unregister latency stats {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private LatencyStats create(String name) {
+        LatencyStats latency = new LatencyStats(name);
+        if (mBeanServer != null) {
+            try {
+                ObjectName objectName = objectName(name);
+                if (mBeanServer.isRegistered(objectName)) {
+                    // left by previous deploy
+                    mBeanServer.unregisterMBean(objectName);
+                }
+                mBeanServer.registerMBean(latency, objectName);
+            } catch (JMException e) {
+                logger.warn("Unable to register latency stats {} in JMX: {}", name, e.getMessage());
+            }
+        }
+        logger.debug("latency stats of {} {} created", group, name);
+        return latency;
+    }
+
+    private ObjectName objectName(String name) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Latency,group=" + group + ",name=" + ObjectName.quote(name));
+    }
+}
@@ -0,0 +1,154 @@
+package library.utils.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error count of one command or page. Recording is wait-free ({@link Recorder}), recorded
+ * values are moved to the cumulative histogram by readers only, so hot path doesn't take locks.
+ * Latency is kept in microseconds with 3 significant digits.
+ */
+public class LatencyStats implements LatencyStatsMXBean {
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double MICROS_IN_MILLI = 1000.0;
+
+    private final String name;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    // guarded by this
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram interval;
+
+    public LatencyStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param nanos duration of request
+     * @param error true if request was failed
+     */
+    public void record(long nanos, boolean error) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+        recorder.recordValue(micros);
+        sum.add(micros);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @return consistent copy of collected values
+     */
+    public synchronized Snapshot snapshot() {
+        update();
+        return new Snapshot(total.copy(), errors.sum(), sum.sum());
+    }
+
+    @Override
+    public synchronized long getCount() {
+        update();
+        return total.getTotalCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public synchronized double getMeanMillis() {
+        update();
+        return total.getMean() / MICROS_IN_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMillis(50);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return percentileMillis(90);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(99);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return percentileMillis(99.9);
+    }
+
+    @Override
+    public synchronized double getMaxMillis() {
+        update();
+        return total.getMaxValue() / MICROS_IN_MILLI;
+    }
+
+    @Override
+    public synchronized void reset() {
+        update();
+        total.reset();
+        errors.reset();
+        sum.reset();
+    }
+
+    private synchronized double percentileMillis(double percentile) {
+        update();
+        return total.getValueAtPercentile(percentile) / MICROS_IN_MILLI;
+    }
+
+    private void update() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+    }
+
+    /**
+     * Values of {@link LatencyStats} at some moment
+     */
+    public static class Snapshot {
+        private final Histogram histogram;
+        private final long errors;
+        private final long sumMicros;
+
+        Snapshot(Histogram histogram, long errors, long sumMicros) {
+            this.histogram = histogram;
+            this.errors = errors;
+            this.sumMicros = sumMicros;
+        }
+
+        public long getCount() {
+            return histogram.getTotalCount();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getSumSeconds() {
+            return sumMicros / 1e6;
+        }
+
+        public double getMaxSeconds() {
+            return histogram.getMaxValue() / 1e6;
+        }
+
+        /**
+         * @param quantile from 0 to 1
+         * @return latency in seconds
+         */
+        public double getQuantileSeconds(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100) / 1e6;
+        }
+    }
+}
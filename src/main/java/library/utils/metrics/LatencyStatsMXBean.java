@@ -0,0 +1,24 @@
+package library.utils.metrics;
+
+/**
+ * JMX view of {@link LatencyStats}, values are collected since start or the last reset
+ */
+public interface LatencyStatsMXBean {
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
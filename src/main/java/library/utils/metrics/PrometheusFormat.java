@@ -0,0 +1,73 @@
+package library.utils.metrics;
+
+import java.io.PrintWriter;
+import java.util.Map;
+
+/**
+ * Writes {@link LatencyMetrics} in Prometheus text format (version 0.0.4): latency as summary in seconds and
+ * errors as counter, for example
+ * <pre>
+ * library_command_latency_seconds{name="book.find",quantile="0.99"} 0.012
+ * library_command_latency_seconds_count{name="book.find"} 1500
+ * library_command_errors_total{name="book.find"} 2
+ * </pre>
+ */
+public class PrometheusFormat {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private PrometheusFormat() {
+    }
+
+    public static void write(PrintWriter out, LatencyMetrics metrics) {
+        Map<String, LatencyStats.Snapshot> snapshots = metrics.snapshot();
+        String prefix = "library_" + metrics.getGroup();
+
+        String latency = prefix + "_latency_seconds";
+        out.append("# HELP ").append(latency).append(" Latency of ").append(metrics.getGroup()).append('\n');
+        out.append("# TYPE ").append(latency).append(" summary\n");
+        for (Map.Entry<String, LatencyStats.Snapshot> entry : snapshots.entrySet()) {
+            String label = "name=\"" + escape(entry.getKey()) + '"';
+            LatencyStats.Snapshot snapshot = entry.getValue();
+            for (double quantile : QUANTILES) {
+                sample(out, latency, label + ",quantile=\"" + quantile + '"',
+                        snapshot.getQuantileSeconds(quantile));
+            }
+            sample(out, latency + "_sum", label, snapshot.getSumSeconds());
+            out.append(latency).append("_count{").append(label).append("} ")
+                    .append(Long.toString(snapshot.getCount())).append('\n');
+        }
+
+        String errors = prefix + "_errors_total";
+        out.append("# HELP ").append(errors).append(" Failed ").append(metrics.getGroup()).append('\n');
+        out.append("# TYPE ").append(errors).append(" counter\n");
+        for (Map.Entry<String, LatencyStats.Snapshot> entry : snapshots.entrySet()) {
+            out.append(errors).append("{name=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(Long.toString(entry.getValue().getErrors())).append('\n');
+        }
+    }
+
+    /**
+     * Writes counter with value per name, for example {@code library_dao_coalesced_total{name="book.read"} 12}
+     *
+     * @param metric name of metric
+     * @param help description of metric
+     * @param values values by name label
+     */
+    public static void writeCounter(PrintWriter out, String metric, String help, Map<String, Long> values) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(" counter\n");
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            out.append(metric).append("{name=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(Long.toString(entry.getValue())).append('\n');
+        }
+    }
+
+    private static void sample(PrintWriter out, String metric, String labels, double value) {
+        out.append(metric).append('{').append(labels).append("} ").append(Double.toString(value)).append('\n');
+    }
+
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,45 @@
+package library.utils.password;
+
+import library.exceptions.ServiceException;
+import library.utils.PasswordUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+
+/**
+ * Legacy unsalted MD5 hashes made by {@link PasswordUtil}. Used for verification only, such hashes are replaced
+ * on successful login.
+ */
+public class Md5PasswordHasher implements PasswordHasher {
+    private static final String PREFIX = "$";
+
+    @Override
+    public String hash(String password) throws ServiceException {
+        try {
+            return PasswordUtil.genHash(password);
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new ServiceException("error.password.generation", e);
+        }
+    }
+
+    @Override
+    public boolean verify(String password, String stored) throws ServiceException {
+        return MessageDigest.isEqual(hash(password).getBytes(StandardCharsets.UTF_8),
+                stored.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Legacy hash is hex string without any prefix
+     */
+    @Override
+    public boolean supports(String stored) {
+        return stored != null && !stored.contains(PREFIX);
+    }
+
+    @Override
+    public boolean needsRehash(String stored) {
+        return true;
+    }
+}
@@ -0,0 +1,36 @@
+package library.utils.password;
+
+import library.exceptions.ServiceException;
+
+/**
+ * Password hashing algorithm. Stored hash has to contain everything needed for verification (salt, cost), so
+ * hashes made with different algorithms or cost parameters can live together in DB.
+ */
+public interface PasswordHasher {
+    /**
+     * @param password plain password
+     * @return hash to be stored in DB
+     * @throws ServiceException in case of errors
+     */
+    String hash(String password) throws ServiceException;
+
+    /**
+     * @param password plain password
+     * @param stored hash from DB, made by this hasher
+     * @return true if password matches the hash
+     * @throws ServiceException in case of errors
+     */
+    boolean verify(String password, String stored) throws ServiceException;
+
+    /**
+     * @param stored hash from DB
+     * @return true if hash was made by this hasher
+     */
+    boolean supports(String stored);
+
+    /**
+     * @param stored hash from DB, made by this hasher
+     * @return true if hash was made with other cost parameters than current ones, so it should be rehashed
+     */
+    boolean needsRehash(String stored);
+}
@@ -0,0 +1,165 @@
+package library.utils.password;
+
+import library.exceptions.ServiceException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.ServletContext;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and verifies passwords on small dedicated executor, so slow KDF can't take all request threads during
+ * login storm. Executor queue is bounded, if it's full request is rejected at once with "error.server.busy".
+ * <p>
+ * New hashes are made by current hasher (PBKDF2), old ones are verified by the hasher which made them, see
+ * {@link #needsRehash(String)} to upgrade them on login. Parameters are specified in web.xml.
+ */
+public class PasswordHashing {
+    private static final Logger logger = LogManager.getLogger(PasswordHashing.class);
+    static final String INIT_PARAM_ITERATIONS = PasswordHashing.class.getName() + ".iterations";
+    static final String INIT_PARAM_THREADS = PasswordHashing.class.getName() + ".threads";
+    static final String INIT_PARAM_QUEUE = PasswordHashing.class.getName() + ".queue";
+    static final int DEFAULT_ITERATIONS = 210000;
+    static final int DEFAULT_THREADS = 2;
+    static final int DEFAULT_QUEUE = 32;
+    static final long TIMEOUT_SECONDS = 10;
+    private static volatile PasswordHashing instance = new PasswordHashing(
+            new Pbkdf2PasswordHasher(DEFAULT_ITERATIONS), DEFAULT_THREADS, DEFAULT_QUEUE);
+
+    private final PasswordHasher current;
+    private final List<PasswordHasher> hashers;
+    private final ThreadPoolExecutor executor;
+
+    public static PasswordHashing getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param current hasher for new passwords
+     * @param threads number of hashing threads
+     * @param queue max number of waiting hash requests
+     */
+    PasswordHashing(PasswordHasher current, int threads, int queue) {
+        this.current = current;
+        this.hashers = Arrays.asList(current, new Md5PasswordHasher());
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread thread = new Thread(r, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Replaces default instance with one configured in web.xml
+     *
+     * @param context application context
+     * @throws ServiceException in case of wrong configuration
+     */
+    public static void init(ServletContext context) throws ServiceException {
+        logger.debug("start");
+        int iterations = readPositiveInt(context, INIT_PARAM_ITERATIONS, DEFAULT_ITERATIONS);
+        int threads = readPositiveInt(context, INIT_PARAM_THREADS, DEFAULT_THREADS);
+        int queue = readPositiveInt(context, INIT_PARAM_QUEUE, DEFAULT_QUEUE);
+
+        PasswordHashing old = instance;
+        instance = new PasswordHashing(new Pbkdf2PasswordHasher(iterations), threads, queue);
+        old.shutdown();
+        logger.info("Password hashing initialized: iterations={}, threads={}, queue={}", iterations, threads, queue);
+        logger.debug("end");
+    }
+
+    private static int readPositiveInt(ServletContext context, String param, int defaultValue)
+            throws ServiceException {
+        String value = context.getInitParameter(param);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int result = Integer.parseInt(value);
+            if (result <= 0) {
+                throw new NumberFormatException("it's not positive " + result);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new ServiceException(param + " should be valid positive integer value: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param password plain password
+     * @return hash made by current hasher
+     * @throws ServiceException if executor is busy or in case of hashing errors
+     */
+    public String hash(String password) throws ServiceException {
+        return execute(() -> current.hash(password));
+    }
+
+    /**
+     * @param password plain password
+     * @param stored hash from DB
+     * @return true if password matches the hash
+     * @throws ServiceException if executor is busy or in case of hashing errors
+     */
+    public boolean verify(String password, String stored) throws ServiceException {
+        PasswordHasher hasher = find(stored);
+        if (hasher == null) {
+            logger.error("unknown password hash format");
+            return false;
+        }
+        return execute(() -> hasher.verify(password, stored));
+    }
+
+    /**
+     * @param stored verified hash from DB
+     * @return true if it was made by legacy hasher or with old cost parameters
+     */
+    public boolean needsRehash(String stored) {
+        PasswordHasher hasher = find(stored);
+        return hasher != current || current.needsRehash(stored);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private PasswordHasher find(String stored) {
+        for (PasswordHasher hasher: hashers) {
+            if (hasher.supports(stored)) {
+                return hasher;
+            }
+        }
+        return null;
+    }
+
+    private <T> T execute(Callable<T> task) throws ServiceException {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("password hashing queue is full, request is rejected");
+            throw new ServiceException("error.server.busy");
+        }
+
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            throw new ServiceException("error.password.generation", e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceException("error.server.busy");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceException("error.server.busy");
+        }
+    }
+}
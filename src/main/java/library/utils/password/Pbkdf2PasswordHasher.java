@@ -0,0 +1,95 @@
+package library.utils.password;
+
+import library.exceptions.ServiceException;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2 with HMAC-SHA256 and random salt per user. Hash is stored as {@code pbkdf2$iterations$salt$hash},
+ * salt and hash are base64 encoded.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+    static final String ID = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String DELIM = "$";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final SecureRandom random = new SecureRandom();
+
+    private final int iterations;
+
+    /**
+     * @param iterations cost parameter, the more iterations the slower hashing is
+     */
+    public Pbkdf2PasswordHasher(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("iterations should be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String hash(String password) throws ServiceException {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        return ID + DELIM + iterations + DELIM + encoder.encodeToString(salt) + DELIM +
+                encoder.encodeToString(derive(password, salt, iterations));
+    }
+
+    @Override
+    public boolean verify(String password, String stored) throws ServiceException {
+        String[] parts = split(stored);
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] salt = decoder.decode(parts[2]);
+            byte[] expected = decoder.decode(parts[3]);
+            return MessageDigest.isEqual(expected, derive(password, salt, Integer.parseInt(parts[1])));
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException("error.password.generation", e);
+        }
+    }
+
+    @Override
+    public boolean supports(String stored) {
+        return stored != null && stored.startsWith(ID + DELIM);
+    }
+
+    @Override
+    public boolean needsRehash(String stored) {
+        try {
+            return Integer.parseInt(split(stored)[1]) != iterations;
+        } catch (ServiceException | NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static String[] split(String stored) throws ServiceException {
+        String[] parts = stored.split("\\" + DELIM);
+        if (parts.length != 4 || !parts[0].equals(ID)) {
+            throw new ServiceException("error.password.generation");
+        }
+        return parts;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) throws ServiceException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new ServiceException("error.password.generation", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
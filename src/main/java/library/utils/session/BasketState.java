@@ -0,0 +1,62 @@
+package library.utils.session;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * NEW booking of user saved to session. Only ids of user and books are kept here, so session stays small while
+ * replicated. Booking itself is restored from DB on every request by {@link library.model.command.BookingLogic}
+ */
+public class BasketState implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long userId;
+    private final Set<Long> bookIds = new LinkedHashSet<>();
+
+    public BasketState(long userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * @param userId owner of the basket
+     * @param bookIds ids of books in the basket, order is preserved
+     */
+    public BasketState(long userId, List<Long> bookIds) {
+        this.userId = userId;
+        this.bookIds.addAll(bookIds);
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return ids of books in order they were added
+     */
+    public List<Long> getBookIds() {
+        return Collections.unmodifiableList(new ArrayList<>(bookIds));
+    }
+
+    /**
+     * @return number of books in the basket, it's shown in page header
+     */
+    public int getSize() {
+        return bookIds.size();
+    }
+
+    public boolean isEmpty() {
+        return bookIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BasketState{" +
+                "userId=" + userId +
+                ", bookIds=" + bookIds +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package library.utils.session;
+
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sizes of session attributes in bytes, as they are serialized for replication between cluster nodes.
+ * Serialization is not cheap, so it should be used only when it's really needed (debug logging, admin report)
+ */
+public class SessionSizeReport {
+    /**
+     * Size of attribute, which can't be serialized. Such attribute breaks session replication
+     */
+    public static final int NOT_SERIALIZABLE = -1;
+
+    private final Map<String, Integer> sizes;
+    private final long total;
+
+    private SessionSizeReport(Map<String, Integer> sizes) {
+        this.sizes = Collections.unmodifiableMap(sizes);
+        long sum = 0;
+        for (int size: sizes.values()) {
+            if (size > 0) {
+                sum += size;
+            }
+        }
+        this.total = sum;
+    }
+
+    /**
+     * @param session session to be measured, can be null
+     * @return report with attributes sorted by name
+     */
+    public static SessionSizeReport of(HttpSession session) {
+        Map<String, Integer> sizes = new TreeMap<>();
+        if (session == null) {
+            return new SessionSizeReport(sizes);
+        }
+
+        Enumeration<String> names = session.getAttributeNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            sizes.put(name, sizeOf(session.getAttribute(name)));
+        }
+        return new SessionSizeReport(sizes);
+    }
+
+    /**
+     * @param value attribute value
+     * @return size of serialized value in bytes or {@link #NOT_SERIALIZABLE}
+     */
+    public static int sizeOf(Object value) {
+        if (value != null && !(value instanceof Serializable)) {
+            return NOT_SERIALIZABLE;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            return NOT_SERIALIZABLE;
+        }
+        return bytes.size();
+    }
+
+    /**
+     * @return attribute name to its size in bytes
+     */
+    public Map<String, Integer> getSizes() {
+        return sizes;
+    }
+
+    /**
+     * @return sum of sizes of all serializable attributes
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionSizeReport{" +
+                "total=" + total +
+                ", sizes=" + sizes +
+                '}';
+    }
+}
@@ -1,19 +1,24 @@
 package library.utils.tagClasses;
 
+import library.model.connection.IdentityMap;
 import library.model.entities.Entity;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.servlet.jsp.JspException;
 import javax.servlet.jsp.tagext.TagSupport;
 import java.util.List;
 
 /**
- * Finds entity in provided list by entity's id
+ * Finds entity by entity's id: in entities read by current request ({@link IdentityMap}), if type is set,
+ * then in provided list
  */
 public class GetEntityByID extends TagSupport {
   private static final Logger logger = LogManager.getLogger(GetEntityByID.class);
+  private static final String ENTITIES_PACKAGE = Entity.class.getPackage().getName();
   private long lookUpID;
   private String var;
+  private String type;
   private List<Entity> value;
 
   public void setLookUpID(long lookUpID) {
@@ -24,13 +29,32 @@ public class GetEntityByID extends TagSupport {
     this.var = var;
   }
 
+  /**
+   * @param type simple name of entity class, e.g. User
+   */
+  public void setType(String type) {
+    this.type = type;
+  }
+
   public void setValue(List<Entity> value) {
     this.value = value;
   }
 
   @Override
-  public int doStartTag() {
-    logger.trace("init: var={}, lookUpID={}, value={}", var, lookUpID, value);
+  public int doStartTag() throws JspException {
+    logger.trace("init: var={}, type={}, lookUpID={}, value={}", var, type, lookUpID, value);
+
+    if (type != null) {
+      Entity known = IdentityMap.get(entityClass(), lookUpID);
+      if (known != null) {
+        logger.debug("Entity was found in identity map");
+        pageContext.setAttribute(var, known);
+        return SKIP_BODY;
+      }
+    }
+    if (value == null) {
+      return SKIP_BODY;
+    }
 
     for (Entity e: value) {
       if (e.getId() == lookUpID) {
@@ -43,4 +67,12 @@ public class GetEntityByID extends TagSupport {
 
     return SKIP_BODY;
   }
+
+  private Class<? extends Entity> entityClass() throws JspException {
+    try {
+      return Class.forName(ENTITIES_PACKAGE + "." + type).asSubclass(Entity.class);
+    } catch (ClassNotFoundException | ClassCastException e) {
+      throw new JspException("Unknown entity type: " + type, e);
+    }
+  }
 }
@@ -0,0 +1,85 @@
+-- schema of the first release (sql/db_scheme.png), it's kept by existing databases
+CREATE TABLE IF NOT EXISTS lang (
+  id   INT        NOT NULL AUTO_INCREMENT,
+  code VARCHAR(2) NOT NULL,
+  PRIMARY KEY (id),
+  UNIQUE KEY lang_code (code)
+);
+
+CREATE TABLE IF NOT EXISTS user (
+  id                INT          NOT NULL AUTO_INCREMENT,
+  email             VARCHAR(50)  NOT NULL,
+  password          CHAR(128)    NOT NULL,
+  role              ENUM('USER', 'LIBRARIAN', 'ADMIN') NOT NULL,
+  state             ENUM('VALID', 'BLOCKED', 'DELETED') NOT NULL,
+  fine              DECIMAL(9,2) NOT NULL DEFAULT 0,
+  name              VARCHAR(50)  NULL,
+  preferred_lang_id INT          NOT NULL,
+  modified          DATETIME     NOT NULL,
+  fine_last_checked DATETIME     NULL,
+  PRIMARY KEY (id),
+  FOREIGN KEY (preferred_lang_id) REFERENCES lang (id)
+);
+
+CREATE TABLE IF NOT EXISTS book (
+  id          INT          NOT NULL AUTO_INCREMENT,
+  title       VARCHAR(256) NOT NULL,
+  isbn        VARCHAR(17)  NOT NULL,
+  year        YEAR         NOT NULL,
+  lang_code   VARCHAR(2)   NOT NULL,
+  keep_period INT          NOT NULL,
+  modified    DATETIME     NOT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS book_stat (
+  book_id          INT NOT NULL,
+  total            INT NOT NULL DEFAULT 0,
+  in_stock         INT NOT NULL DEFAULT 0,
+  reserved         INT NOT NULL DEFAULT 0,
+  times_was_booked INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (book_id),
+  FOREIGN KEY (book_id) REFERENCES book (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS author (
+  id       INT         NOT NULL AUTO_INCREMENT,
+  name     VARCHAR(50) NOT NULL,
+  modified DATETIME    NOT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS author_name_i18n (
+  lang_id   INT         NOT NULL,
+  author_id INT         NOT NULL,
+  name      VARCHAR(50) NOT NULL,
+  PRIMARY KEY (lang_id, author_id),
+  FOREIGN KEY (lang_id) REFERENCES lang (id),
+  FOREIGN KEY (author_id) REFERENCES author (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS book_author (
+  book_id   INT NOT NULL,
+  author_id INT NOT NULL,
+  PRIMARY KEY (book_id, author_id),
+  FOREIGN KEY (book_id) REFERENCES book (id) ON DELETE CASCADE,
+  FOREIGN KEY (author_id) REFERENCES author (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS booking (
+  id       INT      NOT NULL AUTO_INCREMENT,
+  user_id  INT      NOT NULL,
+  state    ENUM('NEW', 'BOOKED', 'DELIVERED', 'DONE', 'CANCELED') NOT NULL,
+  located  ENUM('LIBRARY', 'USER') NOT NULL,
+  modified DATETIME NOT NULL,
+  PRIMARY KEY (id),
+  FOREIGN KEY (user_id) REFERENCES user (id)
+);
+
+CREATE TABLE IF NOT EXISTS book_in_booking (
+  booking_id INT NOT NULL,
+  book_id    INT NOT NULL,
+  PRIMARY KEY (booking_id, book_id),
+  FOREIGN KEY (booking_id) REFERENCES booking (id) ON DELETE CASCADE,
+  FOREIGN KEY (book_id) REFERENCES book (id)
+);
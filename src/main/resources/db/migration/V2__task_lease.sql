@@ -0,0 +1,8 @@
+-- leases for periodic tasks, see library.model.tasks.LeaderElection
+CREATE TABLE IF NOT EXISTS task_lease (
+  name     VARCHAR(255) NOT NULL,
+  owner    VARCHAR(255) NOT NULL,
+  expires  DATETIME(3)  NOT NULL,
+  last_run DATETIME(3)  NULL,
+  PRIMARY KEY (name)
+);
@@ -0,0 +1,7 @@
+-- finished partitions of interrupted periodic task run, see library.model.tasks.UpdateFineTask
+CREATE TABLE IF NOT EXISTS task_checkpoint (
+  task           VARCHAR(255) NOT NULL,
+  partition_from BIGINT       NOT NULL,
+  run_started    DATETIME(3)  NOT NULL,
+  PRIMARY KEY (task, partition_from)
+);
@@ -0,0 +1,2 @@
+-- password keeps algorithm, cost and salt with hash now, see library.utils.password.PasswordHashing
+ALTER TABLE user MODIFY password VARCHAR(255) NOT NULL;
@@ -0,0 +1,3 @@
+-- NEW bookings are drafts of user baskets, see library.model.tasks.BasketStore.
+-- Every user has at most one of them, it's looked up by user and state.
+CREATE INDEX booking_user_state ON booking (user_id, state);
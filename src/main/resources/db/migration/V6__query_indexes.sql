@@ -0,0 +1,24 @@
+-- indexes of hot predicates, plans of DAO statements are checked by library.model.dao.impl.QueryPlanTest.
+-- book_in_booking is looked up by booking_id, which leads its primary key.
+-- login and registration look user up by email. Index isn't unique: databases filled before it may have duplicate
+-- emails, unique index would fail migration on them (duplicates are rejected by registration, not by schema)
+CREATE INDEX user_email ON user (email);
+
+-- names of authors, also by lazy and batch loading (author_id IN)
+CREATE INDEX author_name_i18n_author ON author_name_i18n (author_id);
+-- author search and read by name
+CREATE INDEX author_name_i18n_name ON author_name_i18n (name);
+
+-- books of author, deletion of author
+CREATE INDEX book_author_author ON book_author (author_id);
+
+-- bookings of book
+CREATE INDEX book_in_booking_book ON book_in_booking (book_id);
+
+-- catalog sorted by title, page is read by index order with LIMIT
+CREATE INDEX book_title ON book (title);
+-- book by ISBN
+CREATE INDEX book_isbn ON book (isbn);
+
+-- search of bookings by state and delivered bookings of user id partitions (library.model.tasks.UpdateFineTask)
+CREATE INDEX booking_state_user ON booking (state, user_id);
@@ -0,0 +1,3 @@
+-- bookings due soon by state and modified time (library.model.tasks.BookingDeadlines), deadline is modified time
+-- plus days of state, so the leader reads only bookings of the next window by index range
+CREATE INDEX booking_state_modified ON booking (state, modified);
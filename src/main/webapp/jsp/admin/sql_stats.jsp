@@ -0,0 +1,41 @@
+<%@ include file="/WEB-INF/jspf/normal_page_directive.jspf" %>
+
+
+<div class="container">
+    <div class="container pt-4">
+        <form action="/controller" method="post">
+            <input type="hidden" value="sql.reset" name="command">
+            <button type="submit" class="btn btn-danger"><fmt:message key='header.sql.reset'/></button>
+        </form>
+    </div>
+    <div class="container pt-4">
+        <table class="table table-hover table-sm">
+            <thead class="bg-secondary bg-gradient text-white">
+                <th scope="col"><fmt:message key='header.sql.statement'/></th>
+                <th scope="col"><fmt:message key='header.sql.calls'/></th>
+                <th scope="col"><fmt:message key='header.sql.errors'/></th>
+                <th scope="col"><fmt:message key='header.sql.rows'/></th>
+                <th scope="col"><fmt:message key='header.sql.total'/></th>
+                <th scope="col"><fmt:message key='header.sql.mean'/></th>
+                <th scope="col"><fmt:message key='header.sql.p99'/></th>
+                <th scope="col"><fmt:message key='header.sql.max'/></th>
+            </thead>
+            <tbody>
+                <c:forEach var="statement" items="${sqlStats}">
+                    <tr class="table-light">
+                        <td><code><c:out value="${statement.sql}"/></code></td>
+                        <td><c:out value="${statement.calls}"/></td>
+                        <td><c:out value="${statement.errors}"/></td>
+                        <td><c:out value="${statement.rows}"/></td>
+                        <td><fmt:formatNumber value="${statement.totalMillis}" maxFractionDigits="1"/></td>
+                        <td><fmt:formatNumber value="${statement.meanMillis}" maxFractionDigits="2"/></td>
+                        <td><fmt:formatNumber value="${statement.p99Millis}" maxFractionDigits="2"/></td>
+                        <td><fmt:formatNumber value="${statement.maxMillis}" maxFractionDigits="2"/></td>
+                    </tr>
+                </c:forEach>
+            </tbody>
+        </table>
+    </div>
+</div>
+
+<jsp:include page="/WEB-INF/jspf/footer.jsp"/>
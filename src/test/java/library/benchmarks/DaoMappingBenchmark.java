@@ -0,0 +1,95 @@
+package library.benchmarks;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.load.DatasetGenerator;
+import library.model.connection.H2Database;
+import library.model.dao.impl.BookDaoImpl;
+import library.model.dao.impl.LangDaoImpl;
+import library.model.dao.impl.UserDaoImpl;
+import library.model.entities.Book;
+import library.model.entities.Lang;
+import library.model.entities.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row mapping of DAOs against embedded H2 in MySQL mode ({@link H2Database}), so no MySQL server is needed.
+ * Database has {@code rows} readers, books and authors of {@link DatasetGenerator}, no bookings.
+ * <ul>
+ *     <li> {@code users} - {@link UserDaoImpl#getAll()}, {@code parse} with 2 {@code Calendar.getInstance} and
+ *     lang read per row
+ *     <li> {@code usersRawJdbc} - the same query and columns read by plain JDBC, baseline of mapping overhead
+ *     <li> {@code bookPage} - page of 20 books by title with stats and authors, as catalog shows it
+ *     <li> {@code langs} - {@link LangDaoImpl#getAll()}, the smallest table, cost of query itself
+ * </ul>
+ * Results are compared between runs as JSON: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DaoMapping}
+ * writes {@code target/jmh-result.json}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DaoMappingBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100", "1000"})
+    private int rows;
+
+    private Connection conn;
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = H2Database.create("mapping");
+        new DatasetGenerator(new DatasetGenerator.Volumes(rows, rows, rows, 0, 5), 1)
+                .generate(conn, "pbkdf2$10000$salt$hash");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public List<User> users() throws DaoException {
+        return new UserDaoImpl(conn).getAll();
+    }
+
+    @Benchmark
+    public void usersRawJdbc(Blackhole bh) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM user WHERE state != 'DELETED'")) {
+            while (rs.next()) {
+                bh.consume(rs.getInt("id"));
+                bh.consume(rs.getString("email"));
+                bh.consume(rs.getString("name"));
+                bh.consume(rs.getString("password"));
+                bh.consume(rs.getString("role"));
+                bh.consume(rs.getString("state"));
+                bh.consume(rs.getDouble("fine"));
+                bh.consume(rs.getTimestamp("fine_last_checked"));
+                bh.consume(rs.getTimestamp("modified"));
+                bh.consume(rs.getInt("preferred_lang_id"));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Book> bookPage() throws DaoException, ServiceException {
+        return new BookDaoImpl(conn).findByPattern("The", "title", "title", PAGE_SIZE, 1);
+    }
+
+    @Benchmark
+    public List<Lang> langs() throws DaoException {
+        return new LangDaoImpl(conn).getAll();
+    }
+}
@@ -0,0 +1,98 @@
+package library.benchmarks;
+
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.Lang;
+import library.model.entities.User;
+import library.model.entities.codec.EntityCodec;
+import library.utils.session.SessionSizeReport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session replication cost of booking with 10 books, each one has 2 authors with names in 2 languages.
+ * <ul>
+ *     <li> {@code javaRoundTrip} - java serialization and deserialization, as done by container for session,
+ *     with {@code compact} format of {@link EntityCodec} or {@code default} one
+ *     <li> {@code codecRoundTrip} - {@link EntityCodec} directly, as it should be used by caches and snapshots
+ * </ul>
+ * Serialized size of booking is printed on setup.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntitySerializationBenchmark {
+    @Param({"default", "compact"})
+    private String format;
+
+    private Booking booking;
+
+    @Setup
+    public void setUp() {
+        EntityCodec.setEnabled(format.equals("compact"));
+        booking = createBooking(10);
+        System.out.println(format + " size: " + SessionSizeReport.sizeOf(booking) + " bytes, codec size: " +
+                EntityCodec.toBytes(booking).length + " bytes");
+    }
+
+    @TearDown
+    public void tearDown() {
+        EntityCodec.setEnabled(true);
+    }
+
+    @Benchmark
+    public Object javaRoundTrip() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(booking);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public Object codecRoundTrip() throws IOException {
+        return EntityCodec.fromBytes(EntityCodec.toBytes(booking));
+    }
+
+    static Booking createBooking(int booksNumber) {
+        Lang en = new Lang.Builder().setId(1).setCode("en").build();
+        Lang uk = new Lang.Builder().setId(2).setCode("uk").build();
+        User user = new User.Builder().setId(1).setEmail("reader@library.com").setName("Reader")
+                .setPreferredLang(en).setModified(Calendar.getInstance())
+                .setFineLastChecked(Calendar.getInstance()).build();
+
+        Booking result = new Booking.Builder().setId(1).setUser(user).setModified(Calendar.getInstance()).build();
+        for (int i = 0; i < booksNumber; i++) {
+            Book book = new Book.Builder().setId(i).setTitle("Title of the book number " + i)
+                    .setIsbn("978-3-16-1484" + i).setYear(1990 + i).setLangCode("en").setKeepPeriod(14)
+                    .setModified(Calendar.getInstance())
+                    .setBookStat(new BookStat.Builder().setId(i).setTotal(10).build())
+                    .build();
+            for (int j = 0; j < 2; j++) {
+                Author.Builder builder = new Author.Builder().setId(i * 2L + j).setName("Author " + i + j)
+                        .setModified(Calendar.getInstance());
+                builder.addI18Name(en, "Author " + i + j);
+                builder.addI18Name(uk, "Автор " + i + j);
+                Author author = builder.build();
+                author.setPrimaryLang(en);
+                book.getAuthors().add(author);
+            }
+            result.getBooks().add(book);
+        }
+        return result;
+    }
+}
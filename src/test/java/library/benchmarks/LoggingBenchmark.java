@@ -0,0 +1,134 @@
+package library.benchmarks;
+
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.User;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.api.RootLoggerComponentBuilder;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging overhead of one request for every level, with synchronous and asynchronous loggers.
+ * Request is simulated with the same logging calls, which are made by front controller, logic and DAO layers
+ * while booking with 3 books is read: start/end debug messages, trace of parameters and of complete entities.
+ * Compare with level OFF to get the overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+    private static final String QUERY = "SELECT * FROM booking WHERE id = ?";
+    private static final int BOOKS = 3;
+
+    @Param({"OFF", "INFO", "DEBUG", "TRACE"})
+    private String level;
+
+    @Param({"false", "true"})
+    private boolean async;
+
+    private Path file;
+    private LoggerContext context;
+    private Logger logger;
+    private Booking booking;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("logging-benchmark", ".log");
+
+        ConfigurationBuilder<BuiltConfiguration> builder = ConfigurationBuilderFactory.newConfigurationBuilder();
+        builder.add(builder.newAppender("File", "RandomAccessFile")
+                .addAttribute("fileName", file.toString())
+                .addAttribute("immediateFlush", false)
+                .add(builder.newLayout("PatternLayout").addAttribute("pattern", "%d %p [%t] %c{1} - %m%n")));
+        RootLoggerComponentBuilder root = async
+                ? builder.newAsyncRootLogger(Level.valueOf(level))
+                : builder.newRootLogger(Level.valueOf(level));
+        builder.add(root.addAttribute("includeLocation", false).add(builder.newAppenderRef("File")));
+
+        context = new LoggerContext("LoggingBenchmark");
+        context.start(builder.build());
+        logger = context.getLogger(LoggingBenchmark.class.getName());
+        booking = createBooking();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(file);
+    }
+
+    private static Booking createBooking() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            Author author = new Author.Builder().setId(i).setName("Author " + i).setModified(Calendar.getInstance())
+                    .build();
+            books.add(new Book.Builder()
+                    .setId(i)
+                    .setTitle("Title " + i)
+                    .setIsbn("978-3-16-148410-" + i)
+                    .setYear(2000 + i)
+                    .setLangCode("en")
+                    .setKeepPeriod(14)
+                    .setModified(Calendar.getInstance())
+                    .setAuthors(Collections.singletonList(author))
+                    .setBookStat(new BookStat.Builder().setId(i).setTotal(10).setInStock(5).build())
+                    .build());
+        }
+        return new Booking.Builder()
+                .setId(1)
+                .setModified(Calendar.getInstance())
+                .setUser(new User.Builder().setId(1).setEmail("user@library").setName("User")
+                        .setModified(Calendar.getInstance()).setFineLastChecked(Calendar.getInstance()).build())
+                .setBooks(books)
+                .build();
+    }
+
+    @Benchmark
+    public Booking request() {
+        // front controller and logic
+        logger.debug("start");
+        logger.trace("uri={}, query={}", "/controller", "command=booking&id=1");
+        logger.trace("commandStr={}, encoding={}", "booking", "UTF-8");
+
+        // dao: booking, its user and books with stats and authors
+        readRow(booking.getId());
+        readRow(booking.getUser().getId());
+        for (Book book : booking.getBooks()) {
+            readRow(book.getId());
+            readRow(book.getBookStat().getId());
+            readRow(book.getAuthors().get(0).getId());
+        }
+        logger.trace("complete books={}", booking.getBooks());
+        logger.trace("booking={}", booking);
+
+        logger.debug("forward to page={}", "/jsp/booking.jsp");
+        return booking;
+    }
+
+    private void readRow(long id) {
+        logger.debug("start");
+        logger.trace("id={}, query={}", id, QUERY);
+        logger.debug("result set parsing init...");
+        logger.debug("result set parsing finished");
+        logger.debug("end");
+    }
+}
@@ -0,0 +1,57 @@
+package library.benchmarks;
+
+import library.exceptions.ServiceException;
+import library.utils.password.Md5PasswordHasher;
+import library.utils.password.PasswordHasher;
+import library.utils.password.PasswordHashing;
+import library.utils.password.Pbkdf2PasswordHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of password hashing per call and login throughput it allows.
+ * <ul>
+ *     <li> {@code hash} - single PBKDF2 hash (or legacy MD5) on caller thread, time per call
+ *     <li> {@code login} - password verification through {@link PasswordHashing} executor from 8 request threads,
+ *     logins per second. It's limited by number of hashing threads, not by request threads.
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+    private static final String PASS = "correct horse battery staple";
+
+    @Param({"md5", "10000", "210000"})
+    private String iterations;
+
+    private PasswordHasher hasher;
+    private PasswordHashing hashing;
+    private String stored;
+
+    @Setup
+    public void setUp() throws ServiceException {
+        hasher = iterations.equals("md5")
+                ? new Md5PasswordHasher()
+                : new Pbkdf2PasswordHasher(Integer.parseInt(iterations));
+        stored = hasher.hash(PASS);
+        hashing = PasswordHashing.getInstance();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String hash() throws ServiceException {
+        return hasher.hash(PASS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(8)
+    public boolean login() throws ServiceException {
+        return hashing.verify(PASS, stored);
+    }
+}
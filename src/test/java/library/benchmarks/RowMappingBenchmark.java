@@ -0,0 +1,104 @@
+package library.benchmarks;
+
+import library.exceptions.DaoException;
+import library.load.DatasetGenerator;
+import library.model.connection.BaseDao;
+import library.model.connection.H2Database;
+import library.model.connection.IdentityMap;
+import library.model.connection.Transaction;
+import library.model.dao.impl.LangDaoImpl;
+import library.model.dao.impl.UserDaoImpl;
+import library.model.entities.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of large reads by {@link library.model.connection.RowMapper} against parsing by column labels with
+ * {@code Calendar.getInstance} per temporal column, as DAOs did before. Both read all {@code rows} users of
+ * {@link DatasetGenerator} by the same query with identity map open, so lang is read once and only mapping differs.
+ * <ul>
+ *     <li> {@code users} - {@link UserDaoImpl#getAll()}, indexes resolved once, calendars cloned
+ *     <li> {@code usersByLabel} - the same rows by former {@code UserDaoImpl.parse}
+ * </ul>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=RowMapping}
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RowMappingBenchmark {
+    private static final String QUERY = "SELECT * FROM user WHERE state != 'DELETED'";
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    private Connection conn;
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = H2Database.create("row-mapping");
+        new DatasetGenerator(new DatasetGenerator.Volumes(0, 0, rows, 0, 1), 1)
+                .generate(conn, "pbkdf2$10000$salt$hash");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public List<User> users() throws DaoException {
+        IdentityMap.open();
+        try {
+            return new UserDaoImpl(conn).getAll();
+        } finally {
+            IdentityMap.close();
+        }
+    }
+
+    @Benchmark
+    public List<User> usersByLabel() throws DaoException {
+        IdentityMap.open();
+        try {
+            return new Transaction(conn).noTransactionWrapper(c ->
+                    new BaseDao<User>(c).getRecords(QUERY, RowMappingBenchmark::parse));
+        } finally {
+            IdentityMap.close();
+        }
+    }
+
+    private static User parse(Connection c, ResultSet rs) throws SQLException, DaoException {
+        User known = IdentityMap.get(User.class, rs.getInt("id"));
+        if (known != null) {
+            return known;
+        }
+        User.Builder builder = new User.Builder();
+        builder.setId(rs.getInt("id"));
+        builder.setEmail(rs.getString("email"));
+        builder.setName(rs.getString("name"));
+        builder.setPassword(rs.getString("password"));
+        builder.setRole(User.Role.valueOf(rs.getString("role")));
+        builder.setState(User.State.valueOf(rs.getString("state")));
+        builder.setFine(rs.getDouble("fine"));
+        builder.setFineLastChecked(calendar(rs, "fine_last_checked"));
+        builder.setModified(calendar(rs, "modified"));
+        builder.setPreferredLang(new LangDaoImpl(c).read(rs.getInt("preferred_lang_id")));
+        return IdentityMap.put(builder.build());
+    }
+
+    private static Calendar calendar(ResultSet rs, String column) throws SQLException {
+        Timestamp sqlTimestamp = rs.getTimestamp(column);
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(sqlTimestamp);
+        return cal;
+    }
+}
@@ -0,0 +1,159 @@
+package library.benchmarks;
+
+import library.exceptions.ServiceException;
+import library.model.command.Command;
+import library.model.command.CommandContext;
+import library.model.connection.BaseDao;
+import library.model.connection.Disjoint;
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.Lang;
+import library.utils.validation.SafeRequest;
+import org.openjdk.jmh.annotations.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Small helpers called on every request or for every row, time per call.
+ * <ul>
+ *     <li> {@code disjoint} - {@link Disjoint} of old and new authors of book, as book edit does it
+ *     <li> {@code escapeForLike} - {@link BaseDao#escapeForLike(String)} of search pattern
+ *     <li> {@code safeEscape}, {@code safeEmail} - {@link SafeRequest} of login form parameters
+ *     <li> {@code authorName}, {@code authorNameFallback} - {@link Author#getName(Lang, boolean)} with and
+ *     without translation to lang
+ *     <li> {@code getCommand} - {@link CommandContext#getCommand(String)}, done by front controller
+ *     <li> {@code booksContains}, {@code booksRemoveAll}, {@code booksDistinct} - list operations on books,
+ *     they call {@code equals} and {@code hashCode} of entities
+ * </ul>
+ * Results are compared between runs as JSON: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=Utility}
+ * writes {@code target/jmh-result.json}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UtilityBenchmark {
+    @Param({"20"})
+    private int size;
+
+    private final Lang en = new Lang.Builder().setId(1).setCode("en").build();
+    private final Lang uk = new Lang.Builder().setId(2).setCode("uk").build();
+    private final Lang de = new Lang.Builder().setId(3).setCode("de").build();
+    private List<Author> oldAuthors;
+    private List<Author> newAuthors;
+    private Author author;
+    private List<Book> books;
+    private List<Book> half;
+    private Book missing;
+    private HttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        oldAuthors = authors(0, 3);
+        newAuthors = authors(1, 3);
+        author = oldAuthors.get(0);
+
+        books = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            books.add(book(i));
+        }
+        books.addAll(books.subList(0, size / 2));
+        half = new ArrayList<>(books.subList(0, size / 2));
+        missing = book(size);
+
+        request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getParameter")) {
+                        return args[0].equals("email") ? " reader.name@library.com " : "<script>alert('1')</script>";
+                    }
+                    return null;
+                });
+    }
+
+    @Benchmark
+    public Disjoint<Author> disjoint() {
+        return new Disjoint<>(oldAuthors, newAuthors);
+    }
+
+    @Benchmark
+    public String escapeForLike() {
+        return BaseDao.escapeForLike("50% of [war_and_peace]!");
+    }
+
+    @Benchmark
+    public String safeEscape() {
+        return new SafeRequest(request).get("title").escape().convert();
+    }
+
+    @Benchmark
+    public String safeEmail() throws ServiceException {
+        return new SafeRequest(request).get("email").asEmail().convert();
+    }
+
+    @Benchmark
+    public String authorName() {
+        return author.getName(uk, true);
+    }
+
+    @Benchmark
+    public String authorNameFallback() {
+        return author.getName(de, true);
+    }
+
+    @Benchmark
+    public Command getCommand() throws ServiceException {
+        return CommandContext.getCommand("book.find");
+    }
+
+    @Benchmark
+    public boolean booksContains() {
+        return books.contains(missing);
+    }
+
+    @Benchmark
+    public List<Book> booksRemoveAll() {
+        List<Book> copy = new ArrayList<>(books);
+        copy.removeAll(half);
+        return copy;
+    }
+
+    @Benchmark
+    public List<Book> booksDistinct() {
+        return books.stream().distinct().collect(Collectors.toList());
+    }
+
+    private List<Author> authors(int from, int count) {
+        List<Author> authors = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            Author.Builder builder = new Author.Builder()
+                    .setId(i)
+                    .setName("Author " + i)
+                    .setModified(Calendar.getInstance());
+            builder.addI18Name(en, "Author " + i);
+            builder.addI18Name(uk, "Автор " + i);
+            authors.add(builder.build());
+        }
+        return authors;
+    }
+
+    private Book book(int i) {
+        return new Book.Builder()
+                .setId(i)
+                .setTitle("Book " + i)
+                .setIsbn("978-0-00-" + String.format("%06d", i))
+                .setYear(1950 + i)
+                .setLangCode("en")
+                .setKeepPeriod(14)
+                .setModified(Calendar.getInstance())
+                .setAuthors(authors(i, 2))
+                .build();
+    }
+}
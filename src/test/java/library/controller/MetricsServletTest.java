@@ -0,0 +1,57 @@
+package library.controller;
+
+import library.model.entities.User;
+import library.utils.constants.ServletAttributes;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MetricsServletTest {
+    private HttpServletRequest req;
+    private HttpServletResponse resp;
+    private HttpSession session;
+    private StringWriter body;
+
+    @Before
+    public void mockObjects() throws IOException {
+        req = mock(HttpServletRequest.class);
+        resp = mock(HttpServletResponse.class);
+        session = mock(HttpSession.class);
+        body = new StringWriter();
+        when(resp.getWriter()).thenReturn(new PrintWriter(body));
+        // command of anonymous user, which is passed by AuthFilter before the check of URI
+        when(req.getParameter(ServletAttributes.COMMAND)).thenReturn("book.find");
+    }
+
+    @Test
+    public void anonymousUserIsForbidden() throws IOException {
+        new MetricsServlet().doGet(req, resp);
+
+        verify(resp).sendError(HttpServletResponse.SC_FORBIDDEN);
+        assertEquals("", body.toString());
+    }
+
+    @Test
+    public void onlyAdminIsAllowed() throws IOException {
+        when(req.getSession(false)).thenReturn(session);
+        when(session.getAttribute(ServletAttributes.USER))
+                .thenReturn(new User.Builder().setRole(User.Role.LIBRARIAN).build());
+        new MetricsServlet().doGet(req, resp);
+        verify(resp).sendError(HttpServletResponse.SC_FORBIDDEN);
+
+        when(session.getAttribute(ServletAttributes.USER))
+                .thenReturn(new User.Builder().setRole(User.Role.ADMIN).build());
+        new MetricsServlet().doGet(req, resp);
+        verify(resp, times(1)).sendError(anyInt());
+        assertTrue(body.toString().contains("# TYPE"));
+    }
+}
@@ -0,0 +1,49 @@
+package library.controller.filters;
+
+import library.utils.constants.Pages;
+import library.utils.constants.ServletAttributes;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.mockito.Mockito.*;
+
+public class AuthFilterTest {
+    private HttpServletRequest req;
+    private HttpServletResponse resp;
+    private FilterChain chain;
+
+    @Before
+    public void mockObjects() {
+        req = mock(HttpServletRequest.class);
+        resp = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        when(req.getRequestDispatcher(anyString())).thenReturn(mock(RequestDispatcher.class));
+        when(req.getParameter(ServletAttributes.COMMAND)).thenReturn("book.find");
+    }
+
+    @Test
+    public void commandOfAnonymousUserIsAllowedByController() throws IOException, ServletException {
+        when(req.getServletPath()).thenReturn(Pages.CONTROLLER);
+        when(req.getRequestURI()).thenReturn(Pages.CONTROLLER);
+
+        new AuthFilter().doFilter(req, resp, chain);
+        verify(chain).doFilter(req, resp);
+    }
+
+    @Test
+    public void commandDoesNotAuthorizeOtherServlet() throws IOException, ServletException {
+        when(req.getServletPath()).thenReturn(Pages.METRICS);
+        when(req.getRequestURI()).thenReturn(Pages.METRICS);
+
+        new AuthFilter().doFilter(req, resp, chain);
+        verify(chain, never()).doFilter(req, resp);
+        verify(req).getRequestDispatcher(Pages.LOGIN);
+    }
+}
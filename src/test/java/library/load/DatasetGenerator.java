@@ -0,0 +1,527 @@
+package library.load;
+
+import library.model.connection.H2Database;
+import library.model.entities.Booking;
+import library.model.entities.User;
+import library.utils.password.Pbkdf2PasswordHasher;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills empty library schema with synthetic data of given {@link Volumes}, so problems of scale (deep offsets, tasks
+ * over all users, LIKE scans) are seen before production. Data is the same for the same seed and volumes.
+ * <ul>
+ *     <li> langs {@code en} and {@code uk}
+ *     <li> authors with names in English, most of them in Ukrainian too
+ *     <li> books with 1-3 authors, first author of book {@code i} is author {@code i}, co-authors are Zipfian
+ *     (a few authors write a lot); titles are made of {@link #TITLE_NOUNS} and other words, so they repeat
+ *     <li> readers with 1% blocked and 0.5% deleted, {@link #LIBRARIANS} librarians
+ *     and one admin, all with the same password hash; ids of readers start from 1
+ *     <li> bookings of Zipfian readers for Zipfian books, most of them are done or canceled long ago, the rest are
+ *     booked, delivered (quarter of delivered ones are overdue and fined) or new (one per reader at most)
+ *     <li> book stats agree with bookings, every book has 1 to {@link Volumes#copies} free copies
+ * </ul>
+ * Emails are {@code user1@library.com} ..., {@code librarian1@library.com} ..., {@code admin@library.com}.
+ * Rows are written by JDBC batches of {@value #BATCH} rows, every batch is committed.
+ * <p>
+ * Run it from project directory, by default it writes production volumes to H2 file {@code target/dataset/library}:
+ * {@code mvn -Pdataset test-compile exec:exec -Ddataset.books=1000000 -Ddataset.bookings=10000000}. Local MySQL
+ * with empty schema is filled by {@code -Ddataset.url=jdbc:mysql://localhost/library?rewriteBatchedStatements=true
+ * -Ddataset.user=... -Ddataset.password=...}. Password of all accounts is the one of {@link LoadHarness}.
+ */
+public class DatasetGenerator {
+    public static final int LIBRARIANS = 5;
+    public static final String ADMIN_EMAIL = "admin@library.com";
+    static final String[] TITLE_NOUNS = {"River", "Garden", "Winter", "Forest", "Mountain", "City", "Shadow", "Road",
+            "Sea", "Bridge", "Letter", "Island", "Fire", "Storm", "House", "Song", "Steppe", "Field", "Dream", "Mirror"};
+    private static final String[] TITLE_ADJECTIVES = {"Silent", "Last", "Red", "Forgotten", "Dark", "Golden", "Lost",
+            "Long", "Quiet", "Bitter", "Endless", "Hidden", "Broken", "Distant", "White", "Secret"};
+    private static final String[] FIRST_NAMES_EN = {"Taras", "Lesia", "Ivan", "Olha", "Mykhailo", "Marko", "Vasyl",
+            "Hryhorii", "Oksana", "Mykola", "Yurii", "Lina", "Serhii", "Andrii", "Iryna", "Volodymyr", "Nataliia",
+            "Bohdan", "Ostap", "Sofiia"};
+    private static final String[] FIRST_NAMES_UK = {"Тарас", "Леся", "Іван", "Ольга", "Михайло", "Марко", "Василь",
+            "Григорій", "Оксана", "Микола", "Юрій", "Ліна", "Сергій", "Андрій", "Ірина", "Володимир", "Наталія",
+            "Богдан", "Остап", "Софія"};
+    private static final String[] LAST_NAMES_EN = {"Shevchenko", "Ukrainka", "Franko", "Kobylianska", "Kotsiubynskyi",
+            "Vovchok", "Stefanyk", "Skovoroda", "Zabuzhko", "Kulish", "Khvylovyi", "Andrukhovych", "Kostenko", "Zhadan",
+            "Pidmohylnyi", "Rozdobudko", "Stus", "Tychyna", "Vynnychenko", "Hrinchenko"};
+    private static final String[] LAST_NAMES_UK = {"Шевченко", "Українка", "Франко", "Кобилянська", "Коцюбинський",
+            "Вовчок", "Стефаник", "Сковорода", "Забужко", "Куліш", "Хвильовий", "Андрухович", "Костенко", "Жадан",
+            "Підмогильний", "Роздобудько", "Стус", "Тичина", "Винниченко", "Грінченко"};
+    private static final String[] INITIALS_EN = {"A", "B", "V", "H", "D", "Ye", "Zh", "Z", "I", "K", "L", "M", "N",
+            "O", "P", "R", "S", "T", "U", "F", "Kh", "Ts", "Ch", "Sh", "Yu", "Ya"};
+    private static final String[] INITIALS_UK = {"А", "Б", "В", "Г", "Д", "Є", "Ж", "З", "І", "К", "Л", "М", "Н",
+            "О", "П", "Р", "С", "Т", "У", "Ф", "Х", "Ц", "Ч", "Ш", "Ю", "Я"};
+    private static final int[] KEEP_PERIODS = {7, 14, 14, 14, 21, 30};
+    private static final Booking.State[] STATES = {Booking.State.DONE, Booking.State.CANCELED,
+            Booking.State.DELIVERED, Booking.State.BOOKED, Booking.State.NEW};
+    private static final int[] STATE_WEIGHTS = {75, 10, 9, 5, 1};
+    // 1 book in booking mostly, up to 4
+    private static final int[] BOOKS_IN_BOOKING_WEIGHTS = {60, 25, 10, 5};
+    private static final int BATCH = 1000;
+    private static final int HISTORY_DAYS = 3 * 365;
+    private static final int MAX_OVERDUE_DAYS = 90;
+    // as in web.xml
+    private static final double FINE_PER_DAY = 50;
+    // prime, so rank * STRIDE mod n is permutation of ranks, unless n is multiple of it
+    private static final long STRIDE = 1000003;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final String DEFAULT_FILE = "target/dataset/library";
+
+    private final Volumes volumes;
+    private final Random random;
+    private final long now = System.currentTimeMillis();
+    private final int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+    private PrintStream progress;
+    private byte[] keepPeriods;
+
+    public DatasetGenerator(Volumes volumes, long seed) {
+        this.volumes = volumes;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates production volumes (or ones given by {@code dataset.*} system properties, see {@link Volumes})
+     * to H2 file {@code dataset.file} or to database {@code dataset.url}
+     */
+    public static void main(String[] args) throws Exception {
+        Volumes volumes = Volumes.fromSystemProperties(new Volumes(1000000, 200000, 500000, 10000000, 5));
+        // empty properties are the ones not set in Maven profile
+        String url = System.getProperty("dataset.url", "");
+        Connection conn;
+        if (url.isEmpty()) {
+            File file = new File(System.getProperty("dataset.file", DEFAULT_FILE));
+            conn = H2Database.createFile(file);
+            url = H2Database.fileUrl(file);
+        } else {
+            conn = DriverManager.getConnection(url, System.getProperty("dataset.user"),
+                    System.getProperty("dataset.password"));
+        }
+        System.out.printf("%s to %s%n", volumes, url);
+        try {
+            new DatasetGenerator(volumes, Long.getLong("dataset.seed", 1))
+                    .setProgress(System.out)
+                    .generate(conn, new Pbkdf2PasswordHasher(LoadHarness.HASH_ITERATIONS).hash(LoadHarness.PASSWORD));
+        } finally {
+            conn.close();
+        }
+    }
+
+    public static String userEmail(int i) {
+        return "user" + i + "@library.com";
+    }
+
+    public static String librarianEmail(int i) {
+        return "librarian" + i + "@library.com";
+    }
+
+    public static String isbn(int i) {
+        return String.format("978-%09d", i);
+    }
+
+    private static User.State readerState(int i) {
+        if (i % 100 == 99) {
+            return User.State.BLOCKED;
+        }
+        return i % 200 == 149 ? User.State.DELETED : User.State.VALID;
+    }
+
+    /**
+     * @param progress where time of every table is printed, nothing is printed if it's null
+     */
+    public DatasetGenerator setProgress(PrintStream progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * @param conn connection to empty database with library schema, its auto-commit mode is restored at the end
+     * @param passwordHash stored password of all accounts
+     */
+    public void generate(Connection conn, String passwordHash) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            try (Statement st = conn.createStatement()) {
+                st.execute("INSERT INTO lang (code) VALUES ('en'), ('uk')");
+            }
+            conn.commit();
+            generateAuthors(conn);
+            generateBooks(conn);
+            generateUsers(conn, passwordHash);
+            generateBookings(conn);
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void generateAuthors(Connection conn) throws SQLException {
+        try (PreparedStatement author = conn.prepareStatement("INSERT INTO author VALUES (DEFAULT, ?, ?)");
+             PreparedStatement name = conn.prepareStatement(
+                 "INSERT INTO author_name_i18n (lang_id, name, author_id) VALUES (?, ?, ?)");
+             Inserts inserts = new Inserts(conn, "authors", author, name)) {
+            for (int i = 1; i <= volumes.authors; i++) {
+                int first = random.nextInt(FIRST_NAMES_EN.length);
+                int initial = random.nextInt(INITIALS_EN.length);
+                int last = random.nextInt(LAST_NAMES_EN.length);
+                String en = FIRST_NAMES_EN[first] + " " + INITIALS_EN[initial] + ". " + LAST_NAMES_EN[last];
+                author.setString(1, en);
+                author.setTimestamp(2, daysAgo(random.nextInt(HISTORY_DAYS)));
+                author.addBatch();
+                addName(name, 1, en, i);
+                if (random.nextInt(5) > 0) {
+                    addName(name, 2, FIRST_NAMES_UK[first] + " " + INITIALS_UK[initial] + ". " + LAST_NAMES_UK[last], i);
+                }
+                inserts.row();
+            }
+        }
+    }
+
+    private static void addName(PreparedStatement name, long langId, String value, long authorId) throws SQLException {
+        name.setLong(1, langId);
+        name.setString(2, value);
+        name.setLong(3, authorId);
+        name.addBatch();
+    }
+
+    private void generateBooks(Connection conn) throws SQLException {
+        keepPeriods = new byte[volumes.books + 1];
+        Zipf coAuthors = volumes.authors > 0 ? new Zipf(volumes.authors, 1, random) : null;
+        try (PreparedStatement book = conn.prepareStatement("INSERT INTO book VALUES (DEFAULT, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement bookAuthor = conn.prepareStatement("INSERT INTO book_author VALUES (?, ?)");
+             Inserts inserts = new Inserts(conn, "books", book, bookAuthor)) {
+            for (int i = 1; i <= volumes.books; i++) {
+                int keepPeriod = KEEP_PERIODS[random.nextInt(KEEP_PERIODS.length)];
+                keepPeriods[i] = (byte) keepPeriod;
+                book.setString(1, title());
+                book.setString(2, isbn(i));
+                book.setInt(3, currentYear - random.nextInt(currentYear - 1950 + 1));
+                book.setString(4, random.nextInt(10) < 7 ? "uk" : "en");
+                book.setInt(5, keepPeriod);
+                book.setTimestamp(6, daysAgo(random.nextInt(HISTORY_DAYS)));
+                book.addBatch();
+
+                int first = i <= volumes.authors ? i : coAuthors.next();
+                addAuthor(bookAuthor, i, first);
+                int more = random.nextInt(20);
+                if (more < 5) {
+                    int second = coAuthors.next();
+                    if (second != first) {
+                        addAuthor(bookAuthor, i, second);
+                    }
+                    int third = coAuthors.next();
+                    if (more == 0 && third != first && third != second) {
+                        addAuthor(bookAuthor, i, third);
+                    }
+                }
+                inserts.row();
+            }
+        }
+    }
+
+    private String title() {
+        StringBuilder title = new StringBuilder();
+        if (random.nextBoolean()) {
+            title.append("The ");
+        }
+        title.append(TITLE_ADJECTIVES[random.nextInt(TITLE_ADJECTIVES.length)]).append(' ')
+                .append(TITLE_NOUNS[random.nextInt(TITLE_NOUNS.length)]);
+        if (random.nextInt(10) < 3) {
+            title.append(" of ").append(TITLE_NOUNS[random.nextInt(TITLE_NOUNS.length)]);
+        }
+        return title.toString();
+    }
+
+    private static void addAuthor(PreparedStatement bookAuthor, long bookId, long authorId) throws SQLException {
+        bookAuthor.setLong(1, bookId);
+        bookAuthor.setLong(2, authorId);
+        bookAuthor.addBatch();
+    }
+
+    private void generateUsers(Connection conn, String passwordHash) throws SQLException {
+        Timestamp fineLastChecked = new Timestamp(now);
+        try (PreparedStatement user = conn.prepareStatement(
+                "INSERT INTO user VALUES (DEFAULT, ?, ?, ?, ?, 0, ?, ?, ?, ?)");
+             Inserts inserts = new Inserts(conn, "users", user)) {
+            for (int i = 1; i <= volumes.users + LIBRARIANS + 1; i++) {
+                String email;
+                User.Role role;
+                User.State state = User.State.VALID;
+                if (i <= volumes.users) {
+                    email = userEmail(i);
+                    role = User.Role.USER;
+                    state = readerState(i);
+                } else if (i <= volumes.users + LIBRARIANS) {
+                    email = librarianEmail(i - volumes.users);
+                    role = User.Role.LIBRARIAN;
+                } else {
+                    email = ADMIN_EMAIL;
+                    role = User.Role.ADMIN;
+                }
+                user.setString(1, email);
+                user.setString(2, passwordHash);
+                user.setString(3, role.name());
+                user.setString(4, state.name());
+                user.setString(5, FIRST_NAMES_EN[random.nextInt(FIRST_NAMES_EN.length)] + " " +
+                        LAST_NAMES_EN[random.nextInt(LAST_NAMES_EN.length)]);
+                user.setLong(6, random.nextInt(10) < 7 ? 2 : 1);
+                user.setTimestamp(7, daysAgo(random.nextInt(HISTORY_DAYS)));
+                user.setTimestamp(8, fineLastChecked);
+                user.addBatch();
+                inserts.row();
+            }
+        }
+    }
+
+    private void generateBookings(Connection conn) throws SQLException {
+        int[] timesBooked = new int[volumes.books + 1];
+        int[] reserved = new int[volumes.books + 1];
+        int[] delivered = new int[volumes.books + 1];
+        double[] fines = new double[volumes.users + 1];
+        BitSet drafts = new BitSet(volumes.users + 1);
+        Zipf books = volumes.bookings > 0 ? new Zipf(volumes.books, 1, random) : null;
+        Zipf readers = volumes.bookings > 0 ? new Zipf(volumes.users, 0.8, random) : null;
+        long bookStride = stride(volumes.books);
+        long readerStride = stride(volumes.users);
+        int[] bookIds = new int[BOOKS_IN_BOOKING_WEIGHTS.length];
+
+        try (PreparedStatement booking = conn.prepareStatement("INSERT INTO booking VALUES (DEFAULT, ?, ?, ?, ?)");
+             PreparedStatement bookInBooking = conn.prepareStatement("INSERT INTO book_in_booking VALUES (?, ?)");
+             Inserts inserts = new Inserts(conn, "bookings", booking, bookInBooking)) {
+            for (int i = 1; i <= volumes.bookings; i++) {
+                // popular books and active readers are spread over ids, not the first ones
+                int reader = permute(readers.next(), volumes.users, readerStride);
+                Booking.State state = STATES[pick(STATE_WEIGHTS)];
+                if (state == Booking.State.NEW) {
+                    if (drafts.get(reader)) {
+                        state = Booking.State.CANCELED;
+                    } else {
+                        drafts.set(reader);
+                    }
+                }
+                Booking.Place located = state == Booking.State.DELIVERED && random.nextInt(100) < 85 ?
+                        Booking.Place.USER : Booking.Place.LIBRARY;
+
+                int count = 0;
+                int maxKeepPeriod = 1;
+                for (int n = pick(BOOKS_IN_BOOKING_WEIGHTS) + 1; count < n; ) {
+                    int book = permute(books.next(), volumes.books, bookStride);
+                    if (!contains(bookIds, count, book)) {
+                        bookIds[count++] = book;
+                        maxKeepPeriod = Math.max(maxKeepPeriod, keepPeriods[book]);
+                    }
+                    if (count == volumes.books) {
+                        break;
+                    }
+                }
+
+                int days;
+                boolean overdue = false;
+                if (state == Booking.State.DONE || state == Booking.State.CANCELED) {
+                    days = random.nextInt(HISTORY_DAYS);
+                } else if (state == Booking.State.DELIVERED) {
+                    int keepPeriod = located == Booking.Place.USER ? maxKeepPeriod : 1;
+                    overdue = random.nextInt(4) == 0;
+                    days = overdue ? keepPeriod + 1 + random.nextInt(MAX_OVERDUE_DAYS) : random.nextInt(keepPeriod);
+                } else {
+                    days = random.nextInt(3);
+                }
+
+                booking.setLong(1, reader);
+                booking.setString(2, state.name());
+                booking.setString(3, located.name());
+                booking.setTimestamp(4, daysAgo(days));
+                booking.addBatch();
+                for (int j = 0; j < count; j++) {
+                    int book = bookIds[j];
+                    bookInBooking.setLong(1, i);
+                    bookInBooking.setLong(2, book);
+                    bookInBooking.addBatch();
+                    if (state != Booking.State.NEW) {
+                        timesBooked[book]++;
+                    }
+                    if (state == Booking.State.BOOKED) {
+                        reserved[book]++;
+                    } else if (state == Booking.State.DELIVERED) {
+                        delivered[book]++;
+                        int keepPeriod = located == Booking.Place.USER ? keepPeriods[book] : 1;
+                        if (overdue && days > keepPeriod) {
+                            fines[reader] += (days - keepPeriod) * FINE_PER_DAY;
+                        }
+                    }
+                }
+                inserts.row();
+            }
+        }
+
+        try (PreparedStatement stat = conn.prepareStatement("INSERT INTO book_stat VALUES (?, ?, ?, ?, ?)");
+             Inserts inserts = new Inserts(conn, "book stats", stat)) {
+            for (int i = 1; i <= volumes.books; i++) {
+                int total = delivered[i] + reserved[i] + 1 + random.nextInt(volumes.copies);
+                stat.setLong(1, i);
+                stat.setInt(2, total);
+                stat.setInt(3, total - delivered[i]);
+                stat.setInt(4, reserved[i]);
+                stat.setInt(5, timesBooked[i]);
+                stat.addBatch();
+                inserts.row();
+            }
+        }
+
+        try (PreparedStatement fine = conn.prepareStatement("UPDATE user SET fine = ? WHERE id = ?");
+             Inserts inserts = new Inserts(conn, "fines", fine)) {
+            for (int i = 1; i <= volumes.users; i++) {
+                if (fines[i] > 0) {
+                    fine.setDouble(1, fines[i]);
+                    fine.setLong(2, i);
+                    fine.addBatch();
+                    inserts.row();
+                }
+            }
+        }
+    }
+
+    private int pick(int[] weights) {
+        int sum = 0;
+        for (int w : weights) {
+            sum += w;
+        }
+        int r = random.nextInt(sum);
+        int i = 0;
+        while (r >= weights[i]) {
+            r -= weights[i++];
+        }
+        return i;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long stride(int n) {
+        return n % STRIDE == 0 ? 1 : STRIDE;
+    }
+
+    private static int permute(int rank, int n, long stride) {
+        return (int) ((rank - 1) * stride % n) + 1;
+    }
+
+    private Timestamp daysAgo(int days) {
+        return new Timestamp(now - days * DAY - random.nextInt((int) DAY));
+    }
+
+    /**
+     * Sizes of generated tables, {@code dataset.books}, {@code dataset.authors}, {@code dataset.users},
+     * {@code dataset.bookings} and {@code dataset.copies} system properties
+     */
+    public static class Volumes {
+        private final int books;
+        private final int authors;
+        private final int users;
+        private final int bookings;
+        private final int copies;
+
+        /**
+         * @param books number of books
+         * @param authors number of authors, 1 or more if there are books
+         * @param users number of readers, 1 or more if there are bookings
+         * @param bookings number of bookings
+         * @param copies maximum number of free copies of book, 1 or more
+         */
+        public Volumes(int books, int authors, int users, int bookings, int copies) {
+            if (books < 0 || authors < 0 || users < 0 || bookings < 0 || copies < 1 ||
+                    books > 0 && authors == 0 || bookings > 0 && (books == 0 || users == 0)) {
+                throw new IllegalArgumentException(String.format("books=%d, authors=%d, users=%d, bookings=%d, " +
+                        "copies=%d", books, authors, users, bookings, copies));
+            }
+            this.books = books;
+            this.authors = authors;
+            this.users = users;
+            this.bookings = bookings;
+            this.copies = copies;
+        }
+
+        /**
+         * @param defaults volumes, which aren't set by system properties
+         */
+        public static Volumes fromSystemProperties(Volumes defaults) {
+            return new Volumes(Integer.getInteger("dataset.books", defaults.books),
+                    Integer.getInteger("dataset.authors", defaults.authors),
+                    Integer.getInteger("dataset.users", defaults.users),
+                    Integer.getInteger("dataset.bookings", defaults.bookings),
+                    Integer.getInteger("dataset.copies", defaults.copies));
+        }
+
+        public int getBooks() {
+            return books;
+        }
+
+        public int getUsers() {
+            return users;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d books, %d authors, %d readers, %d bookings", books, authors, users, bookings);
+        }
+    }
+
+    /**
+     * Batches of statements, which are executed in the given order (as foreign keys require) and committed every
+     * {@value #BATCH} rows and on close
+     */
+    private class Inserts implements AutoCloseable {
+        private final Connection conn;
+        private final String name;
+        private final PreparedStatement[] statements;
+        private final long started = System.nanoTime();
+        private long rows;
+
+        Inserts(Connection conn, String name, PreparedStatement... statements) {
+            this.conn = conn;
+            this.name = name;
+            this.statements = statements;
+        }
+
+        void row() throws SQLException {
+            if (++rows % BATCH == 0) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            for (PreparedStatement ps : statements) {
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            flush();
+            if (progress != null) {
+                double seconds = (System.nanoTime() - started) / 1e9;
+                progress.printf("%-12s %,12d rows %8.1f s %,10.0f rows/s%n", name, rows, seconds, rows / seconds);
+            }
+        }
+    }
+}
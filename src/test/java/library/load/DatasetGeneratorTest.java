@@ -0,0 +1,103 @@
+package library.load;
+
+import library.model.connection.H2Database;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DatasetGeneratorTest {
+    private static final int BOOKS = 300;
+    private static final int AUTHORS = 100;
+    private static final int USERS = 200;
+    private static final int BOOKINGS = 3000;
+    private Connection conn;
+
+    @Before
+    public void setUp() throws SQLException {
+        conn = H2Database.create("dataset");
+        new DatasetGenerator(new DatasetGenerator.Volumes(BOOKS, AUTHORS, USERS, BOOKINGS, 5), 1)
+                .generate(conn, "hash");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    public void generatesVolumes() throws SQLException {
+        assertEquals(BOOKS, count("SELECT COUNT(*) FROM book"));
+        assertEquals(BOOKS, count("SELECT COUNT(*) FROM book_stat"));
+        assertEquals(AUTHORS, count("SELECT COUNT(*) FROM author"));
+        assertEquals(USERS, count("SELECT COUNT(*) FROM user WHERE role = 'USER'"));
+        assertEquals(USERS + DatasetGenerator.LIBRARIANS + 1, count("SELECT COUNT(*) FROM user"));
+        assertEquals(BOOKINGS, count("SELECT COUNT(*) FROM booking"));
+        assertEquals(0, count("SELECT COUNT(*) FROM booking b WHERE NOT EXISTS " +
+                "(SELECT 1 FROM book_in_booking bb WHERE bb.booking_id = b.id)"));
+        assertEquals(0, count("SELECT COUNT(*) FROM author a WHERE NOT EXISTS " +
+                "(SELECT 1 FROM author_name_i18n n WHERE n.author_id = a.id AND n.lang_id = 1)"));
+        assertTrue(count("SELECT COUNT(*) FROM author_name_i18n WHERE lang_id = 2") > AUTHORS / 2);
+    }
+
+    @Test
+    public void bookStatsAgreeWithBookings() throws SQLException {
+        assertEquals(0, count("SELECT COUNT(*) FROM book_stat s WHERE s.in_stock < s.reserved OR s.in_stock < 1 " +
+                "OR s.reserved != (SELECT COUNT(*) FROM book_in_booking bb JOIN booking b ON b.id = bb.booking_id " +
+                "WHERE bb.book_id = s.book_id AND b.state = 'BOOKED') " +
+                "OR s.total - s.in_stock != (SELECT COUNT(*) FROM book_in_booking bb JOIN booking b " +
+                "ON b.id = bb.booking_id WHERE bb.book_id = s.book_id AND b.state = 'DELIVERED')"));
+    }
+
+    @Test
+    public void bookingsHaveStateMix() throws SQLException {
+        assertEquals(0, count("SELECT COUNT(*) FROM (SELECT user_id FROM booking WHERE state = 'NEW' " +
+                "GROUP BY user_id HAVING COUNT(*) > 1)"));
+        for (String state : new String[]{"NEW", "BOOKED", "DELIVERED", "DONE", "CANCELED"}) {
+            assertTrue(state, count("SELECT COUNT(*) FROM booking WHERE state = '" + state + "'") > 0);
+        }
+        assertTrue(count("SELECT COUNT(*) FROM booking WHERE state = 'DONE'") > BOOKINGS / 2);
+        // overdue loans are fined
+        assertTrue(count("SELECT COUNT(*) FROM booking WHERE state = 'DELIVERED' " +
+                "AND modified < TIMESTAMPADD(DAY, -31, NOW())") > 0);
+        assertTrue(count("SELECT COUNT(*) FROM user WHERE fine > 0") > 0);
+    }
+
+    @Test
+    public void readersHaveStateMix() throws SQLException {
+        assertEquals(2, count("SELECT COUNT(*) FROM user WHERE state = 'BLOCKED'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM user WHERE state = 'DELETED'"));
+        assertEquals(0, count("SELECT COUNT(*) FROM user WHERE state != 'VALID' AND role != 'USER'"));
+    }
+
+    @Test
+    public void zipfIsSkewed() {
+        Zipf zipf = new Zipf(1000, 1, new Random(1));
+        int[] counts = new int[1001];
+        for (int i = 0; i < 100000; i++) {
+            int rank = zipf.next();
+            assertTrue(rank >= 1 && rank <= 1000);
+            counts[rank]++;
+        }
+        // 1 / H(1000) of samples has rank 1, that is about 13%, rank 2 has half of it
+        assertTrue(counts[1] > 12000 && counts[1] < 15000);
+        assertTrue(counts[2] > counts[1] / 3 && counts[2] < counts[1] * 2 / 3);
+        assertTrue(counts[10] < counts[1] / 5);
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package library.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * HTTP client of one browser session: keeps session cookie, doesn't follow redirects. Every request is recorded
+ * to {@link LoadStats} by name of command. Request is failed, if status is 400 or more, or it's redirected to error
+ * or login page, or to page given by caller (form with error message).
+ */
+class LoadClient {
+    private static final String ERROR_PAGE = "/jsp/error/";
+    private static final String LOGIN_PAGE = "/jsp/login.jsp";
+    private final String baseUrl;
+    private final LoadStats stats;
+    private String session;
+
+    LoadClient(String baseUrl, LoadStats stats) {
+        this.baseUrl = baseUrl;
+        this.stats = stats;
+    }
+
+    /**
+     * Drops session, next request starts a new one
+     */
+    void logout() {
+        session = null;
+    }
+
+    boolean hasSession() {
+        return session != null;
+    }
+
+    /**
+     * @param params command and other parameters, name and value pairs
+     */
+    boolean get(String... params) {
+        return request("GET", null, params);
+    }
+
+    /**
+     * @param params command and other parameters, name and value pairs
+     */
+    boolean post(String... params) {
+        return request("POST", null, params);
+    }
+
+    /**
+     * @param errorLocation redirect to location containing it means failed request
+     * @param params command and other parameters, name and value pairs
+     */
+    boolean postForm(String errorLocation, String... params) {
+        return request("POST", errorLocation, params);
+    }
+
+    private boolean request(String method, String errorLocation, String... params) {
+        String query = encode(params);
+        String command = params[1];
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            URL url = new URL(baseUrl + "/controller" + (method.equals("GET") ? "?" + query : ""));
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setInstanceFollowRedirects(false);
+            conn.setRequestMethod(method);
+            if (session != null) {
+                conn.setRequestProperty("Cookie", session);
+            }
+            if (method.equals("POST")) {
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(query.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            int status = conn.getResponseCode();
+            readCookie(conn);
+            String location = conn.getHeaderField("Location");
+            drain(status >= 400 ? conn.getErrorStream() : conn.getInputStream());
+            ok = status < 400 && (location == null || !location.contains(ERROR_PAGE) && !location.contains(LOGIN_PAGE) &&
+                    (errorLocation == null || !location.contains(errorLocation)));
+        } catch (IOException e) {
+            ok = false;
+        } finally {
+            stats.record(command, System.nanoTime() - start, !ok);
+        }
+        return ok;
+    }
+
+    private void readCookie(HttpURLConnection conn) {
+        List<String> cookies = conn.getHeaderFields().get("Set-Cookie");
+        if (cookies == null) {
+            return;
+        }
+        for (String cookie : cookies) {
+            if (cookie.startsWith("JSESSIONID=")) {
+                session = cookie.split(";", 2)[0];
+            }
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream body = in) {
+            while (body.read(buffer) >= 0) {
+                // body isn't checked, but it's rendered and sent as for browser
+            }
+        }
+    }
+
+    private static String encode(String... params) {
+        StringBuilder query = new StringBuilder();
+        try {
+            for (int i = 0; i < params.length; i += 2) {
+                if (i > 0) {
+                    query.append('&');
+                }
+                query.append(params[i]).append('=').append(URLEncoder.encode(params[i + 1], "UTF-8"));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return query.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package library.load;
+
+import library.model.connection.ConnectionPool;
+import library.model.connection.H2Database;
+import library.utils.password.Pbkdf2PasswordHasher;
+import org.apache.catalina.Context;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.loader.WebappLoader;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the whole app: boots webapp in embedded Tomcat against embedded H2 ({@link H2Database}) filled by
+ * {@link DatasetGenerator}, runs {@link Workload} from many concurrent clients and prints throughput, latency
+ * percentiles and errors per command together with saturation of connection pool. Settings are system properties:
+ * <ul>
+ *     <li> {@code load.clients} - concurrent clients, 50 by default
+ *     <li> {@code load.seconds} - measurement time, 60 by default, it follows warmup of {@code load.warmup} seconds (10)
+ *     <li> {@code dataset.books}, {@code dataset.users} and other {@link DatasetGenerator.Volumes} - size of library,
+ *     1000 books, 200 readers and 2000 bookings by default, every book has up to 1000 free copies
+ *     <li> {@code load.database} - H2 file written by {@link DatasetGenerator} before, it's used instead of new
+ *     in-memory database, so large library is generated once (bookings made by the run are kept in it)
+ *     <li> {@code db.pool.size} and other settings of {@link ConnectionPool}
+ * </ul>
+ * Run it from project directory: {@code mvn -Pload test-compile exec:exec -Dload.clients=50 -Dload.seconds=60}.
+ * Webapp is served from {@code src/main/webapp} and {@code target/classes}, so it's the current code.
+ */
+public class LoadHarness {
+    private static final String DB_NAME = "load";
+    static final String PASSWORD = "load-test-password";
+    // as in web.xml, login costs the same as in production
+    static final int HASH_ITERATIONS = 210000;
+    private static final int MAX_READERS = 10000;
+    private static volatile boolean running;
+
+    public static void main(String[] args) throws Exception {
+        // app logs warnings and errors only, to console
+        System.setProperty("log4j.configurationFile", "load/log4j2.xml");
+        int clients = Integer.getInteger("load.clients", 50);
+        int seconds = Integer.getInteger("load.seconds", 60);
+        int warmup = Integer.getInteger("load.warmup", 10);
+        String database = System.getProperty("load.database", "");
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+        // EL API of pom (provided scope) is on classpath before Tomcat's one and defaults to another implementation
+        System.setProperty("javax.el.ExpressionFactory", "org.apache.el.ExpressionFactoryImpl");
+
+        Connection db;
+        String url;
+        if (database.isEmpty()) {
+            db = H2Database.create(DB_NAME);
+            new DatasetGenerator(DatasetGenerator.Volumes.fromSystemProperties(
+                    new DatasetGenerator.Volumes(1000, 200, 200, 2000, 1000)), 1)
+                    .generate(db, new Pbkdf2PasswordHasher(HASH_ITERATIONS).hash(PASSWORD));
+            url = H2Database.url(DB_NAME);
+        } else {
+            url = H2Database.fileUrl(new File(database)) + ";IFEXISTS=TRUE";
+            db = DriverManager.getConnection(url, H2Database.USER, H2Database.PASSWORD);
+        }
+        int books = count(db, "SELECT COUNT(*) FROM book");
+        List<String> readers = readers(db);
+        System.setProperty("db.url", url);
+        System.setProperty("driver", "org.h2.Driver");
+        System.setProperty("db.user", H2Database.USER);
+        System.setProperty("db.password", H2Database.PASSWORD);
+
+        Tomcat tomcat = startTomcat();
+        String baseUrl = "http://localhost:" + tomcat.getConnector().getLocalPort();
+        ConnectionPool pool = ConnectionPool.getInstance();
+        LoadStats stats = new LoadStats(pool::getPoolState, pool.getMaxPoolSize());
+
+        System.out.printf("%d clients, %d books, %d active readers, %s%n", clients, books, readers.size(), baseUrl);
+        List<Thread> threads = new ArrayList<>();
+        running = true;
+        for (int i = 0; i < clients; i++) {
+            Workload workload = new Workload(i, baseUrl, stats, db, books, readers, PASSWORD);
+            Thread thread = new Thread(() -> run(workload), "load-client-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(stats::samplePool, 0, 100, TimeUnit.MILLISECONDS);
+        TimeUnit.SECONDS.sleep(warmup);
+        stats.start();
+        TimeUnit.SECONDS.sleep(seconds);
+        stats.finish();
+
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sampler.shutdown();
+        stats.print(System.out);
+
+        tomcat.stop();
+        tomcat.destroy();
+        db.close();
+    }
+
+    private static int count(Connection db, String sql) throws SQLException {
+        try (Statement st = db.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * @return emails of readers, who can book, the first {@value #MAX_READERS} of them
+     */
+    private static List<String> readers(Connection db) throws SQLException {
+        List<String> readers = new ArrayList<>();
+        try (Statement st = db.createStatement();
+             ResultSet rs = st.executeQuery("SELECT email FROM user WHERE role = 'USER' AND state = 'VALID' " +
+                     "AND fine = 0 ORDER BY id LIMIT " + MAX_READERS)) {
+            while (rs.next()) {
+                readers.add(rs.getString(1));
+            }
+        }
+        if (readers.isEmpty()) {
+            throw new IllegalStateException("there are no readers, who can book");
+        }
+        return readers;
+    }
+
+    private static void run(Workload workload) {
+        while (running) {
+            try {
+                workload.next();
+            } catch (Exception e) {
+                System.err.println(Thread.currentThread().getName() + ": " + e);
+            }
+        }
+    }
+
+    private static Tomcat startTomcat() throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(new File("target/load/tomcat").getAbsolutePath());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+
+        Context context = tomcat.addWebapp("", new File("src/main/webapp").getAbsolutePath());
+        // annotated servlets are found in WEB-INF/classes, but classes are loaded by harness class loader,
+        // so the app and the harness share connection pool and metrics
+        WebResourceRoot resources = new StandardRoot(context);
+        resources.addPreResources(new DirResourceSet(resources, "/WEB-INF/classes",
+                new File("target/classes").getAbsolutePath(), "/"));
+        context.setResources(resources);
+        WebappLoader loader = new WebappLoader();
+        loader.setDelegate(true);
+        context.setLoader(loader);
+        context.addParameter("log4jConfiguration",
+                LoadHarness.class.getResource("/load/log4j2.xml").toURI().toString());
+
+        tomcat.start();
+        if (!context.getState().isAvailable()) {
+            tomcat.stop();
+            throw new IllegalStateException("webapp isn't started, see log above");
+        }
+        return tomcat;
+    }
+}
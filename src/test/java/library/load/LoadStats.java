@@ -0,0 +1,126 @@
+package library.load;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import library.utils.metrics.LatencyMetrics;
+import library.utils.metrics.LatencyStats;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Results of load run: client side latency and errors per command, connection pool state sampled by
+ * {@link #samplePool()}, and errors of commands seen by server ({@link LatencyMetrics#getCommands()}).
+ * Everything before {@link #start()} is warmup and isn't reported.
+ */
+class LoadStats {
+    private final Map<String, Recorder> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Supplier<HikariPoolMXBean> pool;
+    private final int maxPoolSize;
+    private Map<String, LatencyStats.Snapshot> serverBefore;
+    private long started;
+    private long finished;
+    private long poolSamples;
+    private long poolActive;
+    private long poolSaturated;
+    private int poolMaxActive;
+    private int poolMaxAwaiting;
+
+    /**
+     * @param pool state of connection pool, may return null
+     * @param maxPoolSize maximum size of connection pool
+     */
+    LoadStats(Supplier<HikariPoolMXBean> pool, int maxPoolSize) {
+        this.pool = pool;
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    void record(String command, long nanos, boolean error) {
+        latencies.computeIfAbsent(command, c -> new Recorder(3)).recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (error) {
+            errors.computeIfAbsent(command, c -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Drops results of warmup
+     */
+    synchronized void start() {
+        latencies.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+        poolSamples = poolActive = poolSaturated = poolMaxActive = poolMaxAwaiting = 0;
+        serverBefore = LatencyMetrics.getCommands().snapshot();
+        started = System.nanoTime();
+    }
+
+    synchronized void finish() {
+        finished = System.nanoTime();
+    }
+
+    synchronized void samplePool() {
+        HikariPoolMXBean state = pool.get();
+        if (state == null) {
+            return;
+        }
+        int active = state.getActiveConnections();
+        poolSamples++;
+        poolActive += active;
+        poolMaxActive = Math.max(poolMaxActive, active);
+        poolMaxAwaiting = Math.max(poolMaxAwaiting, state.getThreadsAwaitingConnection());
+        if (active >= maxPoolSize) {
+            poolSaturated++;
+        }
+    }
+
+    synchronized void print(PrintStream out) {
+        double seconds = (finished - started) / 1e9;
+        Map<String, LatencyStats.Snapshot> server = LatencyMetrics.getCommands().snapshot();
+        out.printf("%-32s %8s %8s %8s %8s %8s %8s %8s %8s%n", "command", "count", "req/s", "p50 ms", "p90 ms",
+                "p99 ms", "max ms", "errors", "srv err");
+
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Map.Entry<String, Recorder> e : new TreeMap<>(latencies).entrySet()) {
+            Histogram h = e.getValue().getIntervalHistogram();
+            total.add(h);
+            long errorCount = errors.containsKey(e.getKey()) ? errors.get(e.getKey()).sum() : 0;
+            totalErrors += errorCount;
+            printRow(out, e.getKey(), h, seconds, errorCount, serverErrors(server, e.getKey()));
+        }
+        printRow(out, "total", total, seconds, totalErrors, -1);
+        out.printf("error rate %.2f%%%n", total.getTotalCount() == 0 ? 0 : 100.0 * totalErrors / total.getTotalCount());
+
+        if (poolSamples > 0) {
+            out.printf("connection pool (max %d): mean active %.1f, max active %d, saturated %.1f%% of time, " +
+                            "max threads awaiting connection %d%n", maxPoolSize, 1.0 * poolActive / poolSamples,
+                    poolMaxActive, 100.0 * poolSaturated / poolSamples, poolMaxAwaiting);
+        }
+    }
+
+    private long serverErrors(Map<String, LatencyStats.Snapshot> server, String command) {
+        LatencyStats.Snapshot after = server.get(command);
+        if (after == null) {
+            return 0;
+        }
+        LatencyStats.Snapshot before = serverBefore.get(command);
+        return after.getErrors() - (before == null ? 0 : before.getErrors());
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram h, double seconds, long errors,
+                                 long serverErrors) {
+        out.printf("%-32s %8d %8.1f %8.1f %8.1f %8.1f %8.1f %8d %8s%n", name, h.getTotalCount(),
+                h.getTotalCount() / seconds, millis(h, 50), millis(h, 90), millis(h, 99), h.getMaxValue() / 1000.0,
+                errors, serverErrors < 0 ? "" : String.valueOf(serverErrors));
+    }
+
+    private static double millis(Histogram h, double percentile) {
+        return h.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
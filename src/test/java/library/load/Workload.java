@@ -0,0 +1,192 @@
+package library.load;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Scripted workload of one virtual client. Every {@link #next()} runs one scenario chosen by weight:
+ * <ul>
+ *     <li> browse (50) - anonymous search of books by title and 2 next pages
+ *     <li> reader (25) - reader adds 2 books to basket and books them
+ *     <li> librarian (15) - search of booked bookings, deliver of one booking and done of another delivered one
+ *     <li> login (5) - login of reader in new session
+ *     <li> admin (5) - admin opens book for edit and saves it
+ * </ul>
+ * Readers, librarians and admin log in once and keep their sessions, every client has its own reader, so baskets
+ * aren't shared; only readers who are able to book are used (not blocked and without fine). Bookings for librarian and books for admin are taken from
+ * database directly, every booking is used once.
+ */
+class Workload {
+    private static final int PAGE_SIZE = 20;
+    private static final String[] SCENARIOS = {"browse", "reader", "librarian", "login", "admin"};
+    private static final int[] WEIGHTS = {50, 25, 15, 5, 5};
+    private static final Map<String, Long> claimed = new HashMap<>();
+
+    private final Random random;
+    private final Connection db;
+    private final int books;
+    private final List<String> readers;
+    private final String reader;
+    private final String librarian;
+    private final LoadClient anonymous;
+    private final LoadClient readerClient;
+    private final LoadClient librarianClient;
+    private final LoadClient adminClient;
+    private final LoadClient loginClient;
+    private final String password;
+
+    /**
+     * @param client number of client, from 0
+     * @param db connection to database of server, used to find bookings
+     * @param readers emails of readers
+     */
+    Workload(int client, String baseUrl, LoadStats stats, Connection db, int books, List<String> readers,
+             String password) {
+        this.random = new Random(client);
+        this.db = db;
+        this.books = books;
+        this.readers = readers;
+        this.password = password;
+        reader = readers.get(client % readers.size());
+        librarian = DatasetGenerator.librarianEmail(client % DatasetGenerator.LIBRARIANS + 1);
+        anonymous = new LoadClient(baseUrl, stats);
+        readerClient = new LoadClient(baseUrl, stats);
+        librarianClient = new LoadClient(baseUrl, stats);
+        adminClient = new LoadClient(baseUrl, stats);
+        loginClient = new LoadClient(baseUrl, stats);
+    }
+
+    void next() throws SQLException {
+        int r = random.nextInt(100);
+        int i = 0;
+        while (r >= WEIGHTS[i]) {
+            r -= WEIGHTS[i++];
+        }
+        switch (SCENARIOS[i]) {
+            case "browse":
+                browse();
+                break;
+            case "reader":
+                reader();
+                break;
+            case "librarian":
+                librarian();
+                break;
+            case "login":
+                loginClient.logout();
+                login(loginClient, readers.get(random.nextInt(readers.size())));
+                break;
+            default:
+                admin();
+        }
+    }
+
+    private void browse() {
+        String query = DatasetGenerator.TITLE_NOUNS[random.nextInt(DatasetGenerator.TITLE_NOUNS.length)];
+        for (int page = 1; page <= 3; page++) {
+            boolean found = anonymous.get("command", "book.find", "query", query, "searchBy", "title",
+                    "sortBy", "title", "num", String.valueOf(PAGE_SIZE), "page", String.valueOf(page));
+            if (!found) {
+                return;
+            }
+        }
+    }
+
+    private void reader() {
+        if (!readerClient.hasSession() && !login(readerClient, reader)) {
+            return;
+        }
+        for (int j = 0; j < 2; j++) {
+            readerClient.post("command", "booking.addBook", "id", String.valueOf(random.nextInt(books) + 1));
+        }
+        readerClient.post("command", "booking.book");
+    }
+
+    private void librarian() throws SQLException {
+        if (!librarianClient.hasSession() && !login(librarianClient, librarian)) {
+            return;
+        }
+        librarianClient.get("command", "booking.find", "query", "BOOKED", "searchBy", "state", "sortBy", "email",
+                "num", String.valueOf(PAGE_SIZE));
+        Long booked = claim(db, "BOOKED");
+        if (booked != null) {
+            librarianClient.post("command", "booking.deliver", "bookingID", String.valueOf(booked),
+                    "subscription", "true");
+        }
+        Long delivered = claim(db, "DELIVERED");
+        if (delivered != null) {
+            librarianClient.post("command", "booking.done", "bookingID", String.valueOf(delivered));
+        }
+    }
+
+    private void admin() throws SQLException {
+        if (!adminClient.hasSession() && !login(adminClient, DatasetGenerator.ADMIN_EMAIL)) {
+            return;
+        }
+        int id = random.nextInt(books) + 1;
+        if (!adminClient.get("command", "book.edit", "id", String.valueOf(id))) {
+            return;
+        }
+        // the same book is saved, as it's in database now
+        List<String> params = new ArrayList<>();
+        try (PreparedStatement ps = db.prepareStatement("SELECT b.title, b.isbn, b.year, b.keep_period, " +
+                "b.lang_code, s.total FROM book b JOIN book_stat s ON s.book_id = b.id WHERE b.id = ?")) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return;
+                }
+                Collections.addAll(params, "command", "book.edit", "title", rs.getString(1),
+                        "isbn", rs.getString(2), "year", rs.getString(3), "keepPeriod", rs.getString(4),
+                        "langCode", rs.getString(5), "total", rs.getString(6));
+            }
+        }
+        try (PreparedStatement ps = db.prepareStatement("SELECT author_id FROM book_author WHERE book_id = ?")) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Collections.addAll(params, "authorIDs", rs.getString(1));
+                }
+            }
+        }
+        adminClient.postForm("book_edit.jsp", params.toArray(new String[0]));
+    }
+
+    private boolean login(LoadClient client, String email) {
+        boolean ok = client.post("command", "user.login", "email", email, "password", password);
+        if (!ok) {
+            client.logout();
+        }
+        return ok;
+    }
+
+    /**
+     * @return next booking in given state, which wasn't returned before, null if there is no such one
+     */
+    private static Long claim(Connection db, String state) throws SQLException {
+        synchronized (claimed) {
+            long last = claimed.getOrDefault(state, 0L);
+            try (PreparedStatement ps = db.prepareStatement(
+                    "SELECT id FROM booking WHERE state = ? AND id > ? ORDER BY id LIMIT 1")) {
+                ps.setString(1, state);
+                ps.setLong(2, last);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    long id = rs.getLong(1);
+                    claimed.put(state, id);
+                    return id;
+                }
+            }
+        }
+    }
+}
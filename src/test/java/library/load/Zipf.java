@@ -0,0 +1,77 @@
+package library.load;
+
+import java.util.Random;
+
+/**
+ * Zipf distribution over ranks {@code 1..n}: probability of rank {@code k} is proportional to {@code 1 / k^s}.
+ * Sampling is rejection-inversion of W. Hörmann and G. Derflinger, it takes constant time and memory, so it's used
+ * for millions of ranks without table of probabilities.
+ */
+class Zipf {
+    private final int n;
+    private final double exponent;
+    private final Random random;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    /**
+     * @param n number of ranks, 1 or more
+     * @param exponent skew, more than 0, 1 is the classic Zipf's law
+     */
+    Zipf(int n, double exponent, Random random) {
+        if (n < 1 || exponent <= 0) {
+            throw new IllegalArgumentException("n=" + n + ", exponent=" + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.random = random;
+        hIntegralX1 = hIntegral(1.5) - 1;
+        hIntegralN = hIntegral(n + 0.5);
+        s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * @return rank from 1 to n, 1 is the most probable one
+     */
+    int next() {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1ByX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            t = -1;
+        }
+        return Math.exp(log1pByX(t) * x);
+    }
+
+    private static double log1pByX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    private static double expm1ByX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
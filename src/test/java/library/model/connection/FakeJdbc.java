@@ -0,0 +1,194 @@
+package library.model.connection;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JDBC connection without database for DAO tests: every query is answered by {@link Rows}, updates change nothing.
+ * Values of rows are converted by getters of result set, columns are looked up by label (case insensitive) or index,
+ * metadata has labels of the first row.
+ */
+public class FakeJdbc {
+    private FakeJdbc() {
+    }
+
+    /**
+     * Rows returned by query
+     */
+    public interface Rows {
+        /**
+         * @param sql SQL query
+         * @param binds bind parameters, the first one has index 0
+         * @return rows, column label to value
+         */
+        List<Map<String, Object>> find(String sql, List<Object> binds);
+    }
+
+    public static Connection connection(Rows rows) {
+        AtomicLong generatedId = new AtomicLong();
+        return proxy(Connection.class, (method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return statement(PreparedStatement.class, rows, (String) args[0], generatedId);
+                case "createStatement":
+                    return statement(Statement.class, rows, null, generatedId);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * @param columns label and value pairs
+     * @return row of result set
+     */
+    public static Map<String, Object> row(Object... columns) {
+        Map<String, Object> row = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < columns.length; i += 2) {
+            row.put((String) columns[i], columns[i + 1]);
+        }
+        return row;
+    }
+
+    private static <S extends Statement> S statement(Class<S> type, Rows rows, String sql, AtomicLong generatedId) {
+        List<Object> binds = new ArrayList<>();
+        int[] batch = new int[1];
+        return proxy(type, (method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = (Integer) args[0] - 1;
+                while (binds.size() <= index) {
+                    binds.add(null);
+                }
+                binds.set(index, args[1]);
+                return null;
+            }
+            switch (name) {
+                case "executeQuery":
+                    return resultSet(rows.find(sql != null ? sql : (String) args[0], new ArrayList<>(binds)));
+                case "executeUpdate":
+                    return 1;
+                case "addBatch":
+                    batch[0]++;
+                    return null;
+                case "executeBatch":
+                    int[] result = new int[batch[0]];
+                    Arrays.fill(result, 1);
+                    batch[0] = 0;
+                    return result;
+                case "getGeneratedKeys":
+                    return resultSet(Collections.singletonList(row("id", generatedId.incrementAndGet())));
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        int[] cursor = {-1};
+        Object[] last = new Object[1];
+        return proxy(ResultSet.class, (method, args) -> {
+            String name = method.getName();
+            if (name.equals("next")) {
+                return ++cursor[0] < rows.size();
+            }
+            if (name.equals("wasNull")) {
+                return last[0] == null;
+            }
+            if (name.equals("getMetaData")) {
+                return metaData(rows.isEmpty() ? Collections.emptyList() : new ArrayList<>(rows.get(0).keySet()));
+            }
+            if (!name.startsWith("get") || args == null || args.length == 0) {
+                return null;
+            }
+
+            Map<String, Object> row = rows.get(cursor[0]);
+            Object value = args[0] instanceof Integer ?
+                    new ArrayList<>(row.values()).get((Integer) args[0] - 1) : row.get((String) args[0]);
+            last[0] = value;
+            return convert(value, method.getReturnType());
+        });
+    }
+
+    // labels are in order of indexes of rows
+    private static ResultSetMetaData metaData(List<String> labels) {
+        return proxy(ResultSetMetaData.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return labels.size();
+                case "getColumnLabel":
+                case "getColumnName":
+                    return labels.get((Integer) args[0] - 1);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (type == String.class) {
+            return value == null ? null : value.toString();
+        }
+        if (type == Timestamp.class || type == Date.class) {
+            if (value == null) {
+                return null;
+            }
+            long millis = value instanceof java.util.Date ? ((java.util.Date) value).getTime() :
+                    ((Number) value).longValue();
+            return type == Timestamp.class ? new Timestamp(millis) : new Date(millis);
+        }
+        Number number = value == null ? 0 : (Number) value;
+        if (type == int.class) {
+            return number.intValue();
+        }
+        if (type == long.class) {
+            return number.longValue();
+        }
+        if (type == double.class) {
+            return number.doubleValue();
+        }
+        return value;
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                        default:
+                            Object result = handler.handle(method, args);
+                            return result == null ? defaultValue(method.getReturnType()) : result;
+                    }
+                }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        return type.isPrimitive() ? convert(0, type) : null;
+    }
+}
@@ -0,0 +1,80 @@
+package library.model.connection;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Embedded in-memory H2 in MySQL mode with library schema created by {@link SchemaMigrations}, so DAOs can be run
+ * against real SQL and the same DDL as production without MySQL server. H2 has no YEAR type, it's SMALLINT domain.
+ * Database lives while JVM is running, every name is separate database. Large databases are kept in files instead
+ * ({@link #createFile(File)}), so they are generated once and reused between runs.
+ */
+public class H2Database {
+    public static final String USER = "sa";
+    public static final String PASSWORD = "";
+    private static final String OPTIONS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,YEAR,VALUE";
+    private static final String URL = "jdbc:h2:mem:%s" + OPTIONS + ";DB_CLOSE_DELAY=-1";
+    private static final String FILE_URL = "jdbc:h2:file:%s" + OPTIONS;
+
+    private H2Database() {
+    }
+
+    /**
+     * @param name name of database
+     * @return JDBC URL of database
+     */
+    public static String url(String name) {
+        return String.format(URL, name);
+    }
+
+    /**
+     * @param file database file without {@code .mv.db} extension
+     * @return JDBC URL of database
+     */
+    public static String fileUrl(File file) {
+        return String.format(FILE_URL, file.getAbsolutePath());
+    }
+
+    /**
+     * Creates empty database with library schema, existing database of the same name is dropped
+     *
+     * @param name name of database
+     * @return connection to new database
+     */
+    public static Connection create(String name) throws SQLException {
+        return create(DriverManager.getConnection(url(name), USER, PASSWORD));
+    }
+
+    /**
+     * Creates empty database with library schema in file, existing database in it is dropped
+     *
+     * @param file database file without {@code .mv.db} extension
+     * @return connection to new database
+     */
+    public static Connection createFile(File file) throws SQLException {
+        return create(DriverManager.getConnection(fileUrl(file), USER, PASSWORD));
+    }
+
+    private static Connection create(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+            st.execute("CREATE DOMAIN year AS SMALLINT");
+            new SchemaMigrations(conn).migrate();
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    /**
+     * @param name name of database, created before by {@link #create(String)}
+     * @return new connection to database
+     */
+    public static Connection connect(String name) throws SQLException {
+        return DriverManager.getConnection(url(name) + ";IFEXISTS=TRUE", USER, PASSWORD);
+    }
+}
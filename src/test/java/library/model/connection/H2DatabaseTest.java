@@ -0,0 +1,55 @@
+package library.model.connection;
+
+import library.model.dao.impl.BookDaoImpl;
+import library.model.dao.impl.LangDaoImpl;
+import library.model.entities.Book;
+import library.model.entities.Lang;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class H2DatabaseTest {
+    private Connection conn;
+
+    @Before
+    public void setUp() throws Exception {
+        conn = H2Database.create("h2test");
+        try (Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO lang (code) VALUES ('en'), ('uk')");
+            st.execute("INSERT INTO book VALUES (DEFAULT, 'Kobzar', '978-966-03-4000-1', 2001, 'uk', 14, NOW())");
+            st.execute("INSERT INTO book_stat (book_id, total, in_stock) VALUES (1, 3, 2)");
+            st.execute("INSERT INTO author VALUES (DEFAULT, 'Taras Shevchenko', NOW())");
+            st.execute("INSERT INTO author_name_i18n (lang_id, name, author_id) "
+                    + "VALUES (1, 'Taras Shevchenko', 1), (2, 'Тарас Шевченко', 1)");
+            st.execute("INSERT INTO book_author VALUES (1, 1)");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    public void daoReadsSchema() throws Exception {
+        Lang uk = new LangDaoImpl(conn).read("uk");
+        Book book = new BookDaoImpl(conn).read(1);
+
+        assertEquals("Kobzar", book.getTitle());
+        assertEquals(2001, book.getYear());
+        assertEquals(2, book.getBookStat().getInStock());
+        assertEquals("Тарас Шевченко", book.getAuthors().get(0).getName(uk, false));
+    }
+
+    @Test
+    public void createDropsExistingDatabase() throws Exception {
+        try (Connection again = H2Database.create("h2test")) {
+            assertTrue(new LangDaoImpl(again).getAll().isEmpty());
+        }
+    }
+}
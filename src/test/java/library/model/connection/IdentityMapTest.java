@@ -0,0 +1,42 @@
+package library.model.connection;
+
+import library.model.entities.Lang;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IdentityMapTest {
+
+    @After
+    public void tearDown() {
+        IdentityMap.close();
+    }
+
+    @Test
+    public void firstInstanceIsKeptTillEviction() {
+        IdentityMap.open();
+        Lang en = lang(1, "en");
+
+        assertSame(en, IdentityMap.put(en));
+        assertSame(en, IdentityMap.put(lang(1, "en")));
+        assertSame(en, IdentityMap.get(Lang.class, 1));
+        assertNull(IdentityMap.get(Lang.class, 2));
+
+        IdentityMap.evict(Lang.class, 1);
+        assertNull(IdentityMap.get(Lang.class, 1));
+    }
+
+    @Test
+    public void nothingIsKeptWhenMapIsNotOpen() {
+        Lang en = lang(1, "en");
+
+        assertSame(en, IdentityMap.put(en));
+        assertNull(IdentityMap.get(Lang.class, 1));
+        assertFalse(IdentityMap.isOpen());
+    }
+
+    private static Lang lang(long id, String code) {
+        return new Lang.Builder().setId(id).setCode(code).build();
+    }
+}
@@ -0,0 +1,82 @@
+package library.model.connection;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Fails test, which executes more SQL statements than declared, so N+1 queries can't come back unnoticed.
+ * Budget of the whole test is declared by {@link Max}, budget of one operation is checked by
+ * {@link #assertAtMost(int, String, Callable)}:
+ * <pre>
+ * &#64;Rule
+ * public QueryBudget queryBudget = new QueryBudget();
+ *
+ * &#64;Test
+ * &#64;QueryBudget.Max(3)
+ * public void readBook() ...
+ * </pre>
+ */
+public class QueryBudget implements TestRule {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface Max {
+        int value();
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        Max max = description.getAnnotation(Max.class);
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                QueryCounter.start();
+                int count;
+                try {
+                    base.evaluate();
+                } finally {
+                    count = QueryCounter.stop();
+                }
+                if (max != null && count > max.value()) {
+                    fail(description.getMethodName() + " executed " + count + " SQL statements, budget is " +
+                            max.value());
+                }
+            }
+        };
+    }
+
+    /**
+     * @param max budget of operation
+     * @param operation description for failure message
+     * @param callable operation
+     * @return result of operation
+     */
+    public static <T> T assertAtMost(int max, String operation, Callable<T> callable) throws Exception {
+        boolean started = QueryCounter.isStarted();
+        if (!started) {
+            QueryCounter.start();
+        }
+        int before = QueryCounter.get();
+        try {
+            T result = callable.call();
+            int count = QueryCounter.get() - before;
+            if (count > max) {
+                fail(operation + " executed " + count + " SQL statements, budget is " + max);
+            }
+            return result;
+        } finally {
+            if (!started) {
+                QueryCounter.stop();
+            }
+        }
+    }
+}
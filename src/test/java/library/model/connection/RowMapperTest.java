@@ -0,0 +1,69 @@
+package library.model.connection;
+
+import library.model.entities.Lang;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RowMapperTest {
+
+    /**
+     * Keeps columns of code and name of the first lang, counts resolutions
+     */
+    private static class CountingMapper extends RowMapper<Lang> {
+        private final List<Calendar> times = new ArrayList<>();
+        private int resolved;
+        private int code;
+        private int name;
+        private int time;
+
+        @Override
+        protected void resolve(Columns columns) throws SQLException {
+            resolved++;
+            code = columns.index("CODE");
+            name = columns.index("name");
+            time = columns.index("time");
+        }
+
+        @Override
+        protected Lang map(Connection c, ResultSet rs) throws SQLException {
+            times.add(calendar(rs, time));
+            return new Lang.Builder().setCode(rs.getString(code) + ":" + rs.getString(name)).build();
+        }
+    }
+
+    @Test
+    public void columnsAreResolvedOncePerResultSet() throws Exception {
+        try (Connection conn = H2Database.create("row-mapper");
+             Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO lang (code) VALUES ('en'), ('uk')");
+            final String query = "SELECT l.code, l.code AS name, o.code AS name, "
+                    + "CASE WHEN l.id = 1 THEN TIMESTAMP '2020-01-02 03:04:05' END AS time "
+                    + "FROM lang AS l JOIN lang AS o ON o.id <> l.id ORDER BY l.id";
+            CountingMapper mapper = new CountingMapper();
+
+            List<Lang> langs = new BaseDao<Lang>(conn).getRecords(query, mapper);
+            assertEquals(1, mapper.resolved);
+            // the first of repeated labels
+            assertEquals("en:en", langs.get(0).getCode());
+            assertEquals("uk:uk", langs.get(1).getCode());
+            assertEquals(2020, mapper.times.get(0).get(Calendar.YEAR));
+            assertEquals(5, mapper.times.get(0).get(Calendar.SECOND));
+            assertNull(mapper.times.get(1));
+
+            new BaseDao<Lang>(conn).getRecords(query, mapper);
+            assertEquals(2, mapper.resolved);
+            // calendars are cloned, not shared
+            assertNotSame(mapper.times.get(0), mapper.times.get(2));
+            assertEquals(mapper.times.get(0), mapper.times.get(2));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package library.model.connection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class SqlStatsTest {
+    private SqlStats stats;
+    private Connection conn;
+    private PreparedStatement ps;
+    private ResultSet rs;
+
+    @Before
+    public void mockObjects() throws SQLException {
+        stats = new SqlStats();
+        conn = mock(Connection.class);
+        ps = mock(PreparedStatement.class);
+        rs = mock(ResultSet.class);
+        when(conn.prepareStatement(anyString())).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, true, false);
+    }
+
+    @Test
+    public void normalize() {
+        assertEquals("SELECT * FROM book WHERE title LIKE ? AND year > ? ORDER BY title LIMIT ?",
+                SqlStats.normalize("SELECT *  FROM book\n WHERE title LIKE 'it''s' AND year > 1990 " +
+                        "ORDER BY title LIMIT 10"));
+        assertEquals("SELECT * FROM book_in_booking WHERE booking_id IN (?)",
+                SqlStats.normalize("SELECT * FROM book_in_booking WHERE booking_id IN (1, 2,3)"));
+        assertEquals("SELECT name FROM i18n_author WHERE id = ?",
+                SqlStats.normalize("SELECT name FROM i18n_author WHERE id = ?"));
+    }
+
+    @Test
+    public void queryIsRecordedWithRowsOnClose() throws SQLException {
+        String query = "SELECT * FROM book WHERE id = ?";
+        for (int i = 0; i < 2; i++) {
+            try (PreparedStatement statement = stats.prepare(conn, query)) {
+                statement.setLong(1, 42);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        result.getLong(1);
+                    }
+                }
+            }
+        }
+
+        List<SqlStatementReport> top = stats.top(10);
+        assertEquals(1, top.size());
+        assertEquals(query, top.get(0).getSql());
+        assertEquals(2, top.get(0).getCalls());
+        assertEquals(3, top.get(0).getRows());
+        verify(ps, times(2)).setLong(1, 42);
+        verify(rs, times(3)).getLong(1);
+    }
+
+    @Test
+    public void updatesAndErrorsAreRecorded() throws SQLException {
+        when(ps.executeBatch()).thenReturn(new int[]{1, 1, Statement.SUCCESS_NO_INFO});
+        when(ps.executeUpdate()).thenThrow(new SQLException("error"));
+
+        try (PreparedStatement statement = stats.prepare(conn, "INSERT INTO book_in_booking VALUES (?, ?)")) {
+            statement.addBatch();
+            statement.addBatch();
+            statement.addBatch();
+            assertEquals(3, statement.executeBatch().length);
+        }
+        try (PreparedStatement statement = stats.prepare(conn, "DELETE FROM book WHERE id = ?")) {
+            statement.executeUpdate();
+            fail("exception is expected");
+        } catch (SQLException e) {
+            assertEquals("error", e.getMessage());
+        }
+
+        List<SqlStatementReport> top = stats.top(10);
+        assertEquals(2, top.size());
+        SqlStatementReport insert = top.stream().filter(r -> r.getSql().startsWith("INSERT")).findFirst().get();
+        assertEquals(2, insert.getRows());
+        assertEquals(0, insert.getErrors());
+        SqlStatementReport delete = top.stream().filter(r -> r.getSql().startsWith("DELETE")).findFirst().get();
+        assertEquals(1, delete.getErrors());
+    }
+
+    @Test
+    public void topIsOrderedByTotalTimeAndLimited() {
+        stats.record("SELECT 1", 1_000_000, 1, false, () -> "[]");
+        stats.record("SELECT * FROM book", 5_000_000, 1, false, () -> "[]");
+        stats.record("SELECT * FROM author", 3_000_000, 1, false, () -> "[]");
+
+        List<SqlStatementReport> top = stats.top(2);
+        assertEquals(2, top.size());
+        assertEquals("SELECT * FROM book", top.get(0).getSql());
+        assertEquals("SELECT * FROM author", top.get(1).getSql());
+        assertEquals(5, top.get(0).getMaxMillis(), 0.01);
+
+        stats.reset();
+        assertTrue(stats.top(2).isEmpty());
+    }
+
+    @Test
+    public void numberOfStatementsIsBounded() {
+        for (int i = 0; i < SqlStats.MAX_STATEMENTS + 10; i++) {
+            stats.record("SELECT * FROM t" + i, 1000, 0, false, () -> "[]");
+        }
+        List<SqlStatementReport> top = stats.top(Integer.MAX_VALUE);
+        assertEquals(SqlStats.MAX_STATEMENTS + 1, top.size());
+        assertTrue(top.stream().anyMatch(r -> r.getSql().equals(SqlStats.OTHER) && r.getCalls() == 10));
+    }
+
+    @Test
+    public void bindsOfUserStatementsAreNotLogged() {
+        stats.setSlowQueryMillis(0);
+        Supplier<String> hidden = () -> {
+            throw new AssertionError("binds are logged");
+        };
+        stats.record("INSERT INTO user VALUES (DEFAULT, ?, ?, ?, ?, ?, ?, ?, ?, ?)", 1000, 1, false, hidden);
+        stats.record("UPDATE user SET password = ? WHERE id = ?", 1000, 1, false, hidden);
+        stats.record("SELECT * FROM booking AS b JOIN user AS u ON u.id = b.user_id WHERE u.email LIKE ?",
+                1000, 1, false, hidden);
+
+        AtomicInteger described = new AtomicInteger();
+        stats.record("SELECT * FROM booking WHERE user_id = ?", 1000, 1, false,
+                () -> "[" + described.incrementAndGet() + "]");
+        assertEquals(1, described.get());
+    }
+}
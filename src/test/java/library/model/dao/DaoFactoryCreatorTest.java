@@ -2,6 +2,7 @@ package library.model.dao;
 
 import library.model.dao.factory.AbstractDaoFactory;
 import library.model.dao.factory.DaoFactoryCreator;
+import library.model.dao.factory.MemoryDaoFactory;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -11,4 +12,14 @@ public class DaoFactoryCreatorTest {
         AbstractDaoFactory factory = DaoFactoryCreator.getDefaultFactory();
         Assert.assertNotNull(factory);
     }
+
+    @Test
+    public void testMemoryStorageProperty() {
+        System.setProperty(DaoFactoryCreator.PROPERTY_STORAGE, DaoFactoryCreator.STORAGE_MEMORY);
+        try {
+            Assert.assertEquals(MemoryDaoFactory.class, DaoFactoryCreator.getDefaultFactory().getClass());
+        } finally {
+            System.clearProperty(DaoFactoryCreator.PROPERTY_STORAGE);
+        }
+    }
 }
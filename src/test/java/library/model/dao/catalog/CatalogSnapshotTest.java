@@ -0,0 +1,177 @@
+package library.model.dao.catalog;
+
+import library.model.connection.H2Database;
+import library.model.dao.impl.BookDaoImpl;
+import library.model.entities.Book;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CatalogSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Connection conn;
+    private File dir;
+    private CatalogSnapshots snapshots;
+
+    /**
+     * Book 4 has two authors, book 5 has no one, so it's never found
+     */
+    @Before
+    public void setUp() throws Exception {
+        conn = H2Database.create("catalog");
+        try (Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO lang (code) VALUES ('en'), ('uk')");
+            st.execute("INSERT INTO author VALUES (DEFAULT, 'Taras Shevchenko', NOW()), "
+                    + "(DEFAULT, 'Lesya Ukrainka', NOW()), (DEFAULT, 'Ivan Franko', NOW())");
+            st.execute("INSERT INTO author_name_i18n (lang_id, name, author_id) "
+                    + "VALUES (1, 'Taras Shevchenko', 1), (2, 'Тарас Шевченко', 1), "
+                    + "(1, 'Lesya Ukrainka', 2), (1, 'Ivan Franko', 3)");
+            st.execute("INSERT INTO book VALUES (DEFAULT, 'Kobzar', '978-1', 1840, 'uk', 14, NOW()), "
+                    + "(DEFAULT, 'Forest Song', '978-2', 1911, 'uk', 14, NOW()), "
+                    + "(DEFAULT, 'Zakhar Berkut', '978-3', 1883, 'uk', 14, NOW()), "
+                    + "(DEFAULT, 'Poems', '978-4', 1900, 'en', 7, NOW()), "
+                    + "(DEFAULT, 'Orphan', '978-5', 1950, 'en', 7, NOW())");
+            st.execute("INSERT INTO book_stat (book_id, total, in_stock) VALUES (1, 3, 2), (2, 1, 1), (3, 2, 0), "
+                    + "(4, 5, 5), (5, 1, 1)");
+            st.execute("INSERT INTO book_author VALUES (1, 1), (2, 2), (3, 3), (4, 1), (4, 2)");
+        }
+        dir = folder.newFolder("catalog");
+        snapshots = new CatalogSnapshots(new CatalogLoader(conn));
+        snapshots.enable(dir.toPath());
+        snapshots.refresh(false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    public void snapshotFindsAsDao() throws Exception {
+        CatalogSnapshot snapshot = snapshots.current();
+        BookDaoImpl dao = new BookDaoImpl(conn);
+        for (String what: Arrays.asList("o", "Song", "978", "zz")) {
+            for (String searchBy: Arrays.asList("title", "isbn")) {
+                assertEquals(dao.findByPatternCount(what, searchBy), snapshot.count(what, searchBy));
+                for (String sortBy: Arrays.asList("title", "isbn", "year")) {
+                    List<Book> expected = dao.findByPattern(what, searchBy, sortBy, 10, 1);
+                    List<Book> found = snapshot.find(what, searchBy, sortBy, 10, 1);
+                    assertEquals(what + " by " + searchBy + " sorted by " + sortBy, expected, found);
+                    for (int i = 0; i < found.size(); i++) {
+                        assertEquals(expected.get(i).getBookStat(), found.get(i).getBookStat());
+                        assertEquals(expected.get(i).getAuthors(), found.get(i).getAuthors());
+                        assertEquals(expected.get(i).getAuthors().get(0).getI18Names(),
+                                found.get(i).getAuthors().get(0).getI18Names());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void authorIsAnyNameIgnoringCase() throws Exception {
+        CatalogSnapshot snapshot = snapshots.current();
+        assertEquals(Arrays.asList(1L, 4L), ids(snapshot.find("шевч", "author", "title", 10, 1)));
+        assertEquals(2, snapshot.count("LESYA", "author"));
+        // the least name of authors, then id
+        assertEquals(Arrays.asList(3L, 2L, 4L, 1L), ids(snapshot.find("", "title", "author", 10, 1)));
+        assertEquals(Arrays.asList(1L, 3L), ids(snapshot.find("18", "year", "year", 10, 1)));
+        assertEquals(Arrays.asList(4L, 1L), ids(snapshot.find("", "title", "author", 2, 2)));
+        assertTrue(snapshot.find("Kobzar", "title", "title", 1, 1).get(0).getAuthors().get(0)
+                .getI18Names().containsValue("Тарас Шевченко"));
+    }
+
+    @Test
+    public void changedBooksAreReRead() throws Exception {
+        BookDaoImpl dao = new BookDaoImpl(conn);
+        Book kobzar = dao.read(1);
+        kobzar.setTitle("Kobzar, 2nd edition");
+        kobzar.getBookStat().setInStock(0);
+        dao.update(kobzar);
+        Book forest = dao.read(2);
+        forest.setTitle("Forest Song, 2nd edition");
+        dao.update(forest);
+        dao.delete(5);
+
+        snapshots.changed(Arrays.asList(1L, 5L));
+        snapshots.refresh(false);
+        CatalogSnapshot snapshot = snapshots.current();
+        assertEquals(4, snapshot.size());
+        List<Book> found = snapshot.find("2nd", "title", "title", 10, 1);
+        assertEquals(Collections.singletonList(1L), ids(found));
+        assertEquals(0, found.get(0).getBookStat().getInStock());
+        // only old snapshot and its stats are deleted, no temporary files are left
+        assertEquals(2, dir.list().length);
+
+        snapshots.refresh(true);
+        assertEquals(Arrays.asList(2L, 1L), ids(snapshots.current().find("2nd", "title", "title", 10, 1)));
+    }
+
+    @Test
+    public void statsAreUpdatedInPlace() throws Exception {
+        CatalogSnapshot snapshot = snapshots.current();
+        File file = dir.listFiles((d, name) -> name.endsWith(".snap"))[0];
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        try (Statement st = conn.createStatement()) {
+            st.execute("UPDATE book_stat SET in_stock = 1, reserved = 1, times_was_booked = 7 WHERE book_id = 1");
+            st.execute("INSERT INTO book VALUES (DEFAULT, 'Kateryna', '978-6', 1838, 'uk', 14, NOW())");
+            st.execute("INSERT INTO book_stat (book_id, total, in_stock) VALUES (6, 1, 1)");
+            st.execute("INSERT INTO book_author VALUES (6, 1)");
+        }
+
+        snapshots.statsChanged(Collections.singletonList(1L));
+        snapshots.refresh(false);
+        assertSame(snapshot, snapshots.current());
+        Book kobzar = snapshot.find("Kobzar", "title", "title", 10, 1).get(0);
+        assertEquals(1, kobzar.getBookStat().getInStock());
+        assertEquals(1, kobzar.getBookStat().getReserved());
+        assertEquals(7, kobzar.getBookStat().getTimesWasBooked());
+        // stats are kept in their own file, snapshot is immutable
+        assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+
+        // book, which isn't in snapshot yet, is read
+        snapshots.statsChanged(Collections.singletonList(6L));
+        snapshots.refresh(false);
+        assertNotSame(snapshot, snapshots.current());
+        assertEquals(Collections.singletonList(6L), ids(snapshots.current().find("Kateryna", "title", "title", 10, 1)));
+    }
+
+    @Test
+    public void booksOfChangedAuthorAreReRead() throws Exception {
+        try (Statement st = conn.createStatement()) {
+            st.execute("UPDATE author_name_i18n SET name = 'Lesia Ukrainka' WHERE author_id = 2");
+        }
+        snapshots.authorChanged(2);
+        snapshots.refresh(false);
+        assertEquals(Arrays.asList(2L, 4L), ids(snapshots.current().find("Lesia", "author", "title", 10, 1)));
+    }
+
+    @Test
+    public void nothingChangedKeepsSnapshot() throws Exception {
+        CatalogSnapshot snapshot = snapshots.current();
+        snapshots.refresh(false);
+        assertSame(snapshot, snapshots.current());
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        List<Long> ids = new ArrayList<>();
+        for (Book book: books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,192 @@
+package library.model.dao.coalescing;
+
+import library.exceptions.DaoException;
+import library.model.dao.BookDao;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+    private static final int FOLLOWERS = 5;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsShareOneLoad() throws Exception {
+        SingleFlight<String, List<Integer>> flight = new SingleFlight<>(null, 10000, ArrayList::new);
+        Future<List<Integer>> leader = executor.submit(() -> flight.execute("key", this::slowLoad));
+        waitForLoad();
+        List<Future<List<Integer>>> followers = new ArrayList<>();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followers.add(executor.submit(() -> flight.execute("key", this::slowLoad)));
+        }
+        waitForFollowers(flight, FOLLOWERS);
+        release.countDown();
+
+        List<Integer> result = leader.get();
+        assertEquals(Collections.singletonList(1), result);
+        for (Future<List<Integer>> follower: followers) {
+            assertEquals(result, follower.get());
+            assertNotSame(result, follower.get());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.getExecuted());
+        assertEquals(FOLLOWERS, flight.getCoalesced());
+        assertEquals(0, flight.getInFlight());
+
+        // finished call isn't shared, the original is returned
+        release.countDown();
+        assertEquals(Collections.singletonList(2), flight.execute("key", this::slowLoad));
+    }
+
+    @Test
+    public void followerExecutesCallAfterTimeout() throws Exception {
+        SingleFlight<String, List<Integer>> flight = new SingleFlight<>(null, 50, ArrayList::new);
+        Future<List<Integer>> leader = executor.submit(() -> flight.execute("key", this::slowLoad));
+        waitForLoad();
+
+        assertEquals(Collections.singletonList(2), flight.execute("key", () -> load()));
+        assertEquals(1, flight.getTimeouts());
+        release.countDown();
+        assertEquals(Collections.singletonList(1), leader.get());
+    }
+
+    @Test
+    public void errorIsSharedAsOwnException() throws Exception {
+        SingleFlight<String, List<Integer>> flight = new SingleFlight<>(null, 10000, ArrayList::new);
+        Future<List<Integer>> leader = executor.submit(() -> flight.execute("key", () -> {
+            slowLoad();
+            throw new DaoException("DB is down");
+        }));
+        waitForLoad();
+        Future<List<Integer>> follower = executor.submit(() -> flight.execute("key", this::slowLoad));
+        waitForFollowers(flight, 1);
+        release.countDown();
+
+        Throwable leaderError = error(leader);
+        Throwable followerError = error(follower);
+        assertTrue(followerError instanceof DaoException);
+        assertEquals("DB is down", followerError.getMessage());
+        assertNotSame(leaderError, followerError);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void booksAreCopiedForEveryCaller() throws Exception {
+        BookDao dao = (BookDao) Proxy.newProxyInstance(BookDao.class.getClassLoader(), new Class<?>[]{BookDao.class},
+                (proxy, method, args) -> {
+                    slowLoad();
+                    return book((Long) args[0]);
+                });
+        CoalescingBookDao coalescing = new CoalescingBookDao(dao, new CoalescingBookDao.Flights(null, 10000));
+        Future<Book> leader = executor.submit(() -> coalescing.read(7));
+        waitForLoad();
+        Future<Book> follower = executor.submit(() -> coalescing.read(7));
+        while (waitingThreads() < 2) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        Book book = leader.get();
+        Book copy = follower.get();
+        assertEquals(1, loads.get());
+        assertNotSame(book, copy);
+        assertNotSame(book.getBookStat(), copy.getBookStat());
+        assertEquals(book.getTitle(), copy.getTitle());
+        assertEquals(3, copy.getBookStat().getInStock());
+    }
+
+    private List<Integer> slowLoad() throws DaoException {
+        List<Integer> result = load();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new DaoException("interrupted", e);
+        }
+        return result;
+    }
+
+    private List<Integer> load() {
+        return new ArrayList<>(Collections.singletonList(loads.incrementAndGet()));
+    }
+
+    private void waitForLoad() throws InterruptedException {
+        while (loads.get() == 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits till every follower joins the call, no new call is executed by them
+     */
+    private void waitForFollowers(SingleFlight<?, ?> flight, int followers) throws InterruptedException {
+        while (waitingThreads() < followers + 1) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, flight.getExecuted());
+    }
+
+    /**
+     * @return threads of executor, which are blocked by leader or its result
+     */
+    private static int waitingThreads() {
+        int waiting = 0;
+        for (Thread thread: Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("pool-") && (thread.getState() == Thread.State.WAITING
+                    || thread.getState() == Thread.State.TIMED_WAITING)) {
+                for (StackTraceElement element: thread.getStackTrace()) {
+                    if (element.getClassName().equals(SingleFlight.class.getName())) {
+                        waiting++;
+                        break;
+                    }
+                }
+            }
+        }
+        return waiting;
+    }
+
+    private static Throwable error(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        fail("call should be failed");
+        return null;
+    }
+
+    private static Book book(long id) {
+        return new Book.Builder()
+                .setId(id)
+                .setTitle("Kobzar")
+                .setIsbn("978-1")
+                .setYear(1840)
+                .setLangCode("uk")
+                .setKeepPeriod(14)
+                .setModified(Calendar.getInstance())
+                .setBookStat(new BookStat.Builder().setId(id).setTotal(3).setInStock(3).build())
+                .setAuthors(new ArrayList<>())
+                .build();
+    }
+}
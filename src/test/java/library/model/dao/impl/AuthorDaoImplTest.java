@@ -1,10 +1,19 @@
 package library.model.dao.impl;
 
+import library.model.connection.H2Database;
 import library.model.dao.AuthorDao;
+import library.model.dao.ReadResult;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.dao.factory.DaoFactoryImpl;
+import library.model.entities.Author;
 import org.junit.Test;
 
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 public class AuthorDaoImplTest {
@@ -15,4 +24,33 @@ public class AuthorDaoImplTest {
         AuthorDao authorDao = daoFactory.getAuthorDao();
         assertEquals(authorDao.getClass(), AuthorDaoImpl.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void readAllKeepsOrderAndReportsMissing() throws Exception {
+        try (Connection conn = H2Database.create("authors")) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("INSERT INTO lang (code) VALUES ('en')");
+                st.execute("INSERT INTO author VALUES (DEFAULT, 'Taras Shevchenko', NOW()), "
+                        + "(DEFAULT, 'Lesya Ukrainka', NOW()), (DEFAULT, 'Ivan Franko', NOW())");
+                st.execute("INSERT INTO author_name_i18n (lang_id, name, author_id) VALUES (1, 'Taras Shevchenko', 1), "
+                        + "(1, 'Lesya Ukrainka', 2), (1, 'Ivan Franko', 3)");
+            }
+            // more ids than one IN list takes
+            List<Long> ids = new ArrayList<>(Arrays.asList(3L, 9L, 1L, 3L));
+            for (long id = 1000; id < 2000; id++) {
+                ids.add(id);
+            }
+
+            ReadResult<Author> result = new AuthorDaoImpl(conn).readAll(ids);
+
+            List<Author> found = result.getFound();
+            assertEquals(2, found.size());
+            assertEquals("Ivan Franko", found.get(0).getName());
+            assertEquals("en", found.get(0).getPrimaryLang().getCode());
+            assertEquals("Taras Shevchenko", found.get(1).getName());
+            assertEquals(1001, result.getMissing().size());
+            assertEquals(Long.valueOf(9), result.getMissing().get(0));
+            assertEquals(found.get(1), result.get(1));
+        }
+    }
+}
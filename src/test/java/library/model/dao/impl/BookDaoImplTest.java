@@ -1,18 +1,135 @@
 package library.model.dao.impl;
 
+import library.model.connection.FakeJdbc;
+import library.model.connection.IdentityMap;
+import library.model.connection.QueryBudget;
 import library.model.dao.BookDao;
+import library.model.dao.coalescing.CoalescingBookDao;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.dao.factory.DaoFactoryImpl;
+import library.model.entities.Book;
+import library.model.entities.I18AuthorName;
+import library.model.entities.Lang;
+import org.junit.Rule;
 import org.junit.Test;
 
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static library.model.connection.FakeJdbc.row;
 import static org.junit.Assert.*;
 
 public class BookDaoImplTest {
+    private static final int PAGE_SIZE = 20;
+    private static final int AUTHORS_PER_BOOK = 2;
+    private static final int NAMES_PER_AUTHOR = 2;
+    // book_stat, authors and their names of all books, then lang of every name
+    private static final int QUERIES_PER_PAGE = 3;
+    private static final int LANGS_PER_BOOK = AUTHORS_PER_BOOK * NAMES_PER_AUTHOR;
+
+    @Rule
+    public QueryBudget queryBudget = new QueryBudget();
+
     private DaoFactoryImpl daoFactory = DaoFactoryCreator.getDefaultFactory().newInstance();
 
     @Test
     public void testBookDaoImplGetInstance() {
         BookDao bookDao = daoFactory.getBookDao();
-        assertEquals(bookDao.getClass(), BookDaoImpl.class);
+        assertEquals(bookDao.getClass(), CoalescingBookDao.class);
+    }
+
+    @Test
+    public void pageOfBooksIsInQueryBudget() throws Exception {
+        BookDao bookDao = new BookDaoImpl(library());
+
+        List<Book> books = QueryBudget.assertAtMost(1 + QUERIES_PER_PAGE + PAGE_SIZE * LANGS_PER_BOOK,
+                "page of " + PAGE_SIZE + " books",
+                () -> bookDao.findByPattern("title", "title", "title", PAGE_SIZE, 1));
+
+        assertEquals(PAGE_SIZE, books.size());
+        assertEquals(AUTHORS_PER_BOOK, books.get(0).getAuthors().size());
+        assertEquals(NAMES_PER_AUTHOR, books.get(0).getAuthors().get(0).getI18Names().size());
+        assertNotNull(books.get(0).getBookStat());
+    }
+
+    @Test
+    public void langIsReadOncePerRequest() throws Exception {
+        BookDao bookDao = new BookDaoImpl(library());
+
+        IdentityMap.open();
+        List<Book> books;
+        try {
+            // two langs of names once
+            books = QueryBudget.assertAtMost(1 + QUERIES_PER_PAGE + 2, "page in identity map",
+                    () -> bookDao.findByPattern("title", "title", "title", PAGE_SIZE, 1));
+        } finally {
+            IdentityMap.close();
+        }
+
+        Map<Long, Lang> langs = new HashMap<>();
+        for (I18AuthorName name: books.get(0).getAuthors().get(0).getI18NamesAsList()) {
+            langs.put(name.getLang().getId(), name.getLang());
+        }
+        for (I18AuthorName name: books.get(PAGE_SIZE - 1).getAuthors().get(1).getI18NamesAsList()) {
+            assertSame(langs.get(name.getLang().getId()), name.getLang());
+        }
+    }
+
+    @Test
+    @QueryBudget.Max(1 + QUERIES_PER_PAGE + LANGS_PER_BOOK)
+    public void bookIsReadInQueryBudget() throws Exception {
+        Book book = new BookDaoImpl(library()).read(1);
+        assertEquals(1, book.getId());
+    }
+
+    /**
+     * @return connection to library of {@link #PAGE_SIZE} books
+     */
+    private static Connection library() {
+        long now = System.currentTimeMillis();
+        return FakeJdbc.connection((sql, binds) -> {
+            if (sql.startsWith("SELECT b.* FROM book") || sql.startsWith("SELECT * FROM book WHERE")) {
+                List<Map<String, Object>> books = new ArrayList<>();
+                for (long id = 1; id <= PAGE_SIZE; id++) {
+                    books.add(row("id", id, "title", "Book " + id, "isbn", "isbn-" + id, "year", 2001,
+                            "lang_code", "en", "keep_period", 14, "modified", now));
+                }
+                return sql.contains("WHERE id") ? books.subList(0, 1) : books;
+            }
+            List<Map<String, Object>> rows = new ArrayList<>();
+            if (sql.startsWith("SELECT * FROM book_stat WHERE book_id IN")) {
+                for (Object bookId: binds) {
+                    rows.add(row("book_id", bookId, "total", 10, "in_stock", 10, "reserved", 0,
+                            "times_was_booked", 0));
+                }
+                return rows;
+            }
+            if (sql.startsWith("SELECT ba.book_id, a.id, a.name, a.modified FROM book_author")) {
+                for (Object bind: binds) {
+                    long bookId = (Long) bind;
+                    rows.add(row("book_id", bookId, "id", bookId * 2, "name", "Author " + bookId, "modified", now));
+                    rows.add(row("book_id", bookId, "id", bookId * 2 + 1, "name", "Co-author " + bookId,
+                            "modified", now));
+                }
+                return rows;
+            }
+            if (sql.startsWith("SELECT * FROM author_name_i18n WHERE author_id IN")) {
+                for (Object authorId: binds) {
+                    rows.add(row("author_id", authorId, "lang_id", 1, "name", "Author"));
+                    rows.add(row("author_id", authorId, "lang_id", 2, "name", "Автор"));
+                }
+                return rows;
+            }
+            if (sql.startsWith("SELECT * FROM lang WHERE id")) {
+                long id = (Long) binds.get(0);
+                return Collections.singletonList(row("id", id, "code", id == 1 ? "en" : "uk"));
+            }
+            throw new AssertionError("unexpected query " + sql);
+        });
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,28 @@
 package library.model.dao.impl;
 
+import library.model.connection.H2Database;
+import library.model.connection.IdentityMap;
+import library.model.connection.QueryBudget;
 import library.model.dao.BookingDao;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.dao.factory.DaoFactoryImpl;
+import library.model.dto.BookListItem;
+import library.model.dto.BookingListItem;
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.Booking;
+import library.model.entities.Lang;
 import org.junit.Test;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class BookingDaoImplTest {
@@ -15,4 +33,186 @@ public class BookingDaoImplTest {
         BookingDao bookingDao = daoFactory.getBookingDao();
         assertEquals(bookingDao.getClass(), BookingDaoImpl.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void lazyAssociationsAreLoadedForAllBookingsAtOnce() throws Exception {
+        try (Connection conn = library("bookings")) {
+            BookingDao dao = new BookingDaoImpl(conn);
+
+            IdentityMap.open();
+            try {
+                IdentityMap.lazyLoading();
+                // bookings, owner and lang of owner once
+                List<Booking> bookings = QueryBudget.assertAtMost(3, "list of bookings",
+                        () -> dao.findDeliveredByUserID(1));
+                assertEquals(2, bookings.size());
+
+                // book_in_booking and book of both bookings, no stats, authors and names
+                assertEquals(2, (int) QueryBudget.assertAtMost(2, "books of booking",
+                        () -> bookings.get(0).getBooks().size()));
+                assertEquals(1, (int) QueryBudget.assertAtMost(0, "books of another booking",
+                        () -> bookings.get(1).getBooks().size()));
+
+                Book kobzar = bookings.get(0).getBooks().get(0);
+                Book haidamaky = bookings.get(1).getBooks().get(0);
+                assertEquals(2, (long) QueryBudget.assertAtMost(1, "stats of all books",
+                        () -> kobzar.getBookStat().getInStock()));
+                Author author = QueryBudget.assertAtMost(1, "authors of all books",
+                        () -> haidamaky.getAuthors().get(0));
+                assertSame(author, kobzar.getAuthors().get(0));
+                assertEquals("en", QueryBudget.assertAtMost(1, "names of all authors",
+                        () -> author.getPrimaryLang().getCode()));
+            } finally {
+                IdentityMap.close();
+            }
+        }
+    }
+
+    @Test
+    public void listItemsAreReadByOneQueryPerTable() throws Exception {
+        try (Connection conn = library("booking-items"); Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO lang (code) VALUES ('uk')");
+            st.execute("INSERT INTO author_name_i18n (lang_id, name, author_id) VALUES (2, 'Тарас Шевченко', 1)");
+            Lang uk = new Lang.Builder().setId(2).setCode("uk").build();
+
+            // bookings with owners, books of bookings, names of authors
+            List<BookingListItem> items = QueryBudget.assertAtMost(3, "page of bookings",
+                    () -> new BookingDaoImpl(conn).findItemsByPattern("reader", "email", "email", 10, 1, uk));
+
+            assertEquals(2, items.size());
+            BookingListItem booking = items.get(0).getId() == 1 ? items.get(0) : items.get(1);
+            assertEquals("reader@library.ua", booking.getUserEmail());
+            assertEquals("Reader", booking.getUserName());
+            assertEquals(Booking.Place.USER, booking.getLocated());
+            assertEquals(2, booking.getBookCount());
+            for (BookListItem book: booking.getBooks()) {
+                // Ivan Franko has no Ukrainian name, primary one is shown
+                assertEquals(book.getTitle().equals("Kobzar") ? Collections.singletonList("Тарас Шевченко")
+                        : Collections.singletonList("Ivan Franko"), book.getAuthorNames());
+            }
+        }
+    }
+
+    @Test
+    public void partitionOfDeliveredIsReadByOneQuery() throws Exception {
+        try (Connection conn = library("bookings-delivered-range"); Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO user VALUES (DEFAULT, 'second@library.ua', 'password', 'USER', 'VALID', 0, "
+                    + "'Second', 1, NOW(), NOW())");
+            st.execute("INSERT INTO booking VALUES (DEFAULT, 2, 'DELIVERED', 'USER', NOW()), "
+                    + "(DEFAULT, 2, 'BOOKED', 'LIBRARY', NOW())");
+            st.execute("INSERT INTO book_in_booking VALUES (3, 2), (4, 1)");
+
+            // columns of fine only, not users and books
+            List<Booking> bookings = QueryBudget.assertAtMost(1, "partition of delivered bookings",
+                    () -> new BookingDaoImpl(conn).findDeliveredByUserIdRange(1, 3));
+
+            assertEquals(3, bookings.size());
+            for (Booking booking: bookings) {
+                assertEquals(booking.getId() == 3 ? 2 : 1, booking.getUser().getId());
+                assertEquals(booking.getId() == 2 ? Booking.Place.LIBRARY : Booking.Place.USER,
+                        booking.getLocated());
+                assertEquals(booking.getId() == 1 ? 2 : 1, booking.getBooks().size());
+                assertEquals(14, booking.getBooks().get(0).getKeepPeriod());
+            }
+        }
+    }
+
+    @Test
+    public void bookingsModifiedBeforeAreReadByState() throws Exception {
+        try (Connection conn = library("bookings-modified-before"); Statement st = conn.createStatement()) {
+            st.execute("UPDATE booking SET modified = TIMESTAMPADD(DAY, -3, NOW()) WHERE id = 2");
+            Calendar before = Calendar.getInstance();
+            before.add(Calendar.DATE, -1);
+
+            List<Booking> bookings = new BookingDaoImpl(conn).findByStateModifiedBefore(Booking.State.DELIVERED,
+                    before);
+
+            assertEquals(1, bookings.size());
+            assertEquals(2, bookings.get(0).getId());
+            assertEquals(Booking.State.DELIVERED, bookings.get(0).getState());
+            assertEquals(Booking.Place.LIBRARY, bookings.get(0).getLocated());
+            assertEquals(14, bookings.get(0).getBooks().get(0).getKeepPeriod());
+            assertEquals(0, new BookingDaoImpl(conn).findByStateModifiedBefore(Booking.State.BOOKED,
+                    Calendar.getInstance()).size());
+        }
+    }
+
+    @Test
+    public void primaryNamesAreListedWithoutLang() throws Exception {
+        try (Connection conn = library("booking-items-no-lang"); Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO lang (code) VALUES ('uk')");
+            st.execute("INSERT INTO author_name_i18n (lang_id, name, author_id) VALUES (2, 'Тарас Шевченко', 1)");
+
+            List<BookingListItem> items = new BookingDaoImpl(conn).findItemsBy("reader@library.ua", "email", null);
+
+            assertEquals(2, items.size());
+            for (BookingListItem booking: items) {
+                for (BookListItem book: booking.getBooks()) {
+                    assertEquals(book.getTitle().equals("Zakhar Berkut") ? Collections.singletonList("Ivan Franko")
+                            : Collections.singletonList("Taras Shevchenko"), book.getAuthorNames());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bookInDraftCanBeDeleted() throws Exception {
+        try (Connection conn = library("booking-draft"); Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO book VALUES (DEFAULT, 'Moses', '978-4', 1905, 'uk', 14, NOW())");
+            st.execute("INSERT INTO book_stat (book_id, total, in_stock) VALUES (4, 1, 1)");
+            BookingDaoImpl bookings = new BookingDaoImpl(conn);
+            bookings.saveDraft(1, Arrays.asList(2L, 4L));
+
+            new BookDaoImpl(conn).delete(4);
+
+            assertEquals(Collections.singletonList(2L), bookings.findDraftBookIDs(1));
+            assertEquals(2, bookings.read(1).getBooks().size());
+        }
+    }
+
+    @Test
+    public void draftIsDeletedWithBookingCreated() throws Exception {
+        try (Connection conn = library("booking-from-draft")) {
+            BookingDaoImpl bookings = new BookingDaoImpl(conn);
+            bookings.saveDraft(1, Arrays.asList(1L, 2L));
+
+            Booking booking = new Booking.Builder()
+                    .setUser(new UserDaoImpl(conn).read(1))
+                    .setState(Booking.State.BOOKED)
+                    .setLocated(Booking.Place.LIBRARY)
+                    .setModified(Calendar.getInstance())
+                    .setBooks(new ArrayList<>(Collections.singletonList(new BookDaoImpl(conn).read(2))))
+                    .build();
+            bookings.createFromDraft(booking);
+
+            assertEquals(Collections.emptyList(), bookings.findDraftBookIDs(1));
+            assertEquals(Booking.State.BOOKED, bookings.read(booking.getId()).getState());
+            assertEquals(1, bookings.read(booking.getId()).getBooks().size());
+        }
+    }
+
+    /**
+     * @return database of reader with two delivered bookings of three books
+     */
+    private static Connection library(String name) throws SQLException {
+        Connection conn = H2Database.create(name);
+        try (Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO lang (code) VALUES ('en')");
+            st.execute("INSERT INTO user VALUES (DEFAULT, 'reader@library.ua', 'password', 'USER', 'VALID', 0, "
+                    + "'Reader', 1, NOW(), NOW())");
+            st.execute("INSERT INTO author VALUES (DEFAULT, 'Taras Shevchenko', NOW()), "
+                    + "(DEFAULT, 'Ivan Franko', NOW())");
+            st.execute("INSERT INTO author_name_i18n (lang_id, name, author_id) "
+                    + "VALUES (1, 'Taras Shevchenko', 1), (1, 'Ivan Franko', 2)");
+            st.execute("INSERT INTO book VALUES (DEFAULT, 'Kobzar', '978-1', 1840, 'uk', 14, NOW()), "
+                    + "(DEFAULT, 'Zakhar Berkut', '978-2', 1883, 'uk', 14, NOW()), "
+                    + "(DEFAULT, 'Haidamaky', '978-3', 1841, 'uk', 14, NOW())");
+            st.execute("INSERT INTO book_stat (book_id, total, in_stock) VALUES (1, 3, 2), (2, 3, 2), (3, 1, 0)");
+            st.execute("INSERT INTO book_author VALUES (1, 1), (2, 2), (3, 1)");
+            st.execute("INSERT INTO booking VALUES (DEFAULT, 1, 'DELIVERED', 'USER', NOW()), "
+                    + "(DEFAULT, 1, 'DELIVERED', 'LIBRARY', NOW())");
+            st.execute("INSERT INTO book_in_booking VALUES (1, 1), (1, 2), (2, 3)");
+        }
+        return conn;
+    }
+}
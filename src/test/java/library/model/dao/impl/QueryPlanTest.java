@@ -0,0 +1,248 @@
+package library.model.dao.impl;
+
+import library.load.DatasetGenerator;
+import library.model.connection.H2Database;
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.Booking;
+import library.model.entities.Lang;
+import library.model.entities.TaskCheckpoint;
+import library.model.entities.User;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * EXPLAIN of every statement executed by DAOs against H2 with schema of migrations and generated dataset: large
+ * tables are read by index. Substring search ({@code LIKE '%...%'}) can't use index, so such statement may scan
+ * the searched table, but not the joined ones.
+ */
+public class QueryPlanTest {
+    private static final Set<String> LARGE_TABLES = new HashSet<>(Arrays.asList("user", "book", "book_stat",
+            "book_author", "author", "author_name_i18n", "booking", "book_in_booking"));
+    // reads of the whole table by design
+    private static final Set<String> ALLOWED_SCANS = new HashSet<>(Collections.singletonList(
+            "SELECT * FROM user WHERE state != 'DELETED'"));
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* public\\.(\\w+)\\.tableScan");
+
+    private static Connection database;
+
+    @BeforeClass
+    public static void setUp() throws SQLException {
+        database = H2Database.create("query-plan");
+        new DatasetGenerator(new DatasetGenerator.Volumes(2000, 500, 1000, 3000, 2), 1)
+                .generate(database, "pbkdf2$10000$salt$hash");
+        try (Statement st = database.createStatement()) {
+            st.execute("ANALYZE");
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Test
+    public void largeTablesAreReadByIndex() throws Exception {
+        Map<String, List<Object>> statements = new LinkedHashMap<>();
+        Connection conn = recording(database, statements);
+
+        LangDaoImpl langs = new LangDaoImpl(conn);
+        Lang en = langs.read("en");
+        langs.read(en.getId());
+        langs.getAll();
+
+        UserDaoImpl users = new UserDaoImpl(conn);
+        User user = users.read(1);
+        users.readAll(Arrays.asList(1L, 2L, 3L));
+        users.findByEmail("user1@library.com");
+        users.getMaxId();
+        users.findByIdRange(1, 100);
+        users.getAll();
+        users.findByPattern("user1", "email", "email", 10, 2);
+        users.findItemsByPattern("user1", "name", "name", 10, 1);
+        users.findByPatternCount("user1", "email");
+        users.findBy("user1@library.com", "email");
+        users.update(user);
+        users.updateFines(Collections.singletonList(user));
+        users.updatePassword(user);
+
+        BookDaoImpl books = new BookDaoImpl(conn);
+        Book book = books.read(1);
+        books.readAll(Arrays.asList(1L, 2L, 3L));
+        books.findByPattern("River", "title", "title", 20, 2);
+        books.findByPattern("Franko", "author", "title", 20, 1);
+        books.findByPatternCount("River", "title");
+        books.findBy(DatasetGenerator.isbn(1), "isbn");
+        books.getBooksInBooking(1);
+        books.getBooksInBookings(Arrays.asList(1L, 2L, 3L));
+        books.update(book);
+
+        AuthorDaoImpl authors = new AuthorDaoImpl(conn);
+        Author author = authors.read(1);
+        authors.readAll(Arrays.asList(1L, 2L, 3L));
+        authors.read(author.getName());
+        authors.findByBookID(1);
+        authors.findByBookIDs(Arrays.asList(1L, 2L, 3L));
+        authors.findByPattern("Franko");
+        authors.findByPattern("Franko", "name", "name", 10, 1);
+        authors.findByPatternCount("Franko", "name");
+        authors.findBy(author.getName(), "name");
+        authors.update(author);
+
+        BookingDaoImpl bookings = new BookingDaoImpl(conn);
+        Booking booking = bookings.read(1);
+        bookings.readAll(Arrays.asList(1L, 2L, 3L));
+        bookings.findDeliveredByUserID(1);
+        bookings.findDeliveredByUserIdRange(1, 100);
+        bookings.findByStateModifiedBefore(Booking.State.BOOKED, Calendar.getInstance());
+        bookings.findDraftBookIDs(1);
+        bookings.saveDraft(1, Arrays.asList(1L, 2L));
+        bookings.findByPattern("user1", "email", "email", 10, 1);
+        bookings.findByPatternCount("user1", "email");
+        bookings.findBy("DELIVERED", "state");
+        bookings.findItemsByPattern("user1", "email", "email", 10, 1, en);
+        bookings.findItemsBy(user.getEmail(), "email", en);
+        bookings.update(booking);
+
+        TaskCheckpointDaoImpl checkpoints = new TaskCheckpointDaoImpl(conn);
+        checkpoints.create(new TaskCheckpoint.Builder().setTask("fines").setId(1)
+                .setRunStarted(Calendar.getInstance()).build());
+        checkpoints.findByTask("fines");
+        checkpoints.deleteByTask("fines");
+
+        TaskLeaseDaoImpl leases = new TaskLeaseDaoImpl(conn);
+        leases.acquire("fines", "node", 60);
+        leases.renew("fines", "node", 60);
+        leases.markRun("fines", "node", 1000);
+        leases.release("fines", "node");
+
+        authors.delete(author.getId());
+        users.delete(user.getId());
+
+        List<String> scans = new ArrayList<>();
+        for (Map.Entry<String, List<Object>> statement : statements.entrySet()) {
+            String sql = statement.getKey();
+            if (sql.startsWith("INSERT") || ALLOWED_SCANS.contains(sql)) {
+                continue;
+            }
+            String plan = explain(sql, statement.getValue());
+            List<String> scanned = scannedTables(plan);
+            if (sql.contains(" LIKE ") && scanned.size() == 1) {
+                continue;
+            }
+            if (!scanned.isEmpty()) {
+                scans.add(scanned + " " + plan);
+            }
+        }
+        assertTrue("DAO statements scan large tables:\n" + String.join("\n", scans), scans.isEmpty());
+        assertTrue(statements.size() > 50);
+    }
+
+    @Test
+    public void scanIsDetected() throws Exception {
+        String plan = explain("SELECT * FROM booking WHERE modified < ?", Collections.singletonList(new Object[]{
+                java.sql.Timestamp.valueOf("2020-01-01 00:00:00")}));
+        assertEquals(Collections.singletonList("booking"), scannedTables(plan));
+
+        plan = explain("SELECT * FROM booking WHERE user_id = ?", Collections.singletonList(new Object[]{1}));
+        assertEquals(Collections.emptyList(), scannedTables(plan));
+    }
+
+    // plan of subquery is repeated in comment of outer table
+    private static List<String> scannedTables(String plan) {
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            if (LARGE_TABLES.contains(matcher.group(1))) {
+                tables.add(matcher.group(1));
+            }
+        }
+        return new ArrayList<>(tables);
+    }
+
+    /**
+     * @param binds sets of bind parameters the statement was executed with, the first one is used
+     * @return plan of statement
+     */
+    private static String explain(String sql, List<Object> binds) throws SQLException {
+        try (PreparedStatement ps = database.prepareStatement("EXPLAIN " + sql)) {
+            Object[] values = binds.isEmpty() ? new Object[0] : (Object[]) binds.get(0);
+            for (int i = 0; i < values.length; i++) {
+                ps.setObject(i + 1, values[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    /**
+     * @param statements SQL of executed statements to sets of their bind parameters, in order of execution
+     * @return connection, which records executed statements
+     */
+    private static Connection recording(Connection conn, Map<String, List<Object>> statements) {
+        return (Connection) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(conn, method, args);
+                    if (method.getName().equals("prepareStatement")) {
+                        return statement((PreparedStatement) result, (String) args[0], statements);
+                    }
+                    if (method.getName().equals("createStatement")) {
+                        return statement((Statement) result, null, statements);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement statement(Statement target, String sql, Map<String, List<Object>> statements) {
+        Map<Integer, Object> binds = new TreeMap<>();
+        Class<?> type = target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        binds.put((Integer) args[0], args[1]);
+                    } else if (name.startsWith("execute") || name.equals("addBatch")) {
+                        String executed = sql != null ? sql : args != null ? (String) args[0] : null;
+                        if (executed != null) {
+                            statements.computeIfAbsent(executed.trim(), s -> new ArrayList<>())
+                                    .add(binds.values().toArray());
+                        }
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package library.model.dao.impl;
+
+import library.model.connection.H2Database;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskLeaseDaoImplTest {
+    private static final String TASK = "fines";
+    private static final int LEASE_SECONDS = 60;
+
+    private Connection conn;
+    private TaskLeaseDaoImpl dao;
+
+    @Before
+    public void setUp() throws SQLException {
+        conn = H2Database.create("task-lease");
+        dao = new TaskLeaseDaoImpl(conn);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    public void leaseHeldByAnotherNodeIsRefused() throws Exception {
+        assertTrue(dao.acquire(TASK, "node-a", LEASE_SECONDS));
+        assertFalse(dao.acquire(TASK, "node-b", LEASE_SECONDS));
+        assertFalse(dao.renew(TASK, "node-b", LEASE_SECONDS));
+        dao.release(TASK, "node-b");
+
+        assertTrue(dao.renew(TASK, "node-a", LEASE_SECONDS));
+        assertTrue(dao.acquire(TASK, "node-a", LEASE_SECONDS));
+        assertFalse(dao.acquire(TASK, "node-b", LEASE_SECONDS));
+    }
+
+    @Test
+    public void expiredLeaseIsTakenOver() throws Exception {
+        assertTrue(dao.acquire(TASK, "node-a", LEASE_SECONDS));
+        try (Statement st = conn.createStatement()) {
+            st.execute("UPDATE task_lease SET expires = TIMESTAMPADD(SECOND, -1, NOW(3))");
+        }
+
+        assertTrue(dao.acquire(TASK, "node-b", LEASE_SECONDS));
+        assertFalse(dao.renew(TASK, "node-a", LEASE_SECONDS));
+        assertFalse(dao.markRun(TASK, "node-a", 0));
+    }
+
+    @Test
+    public void releasedLeaseIsTakenAtOnce() throws Exception {
+        assertTrue(dao.acquire(TASK, "node-a", LEASE_SECONDS));
+        dao.release(TASK, "node-a");
+
+        assertTrue(dao.acquire(TASK, "node-b", LEASE_SECONDS));
+    }
+
+    @Test
+    public void taskRunsOncePerPeriod() throws Exception {
+        assertTrue(dao.acquire(TASK, "node-a", LEASE_SECONDS));
+        assertFalse(dao.markRun(TASK, "node-b", 0));
+
+        assertTrue(dao.markRun(TASK, "node-a", 60_000));
+        assertFalse(dao.markRun(TASK, "node-a", 60_000));
+        try (Statement st = conn.createStatement()) {
+            st.execute("UPDATE task_lease SET last_run = TIMESTAMPADD(MINUTE, -2, NOW(3))");
+        }
+        assertTrue(dao.markRun(TASK, "node-a", 60_000));
+    }
+}
@@ -1,10 +1,18 @@
 package library.model.dao.impl;
 
+import library.model.connection.H2Database;
+import library.model.connection.QueryBudget;
 import library.model.dao.UserDao;
 import library.model.dao.factory.DaoFactoryCreator;
 import library.model.dao.factory.DaoFactoryImpl;
+import library.model.dto.UserListItem;
+import library.model.entities.User;
 import org.junit.Test;
 
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 public class UserDaoImplTest {
@@ -15,4 +23,27 @@ public class UserDaoImplTest {
         UserDao userDao = daoFactory.getUserDao();
         assertEquals(userDao.getClass(), UserDaoImpl.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void listItemsAreReadWithoutLang() throws Exception {
+        try (Connection conn = H2Database.create("user-items")) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("INSERT INTO lang (code) VALUES ('en')");
+                st.execute("INSERT INTO user VALUES (DEFAULT, 'reader@library.ua', 'password', 'USER', 'VALID', 2.5, "
+                        + "'Reader', 1, NOW(), NOW()), "
+                        + "(DEFAULT, 'gone@library.ua', 'password', 'USER', 'DELETED', 0, 'Gone', 1, NOW(), NOW())");
+            }
+
+            List<UserListItem> users = QueryBudget.assertAtMost(1, "page of users",
+                    () -> new UserDaoImpl(conn).findItemsByPattern("library", "email", "email", 10, 1));
+
+            assertEquals(1, users.size());
+            UserListItem user = users.get(0);
+            assertEquals("reader@library.ua", user.getEmail());
+            assertEquals("Reader", user.getName());
+            assertEquals(User.Role.USER, user.getRole());
+            assertEquals(User.State.VALID, user.getState());
+            assertEquals(2.5, user.getFine(), 0);
+        }
+    }
+}
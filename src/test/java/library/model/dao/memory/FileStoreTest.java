@@ -0,0 +1,269 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.model.dao.factory.DaoFactoryImpl;
+import library.model.dao.factory.InMemoryDaoFactory;
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.Lang;
+import library.model.entities.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Crash of process is simulated by opening the second store without closing the first one
+ */
+public class FileStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File dir;
+    private final List<FileStore> opened = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        dir = folder.newFolder("data");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (FileStore store: opened) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void closedStoreIsReloaded() throws Exception {
+        FileStore store = open();
+        fill(new InMemoryDaoFactory(store));
+        store.close();
+
+        DaoFactoryImpl factory = new InMemoryDaoFactory(open());
+        checkFilled(factory);
+        // sequences continue after loaded ids
+        User user = user("new@x.com", factory.getLangDao().read("en"));
+        factory.getUserDao().create(user);
+        assertEquals(3, user.getId());
+    }
+
+    @Test
+    public void changesAreReplayedAfterCrash() throws Exception {
+        fill(new InMemoryDaoFactory(open()));
+        checkFilled(new InMemoryDaoFactory(open()));
+    }
+
+    @Test
+    public void unfinishedWriteIsDropped() throws Exception {
+        FileStore store = open();
+        DaoFactoryImpl factory = new InMemoryDaoFactory(store);
+        fill(factory);
+        long complete = store.logLength();
+        factory.getUserDao().create(user("lost@x.com", factory.getLangDao().read("en")));
+
+        // the last frame is written half-way
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, FileStore.LOG_FILE), "rw")) {
+            file.setLength(complete + (store.logLength() - complete) / 2);
+        }
+        FileStore reopened = open();
+        factory = new InMemoryDaoFactory(reopened);
+        checkFilled(factory);
+        assertNull(factory.getUserDao().findByEmail("lost@x.com"));
+        assertEquals(complete, reopened.logLength());
+
+        // log continues after the cut
+        factory.getUserDao().create(user("next@x.com", factory.getLangDao().read("en")));
+        assertNotNull(new InMemoryDaoFactory(open()).getUserDao().findByEmail("next@x.com"));
+    }
+
+    @Test
+    public void damagedFrameIsDropped() throws Exception {
+        FileStore store = open();
+        DaoFactoryImpl factory = new InMemoryDaoFactory(store);
+        fill(factory);
+        long complete = store.logLength();
+        factory.getUserDao().create(user("lost@x.com", factory.getLangDao().read("en")));
+
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, FileStore.LOG_FILE), "rw")) {
+            file.seek(store.logLength() - 3);
+            file.write(new byte[]{1, 2, 3});
+        }
+        factory = new InMemoryDaoFactory(open());
+        checkFilled(factory);
+        assertNull(factory.getUserDao().findByEmail("lost@x.com"));
+    }
+
+    @Test
+    public void damagedIndexIsRebuilt() throws Exception {
+        FileStore store = open();
+        fill(new InMemoryDaoFactory(store));
+        store.close();
+
+        byte[] garbage = new byte[4096];
+        Arrays.fill(garbage, (byte) 7);
+        Files.write(new File(dir, "book.idx").toPath(), garbage);
+        checkFilled(new InMemoryDaoFactory(open()));
+        // rebuilt indexes are used by next start
+        checkFilled(new InMemoryDaoFactory(open()));
+    }
+
+    @Test
+    public void compactionKeepsLiveRows() throws Exception {
+        FileStore store = open();
+        DaoFactoryImpl factory = new InMemoryDaoFactory(store);
+        fill(factory);
+        User user = factory.getUserDao().findByEmail("ann@x.com");
+        for (int i = 0; i < 100; i++) {
+            user.setFine(i);
+            factory.getUserDao().update(user);
+        }
+        long before = store.logLength();
+        store.compact();
+        assertTrue(store.logLength() < before / 4);
+        checkFilled(factory);
+
+        factory.getUserDao().delete(user.getId());
+        checkCompacted(new InMemoryDaoFactory(open()));
+        store.close();
+        checkCompacted(new InMemoryDaoFactory(open()));
+    }
+
+    @Test
+    public void interruptedCompactionIsIgnored() throws Exception {
+        FileStore store = open();
+        fill(new InMemoryDaoFactory(store));
+        store.close();
+
+        File compacted = new File(dir, FileStore.COMPACT_FILE);
+        Files.write(compacted.toPath(), new byte[]{1, 2, 3});
+        checkFilled(new InMemoryDaoFactory(open()));
+        assertFalse(compacted.exists());
+    }
+
+    private FileStore open() throws IOException {
+        FileStore store = new FileStore(dir, "en", "uk");
+        opened.add(store);
+        return store;
+    }
+
+    /**
+     * Two readers, two authors, the second one is deleted, two books, booking of the first book and draft
+     */
+    private static void fill(DaoFactoryImpl factory) throws DaoException {
+        Lang en = factory.getLangDao().read("en");
+        Lang uk = factory.getLangDao().read("uk");
+        User ann = user("ann@x.com", en);
+        User bob = user("bob@x.com", uk);
+        factory.getUserDao().create(ann);
+        factory.getUserDao().create(bob);
+
+        Author tolkien = author("Tolkien", en);
+        Author lewis = author("Lewis", en);
+        factory.getAuthorDao().create(tolkien);
+        factory.getAuthorDao().create(lewis);
+        Book hobbit = book("The Hobbit", "1", tolkien, lewis);
+        Book narnia = book("Narnia", "2", lewis);
+        factory.getBookDao().create(hobbit);
+        factory.getBookDao().create(narnia);
+        factory.getAuthorDao().delete(lewis.getId());
+
+        hobbit = factory.getBookDao().read(hobbit.getId());
+        hobbit.getBookStat().setInStock(2);
+        factory.getBookingDao().create(new Booking.Builder()
+                .setUser(ann)
+                .setState(Booking.State.DELIVERED)
+                .setModified(Calendar.getInstance())
+                .setBooks(Collections.singletonList(hobbit))
+                .build());
+        factory.getBookingDao().saveDraft(bob.getId(), Arrays.asList(hobbit.getId(), narnia.getId()));
+    }
+
+    private static void checkFilled(DaoFactoryImpl factory) throws DaoException {
+        User ann = factory.getUserDao().findByEmail("ann@x.com");
+        assertEquals("en", ann.getPreferredLang().getCode());
+        assertEquals("uk", factory.getUserDao().findByEmail("bob@x.com").getPreferredLang().getCode());
+
+        assertNull(factory.getAuthorDao().read(2));
+        Book hobbit = factory.getBookDao().read(1);
+        assertEquals("The Hobbit", hobbit.getTitle());
+        assertEquals(Collections.singletonList("Tolkien"), names(hobbit.getAuthors()));
+        assertEquals(2, hobbit.getBookStat().getInStock());
+        assertTrue(factory.getBookDao().read(2).getAuthors().isEmpty());
+
+        List<Booking> delivered = factory.getBookingDao().findDeliveredByUserID(ann.getId());
+        assertEquals(1, delivered.size());
+        assertEquals(Collections.singletonList(1L), ids(delivered.get(0).getBooks()));
+        assertEquals(Arrays.asList(1L, 2L), factory.getBookingDao().findDraftBookIDs(2));
+    }
+
+    private static void checkCompacted(DaoFactoryImpl factory) throws DaoException {
+        User ann = factory.getUserDao().findByEmail("ann@x.com");
+        assertEquals(User.State.DELETED, ann.getState());
+        assertEquals(99, ann.getFine(), 0);
+        assertEquals("The Hobbit", factory.getBookDao().read(1).getTitle());
+        assertEquals(Arrays.asList(1L, 2L), factory.getBookingDao().findDraftBookIDs(2));
+    }
+
+    private static User user(String email, Lang lang) {
+        return new User.Builder()
+                .setEmail(email)
+                .setName(email)
+                .setPassword("hash")
+                .setRole(User.Role.USER)
+                .setState(User.State.VALID)
+                .setPreferredLang(lang)
+                .setModified(Calendar.getInstance())
+                .setFineLastChecked(Calendar.getInstance())
+                .build();
+    }
+
+    private static Author author(String name, Lang lang) {
+        Author.Builder builder = new Author.Builder().setName(name).setModified(Calendar.getInstance());
+        builder.addI18Name(lang, name);
+        return builder.build();
+    }
+
+    private static Book book(String title, String isbn, Author... authors) {
+        return new Book.Builder()
+                .setTitle(title)
+                .setIsbn(isbn)
+                .setYear(1950)
+                .setLangCode("en")
+                .setKeepPeriod(14)
+                .setModified(Calendar.getInstance())
+                .setBookStat(new BookStat.Builder().setTotal(3).build())
+                .setAuthors(Arrays.asList(authors))
+                .build();
+    }
+
+    private static List<String> names(List<Author> authors) {
+        List<String> names = new ArrayList<>();
+        for (Author author: authors) {
+            names.add(author.getName());
+        }
+        return names;
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        List<Long> ids = new ArrayList<>();
+        for (Book book: books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,253 @@
+package library.model.dao.memory;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.dao.AuthorDao;
+import library.model.dao.BookDao;
+import library.model.dao.BookingDao;
+import library.model.dao.ReadResult;
+import library.model.dao.UserDao;
+import library.model.dao.factory.DaoFactoryImpl;
+import library.model.dao.factory.InMemoryDaoFactory;
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.Lang;
+import library.model.entities.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class MemoryDaoTest {
+    private DaoFactoryImpl factory;
+    private Lang en;
+    private Lang uk;
+
+    @Before
+    public void setUp() throws DaoException {
+        factory = new InMemoryDaoFactory(new MemoryStore("en", "uk"));
+        en = factory.getLangDao().read("en");
+        uk = factory.getLangDao().read("uk");
+    }
+
+    @Test
+    public void userCrudKeepsEmailIndex() throws Exception {
+        UserDao dao = factory.getUserDao();
+        User user = user("a@x.com", "Ann");
+        dao.create(user);
+        assertEquals(1, user.getId());
+        assertEquals("Ann", dao.findByEmail("a@x.com").getName());
+
+        User changed = dao.read(user.getId());
+        changed.setEmail("b@x.com");
+        dao.update(changed);
+        assertNull(dao.findByEmail("a@x.com"));
+        assertEquals(user.getId(), dao.findByEmail("b@x.com").getId());
+
+        try {
+            dao.create(user("b@x.com", "Bob"));
+            fail("duplicate email");
+        } catch (DaoException e) {
+            assertTrue(e.getMessage().contains("Duplicate"));
+        }
+
+        dao.delete(user.getId());
+        assertEquals(User.State.DELETED, dao.read(user.getId()).getState());
+        assertEquals(0, dao.findByPatternCount("x.com", "email"));
+    }
+
+    @Test
+    public void returnedEntitiesAreCopies() throws Exception {
+        UserDao dao = factory.getUserDao();
+        User user = user("a@x.com", "Ann");
+        dao.create(user);
+        dao.read(user.getId()).setName("Changed");
+        user.setName("Changed too");
+        assertEquals("Ann", dao.read(user.getId()).getName());
+    }
+
+    @Test
+    public void readAllKeepsOrderAndReportsMissing() throws Exception {
+        UserDao dao = factory.getUserDao();
+        dao.create(user("a@x.com", "Ann"));
+        dao.create(user("b@x.com", "Bob"));
+
+        ReadResult<User> result = dao.readAll(Arrays.asList(2L, 5L, 1L, 2L));
+        assertEquals(Arrays.asList("Bob", "Ann"), names(result.getFound()));
+        assertEquals(Collections.singletonList(5L), result.getMissing());
+        assertFalse(result.isComplete());
+    }
+
+    @Test
+    public void userSearchSortsAndPages() throws Exception {
+        UserDao dao = factory.getUserDao();
+        for (String name: new String[]{"carl", "Ann", "bob", "Dan", "eve"}) {
+            dao.create(user(name + "@x.com", name));
+        }
+        dao.create(user("z@y.com", "Zed"));
+
+        assertEquals(5, dao.findByPatternCount("X.COM", "email"));
+        assertEquals(Arrays.asList("Ann", "bob"), names(dao.findByPattern("x.com", "email", "name", 2, 1)));
+        assertEquals(Arrays.asList("carl", "Dan"), names(dao.findByPattern("x.com", "email", "name", 2, 2)));
+        assertEquals(Collections.singletonList("eve"), names(dao.findByPattern("x.com", "email", "name", 2, 3)));
+        assertTrue(dao.findByPattern("x.com", "email", "name", 2, 4).isEmpty());
+        assertEquals(1, dao.findBy("Zed", "name").size());
+        assertTrue(dao.findBy("Ze", "name").isEmpty());
+    }
+
+    @Test(expected = ServiceException.class)
+    public void rejectsUnknownColumn() throws Exception {
+        factory.getUserDao().findByPattern("x", "password", "name", 10, 1);
+    }
+
+    @Test
+    public void bookSearchNeedsAuthors() throws Exception {
+        AuthorDao authorDao = factory.getAuthorDao();
+        BookDao bookDao = factory.getBookDao();
+        Author tolkien = author("Tolkien", "Толкін");
+        Author lewis = author("Lewis", null);
+        authorDao.create(tolkien);
+        authorDao.create(lewis);
+        bookDao.create(book("The Hobbit", "1", 1937, tolkien));
+        bookDao.create(book("Narnia", "2", 1950, lewis));
+        bookDao.create(book("The Orphan", "3", 2000));
+
+        assertEquals(Collections.singletonList("The Hobbit"), titles(bookDao.findByPattern("the", "title", "title", 10, 1)));
+        assertEquals(Collections.singletonList("The Hobbit"), titles(bookDao.findByPattern("толк", "author", "title", 10, 1)));
+        assertEquals(Arrays.asList("Narnia", "The Hobbit"), titles(bookDao.findByPattern("19", "year", "author", 10, 1)));
+        assertEquals(Arrays.asList("The Hobbit", "Narnia"), titles(bookDao.findByPattern("19", "year", "year", 10, 1)));
+        assertEquals(2, bookDao.findByPatternCount("", "isbn"));
+        assertEquals(1, bookDao.findBy("2", "isbn").size());
+
+        authorDao.delete(lewis.getId());
+        assertEquals(1, bookDao.findByPatternCount("", "isbn"));
+        assertTrue(bookDao.read(2).getAuthors().isEmpty());
+    }
+
+    @Test
+    public void bookCreateFillsStat() throws Exception {
+        BookDao bookDao = factory.getBookDao();
+        Book book = book("Title", "1", 2000);
+        bookDao.create(book);
+        BookStat stat = bookDao.read(book.getId()).getBookStat();
+        assertEquals(3, stat.getTotal());
+        assertEquals(3, stat.getInStock());
+        assertEquals(0, stat.getReserved());
+
+        try {
+            bookDao.create(book("Other", "1", 2000));
+            fail("duplicate isbn");
+        } catch (DaoException e) {
+            assertTrue(e.getMessage().contains("Duplicate"));
+        }
+    }
+
+    @Test
+    public void bookingIndexesFollowState() throws Exception {
+        User user = user("a@x.com", "Ann");
+        factory.getUserDao().create(user);
+        Book book = book("Title", "1", 2000, author("Tolkien", null));
+        factory.getAuthorDao().create(book.getAuthors().get(0));
+        factory.getBookDao().create(book);
+        BookingDao dao = factory.getBookingDao();
+
+        dao.saveDraft(user.getId(), Collections.singletonList(book.getId()));
+        assertEquals(Collections.singletonList(book.getId()), dao.findDraftBookIDs(user.getId()));
+        assertEquals(0, dao.findByPatternCount("", "email"));
+
+        book.getBookStat().setInStock(2);
+        Booking booking = new Booking.Builder()
+                .setUser(user)
+                .setState(Booking.State.DELIVERED)
+                .setModified(Calendar.getInstance())
+                .setBooks(Collections.singletonList(book))
+                .build();
+        dao.create(booking);
+        assertEquals(2, factory.getBookDao().read(book.getId()).getBookStat().getInStock());
+        assertEquals(1, dao.findDeliveredByUserID(user.getId()).size());
+        assertEquals(1, dao.findDeliveredByUserIdRange(user.getId(), user.getId() + 1).size());
+        assertEquals(1, dao.findByPatternCount("x.com", "email"));
+
+        booking.setState(Booking.State.DONE);
+        dao.update(booking);
+        assertTrue(dao.findDeliveredByUserID(user.getId()).isEmpty());
+        assertEquals(1, dao.findBy("DONE", "state").size());
+
+        dao.saveDraft(user.getId(), Collections.emptyList());
+        assertTrue(dao.findDraftBookIDs(user.getId()).isEmpty());
+        try {
+            factory.getBookDao().delete(book.getId());
+            fail("book is referenced by booking");
+        } catch (DaoException e) {
+            assertNotNull(factory.getBookDao().read(book.getId()));
+        }
+    }
+
+    @Test
+    public void longMapRemoveKeepsProbing() {
+        LongMap<Long> map = new LongMap<>();
+        for (long i = 1; i <= 1000; i++) {
+            map.put(i, i * 2);
+        }
+        for (long i = 1; i <= 1000; i += 3) {
+            assertEquals(Long.valueOf(i * 2), map.remove(i));
+        }
+        assertNull(map.remove(1));
+        for (long i = 1; i <= 1000; i++) {
+            assertEquals(i % 3 == 1 ? null : Long.valueOf(i * 2), map.get(i));
+        }
+        assertEquals(666, map.size());
+        assertEquals(666, map.keys().length);
+    }
+
+    private User user(String email, String name) {
+        return new User.Builder()
+                .setEmail(email)
+                .setName(name)
+                .setPassword("hash")
+                .setRole(User.Role.USER)
+                .setState(User.State.VALID)
+                .setPreferredLang(en)
+                .setModified(Calendar.getInstance())
+                .setFineLastChecked(Calendar.getInstance())
+                .build();
+    }
+
+    private Author author(String name, String ukName) {
+        Author.Builder builder = new Author.Builder().setName(name).setModified(Calendar.getInstance());
+        builder.addI18Name(en, name);
+        if (ukName != null) {
+            builder.addI18Name(uk, ukName);
+        }
+        return builder.build();
+    }
+
+    private static Book book(String title, String isbn, int year, Author... authors) {
+        return new Book.Builder()
+                .setTitle(title)
+                .setIsbn(isbn)
+                .setYear(year)
+                .setLangCode("en")
+                .setKeepPeriod(14)
+                .setModified(Calendar.getInstance())
+                .setBookStat(new BookStat.Builder().setTotal(3).build())
+                .setAuthors(Arrays.asList(authors))
+                .build();
+    }
+
+    private static List<String> names(List<User> users) {
+        return users.stream().map(User::getName).collect(Collectors.toList());
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).collect(Collectors.toList());
+    }
+}
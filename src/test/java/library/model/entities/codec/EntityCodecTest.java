@@ -0,0 +1,151 @@
+package library.model.entities.codec;
+
+import library.model.entities.Author;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.Lang;
+import library.model.entities.TaskLease;
+import library.model.entities.User;
+import library.utils.session.SessionSizeReport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Calendar;
+
+import static org.junit.Assert.*;
+
+public class EntityCodecTest {
+    private Lang en;
+    private Lang uk;
+    private Booking booking;
+
+    @Before
+    public void setUp() {
+        en = new Lang.Builder().setId(1).setCode("en").build();
+        uk = new Lang.Builder().setId(2).setCode("uk").build();
+
+        Author.Builder authorBuilder = new Author.Builder().setId(7).setName("Taras Shevchenko")
+                .setModified(Calendar.getInstance());
+        authorBuilder.addI18Name(en, "Taras Shevchenko");
+        authorBuilder.addI18Name(uk, "Тарас Шевченко");
+        Author author = authorBuilder.build();
+        author.setPrimaryLang(uk);
+
+        User user = new User.Builder().setId(3).setEmail("user@test.com").setName("user")
+                .setRole(User.Role.USER).setFine(1.5).setPreferredLang(en)
+                .setModified(Calendar.getInstance()).setFineLastChecked(Calendar.getInstance()).build();
+
+        booking = new Booking.Builder().setId(11).setUser(user).setState(Booking.State.DELIVERED)
+                .setLocated(Booking.Place.USER).setModified(Calendar.getInstance()).build();
+        for (long id = 1; id <= 3; id++) {
+            BookStat stat = new BookStat.Builder().setId(id).setTotal(10).setInStock(8).build();
+            stat.setReserved(2);
+            stat.setTimesWasBooked(100);
+            Book book = new Book.Builder().setId(id).setTitle("Kobzar " + id).setIsbn("978-966-" + id)
+                    .setYear(1840).setLangCode("uk").setKeepPeriod(14).setBookStat(stat)
+                    .setModified(Calendar.getInstance()).build();
+            book.getAuthors().add(author);
+            booking.getBooks().add(book);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        EntityCodec.setEnabled(true);
+    }
+
+    @Test
+    public void bookingGraphIsRestored() throws IOException {
+        Booking restored = (Booking) EntityCodec.fromBytes(EntityCodec.toBytes(booking));
+        assertBookingEquals(booking, restored);
+    }
+
+    @Test
+    public void sharedEntitiesAreRestoredAsSameInstance() throws IOException {
+        Booking restored = (Booking) EntityCodec.fromBytes(EntityCodec.toBytes(booking));
+
+        Author first = restored.getBooks().get(0).getAuthors().get(0);
+        assertSame(first, restored.getBooks().get(2).getAuthors().get(0));
+        assertSame(first.getPrimaryLang(), first.getI18Names().keySet().stream()
+                .filter(l -> l.getCode().equals("uk")).findFirst().orElse(null));
+    }
+
+    @Test
+    public void nullEntity() throws IOException {
+        assertNull(EntityCodec.fromBytes(EntityCodec.toBytes(null)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedEntity() {
+        EntityCodec.toBytes(new TaskLease.Builder().setName("task").build());
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void corruptedBytes() throws IOException {
+        EntityCodec.fromBytes(new byte[]{42});
+    }
+
+    @Test
+    public void javaSerializationUsesCompactFormat() throws IOException, ClassNotFoundException {
+        int compactSize = SessionSizeReport.sizeOf(booking);
+        Booking restored = (Booking) deserialize(serialize(booking));
+        assertBookingEquals(booking, restored);
+
+        EntityCodec.setEnabled(false);
+        int defaultSize = SessionSizeReport.sizeOf(booking);
+        assertBookingEquals(booking, (Booking) deserialize(serialize(booking)));
+        assertTrue(compactSize + " should be less than " + defaultSize, compactSize * 2 < defaultSize);
+    }
+
+    private static void assertBookingEquals(Booking expected, Booking actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getState(), actual.getState());
+        assertEquals(expected.getLocated(), actual.getLocated());
+        assertEquals(expected.getModified().getTimeInMillis(), actual.getModified().getTimeInMillis());
+
+        User user = actual.getUser();
+        assertEquals(expected.getUser(), user);
+        assertEquals(expected.getUser().getFine(), user.getFine(), 0);
+        assertEquals(expected.getUser().getPreferredLang(), user.getPreferredLang());
+        assertEquals(expected.getUser().getFineLastChecked().getTimeInMillis(),
+                user.getFineLastChecked().getTimeInMillis());
+        assertNull(user.getPassword());
+
+        assertEquals(expected.getBooks(), actual.getBooks());
+        for (int i = 0; i < expected.getBooks().size(); i++) {
+            Book e = expected.getBooks().get(i);
+            Book a = actual.getBooks().get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getKeepPeriod(), a.getKeepPeriod());
+            assertEquals(e.getLangCode(), a.getLangCode());
+            assertEquals(e.getBookStat(), a.getBookStat());
+            assertEquals(e.getAuthors(), a.getAuthors());
+
+            Author author = a.getAuthors().get(0);
+            assertEquals(e.getAuthors().get(0).getI18Names(), author.getI18Names());
+            assertEquals(e.getAuthors().get(0).getPrimaryLang(), author.getPrimaryLang());
+        }
+    }
+
+    private static byte[] serialize(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
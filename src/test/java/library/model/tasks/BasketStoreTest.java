@@ -0,0 +1,96 @@
+package library.model.tasks;
+
+import library.exceptions.DaoException;
+import library.model.dao.BookingDao;
+import library.model.dao.factory.DaoFactoryImpl;
+import library.utils.session.BasketState;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class BasketStoreTest {
+    private static final long USER_ID = 1;
+
+    private BookingDao bookingDao;
+    private BasketStore store;
+
+    @Before
+    public void mockObjects() throws DaoException {
+        DaoFactoryImpl daoFactory = mock(DaoFactoryImpl.class);
+        bookingDao = mock(BookingDao.class);
+        when(daoFactory.getBookingDao()).thenReturn(bookingDao);
+        when(bookingDao.findDraftBookIDs(anyLong())).thenReturn(Collections.emptyList());
+
+        store = new BasketStore(daoFactory);
+    }
+
+    @Test
+    public void changesAreCoalescedToOneWrite() throws DaoException {
+        store.save(new BasketState(USER_ID, Arrays.asList(1L)));
+        store.save(new BasketState(USER_ID, Arrays.asList(1L, 2L)));
+        store.save(new BasketState(USER_ID, Arrays.asList(2L)));
+        verify(bookingDao, never()).saveDraft(anyLong(), anyList());
+
+        store.run();
+        verify(bookingDao, times(1)).saveDraft(USER_ID, Arrays.asList(2L));
+
+        store.run();
+        verify(bookingDao, times(1)).saveDraft(anyLong(), anyList());
+    }
+
+    @Test
+    public void lookUpIsInMemoryFirst() throws DaoException {
+        store.save(new BasketState(USER_ID, Arrays.asList(3L)));
+
+        assertEquals(Arrays.asList(3L), store.find(USER_ID).getBookIds());
+        verify(bookingDao, never()).findDraftBookIDs(anyLong());
+    }
+
+    @Test
+    public void basketIsReadFromDraftOnce() throws DaoException {
+        when(bookingDao.findDraftBookIDs(USER_ID)).thenReturn(Arrays.asList(4L, 5L));
+
+        assertEquals(Arrays.asList(4L, 5L), store.find(USER_ID).getBookIds());
+        assertEquals(Arrays.asList(4L, 5L), store.find(USER_ID).getBookIds());
+        verify(bookingDao, times(1)).findDraftBookIDs(USER_ID);
+    }
+
+    @Test
+    public void notChangedBasketIsEvicted() throws DaoException {
+        store.save(new BasketState(USER_ID, Arrays.asList(1L)));
+        store.run();
+        assertEquals(1, store.size());
+
+        store.run();
+        assertEquals(0, store.size());
+        verify(bookingDao, times(1)).saveDraft(anyLong(), anyList());
+    }
+
+    @Test
+    public void failedWriteIsRetried() throws DaoException {
+        doThrow(new DaoException("error")).doNothing().when(bookingDao).saveDraft(anyLong(), anyList());
+        store.save(new BasketState(USER_ID, Arrays.asList(1L)));
+
+        store.run();
+        store.run();
+        verify(bookingDao, times(2)).saveDraft(USER_ID, Arrays.asList(1L));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void removedBasketIsNotWritten() throws DaoException {
+        store.save(new BasketState(USER_ID, Arrays.asList(1L)));
+        store.remove(USER_ID);
+
+        store.run();
+        verify(bookingDao, never()).saveDraft(anyLong(), anyList());
+        assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,217 @@
+package library.model.tasks;
+
+import library.exceptions.DaoException;
+import library.exceptions.ServiceException;
+import library.model.dao.BookingDao;
+import library.model.dao.TaskLeaseDao;
+import library.model.dao.UserDao;
+import library.model.dao.factory.DaoFactoryImpl;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.Booking;
+import library.model.entities.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.servlet.ServletContext;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class BookingDeadlinesTest {
+    private static final long ID = 1;
+
+    private DaoFactoryImpl daoFactory;
+    private BookingDao bookingDao;
+    private UserDao userDao;
+    private BookingDeadlines deadlines;
+
+    @Before
+    public void mockObjects() throws ServiceException {
+        daoFactory = mock(DaoFactoryImpl.class);
+        bookingDao = mock(BookingDao.class);
+        userDao = mock(UserDao.class);
+        ServletContext context = mock(ServletContext.class);
+
+        when(daoFactory.getBookingDao()).thenReturn(bookingDao);
+        when(daoFactory.getUserDao()).thenReturn(userDao);
+        when(context.getInitParameter(BookingDeadlines.INIT_PARAM_TICK)).thenReturn("1");
+        // 2 days
+        when(context.getInitParameter(BookingDeadlines.INIT_PARAM_WINDOW)).thenReturn("172800000");
+        when(context.getInitParameter(BookingExpireTask.INIT_PARAM_PERIOD)).thenReturn("1");
+        when(context.getInitParameter(UpdateFineTask.INIT_PARAM_FINE_PER_DAY)).thenReturn("50");
+
+        deadlines = new BookingDeadlines(daoFactory);
+        deadlines.init(context);
+    }
+
+    private static Booking booking(Booking.State state, int daysAgo) {
+        Calendar modified = Calendar.getInstance();
+        modified.add(Calendar.DATE, -daysAgo);
+        return new Booking.Builder()
+                .setId(ID)
+                .setState(state)
+                .setModified(modified)
+                .setUser(new User.Builder().setId(ID).setFineLastChecked(modified).build())
+                .setBooks(new ArrayList<>())
+                .build();
+    }
+
+    @Test
+    public void testExpiredBookingIsCanceled() throws DaoException {
+        Booking booking = booking(Booking.State.BOOKED, 2);
+        BookStat stat = new BookStat.Builder().setReserved(1).build();
+        booking.getBooks().add(new Book.Builder().setBookStat(stat).build());
+        when(bookingDao.read(ID)).thenReturn(booking);
+
+        deadlines.run();
+        deadlines.track(booking);
+        deadlines.run();
+
+        verify(bookingDao).update(booking);
+        assertEquals(Booking.State.CANCELED, booking.getState());
+        assertEquals(0, stat.getReserved());
+    }
+
+    @Test
+    public void testDeadlinesOfWindowAreLoadedByFirstRun() throws DaoException {
+        Booking booking = booking(Booking.State.BOOKED, 2);
+        when(bookingDao.findByStateModifiedBefore(eq(Booking.State.BOOKED), any()))
+                .thenReturn(Collections.singletonList(booking));
+        when(bookingDao.read(ID)).thenReturn(booking);
+
+        long now = System.currentTimeMillis();
+        deadlines.run();
+
+        ArgumentCaptor<Calendar> before = ArgumentCaptor.forClass(Calendar.class);
+        verify(bookingDao).findByStateModifiedBefore(eq(Booking.State.BOOKED), before.capture());
+        // deadline of BOOKED is 1 day after modified, window is 2 days
+        assertEquals(now + TimeUnit.DAYS.toMillis(1), before.getValue().getTimeInMillis(), 1000);
+        verify(bookingDao).update(booking);
+        assertEquals(Booking.State.CANCELED, booking.getState());
+    }
+
+    @Test
+    public void testTrackedDeadlineIsKeptByLoad() throws DaoException {
+        Booking booking = booking(Booking.State.BOOKED, 0);
+        booking.getModified().add(Calendar.DATE, -2);
+        deadlines.run();
+        deadlines.track(booking(Booking.State.BOOKED, 0));
+        when(bookingDao.findByStateModifiedBefore(eq(Booking.State.BOOKED), any()))
+                .thenReturn(Collections.singletonList(booking));
+
+        deadlines.load(System.currentTimeMillis());
+        deadlines.run();
+
+        verify(bookingDao, never()).read(anyLong());
+    }
+
+    @Test
+    public void testNotExpiredBookingIsNotTouched() throws DaoException {
+        deadlines.run();
+        deadlines.track(booking(Booking.State.BOOKED, 0));
+        deadlines.run();
+
+        assertEquals(1, deadlines.size());
+        verify(bookingDao, never()).read(anyLong());
+    }
+
+    @Test
+    public void testDeadlineAfterWindowIsLeftToLoad() {
+        Booking booking = booking(Booking.State.DELIVERED, 0);
+        Book book = mock(Book.class);
+        when(book.getKeepPeriod()).thenReturn(14);
+        booking.setLocated(Booking.Place.USER);
+        booking.getBooks().add(book);
+
+        deadlines.run();
+        deadlines.track(booking);
+
+        assertEquals(0, deadlines.size());
+    }
+
+    @Test
+    public void testDeadlineOfChangedBookingIsSkipped() throws DaoException {
+        deadlines.run();
+        deadlines.track(booking(Booking.State.BOOKED, 2));
+        when(bookingDao.read(ID)).thenReturn(booking(Booking.State.DELIVERED, 2));
+
+        deadlines.run();
+
+        verify(bookingDao, never()).update(any());
+    }
+
+    @Test
+    public void testDoneBookingDeadlineIsCanceled() throws DaoException {
+        deadlines.run();
+        deadlines.track(booking(Booking.State.BOOKED, 2));
+        deadlines.track(booking(Booking.State.DONE, 0));
+
+        deadlines.run();
+
+        verify(bookingDao, never()).read(anyLong());
+    }
+
+    @Test
+    public void testOverdueBookingUpdatesUserFine() throws DaoException {
+        Booking booking = booking(Booking.State.DELIVERED, 3);
+        Book book = mock(Book.class);
+        when(book.getKeepPeriod()).thenReturn(1);
+        booking.setLocated(Booking.Place.USER);
+        booking.getBooks().add(book);
+        when(bookingDao.read(ID)).thenReturn(booking);
+        when(userDao.read(ID)).thenReturn(booking.getUser());
+        when(bookingDao.findDeliveredByUserID(ID)).thenReturn(Collections.singletonList(booking));
+
+        deadlines.run();
+        deadlines.track(booking);
+        deadlines.run();
+
+        verify(userDao).updateFines(Collections.singletonList(booking.getUser()));
+        verify(bookingDao, never()).update(any());
+        // the next fine is in a day
+        assertEquals(1, deadlines.size());
+    }
+
+    @Test
+    public void testNodeWithoutLeaseKeepsNoDeadlines() throws DaoException {
+        deadlines.setElection(new LeaderElection(mock(TaskLeaseDao.class), 30));
+
+        deadlines.run();
+        deadlines.track(booking(Booking.State.BOOKED, 0));
+
+        assertEquals(0, deadlines.size());
+        verify(bookingDao, never()).findByStateModifiedBefore(any(), any());
+    }
+
+    @Test
+    public void testLostLeaseDropsDeadlines() throws DaoException {
+        TaskLeaseDao leaseDao = mock(TaskLeaseDao.class);
+        LeaderElection election = new LeaderElection(leaseDao, 30);
+        when(leaseDao.acquire(eq(BookingDeadlines.TASK_NAME), anyString(), anyInt())).thenReturn(true);
+        deadlines.setElection(election);
+
+        election.campaign(BookingDeadlines.TASK_NAME).run();
+        deadlines.run();
+        deadlines.track(booking(Booking.State.BOOKED, 0));
+        assertEquals(1, deadlines.size());
+
+        // lease was taken by another node after expiration
+        when(leaseDao.renew(eq(BookingDeadlines.TASK_NAME), anyString(), anyInt())).thenReturn(false);
+        election.heartbeat().run();
+        deadlines.run();
+
+        assertEquals(0, deadlines.size());
+        verify(bookingDao, times(1)).findByStateModifiedBefore(eq(Booking.State.BOOKED), any());
+    }
+}
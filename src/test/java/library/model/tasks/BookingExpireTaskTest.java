@@ -4,6 +4,8 @@ import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
 import library.model.dao.BookingDao;
 import library.model.dao.factory.DaoFactoryImpl;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
 import library.model.entities.Booking;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,8 +13,10 @@ import org.junit.Test;
 import javax.servlet.ServletContext;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class BookingExpireTaskTest {
@@ -62,6 +66,23 @@ public class BookingExpireTaskTest {
         verify(booking).setState(Booking.State.CANCELED);
     }
 
+    @Test
+    public void testRunShouldReleaseReservedBooks() throws ServiceException, DaoException {
+        BookingExpireTask task = new BookingExpireTask(daoFactory);
+        Calendar twoDaysAgo = Calendar.getInstance();
+        BookStat stat = new BookStat.Builder().setReserved(2).build();
+
+        twoDaysAgo.add(Calendar.DATE, -2);
+        when(booking.getModified()).thenReturn(twoDaysAgo);
+        when(booking.getBooks()).thenReturn(Collections.singletonList(new Book.Builder().setBookStat(stat).build()));
+
+        task.init(context);
+        task.run();
+
+        assertEquals(1, stat.getReserved());
+        verify(daoFactory.getBookingDao()).update(booking);
+    }
+
     @Test
     public void testRunShouldNotCancelBooking() throws ServiceException {
         BookingExpireTask task = new BookingExpireTask(daoFactory);
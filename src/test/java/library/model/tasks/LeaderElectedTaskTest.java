@@ -0,0 +1,95 @@
+package library.model.tasks;
+
+import library.exceptions.DaoException;
+import library.model.dao.TaskLeaseDao;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.TimerTask;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LeaderElectedTaskTest {
+    private static final String TASK = "task";
+    private static final long PERIOD = 1000;
+
+    private TaskLeaseDao dao;
+    private TimerTask task;
+    private LeaderElection election;
+
+    @Before
+    public void mockObjects() {
+        dao = mock(TaskLeaseDao.class);
+        task = mock(TimerTask.class);
+        election = new LeaderElection(dao, 30);
+    }
+
+    @Test
+    public void testLeaderRunsTask() throws DaoException {
+        when(dao.acquire(eq(TASK), anyString(), eq(30))).thenReturn(true);
+        when(dao.markRun(eq(TASK), anyString(), anyLong())).thenReturn(true);
+
+        new LeaderElectedTask(TASK, task, PERIOD, election).run();
+
+        verify(task).run();
+    }
+
+    @Test
+    public void testNotLeaderSkipsTask() throws DaoException {
+        when(dao.acquire(eq(TASK), anyString(), eq(30))).thenReturn(false);
+
+        new LeaderElectedTask(TASK, task, PERIOD, election).run();
+
+        verify(task, never()).run();
+        verify(dao, never()).markRun(anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    public void testLeaderSkipsTaskAlreadyExecutedInPeriod() throws DaoException {
+        when(dao.acquire(eq(TASK), anyString(), eq(30))).thenReturn(true);
+        when(dao.markRun(eq(TASK), anyString(), anyLong())).thenReturn(false);
+
+        new LeaderElectedTask(TASK, task, PERIOD, election).run();
+
+        verify(task, never()).run();
+    }
+
+    @Test
+    public void testDaoErrorSkipsTask() throws DaoException {
+        when(dao.acquire(eq(TASK), anyString(), eq(30))).thenThrow(new DaoException("error"));
+
+        new LeaderElectedTask(TASK, task, PERIOD, election).run();
+
+        verify(task, never()).run();
+    }
+
+    @Test
+    public void testHeartbeatRenewsHeldLeasesAndReleaseFreesThem() throws DaoException {
+        when(dao.acquire(eq(TASK), anyString(), eq(30))).thenReturn(true);
+        when(dao.renew(eq(TASK), anyString(), eq(30))).thenReturn(true);
+
+        election.shouldRun(TASK, PERIOD);
+        election.heartbeat().run();
+        election.releaseAll();
+
+        verify(dao).renew(TASK, election.getNodeId(), 30);
+        verify(dao).release(TASK, election.getNodeId());
+        assertEquals(10000, election.getHeartbeatPeriod());
+    }
+
+    @Test
+    public void testCampaignTakesFreeLeaseOnce() throws DaoException {
+        when(dao.acquire(eq(TASK), anyString(), eq(30))).thenReturn(true);
+        TimerTask campaign = election.campaign(TASK);
+
+        assertFalse(election.holds(TASK));
+        campaign.run();
+        campaign.run();
+
+        assertTrue(election.holds(TASK));
+        // held lease is prolonged by heartbeat
+        verify(dao, times(1)).acquire(eq(TASK), anyString(), eq(30));
+    }
+}
@@ -0,0 +1,85 @@
+package library.model.tasks;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+    private static final long TICK = 10;
+    private static final int SIZE = 8;
+    private static final long START = 1000;
+
+    private TimingWheel<String> wheel;
+
+    @Before
+    public void createWheel() {
+        wheel = new TimingWheel<>(TICK, SIZE, START);
+    }
+
+    @Test
+    public void testTimeoutFiresNotBeforeDeadline() {
+        wheel.schedule(1, START + 25, "a");
+
+        assertTrue(wheel.advance(START + 24).isEmpty());
+        List<TimingWheel.Timeout<String>> expired = wheel.advance(START + 30);
+
+        assertEquals(1, expired.size());
+        assertEquals(1, expired.get(0).getKey());
+        assertEquals("a", expired.get(0).getPayload());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testTimeoutOnUpperLevelIsMovedDown() {
+        long deadline = START + TICK * SIZE * SIZE * 3 + 5;
+        wheel.schedule(1, deadline, "a");
+
+        for (long now = START; now < deadline; now += TICK) {
+            assertTrue("fired at " + now, wheel.advance(now).isEmpty());
+        }
+        assertEquals(1, wheel.advance(deadline + TICK).size());
+    }
+
+    @Test
+    public void testAdvanceAfterLongPauseFiresOnlyDueTimeouts() {
+        wheel.schedule(1, START + 500, "a");
+        wheel.schedule(2, START + 5000, "b");
+
+        List<TimingWheel.Timeout<String>> expired = wheel.advance(START + 3000);
+
+        assertEquals(1, expired.size());
+        assertEquals(1, expired.get(0).getKey());
+        assertTrue(wheel.contains(2));
+        assertEquals(1, wheel.advance(START + 5010).size());
+    }
+
+    @Test
+    public void testCanceledTimeoutDoesNotFire() {
+        wheel.schedule(1, START + 50, "a");
+
+        assertTrue(wheel.cancel(1));
+        assertFalse(wheel.cancel(1));
+        assertTrue(wheel.advance(START + 100).isEmpty());
+    }
+
+    @Test
+    public void testScheduleReplacesTimeoutWithSameKey() {
+        wheel.schedule(1, START + 50, "a");
+        wheel.schedule(1, START + 200, "b");
+
+        assertTrue(wheel.advance(START + 100).isEmpty());
+        List<TimingWheel.Timeout<String>> expired = wheel.advance(START + 200);
+        assertEquals(1, expired.size());
+        assertEquals("b", expired.get(0).getPayload());
+    }
+
+    @Test
+    public void testPastDeadlineFiresOnNextAdvance() {
+        wheel.schedule(1, START - 100, "a");
+
+        assertEquals(1, wheel.advance(START).size());
+    }
+}
@@ -3,10 +3,12 @@ package library.model.tasks;
 import library.exceptions.DaoException;
 import library.exceptions.ServiceException;
 import library.model.dao.BookingDao;
+import library.model.dao.TaskCheckpointDao;
 import library.model.dao.UserDao;
 import library.model.dao.factory.DaoFactoryImpl;
 import library.model.entities.Book;
 import library.model.entities.Booking;
+import library.model.entities.TaskCheckpoint;
 import library.model.entities.User;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,9 +16,12 @@ import org.junit.Test;
 import javax.servlet.ServletContext;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 
-import static library.model.tasks.UpdateFineTask.INIT_PARAM_FINE_PER_DAY;
+import static library.model.tasks.UpdateFineTask.*;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 public class UpdateFineTaskTest {
@@ -24,6 +29,8 @@ public class UpdateFineTaskTest {
     private DaoFactoryImpl daoFactory;
     private Booking booking;
     private User user;
+    private UserDao userDao;
+    private TaskCheckpointDao checkpointDao;
 
     @Before
     public void mockDaoFactory() throws DaoException {
@@ -34,7 +41,8 @@ public class UpdateFineTaskTest {
 
         Book book = mock(Book.class);
         BookingDao bookingDao = mock(BookingDao.class);
-        UserDao userDao = mock(UserDao.class);
+        userDao = mock(UserDao.class);
+        checkpointDao = mock(TaskCheckpointDao.class);
         List<User> users = new ArrayList<>();
         List<Booking> bookings = new ArrayList<>();
         List<Book> books = new ArrayList<>();
@@ -54,11 +62,14 @@ public class UpdateFineTaskTest {
 
         when(book.getKeepPeriod()).thenReturn(1);
         when(booking.getBooks()).thenReturn(books);
-        when(userDao.getAll()).thenReturn(users);
-        when(bookingDao.findDeliveredByUserID(id)).thenReturn(bookings);
+        when(booking.getUser()).thenReturn(user);
+        when(userDao.getMaxId()).thenReturn(id);
+        when(userDao.findByIdRange(0, DEFAULT_PARTITION_SIZE)).thenReturn(users);
+        when(bookingDao.findDeliveredByUserIdRange(0, DEFAULT_PARTITION_SIZE)).thenReturn(bookings);
 
         when(daoFactory.getBookingDao()).thenReturn(bookingDao);
         when(daoFactory.getUserDao()).thenReturn(userDao);
+        when(daoFactory.getTaskCheckpointDao()).thenReturn(checkpointDao);
     }
 
     @Test
@@ -98,4 +109,61 @@ public class UpdateFineTaskTest {
 
         verify(user, times(0)).setFine(1.0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFinishedRunClearsCheckpoints() throws ServiceException, DaoException {
+        UpdateFineTask task = new UpdateFineTask(daoFactory);
+        ServletContext context = mock(ServletContext.class);
+        when(context.getInitParameter(INIT_PARAM_FINE_PER_DAY)).thenReturn("1");
+        task.init(context);
+
+        task.run();
+
+        verify(userDao).updateFines(any());
+        verify(checkpointDao).create(any(TaskCheckpoint.class));
+        verify(checkpointDao).deleteByTask(TASK_NAME);
+    }
+
+    @Test
+    public void testInterruptedRunIsResumed() throws ServiceException, DaoException {
+        UpdateFineTask task = new UpdateFineTask(daoFactory);
+        ServletContext context = mock(ServletContext.class);
+        when(context.getInitParameter(INIT_PARAM_FINE_PER_DAY)).thenReturn("1");
+        task.init(context);
+
+        TaskCheckpoint done = new TaskCheckpoint.Builder()
+                .setId(0)
+                .setTask(TASK_NAME)
+                .setRunStarted(Calendar.getInstance())
+                .build();
+        when(checkpointDao.findByTask(TASK_NAME)).thenReturn(Collections.singletonList(done));
+        task.run();
+
+        verify(userDao, times(0)).findByIdRange(0, DEFAULT_PARTITION_SIZE);
+        verify(user, times(0)).setFine(1.0);
+    }
+
+    @Test
+    public void testFailedPartitionKeepsCheckpoints() throws ServiceException, DaoException {
+        UpdateFineTask task = new UpdateFineTask(daoFactory);
+        ServletContext context = mock(ServletContext.class);
+        when(context.getInitParameter(INIT_PARAM_FINE_PER_DAY)).thenReturn("1");
+        task.init(context);
+
+        doThrow(new DaoException("error")).when(userDao).updateFines(any());
+        task.run();
+
+        verify(checkpointDao, times(0)).create(any(TaskCheckpoint.class));
+        verify(checkpointDao, times(0)).deleteByTask(TASK_NAME);
+    }
+
+    @Test
+    public void testParallelismShouldBeLessThanPoolSize() {
+        UpdateFineTask task = new UpdateFineTask(daoFactory, 4);
+        ServletContext context = mock(ServletContext.class);
+        when(context.getInitParameter(INIT_PARAM_FINE_PER_DAY)).thenReturn("1");
+        when(context.getInitParameter(INIT_PARAM_PARALLELISM)).thenReturn("4");
+
+        assertThrows(ServiceException.class, () -> task.init(context));
+    }
+}
@@ -0,0 +1,82 @@
+package library.utils;
+
+import com.github.cage.Cage;
+import com.github.cage.IGenerator;
+import library.exceptions.ServiceException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CaptchaPoolTest {
+    private static final byte[] IMAGE = {1, 2, 3};
+
+    private Cage cage;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void mockCage() throws IOException {
+        cage = mock(Cage.class);
+        IGenerator<String> tokens = mock(IGenerator.class);
+        AtomicInteger counter = new AtomicInteger();
+        when(tokens.next()).thenAnswer(invocation -> "token" + counter.incrementAndGet());
+        when(cage.getTokenGenerator()).thenReturn(tokens);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write(IMAGE);
+            return null;
+        }).when(cage).draw(anyString(), any(OutputStream.class));
+    }
+
+    @Test
+    public void testIssuedCaptchaImageIsKeptTillRelease() throws ServiceException {
+        CaptchaPool pool = new CaptchaPool(cage, 2, 10);
+
+        Captcha captcha = pool.issue();
+
+        assertArrayEquals(IMAGE, pool.getImage(captcha.getId()));
+        pool.release(captcha);
+        assertNull(pool.getImage(captcha.getId()));
+    }
+
+    @Test
+    public void testPoolIsFilledInBackground() throws ServiceException, InterruptedException {
+        CaptchaPool pool = new CaptchaPool(cage, 3, 10);
+
+        pool.issue();
+        for (int i = 0; i < 100 && pool.size() < 3; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(3, pool.size());
+        Captcha captcha = pool.issue();
+        assertArrayEquals(IMAGE, pool.getImage(captcha.getId()));
+    }
+
+    @Test
+    public void testOldestIssuedImagesAreEvicted() throws ServiceException {
+        CaptchaPool pool = new CaptchaPool(cage, 1, 2);
+
+        Captcha first = pool.issue();
+        Captcha second = pool.issue();
+        Captcha third = pool.issue();
+
+        assertNull(pool.getImage(first.getId()));
+        assertNotNull(pool.getImage(second.getId()));
+        assertNotNull(pool.getImage(third.getId()));
+    }
+
+    @Test
+    public void testDrawErrorIsServiceException() throws IOException {
+        doThrow(new IOException("error")).when(cage).draw(anyString(), any(OutputStream.class));
+        CaptchaPool pool = new CaptchaPool(cage, 1, 2);
+
+        assertThrows(ServiceException.class, pool::issue);
+    }
+}
@@ -0,0 +1,78 @@
+package library.utils.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyMetricsTest {
+    private LatencyMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new LatencyMetrics("command", null);
+    }
+
+    @Test
+    public void latencyAndErrorsAreRecordedPerName() {
+        for (int i = 1; i <= 100; i++) {
+            metrics.record("book.find", TimeUnit.MILLISECONDS.toNanos(i), i % 10 == 0);
+        }
+        metrics.record("booking.find", TimeUnit.MILLISECONDS.toNanos(5), false);
+
+        Map<String, LatencyStats.Snapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.size());
+
+        LatencyStats.Snapshot book = snapshot.get("book.find");
+        assertEquals(100, book.getCount());
+        assertEquals(10, book.getErrors());
+        assertEquals(5.05, book.getSumSeconds(), 0.001);
+        assertEquals(0.050, book.getQuantileSeconds(0.5), 0.001);
+        assertEquals(0.099, book.getQuantileSeconds(0.99), 0.001);
+        assertEquals(1, snapshot.get("booking.find").getCount());
+    }
+
+    @Test
+    public void statsAreAvailableThroughJmx() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        metrics = new LatencyMetrics("command", server);
+        metrics.record("book.find", TimeUnit.MILLISECONDS.toNanos(3), true);
+
+        ObjectName name = new ObjectName("library:type=Latency,group=command,name=\"book.find\"");
+        assertEquals(1L, server.getAttribute(name, "Count"));
+        assertEquals(1L, server.getAttribute(name, "ErrorCount"));
+        assertEquals(3.0, (Double) server.getAttribute(name, "P99Millis"), 0.01);
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "Count"));
+
+        metrics.unregister();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void prometheusFormat() {
+        metrics.record("book.find", TimeUnit.MILLISECONDS.toNanos(2), false);
+        metrics.record("say \"hi\"", TimeUnit.MILLISECONDS.toNanos(2), true);
+
+        StringWriter out = new StringWriter();
+        PrometheusFormat.write(new PrintWriter(out), metrics);
+        String text = out.toString();
+
+        assertTrue(text.contains("# TYPE library_command_latency_seconds summary\n"));
+        assertTrue(text.contains("library_command_latency_seconds{name=\"book.find\",quantile=\"0.99\"} 0.002"));
+        assertTrue(text.contains("library_command_latency_seconds_sum{name=\"book.find\"} 0.002\n"));
+        assertTrue(text.contains("library_command_latency_seconds_count{name=\"book.find\"} 1\n"));
+        assertTrue(text.contains("# TYPE library_command_errors_total counter\n"));
+        assertTrue(text.contains("library_command_errors_total{name=\"book.find\"} 0\n"));
+        assertTrue(text.contains("library_command_errors_total{name=\"say \\\"hi\\\"\"} 1\n"));
+    }
+}
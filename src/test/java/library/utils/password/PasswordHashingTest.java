@@ -0,0 +1,83 @@
+package library.utils.password;
+
+import library.exceptions.ServiceException;
+import library.utils.PasswordUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class PasswordHashingTest {
+    private static final String PASS = "123";
+    private PasswordHashing hashing;
+
+    @After
+    public void shutdown() {
+        hashing.shutdown();
+    }
+
+    @Test
+    public void testLegacyHashIsVerifiedAndNeedsRehash() throws Exception {
+        hashing = new PasswordHashing(new Pbkdf2PasswordHasher(1000), 1, 1);
+        String legacy = PasswordUtil.genHash(PASS);
+
+        assertTrue(hashing.verify(PASS, legacy));
+        assertFalse(hashing.verify("1234", legacy));
+        assertTrue(hashing.needsRehash(legacy));
+    }
+
+    @Test
+    public void testCurrentHashDoesNotNeedRehash() throws ServiceException {
+        hashing = new PasswordHashing(new Pbkdf2PasswordHasher(1000), 1, 1);
+        String hash = hashing.hash(PASS);
+
+        assertTrue(hashing.verify(PASS, hash));
+        assertFalse(hashing.needsRehash(hash));
+    }
+
+    @Test
+    public void testRequestIsRejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordHasher blocking = new Pbkdf2PasswordHasher(1000) {
+            @Override
+            public String hash(String password) throws ServiceException {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.hash(password);
+            }
+        };
+        hashing = new PasswordHashing(blocking, 1, 1);
+
+        // first one takes the thread, second one takes the queue
+        Thread first = new Thread(() -> call(hashing));
+        first.start();
+        started.await();
+        Thread second = new Thread(() -> call(hashing));
+        second.start();
+        while (second.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(5);
+        }
+
+        ServiceException e = assertThrows(ServiceException.class, () -> hashing.hash(PASS));
+        assertEquals("error.server.busy", e.getMessage());
+
+        release.countDown();
+        first.join();
+        second.join();
+    }
+
+    private static void call(PasswordHashing hashing) {
+        try {
+            hashing.hash(PASS);
+        } catch (ServiceException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
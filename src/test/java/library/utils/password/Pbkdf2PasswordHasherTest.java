@@ -0,0 +1,39 @@
+package library.utils.password;
+
+import library.exceptions.ServiceException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Pbkdf2PasswordHasherTest {
+    private static final String PASS = "123";
+    private final Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(1000);
+
+    @Test
+    public void testHashIsVerified() throws ServiceException {
+        String hash = hasher.hash(PASS);
+
+        assertTrue(hasher.supports(hash));
+        assertTrue(hasher.verify(PASS, hash));
+        assertFalse(hasher.verify("1234", hash));
+    }
+
+    @Test
+    public void testSaltIsRandom() throws ServiceException {
+        assertNotEquals(hasher.hash(PASS), hasher.hash(PASS));
+    }
+
+    @Test
+    public void testHashWithOtherIterationsNeedsRehash() throws ServiceException {
+        String hash = new Pbkdf2PasswordHasher(500).hash(PASS);
+
+        assertTrue(hasher.verify(PASS, hash));
+        assertTrue(hasher.needsRehash(hash));
+        assertFalse(hasher.needsRehash(hasher.hash(PASS)));
+    }
+
+    @Test
+    public void testMalformedHashIsServiceException() {
+        assertThrows(ServiceException.class, () -> hasher.verify(PASS, "pbkdf2$x$y$z"));
+    }
+}
@@ -0,0 +1,62 @@
+package library.utils.session;
+
+import library.model.entities.Booking;
+import library.model.entities.Book;
+import library.model.entities.BookStat;
+import library.model.entities.User;
+import org.junit.Test;
+
+import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SessionSizeReportTest {
+
+    @Test
+    public void reportHasAllAttributes() {
+        HttpSession session = mock(HttpSession.class);
+        when(session.getAttributeNames()).thenReturn(Collections.enumeration(Arrays.asList("lang", "thread")));
+        when(session.getAttribute("lang")).thenReturn("en");
+        when(session.getAttribute("thread")).thenReturn(new Object());
+
+        SessionSizeReport report = SessionSizeReport.of(session);
+
+        assertEquals(2, report.getSizes().size());
+        assertTrue(report.getSizes().get("lang") > 0);
+        assertEquals(SessionSizeReport.NOT_SERIALIZABLE, (int) report.getSizes().get("thread"));
+        assertEquals((long) report.getSizes().get("lang"), report.getTotal());
+    }
+
+    @Test
+    public void emptyReportForNullSession() {
+        SessionSizeReport report = SessionSizeReport.of(null);
+        assertTrue(report.getSizes().isEmpty());
+        assertEquals(0, report.getTotal());
+    }
+
+    @Test
+    public void basketIsSmallerThanBooking() {
+        User user = new User.Builder().setId(1).setEmail("user@test.com").setName("user").build();
+        List<Long> ids = new ArrayList<>();
+        Booking booking = new Booking.Builder().setUser(user).build();
+        for (long id = 1; id <= 10; id++) {
+            ids.add(id);
+            booking.getBooks().add(new Book.Builder()
+                    .setId(id)
+                    .setTitle("Some long enough title of the book number " + id)
+                    .setIsbn("978-3-16-148410-" + id)
+                    .setBookStat(new BookStat.Builder().setId(id).setTotal(10).setInStock(10).build())
+                    .build());
+        }
+        BasketState basket = new BasketState(user.getId(), ids);
+
+        assertEquals(10, basket.getSize());
+        assertTrue(SessionSizeReport.sizeOf(basket) < SessionSizeReport.sizeOf(booking));
+    }
+}